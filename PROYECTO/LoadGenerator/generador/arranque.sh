@@ -0,0 +1,119 @@
+#!/usr/bin/env bash
+# Mide el tiempo hasta listo de gateway y POS: desde que se lanza la JVM hasta que
+# /actuator/health/readiness responde UP (después de las tareas de ApplicationReadyEvent).
+# Cada servicio se arranca solo, CORRIDAS veces por modo:
+#   jar  java -jar del jar de producción, sin AOT ni CDS (referencia)
+#   aot  con -Dspring.aot.enabled=true
+#   cds  AOT más el archivo AppCDS generado en el build (-XX:SharedArchiveFile)
+# El POS se mide sin el gateway levantado: sus claves se piden en segundo plano y no deben
+# demorar el arranque. Los tiempos quedan en target/arranque/arranque.csv y la mediana por
+# servicio y modo en target/arranque/resumen.txt.
+#
+# Requiere MariaDB en el puerto 3307 y PostgreSQL en el 5432 con las bases de application.properties
+# y su esquema creado (el perfil produccion solo lo valida). SIN_COMPILAR=1 omite mvn -Pproduccion package.
+#
+# Ejemplos:
+#   ./arranque.sh
+#   CORRIDAS=10 MODOS="jar cds" SERVICIOS=pos ./arranque.sh
+set -euo pipefail
+
+GENERADOR=$(cd "$(dirname "$0")" && pwd)
+PROYECTO=$(cd "$GENERADOR/../.." && pwd)
+CORRIDAS=${CORRIDAS:-5}
+MODOS=${MODOS:-jar aot cds}
+SERVICIOS=${SERVICIOS:-gateway pos}
+ESPERA_MAXIMA=${ESPERA_MAXIMA:-180}
+REGISTROS="$GENERADOR/target/arranque"
+CSV="$REGISTROS/arranque.csv"
+
+mkdir -p "$REGISTROS"
+PID=""
+
+detener() {
+    if [[ -n "$PID" ]]; then
+        kill "$PID" 2>/dev/null || true
+        wait "$PID" 2>/dev/null || true
+        PID=""
+    fi
+}
+trap detener EXIT
+
+modulo() {
+    case $1 in
+        gateway) echo "$PROYECTO/PaymentGateway/gateway" ;;
+        pos) echo "$PROYECTO/PointOfSale/pos" ;;
+    esac
+}
+
+puerto() {
+    case $1 in
+        gateway) echo 8083 ;;
+        pos) echo 8082 ;;
+    esac
+}
+
+ahora_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+# Arranca el servicio en el modo pedido y devuelve los milisegundos hasta readiness UP
+medir() {
+    local servicio=$1 modo=$2 corrida=$3
+    local directorio opciones=() inicio registro
+    directorio="$(modulo "$servicio")/target/produccion"
+    case $modo in
+        jar) ;;
+        aot) opciones=(-Dspring.aot.enabled=true) ;;
+        cds) opciones=(-Dspring.aot.enabled=true -XX:SharedArchiveFile="$servicio.jsa" -Xlog:cds=off) ;;
+    esac
+    registro="$REGISTROS/$servicio-$modo-$corrida.log"
+
+    inicio=$(ahora_ms)
+    (cd "$directorio" && exec java "${opciones[@]}" -jar "$servicio"-*.jar --spring.profiles.active=produccion) \
+        >"$registro" 2>&1 &
+    PID=$!
+    local limite=$((inicio + ESPERA_MAXIMA * 1000))
+    until curl -sf "http://localhost:$(puerto "$servicio")/actuator/health/readiness" >/dev/null 2>&1; do
+        if ! kill -0 "$PID" 2>/dev/null; then
+            echo "$servicio ($modo) terminó al arrancar, ver $registro" >&2
+            return 1
+        fi
+        if (($(ahora_ms) > limite)); then
+            echo "$servicio ($modo) no quedó listo en ${ESPERA_MAXIMA}s, ver $registro" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    echo $(($(ahora_ms) - inicio))
+    detener
+}
+
+if [[ "${SIN_COMPILAR:-0}" != "1" ]]; then
+    for servicio in $SERVICIOS; do
+        (cd "$(modulo "$servicio")" && sh ./mvnw -q -B -DskipTests -Pproduccion package)
+    done
+fi
+
+echo "servicio,modo,corrida,listo_ms" >"$CSV"
+for servicio in $SERVICIOS; do
+    for modo in $MODOS; do
+        # Una corrida descartada para que el sistema de archivos tenga los jars en caché
+        medir "$servicio" "$modo" 0 >/dev/null
+        for ((corrida = 1; corrida <= CORRIDAS; corrida++)); do
+            listo=$(medir "$servicio" "$modo" "$corrida")
+            echo "$servicio,$modo,$corrida,$listo" >>"$CSV"
+            echo "$servicio $modo #$corrida: ${listo} ms"
+        done
+    done
+done
+
+{
+    echo "Tiempo hasta listo, mediana de $CORRIDAS corridas (ms)"
+    for servicio in $SERVICIOS; do
+        for modo in $MODOS; do
+            mediana=$(awk -F, -v s="$servicio" -v m="$modo" '$1 == s && $2 == m { print $4 }' "$CSV" \
+                | sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }')
+            printf "%-8s %-4s %6s\n" "$servicio" "$modo" "$mediana"
+        done
+    done
+} | tee "$REGISTROS/resumen.txt"
@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+# Prueba de carga de punta a punta en una sola máquina Linux:
+#   1. compila gateway, POS y generador (SIN_COMPILAR=1 para omitirlo)
+#   2. levanta el gateway y luego el POS con el perfil carga (bases locales gateway_carga y
+#      pos_carga, procesador simulado dentro del gateway)
+#   3. corre el generador con los argumentos recibidos y detiene ambos servicios al terminar
+#
+# Requiere MariaDB en el puerto 3307 y PostgreSQL en el 5432 con las credenciales de
+# application.properties, y en gateway_carga los comercios y facturaciones de generador.comercios.
+#
+# Ejemplos:
+#   ./carga.sh --generador.terminales=5000 --generador.tasa-total=1000
+#   PERFILES=carga,virtual ./carga.sh --generador.destino=pos --generador.tasa-total=100
+set -euo pipefail
+
+GENERADOR=$(cd "$(dirname "$0")" && pwd)
+PROYECTO=$(cd "$GENERADOR/../.." && pwd)
+GATEWAY="$PROYECTO/PaymentGateway/gateway"
+POS="$PROYECTO/PointOfSale/pos"
+PERFILES=${PERFILES:-carga}
+REGISTROS="$GENERADOR/target/carga"
+ESPERA_MAXIMA=${ESPERA_MAXIMA:-180}
+
+mkdir -p "$REGISTROS"
+PIDS=()
+
+detener() {
+    for pid in "${PIDS[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+    wait 2>/dev/null || true
+}
+trap detener EXIT
+
+esperar_listo() {
+    local nombre=$1 url=$2 pid=$3
+    for ((i = 0; i < ESPERA_MAXIMA; i++)); do
+        if curl -sf "$url/actuator/health" >/dev/null 2>&1; then
+            echo "$nombre listo en ${i}s"
+            return 0
+        fi
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$nombre terminó al arrancar, ver $REGISTROS/$nombre.log" >&2
+            return 1
+        fi
+        sleep 1
+    done
+    echo "$nombre no respondió en ${ESPERA_MAXIMA}s, ver $REGISTROS/$nombre.log" >&2
+    return 1
+}
+
+if [[ "${SIN_COMPILAR:-0}" != "1" ]]; then
+    for modulo in "$GATEWAY" "$POS" "$GENERADOR"; do
+        (cd "$modulo" && sh ./mvnw -q -B -DskipTests package)
+    done
+fi
+
+if command -v psql >/dev/null 2>&1; then
+    export PGPASSWORD=${PGPASSWORD:-123}
+    if ! psql -h localhost -U postgres -tAc "SELECT 1 FROM pg_database WHERE datname = 'pos_carga'" | grep -q 1; then
+        createdb -h localhost -U postgres pos_carga
+    fi
+fi
+
+java -jar "$GATEWAY"/target/gateway-*.jar --spring.profiles.active="$PERFILES" >"$REGISTROS/gateway.log" 2>&1 &
+PIDS+=($!)
+esperar_listo gateway http://localhost:8083 "${PIDS[-1]}"
+
+# El POS pide sus claves al gateway al arrancar, por eso va después
+java -jar "$POS"/target/pos-*.jar --spring.profiles.active="$PERFILES" >"$REGISTROS/pos.log" 2>&1 &
+PIDS+=($!)
+esperar_listo pos http://localhost:8082 "${PIDS[-1]}"
+
+java -jar "$GENERADOR"/target/generador-*.jar --generador.reporte.directorio="$REGISTROS" "$@"
@@ -0,0 +1,13 @@
+package ec.edu.espe.generador;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class GeneradorApplication {
+
+	public static void main(String[] args) {
+		System.exit(SpringApplication.exit(SpringApplication.run(GeneradorApplication.class, args)));
+	}
+
+}
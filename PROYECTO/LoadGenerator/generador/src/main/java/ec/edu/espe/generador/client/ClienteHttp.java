@@ -0,0 +1,51 @@
+package ec.edu.espe.generador.client;
+
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Cliente HTTP compartido por todas las terminales. Cada terminal llama a enviar desde su propio
+ * hilo virtual y queda bloqueada hasta la respuesta; el cuerpo de la respuesta se descarta.
+ */
+@Component
+public class ClienteHttp {
+
+    private final HttpClient cliente;
+    private final Duration timeout;
+
+    public ClienteHttp(ConfiguracionCarga configuracion) {
+        this.timeout = Duration.ofMillis(configuracion.getTimeoutMs());
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public int postJson(URI uri, byte[] cuerpo) {
+        HttpRequest peticion = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(cuerpo))
+                .build();
+        try {
+            return cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (HttpTimeoutException e) {
+            return DestinoCarga.ESTADO_TIMEOUT;
+        } catch (IOException e) {
+            return DestinoCarga.ESTADO_ERROR_CONEXION;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DestinoCarga.ESTADO_ERROR_CONEXION;
+        }
+    }
+}
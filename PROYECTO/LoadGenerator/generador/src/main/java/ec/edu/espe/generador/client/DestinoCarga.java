@@ -0,0 +1,17 @@
+package ec.edu.espe.generador.client;
+
+import ec.edu.espe.generador.model.Pago;
+
+/**
+ * Servicio que recibe los pagos simulados. Devuelve el código HTTP de la respuesta o uno de los
+ * estados negativos cuando no hubo respuesta.
+ */
+public interface DestinoCarga {
+
+    int ESTADO_TIMEOUT = -1;
+    int ESTADO_ERROR_CONEXION = -2;
+
+    int enviar(Pago pago);
+
+    String descripcion();
+}
@@ -0,0 +1,90 @@
+package ec.edu.espe.generador.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import ec.edu.espe.generador.model.Pago;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Envía los pagos directo al gateway con el mismo cuerpo que arma el POS: /api/transacciones/sincronizar
+ * (espera la respuesta del procesador) o /api/transacciones/v2/sincronizar (responde 202 al persistir).
+ * Cada terminal simulada viaja con su propio código de POS, así los límites por terminal del gateway
+ * se ejercitan como con una flota real.
+ */
+@Component
+public class DestinoGateway implements DestinoCarga {
+
+    private final ClienteHttp clienteHttp;
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+
+    public DestinoGateway(ClienteHttp clienteHttp, ObjectMapper objectMapper, ConfiguracionCarga configuracion) {
+        this.clienteHttp = clienteHttp;
+        this.objectMapper = objectMapper;
+        String ruta = ConfiguracionCarga.DESTINO_GATEWAY_ASINCRONO.equals(configuracion.getDestino())
+                ? "/api/transacciones/v2/sincronizar"
+                : "/api/transacciones/sincronizar";
+        this.uri = URI.create(configuracion.getUrlGateway() + ruta);
+    }
+
+    @Override
+    public int enviar(Pago pago) {
+        return clienteHttp.postJson(uri, cuerpo(pago));
+    }
+
+    @Override
+    public String descripcion() {
+        return uri.toString();
+    }
+
+    private byte[] cuerpo(Pago pago) {
+        Map<String, Object> transaccion = new LinkedHashMap<>();
+        transaccion.put("comercio", Map.of("codigo", pago.terminal().codigoComercio()));
+        transaccion.put("facturacionComercio", Map.of("codigo", pago.terminal().codigoFacturacion()));
+        transaccion.put("tipo", pago.recurrente() ? "REC" : "SIM");
+        transaccion.put("marca", pago.marca());
+        transaccion.put("detalle", "Carga POS - " + pago.marca());
+        transaccion.put("monto", pago.monto());
+        transaccion.put("codigoUnicoTransaccion", UUID.randomUUID().toString());
+        transaccion.put("fecha", LocalDateTime.now());
+        transaccion.put("estado", "ENV");
+        transaccion.put("moneda", "USD");
+        transaccion.put("pais", "EC");
+        transaccion.put("tarjeta", tarjeta(objectMapper, pago));
+        transaccion.put("codigoPos", pago.terminal().codigo());
+        transaccion.put("modeloPos", pago.terminal().modelo());
+        if (pago.recurrente()) {
+            LocalDate hoy = LocalDate.now();
+            transaccion.put("fechaEjecucionRecurrencia", hoy.plusMonths(1));
+            transaccion.put("fechaFinRecurrencia", hoy.plusYears(1));
+        }
+        try {
+            return objectMapper.writeValueAsBytes(transaccion);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error al serializar la transacción: " + e.getMessage());
+        }
+    }
+
+    // Mismo JSON de tarjeta que el frontend del POS entrega en datosTarjeta
+    static String tarjeta(ObjectMapper objectMapper, Pago pago) {
+        Map<String, String> tarjeta = new LinkedHashMap<>();
+        tarjeta.put("cardNumber", pago.numeroTarjeta());
+        tarjeta.put("expiryDate", pago.fechaExpiracion());
+        tarjeta.put("cvv", pago.cvv());
+        tarjeta.put("nombreTarjeta", "CARGA " + pago.terminal().codigo());
+        tarjeta.put("direccionTarjeta", "QUITO");
+        try {
+            return objectMapper.writeValueAsString(tarjeta);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error al serializar la tarjeta: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ec.edu.espe.generador.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import ec.edu.espe.generador.model.Pago;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Envía los pagos al PagoController del POS, que los guarda y los sincroniza con el gateway: mide el
+ * recorrido completo POS → gateway → procesador. Un POS atiende una sola configuración de terminal,
+ * así que todas las terminales simuladas comparten su código y el POS solo crea pagos simples.
+ */
+@Component
+public class DestinoPos implements DestinoCarga {
+
+    private final ClienteHttp clienteHttp;
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+
+    public DestinoPos(ClienteHttp clienteHttp, ObjectMapper objectMapper, ConfiguracionCarga configuracion) {
+        this.clienteHttp = clienteHttp;
+        this.objectMapper = objectMapper;
+        this.uri = URI.create(configuracion.getUrlPos() + "/api/pagos/procesar");
+    }
+
+    @Override
+    public int enviar(Pago pago) {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("monto", pago.monto());
+        cuerpo.put("marca", pago.marca());
+        cuerpo.put("datosTarjeta", DestinoGateway.tarjeta(objectMapper, pago));
+        try {
+            return clienteHttp.postJson(uri, objectMapper.writeValueAsBytes(cuerpo));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error al serializar el pago: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String descripcion() {
+        return uri.toString();
+    }
+}
@@ -0,0 +1,229 @@
+package ec.edu.espe.generador.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parámetros de una corrida (generador.* en application.properties, sobrescribibles con
+ * --generador.xxx=valor). Las mezclas se escriben como listas clave:valor separadas por comas.
+ */
+@Component
+public class ConfiguracionCarga {
+
+    public static final String DESTINO_GATEWAY = "gateway";
+    public static final String DESTINO_GATEWAY_ASINCRONO = "gateway-v2";
+    public static final String DESTINO_POS = "pos";
+
+    private final String destino;
+    private final String urlGateway;
+    private final String urlPos;
+    private final int terminales;
+    private final double tasaTotal;
+    private final int duracionSegundos;
+    private final int calentamientoSegundos;
+    private final int timeoutMs;
+    private final Map<String, Integer> marcas;
+    private final BigDecimal montoMediana;
+    private final double montoDispersion;
+    private final BigDecimal montoMaximo;
+    private final double recurrentes;
+    private final List<ComercioFacturacion> comercios;
+    private final int tarjetas;
+    private final String prefijoPos;
+    private final String modeloPos;
+    private final long semilla;
+    private final Path directorioReporte;
+    private final int intervaloReporteSegundos;
+    private final double erroresMaximos;
+
+    public ConfiguracionCarga(
+            @Value("${generador.destino:gateway}") String destino,
+            @Value("${generador.gateway.url:http://localhost:8083}") String urlGateway,
+            @Value("${generador.pos.url:http://localhost:8082}") String urlPos,
+            @Value("${generador.terminales:1000}") int terminales,
+            @Value("${generador.tasa-total:200}") double tasaTotal,
+            @Value("${generador.duracion-segundos:60}") int duracionSegundos,
+            @Value("${generador.calentamiento-segundos:10}") int calentamientoSegundos,
+            @Value("${generador.timeout-ms:10000}") int timeoutMs,
+            @Value("${generador.marcas:VISA:50,MSCD:35,AMEX:10,DINE:5}") String marcas,
+            @Value("${generador.monto.mediana:25}") BigDecimal montoMediana,
+            @Value("${generador.monto.dispersion:1.0}") double montoDispersion,
+            @Value("${generador.monto.maximo:2000}") BigDecimal montoMaximo,
+            @Value("${generador.recurrentes:0.05}") double recurrentes,
+            @Value("${generador.comercios:1:1}") String comercios,
+            @Value("${generador.tarjetas:50000}") int tarjetas,
+            @Value("${generador.pos.prefijo:LG}") String prefijoPos,
+            @Value("${generador.pos.modelo:POS}") String modeloPos,
+            @Value("${generador.semilla:0}") long semilla,
+            @Value("${generador.reporte.directorio:target/carga}") String directorioReporte,
+            @Value("${generador.reporte.intervalo-segundos:5}") int intervaloReporteSegundos,
+            @Value("${generador.errores-maximos:0.05}") double erroresMaximos) {
+        if (!DESTINO_GATEWAY.equals(destino) && !DESTINO_GATEWAY_ASINCRONO.equals(destino)
+                && !DESTINO_POS.equals(destino)) {
+            throw new IllegalArgumentException("Destino inválido: " + destino + ". Debe ser uno de: "
+                    + String.join(", ", DESTINO_GATEWAY, DESTINO_GATEWAY_ASINCRONO, DESTINO_POS));
+        }
+        if (terminales <= 0 || tasaTotal <= 0 || duracionSegundos <= 0) {
+            throw new IllegalArgumentException("Terminales, tasa total y duración deben ser mayores a 0");
+        }
+        if (recurrentes < 0 || recurrentes > 1) {
+            throw new IllegalArgumentException("La proporción de recurrentes debe estar entre 0 y 1");
+        }
+        this.destino = destino;
+        this.urlGateway = urlGateway;
+        this.urlPos = urlPos;
+        this.terminales = terminales;
+        this.tasaTotal = tasaTotal;
+        this.duracionSegundos = duracionSegundos;
+        this.calentamientoSegundos = Math.max(0, calentamientoSegundos);
+        this.timeoutMs = timeoutMs;
+        this.marcas = leerMarcas(marcas);
+        this.montoMediana = montoMediana;
+        this.montoDispersion = montoDispersion;
+        this.montoMaximo = montoMaximo;
+        this.recurrentes = recurrentes;
+        this.comercios = leerComercios(comercios);
+        this.tarjetas = Math.max(1, tarjetas);
+        this.prefijoPos = prefijoPos;
+        this.modeloPos = modeloPos;
+        this.semilla = semilla != 0 ? semilla : System.nanoTime();
+        this.directorioReporte = Paths.get(directorioReporte);
+        this.intervaloReporteSegundos = Math.max(1, intervaloReporteSegundos);
+        this.erroresMaximos = erroresMaximos;
+    }
+
+    private static Map<String, Integer> leerMarcas(String valor) {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        for (String[] par : pares(valor, "generador.marcas")) {
+            int peso = Integer.parseInt(par[1]);
+            if (peso > 0) {
+                pesos.put(par[0], peso);
+            }
+        }
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("generador.marcas debe tener al menos una marca con peso positivo");
+        }
+        return pesos;
+    }
+
+    private static List<ComercioFacturacion> leerComercios(String valor) {
+        List<ComercioFacturacion> resultado = new ArrayList<>();
+        for (String[] par : pares(valor, "generador.comercios")) {
+            resultado.add(new ComercioFacturacion(Integer.valueOf(par[0]), Integer.valueOf(par[1])));
+        }
+        if (resultado.isEmpty()) {
+            throw new IllegalArgumentException("generador.comercios debe tener al menos un comercio:facturacion");
+        }
+        return resultado;
+    }
+
+    private static List<String[]> pares(String valor, String propiedad) {
+        List<String[]> pares = new ArrayList<>();
+        for (String elemento : valor.split(",")) {
+            if (elemento.isBlank()) {
+                continue;
+            }
+            String[] par = elemento.trim().split(":");
+            if (par.length != 2) {
+                throw new IllegalArgumentException("Elemento inválido en " + propiedad + ": " + elemento);
+            }
+            pares.add(new String[] { par[0].trim(), par[1].trim() });
+        }
+        return pares;
+    }
+
+    public String getDestino() {
+        return destino;
+    }
+
+    public String getUrlGateway() {
+        return urlGateway;
+    }
+
+    public String getUrlPos() {
+        return urlPos;
+    }
+
+    public int getTerminales() {
+        return terminales;
+    }
+
+    public double getTasaTotal() {
+        return tasaTotal;
+    }
+
+    public int getDuracionSegundos() {
+        return duracionSegundos;
+    }
+
+    public int getCalentamientoSegundos() {
+        return calentamientoSegundos;
+    }
+
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public Map<String, Integer> getMarcas() {
+        return marcas;
+    }
+
+    public BigDecimal getMontoMediana() {
+        return montoMediana;
+    }
+
+    public double getMontoDispersion() {
+        return montoDispersion;
+    }
+
+    public BigDecimal getMontoMaximo() {
+        return montoMaximo;
+    }
+
+    public double getRecurrentes() {
+        return recurrentes;
+    }
+
+    public List<ComercioFacturacion> getComercios() {
+        return comercios;
+    }
+
+    public int getTarjetas() {
+        return tarjetas;
+    }
+
+    public String getPrefijoPos() {
+        return prefijoPos;
+    }
+
+    public String getModeloPos() {
+        return modeloPos;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public Path getDirectorioReporte() {
+        return directorioReporte;
+    }
+
+    public int getIntervaloReporteSegundos() {
+        return intervaloReporteSegundos;
+    }
+
+    public double getErroresMaximos() {
+        return erroresMaximos;
+    }
+
+    public record ComercioFacturacion(Integer codigoComercio, Integer codigoFacturacion) {
+    }
+}
@@ -0,0 +1,7 @@
+package ec.edu.espe.generador.model;
+
+import java.math.BigDecimal;
+
+public record Pago(Terminal terminal, String marca, BigDecimal monto, boolean recurrente,
+        String numeroTarjeta, String fechaExpiracion, String cvv) {
+}
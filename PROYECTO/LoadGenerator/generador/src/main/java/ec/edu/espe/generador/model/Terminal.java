@@ -0,0 +1,6 @@
+package ec.edu.espe.generador.model;
+
+// Terminal simulada: su código y modelo viajan en cada transacción, el comercio y la facturación
+// deben existir en el gateway
+public record Terminal(String codigo, String modelo, Integer codigoComercio, Integer codigoFacturacion) {
+}
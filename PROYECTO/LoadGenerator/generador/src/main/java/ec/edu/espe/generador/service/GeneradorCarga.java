@@ -0,0 +1,128 @@
+package ec.edu.espe.generador.service;
+
+import ec.edu.espe.generador.client.DestinoCarga;
+import ec.edu.espe.generador.client.DestinoGateway;
+import ec.edu.espe.generador.client.DestinoPos;
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import ec.edu.espe.generador.model.Pago;
+import ec.edu.espe.generador.model.Terminal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Corre la flota simulada: una terminal por hilo virtual, cada una con llegadas de Poisson a
+ * tasa-total / terminales pagos por segundo (carga abierta). Los instantes de envío se fijan de
+ * antemano; si una respuesta tarda más que la pausa hasta el siguiente pago, ese pago sale apenas
+ * vuelve la respuesta y su latencia se mide desde el instante previsto, como lo viviría una caja.
+ * El proceso termina con código 1 si la fracción de respuestas no 2xx supera errores-maximos.
+ */
+@Component
+public class GeneradorCarga implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorCarga.class);
+
+    private final ConfiguracionCarga configuracion;
+    private final MezclaTransacciones mezcla;
+    private final ReporteCarga reporte;
+    private final DestinoCarga destino;
+    private int codigoSalida;
+
+    public GeneradorCarga(ConfiguracionCarga configuracion, MezclaTransacciones mezcla, ReporteCarga reporte,
+            DestinoGateway destinoGateway, DestinoPos destinoPos) {
+        this.configuracion = configuracion;
+        this.mezcla = mezcla;
+        this.reporte = reporte;
+        this.destino = ConfiguracionCarga.DESTINO_POS.equals(configuracion.getDestino()) ? destinoPos
+                : destinoGateway;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<Terminal> terminales = mezcla.crearTerminales();
+        long intervaloMedio = (long) (terminales.size() / configuracion.getTasaTotal() * TimeUnit.SECONDS.toNanos(1));
+        if (ConfiguracionCarga.DESTINO_POS.equals(configuracion.getDestino()) && configuracion.getRecurrentes() > 0) {
+            log.warn("El POS solo crea pagos simples: la proporción de recurrentes se ignora con destino pos");
+        }
+        log.info("Simulando {} terminales contra {} a {} tx/s ({} s de calentamiento, {} s medidos, semilla {})",
+                terminales.size(), destino.descripcion(), configuracion.getTasaTotal(),
+                configuracion.getCalentamientoSegundos(), configuracion.getDuracionSegundos(),
+                configuracion.getSemilla());
+
+        long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long inicioMedicion = inicio + TimeUnit.SECONDS.toNanos(configuracion.getCalentamientoSegundos());
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(configuracion.getDuracionSegundos());
+        long intervaloReporte = TimeUnit.SECONDS.toNanos(configuracion.getIntervaloReporteSegundos());
+
+        SplittableRandom raiz = new SplittableRandom(configuracion.getSemilla());
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Terminal terminal : terminales) {
+                SplittableRandom aleatorio = raiz.split();
+                hilos.submit(() -> simular(terminal, aleatorio, inicio, fin, intervaloMedio));
+            }
+
+            esperarHasta(inicioMedicion);
+            reporte.iniciarMedicion();
+            for (long corte = inicioMedicion + intervaloReporte; corte - fin < 0; corte += intervaloReporte) {
+                esperarHasta(corte);
+                reporte.cerrarIntervalo();
+            }
+            esperarHasta(fin);
+            // Al cerrar el ejecutor se esperan las respuestas en vuelo (a lo sumo timeout-ms)
+        }
+        reporte.cerrarIntervalo();
+
+        String resumen = reporte.finalizar(destino.descripcion());
+        log.info("Resumen de la corrida ({}):\n{}", configuracion.getDirectorioReporte().toAbsolutePath(), resumen);
+
+        long total = reporte.total();
+        double fallidas = total == 0 ? 1 : 1 - (double) reporte.exitosas() / total;
+        if (fallidas > configuracion.getErroresMaximos()) {
+            log.error("{}% de respuestas fallidas supera el máximo de {}%", String.format("%.2f", fallidas * 100),
+                    configuracion.getErroresMaximos() * 100);
+            codigoSalida = 1;
+        }
+    }
+
+    private void simular(Terminal terminal, SplittableRandom aleatorio, long inicio, long fin, long intervaloMedio) {
+        // Primer pago en un instante al azar para que la flota no arranque sincronizada
+        long previsto = inicio + (long) (aleatorio.nextDouble() * intervaloMedio);
+        while (previsto - fin < 0) {
+            esperarHasta(previsto);
+            Pago pago = mezcla.siguiente(terminal, aleatorio);
+            long envio = System.nanoTime();
+            int estado;
+            try {
+                estado = destino.enviar(pago);
+            } catch (RuntimeException e) {
+                log.debug("Error al enviar desde {}: {}", terminal.codigo(), e.getMessage());
+                estado = DestinoCarga.ESTADO_ERROR_CONEXION;
+            }
+            long respuesta = System.nanoTime();
+            reporte.registrar(estado, respuesta - previsto, respuesta - envio);
+            previsto += (long) (aleatorio.nextExponential() * intervaloMedio);
+        }
+    }
+
+    private static void esperarHasta(long instante) {
+        long espera;
+        while ((espera = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(espera);
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return codigoSalida;
+    }
+}
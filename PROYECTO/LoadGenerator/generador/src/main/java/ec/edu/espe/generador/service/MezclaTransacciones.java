@@ -0,0 +1,136 @@
+package ec.edu.espe.generador.service;
+
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import ec.edu.espe.generador.config.ConfiguracionCarga.ComercioFacturacion;
+import ec.edu.espe.generador.model.Pago;
+import ec.edu.espe.generador.model.Terminal;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Arma las terminales de la flota y los pagos que envían. La marca sale de los pesos configurados,
+ * el monto de una distribución log-normal (mediana y dispersión) acotada al máximo, y la tarjeta
+ * de un conjunto fijo por marca: con el mismo tamaño de conjunto las reglas de velocidad del
+ * gateway ven la misma repetición de tarjetas entre corridas. Los números cumplen Luhn.
+ */
+@Component
+public class MezclaTransacciones {
+
+    private static final BigDecimal MONTO_MINIMO = new BigDecimal("1.00");
+
+    private final ConfiguracionCarga configuracion;
+    private final String[] marcas;
+    private final int[] pesosAcumulados;
+    private final int pesoTotal;
+
+    public MezclaTransacciones(ConfiguracionCarga configuracion) {
+        this.configuracion = configuracion;
+        Map<String, Integer> pesos = configuracion.getMarcas();
+        this.marcas = new String[pesos.size()];
+        this.pesosAcumulados = new int[pesos.size()];
+        int acumulado = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> marca : pesos.entrySet()) {
+            acumulado += marca.getValue();
+            marcas[i] = marca.getKey();
+            pesosAcumulados[i] = acumulado;
+            i++;
+        }
+        this.pesoTotal = acumulado;
+    }
+
+    // Las terminales se reparten en orden entre los comercios configurados
+    public List<Terminal> crearTerminales() {
+        List<ComercioFacturacion> comercios = configuracion.getComercios();
+        int digitos = Math.max(4, String.valueOf(configuracion.getTerminales()).length());
+        List<Terminal> terminales = new ArrayList<>(configuracion.getTerminales());
+        for (int i = 0; i < configuracion.getTerminales(); i++) {
+            ComercioFacturacion comercio = comercios.get(i % comercios.size());
+            String codigo = configuracion.getPrefijoPos() + String.format("%0" + digitos + "d", i + 1);
+            terminales.add(new Terminal(codigo, configuracion.getModeloPos(), comercio.codigoComercio(),
+                    comercio.codigoFacturacion()));
+        }
+        return terminales;
+    }
+
+    public Pago siguiente(Terminal terminal, RandomGenerator aleatorio) {
+        String marca = elegirMarca(aleatorio);
+        boolean recurrente = aleatorio.nextDouble() < configuracion.getRecurrentes();
+        int tarjeta = aleatorio.nextInt(configuracion.getTarjetas());
+        return new Pago(terminal, marca, monto(aleatorio), recurrente, numeroTarjeta(marca, tarjeta),
+                String.format("%02d/%02d", 1 + tarjeta % 12, 27 + tarjeta % 5),
+                String.format(marca.equals("AMEX") ? "%04d" : "%03d", tarjeta % 1000));
+    }
+
+    private String elegirMarca(RandomGenerator aleatorio) {
+        int valor = aleatorio.nextInt(pesoTotal);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return marcas[i];
+            }
+        }
+        return marcas[marcas.length - 1];
+    }
+
+    private BigDecimal monto(RandomGenerator aleatorio) {
+        double valor = configuracion.getMontoMediana().doubleValue()
+                * Math.exp(configuracion.getMontoDispersion() * aleatorio.nextGaussian());
+        BigDecimal monto = BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+        if (monto.compareTo(MONTO_MINIMO) < 0) {
+            return MONTO_MINIMO;
+        }
+        return monto.min(configuracion.getMontoMaximo());
+    }
+
+    static String numeroTarjeta(String marca, int indice) {
+        String prefijo;
+        int longitud;
+        switch (marca) {
+            case "VISA" -> {
+                prefijo = "4";
+                longitud = 16;
+            }
+            case "MSCD" -> {
+                prefijo = "5" + (1 + indice % 5);
+                longitud = 16;
+            }
+            case "AMEX" -> {
+                prefijo = indice % 2 == 0 ? "34" : "37";
+                longitud = 15;
+            }
+            case "DINE" -> {
+                prefijo = "36";
+                longitud = 14;
+            }
+            default -> {
+                prefijo = "9";
+                longitud = 16;
+            }
+        }
+        String cuerpo = prefijo + String.format("%0" + (longitud - 1 - prefijo.length()) + "d", indice);
+        return cuerpo + digitoLuhn(cuerpo);
+    }
+
+    private static int digitoLuhn(String cuerpo) {
+        int suma = 0;
+        boolean doblar = true;
+        for (int i = cuerpo.length() - 1; i >= 0; i--) {
+            int digito = cuerpo.charAt(i) - '0';
+            if (doblar) {
+                digito *= 2;
+                if (digito > 9) {
+                    digito -= 9;
+                }
+            }
+            suma += digito;
+            doblar = !doblar;
+        }
+        return (10 - suma % 10) % 10;
+    }
+}
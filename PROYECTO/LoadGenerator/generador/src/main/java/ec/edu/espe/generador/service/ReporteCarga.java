@@ -0,0 +1,192 @@
+package ec.edu.espe.generador.service;
+
+import ec.edu.espe.generador.client.DestinoCarga;
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias de la corrida en dos histogramas HdrHistogram (microsegundos):
+ * - respuesta: desde el instante en que la terminal debía enviar el pago. Si el servicio se atrasa,
+ * la espera de los pagos que no se pudieron enviar a tiempo también cuenta (sin omisión coordinada);
+ * es la latencia que ve el cliente en caja.
+ * - servicio: desde el envío real hasta la respuesta.
+ * Cada intervalo se escribe en latencias.hlog (etiquetas respuesta y servicio) para analizarlo con
+ * las herramientas de HdrHistogram, y al final se escribe resumen.txt con la distribución completa.
+ */
+@Component
+public class ReporteCarga {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteCarga.class);
+
+    private static final long LATENCIA_MAXIMA_US = TimeUnit.MINUTES.toMicros(5);
+    private static final int DIGITOS_SIGNIFICATIVOS = 3;
+    private static final double MICROS_POR_MS = 1000.0;
+
+    private final ConfiguracionCarga configuracion;
+    private final Recorder respuesta = new Recorder(LATENCIA_MAXIMA_US, DIGITOS_SIGNIFICATIVOS);
+    private final Recorder servicio = new Recorder(LATENCIA_MAXIMA_US, DIGITOS_SIGNIFICATIVOS);
+    private final Map<Integer, LongAdder> porEstado = new ConcurrentHashMap<>();
+    private final Histogram totalRespuesta = new Histogram(LATENCIA_MAXIMA_US, DIGITOS_SIGNIFICATIVOS);
+    private final Histogram totalServicio = new Histogram(LATENCIA_MAXIMA_US, DIGITOS_SIGNIFICATIVOS);
+    private Histogram intervaloRespuesta;
+    private Histogram intervaloServicio;
+    private HistogramLogWriter registro;
+    private volatile boolean midiendo;
+    private long inicioMedicion;
+    private long inicioIntervalo;
+
+    public ReporteCarga(ConfiguracionCarga configuracion) {
+        this.configuracion = configuracion;
+    }
+
+    public void registrar(int estado, long respuestaNanos, long servicioNanos) {
+        respuesta.recordValue(acotar(respuestaNanos));
+        servicio.recordValue(acotar(servicioNanos));
+        if (midiendo) {
+            porEstado.computeIfAbsent(estado, e -> new LongAdder()).increment();
+        }
+    }
+
+    private static long acotar(long nanos) {
+        return Math.min(LATENCIA_MAXIMA_US, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    // Descarta lo registrado durante el calentamiento
+    public void iniciarMedicion() throws IOException {
+        Files.createDirectories(configuracion.getDirectorioReporte());
+        registro = new HistogramLogWriter(configuracion.getDirectorioReporte().resolve("latencias.hlog").toFile());
+        long ahoraMs = System.currentTimeMillis();
+        registro.outputComment("Destino " + configuracion.getDestino() + ", " + configuracion.getTerminales()
+                + " terminales, " + configuracion.getTasaTotal() + " tx/s, semilla " + configuracion.getSemilla());
+        registro.outputLogFormatVersion();
+        registro.outputStartTime(ahoraMs);
+        registro.setBaseTime(ahoraMs);
+        registro.outputLegend();
+        midiendo = true;
+        intervaloRespuesta = respuesta.getIntervalHistogram();
+        intervaloServicio = servicio.getIntervalHistogram();
+        inicioMedicion = System.nanoTime();
+        inicioIntervalo = inicioMedicion;
+    }
+
+    public void cerrarIntervalo() {
+        intervaloRespuesta = respuesta.getIntervalHistogram(intervaloRespuesta);
+        intervaloServicio = servicio.getIntervalHistogram(intervaloServicio);
+        long ahora = System.nanoTime();
+        intervaloRespuesta.setTag("respuesta");
+        intervaloServicio.setTag("servicio");
+        registro.outputIntervalHistogram(intervaloRespuesta);
+        registro.outputIntervalHistogram(intervaloServicio);
+        totalRespuesta.add(intervaloRespuesta);
+        totalServicio.add(intervaloServicio);
+
+        double segundos = (ahora - inicioIntervalo) / 1e9;
+        log.info("[{}s] {} tx/s | respuesta p50={} p99={} p999={} max={} ms | servicio p99={} ms",
+                Math.round((ahora - inicioMedicion) / 1e9),
+                String.format("%.1f", intervaloRespuesta.getTotalCount() / Math.max(segundos, 1e-3)),
+                ms(intervaloRespuesta, 50), ms(intervaloRespuesta, 99), ms(intervaloRespuesta, 99.9),
+                ms(intervaloRespuesta, 100), ms(intervaloServicio, 99));
+        inicioIntervalo = ahora;
+    }
+
+    // Resumen final; también se guarda en resumen.txt junto a la distribución de percentiles
+    public String finalizar(String destino) throws IOException {
+        midiendo = false;
+        // Las respuestas que llegan después del fin corresponden a pagos previstos dentro de la duración
+        double segundos = configuracion.getDuracionSegundos();
+        long total = totalRespuesta.getTotalCount();
+        Map<Integer, Long> estados = estados();
+
+        StringBuilder resumen = new StringBuilder();
+        resumen.append(String.format("Destino: %s (%s)%n", configuracion.getDestino(), destino));
+        resumen.append(String.format("Terminales: %d, tasa objetivo: %.1f tx/s, duración medida: %.1f s%n",
+                configuracion.getTerminales(), configuracion.getTasaTotal(), segundos));
+        resumen.append(String.format("Transacciones: %d, rendimiento: %.1f tx/s, exitosas (2xx): %d%n",
+                total, total / segundos, exitosas()));
+        resumen.append("Respuestas por estado: ").append(describirEstados(estados)).append('\n');
+        resumen.append(linea("respuesta", totalRespuesta));
+        resumen.append(linea("servicio ", totalServicio));
+
+        ByteArrayOutputStream distribucion = new ByteArrayOutputStream();
+        try (PrintStream salida = new PrintStream(distribucion, true, StandardCharsets.UTF_8)) {
+            salida.println();
+            salida.println("Distribución de latencia de respuesta (ms):");
+            totalRespuesta.outputPercentileDistribution(salida, MICROS_POR_MS);
+            salida.println();
+            salida.println("Distribución de latencia de servicio (ms):");
+            totalServicio.outputPercentileDistribution(salida, MICROS_POR_MS);
+        }
+        Path archivo = configuracion.getDirectorioReporte().resolve("resumen.txt");
+        Files.writeString(archivo, resumen + distribucion.toString(StandardCharsets.UTF_8));
+        if (registro != null) {
+            registro.close();
+        }
+        return resumen.toString();
+    }
+
+    public long exitosas() {
+        long exitosas = 0;
+        for (Map.Entry<Integer, Long> estado : estados().entrySet()) {
+            if (estado.getKey() >= 200 && estado.getKey() < 300) {
+                exitosas += estado.getValue();
+            }
+        }
+        return exitosas;
+    }
+
+    public long total() {
+        return totalRespuesta.getTotalCount();
+    }
+
+    private Map<Integer, Long> estados() {
+        Map<Integer, Long> estados = new TreeMap<>();
+        porEstado.forEach((estado, cantidad) -> estados.put(estado, cantidad.sum()));
+        return estados;
+    }
+
+    private static String describirEstados(Map<Integer, Long> estados) {
+        StringBuilder texto = new StringBuilder();
+        estados.forEach((estado, cantidad) -> {
+            if (!texto.isEmpty()) {
+                texto.append(", ");
+            }
+            String nombre = switch (estado) {
+                case DestinoCarga.ESTADO_TIMEOUT -> "timeout";
+                case DestinoCarga.ESTADO_ERROR_CONEXION -> "error de conexión";
+                default -> String.valueOf(estado);
+            };
+            texto.append(nombre).append('=').append(cantidad);
+        });
+        return texto.isEmpty() ? "ninguna" : texto.toString();
+    }
+
+    private static String linea(String nombre, Histogram histograma) {
+        return String.format("Latencia %s (ms): p50=%s p90=%s p99=%s p999=%s max=%s%n", nombre,
+                ms(histograma, 50), ms(histograma, 90), ms(histograma, 99), ms(histograma, 99.9),
+                ms(histograma, 100));
+    }
+
+    private static String ms(Histogram histograma, double percentil) {
+        if (histograma.getTotalCount() == 0) {
+            return "-";
+        }
+        return String.format("%.2f", histograma.getValueAtPercentile(percentil) / MICROS_POR_MS);
+    }
+}
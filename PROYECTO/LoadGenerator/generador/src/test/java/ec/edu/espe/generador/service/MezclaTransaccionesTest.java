@@ -0,0 +1,78 @@
+package ec.edu.espe.generador.service;
+
+import ec.edu.espe.generador.config.ConfiguracionCarga;
+import ec.edu.espe.generador.model.Pago;
+import ec.edu.espe.generador.model.Terminal;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que la mezcla respete los pesos por marca, la proporción de recurrentes y los límites
+ * de monto, y que las tarjetas generadas pasen la validación de Luhn.
+ */
+class MezclaTransaccionesTest {
+
+    private static final int PAGOS = 100_000;
+
+    private final ConfiguracionCarga configuracion = new ConfiguracionCarga("gateway", "http://localhost:8083",
+            "http://localhost:8082", 10, 100, 60, 0, 1000, "VISA:60,MSCD:30,AMEX:10", new BigDecimal("25"), 1.0,
+            new BigDecimal("500"), 0.2, "1:1,2:3", 1000, "LG", "POS", 42, "target/carga", 5, 0.05);
+    private final MezclaTransacciones mezcla = new MezclaTransacciones(configuracion);
+
+    @Test
+    void respetaPesosRecurrentesYMontos() {
+        List<Terminal> terminales = mezcla.crearTerminales();
+        assertEquals(10, terminales.size());
+        assertEquals("LG0001", terminales.get(0).codigo());
+        assertEquals(3, terminales.get(1).codigoFacturacion());
+
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        Map<String, Integer> porMarca = new HashMap<>();
+        int recurrentes = 0;
+        for (int i = 0; i < PAGOS; i++) {
+            Pago pago = mezcla.siguiente(terminales.get(i % terminales.size()), aleatorio);
+            porMarca.merge(pago.marca(), 1, Integer::sum);
+            recurrentes += pago.recurrente() ? 1 : 0;
+            assertTrue(pago.monto().compareTo(BigDecimal.ONE) >= 0);
+            assertTrue(pago.monto().compareTo(new BigDecimal("500")) <= 0);
+            assertTrue(luhnValido(pago.numeroTarjeta()), pago.numeroTarjeta());
+        }
+        assertEquals(0.6, porMarca.get("VISA") / (double) PAGOS, 0.01);
+        assertEquals(0.3, porMarca.get("MSCD") / (double) PAGOS, 0.01);
+        assertEquals(0.1, porMarca.get("AMEX") / (double) PAGOS, 0.01);
+        assertEquals(0.2, recurrentes / (double) PAGOS, 0.01);
+    }
+
+    @Test
+    void tarjetasConLongitudPorMarca() {
+        assertEquals(16, MezclaTransacciones.numeroTarjeta("VISA", 123).length());
+        assertEquals(15, MezclaTransacciones.numeroTarjeta("AMEX", 123).length());
+        assertEquals(14, MezclaTransacciones.numeroTarjeta("DINE", 123).length());
+        assertTrue(MezclaTransacciones.numeroTarjeta("MSCD", 7).startsWith("53"));
+    }
+
+    private static boolean luhnValido(String numero) {
+        int suma = 0;
+        boolean doblar = false;
+        for (int i = numero.length() - 1; i >= 0; i--) {
+            int digito = numero.charAt(i) - '0';
+            if (doblar) {
+                digito *= 2;
+                if (digito > 9) {
+                    digito -= 9;
+                }
+            }
+            suma += digito;
+            doblar = !doblar;
+        }
+        return suma % 10 == 0;
+    }
+}
@@ -3,9 +3,18 @@ package ec.edu.espe.gateway.comercio.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 import ec.edu.espe.gateway.comercio.dto.Configuracion;
+import ec.edu.espe.gateway.comercio.dto.ResultadoConfiguracion;
 
-@FeignClient(name = "pos-configuracion", url = "http://localhost:8082")
+import java.net.URI;
+import java.util.List;
+
+// URL en spring.cloud.openfeign.client.config.pos-configuracion.url, resuelta al arrancar
+@FeignClient(name = "pos-configuracion")
 public interface PosConfiguracionClient {
     @PostMapping("/api/pos-configuracion/sincronizar")
     void enviarConfiguracion(@RequestBody Configuracion configuracion);
-}
\ No newline at end of file
+
+    // El URI reemplaza la URL base: cada lote va al endpoint registrado para sus terminales
+    @PostMapping("/api/pos-configuracion/sincronizar-lote")
+    List<ResultadoConfiguracion> sincronizarLote(URI destino, @RequestBody List<Configuracion> configuraciones);
+}
@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ec.edu.espe.gateway.comercio.model.Comercio;
 import ec.edu.espe.gateway.comercio.services.ComercioService;
+import ec.edu.espe.gateway.comercio.services.IndiceBusquedaComercio;
 import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
 import jakarta.persistence.EntityNotFoundException;
 import java.util.List;
@@ -75,9 +76,16 @@ public class ComercioController {
     }
 
     @GetMapping("/buscar")
-    public ResponseEntity<List<Comercio>> buscarPorRazonSocialONombreComercial(@RequestParam String criterio) {
-        List<Comercio> comercios = comercioService.buscarPorRazonSocialONombreComercial(criterio);
-        return ResponseEntity.ok(comercios);
+    public ResponseEntity<List<Comercio>> buscarPorRazonSocialONombreComercial(@RequestParam String criterio,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamanio) {
+        if (pagina < 0 || tamanio < 1 || tamanio > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        IndiceBusquedaComercio.Resultado resultado = comercioService.buscarComercios(criterio, pagina, tamanio);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(resultado.total()))
+                .body(resultado.comercios());
     }
 
     @GetMapping("/codigo/{codigoInterno}")
@@ -2,9 +2,12 @@ package ec.edu.espe.gateway.comercio.controller;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ec.edu.espe.gateway.comercio.model.EnvioConfiguracionPos;
 import ec.edu.espe.gateway.comercio.model.PosComercio;
 import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.services.EnvioConfiguracionPosService;
 import ec.edu.espe.gateway.comercio.services.PosComercioService;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,9 +17,31 @@ import java.util.List;
 public class PosComercioController {
 
     private final PosComercioService posComercioService;
+    private final EnvioConfiguracionPosService envioConfiguracionPosService;
+    private final RegistroUltimoUsoPos registroUltimoUso;
 
-    public PosComercioController(PosComercioService posComercioService) {
+    public PosComercioController(PosComercioService posComercioService,
+            EnvioConfiguracionPosService envioConfiguracionPosService,
+            RegistroUltimoUsoPos registroUltimoUso) {
         this.posComercioService = posComercioService;
+        this.envioConfiguracionPosService = envioConfiguracionPosService;
+        this.registroUltimoUso = registroUltimoUso;
+    }
+
+    @GetMapping("/sin-actividad")
+    public ResponseEntity<List<RegistroUltimoUsoPos.TerminalSinActividad>> obtenerSinActividad(
+            @RequestParam(defaultValue = "30") long minutos) {
+        return ResponseEntity.ok(registroUltimoUso.obtenerSinActividad(minutos));
+    }
+
+    @PostMapping("/{codigoPos}/{modelo}/latido")
+    public ResponseEntity<Void> registrarLatido(@PathVariable String codigoPos, @PathVariable String modelo) {
+        PosComercioPK id = new PosComercioPK(modelo, codigoPos);
+        if (!registroUltimoUso.conocido(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        registroUltimoUso.registrar(id, LocalDateTime.now());
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping
@@ -36,6 +61,14 @@ public class PosComercioController {
         }
     }
 
+    @GetMapping("/{codigoPos}/{modelo}/envio-configuracion")
+    public ResponseEntity<EnvioConfiguracionPos> obtenerEnvioConfiguracion(@PathVariable String codigoPos,
+            @PathVariable String modelo) {
+        return envioConfiguracionPosService.obtenerUltimoEnvio(codigoPos, modelo)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping
     public ResponseEntity<PosComercio> crear(@RequestBody PosComercio posComercio) {
         try {
@@ -0,0 +1,44 @@
+package ec.edu.espe.gateway.comercio.dto;
+
+public class ResultadoConfiguracion {
+
+    private String codigo;
+    private String modelo;
+    private boolean aceptada;
+    private String error;
+
+    public ResultadoConfiguracion() {
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public void setModelo(String modelo) {
+        this.modelo = modelo;
+    }
+
+    public boolean isAceptada() {
+        return aceptada;
+    }
+
+    public void setAceptada(boolean aceptada) {
+        this.aceptada = aceptada;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
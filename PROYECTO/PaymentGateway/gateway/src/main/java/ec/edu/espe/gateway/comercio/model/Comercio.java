@@ -9,7 +9,8 @@ import jakarta.validation.constraints.NotNull;
 import ec.edu.espe.gateway.comision.model.Comision;
 
 @Entity
-@Table(name = "GTW_COMERCIO")
+@Table(name = "GTW_COMERCIO", indexes = {
+        @Index(name = "IDX_GTW_COMERCIO_MODIFICACION", columnList = "FECHA_MODIFICACION") })
 public class Comercio implements Serializable {
 
     @Id
@@ -45,6 +46,10 @@ public class Comercio implements Serializable {
     private LocalDateTime fechaActivacion;
     @Column(name = "FECHA_SUSPENSION")
     private LocalDateTime fechaSuspension;
+    // La mantiene la base en cada cambio de la fila, sea de esta instancia o de otra
+    @Column(name = "FECHA_MODIFICACION", insertable = false, updatable = false,
+            columnDefinition = "DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private LocalDateTime fechaModificacion;
 
     public Comercio() {
     }
@@ -149,6 +154,14 @@ public class Comercio implements Serializable {
         this.fechaSuspension = fechaSuspension;
     }
 
+    public LocalDateTime getFechaModificacion() {
+        return fechaModificacion;
+    }
+
+    public void setFechaModificacion(LocalDateTime fechaModificacion) {
+        this.fechaModificacion = fechaModificacion;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
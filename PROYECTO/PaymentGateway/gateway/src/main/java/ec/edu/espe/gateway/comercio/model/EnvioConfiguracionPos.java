@@ -0,0 +1,195 @@
+package ec.edu.espe.gateway.comercio.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import jakarta.validation.constraints.NotNull;
+
+@Entity
+@Table(name = "GTW_ENVIO_CONFIGURACION_POS", indexes = {
+        @Index(name = "IDX_GTW_ENVIO_CONFIGURACION_POS_ESTADO", columnList = "ESTADO, PROXIMO_INTENTO"),
+        @Index(name = "IDX_GTW_ENVIO_CONFIGURACION_POS_POS", columnList = "CODIGO_POS, MODELO") })
+public class EnvioConfiguracionPos implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "COD_ENVIO", nullable = false)
+    private Long codigo;
+    @NotNull
+    @Column(name = "CODIGO_POS", length = 10, nullable = false)
+    private String codigoPos;
+    @NotNull
+    @Column(name = "MODELO", length = 10, nullable = false)
+    private String modelo;
+    @NotNull
+    @Column(name = "DIRECCION_MAC", length = 32, nullable = false)
+    private String direccionMac;
+    @NotNull
+    @Column(name = "COD_COMERCIO", nullable = false)
+    private Integer codigoComercio;
+    @Column(name = "FECHA_ACTIVACION")
+    private LocalDateTime fechaActivacion;
+    @NotNull
+    @Column(name = "DESTINO", length = 100, nullable = false)
+    private String destino;
+    @NotNull
+    @Column(name = "ESTADO", length = 3, nullable = false)
+    private String estado;
+    @NotNull
+    @Column(name = "INTENTOS", nullable = false)
+    private Integer intentos;
+    @NotNull
+    @Column(name = "FECHA_CREACION", nullable = false)
+    private LocalDateTime fechaCreacion;
+    @NotNull
+    @Column(name = "PROXIMO_INTENTO", nullable = false)
+    private LocalDateTime proximoIntento;
+    @Column(name = "FECHA_ENVIO")
+    private LocalDateTime fechaEnvio;
+    @Column(name = "ERROR", length = 200)
+    private String error;
+
+    public EnvioConfiguracionPos() {
+    }
+
+    public EnvioConfiguracionPos(Long codigo) {
+        this.codigo = codigo;
+    }
+
+    public Long getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(Long codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCodigoPos() {
+        return codigoPos;
+    }
+
+    public void setCodigoPos(String codigoPos) {
+        this.codigoPos = codigoPos;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public void setModelo(String modelo) {
+        this.modelo = modelo;
+    }
+
+    public String getDireccionMac() {
+        return direccionMac;
+    }
+
+    public void setDireccionMac(String direccionMac) {
+        this.direccionMac = direccionMac;
+    }
+
+    public Integer getCodigoComercio() {
+        return codigoComercio;
+    }
+
+    public void setCodigoComercio(Integer codigoComercio) {
+        this.codigoComercio = codigoComercio;
+    }
+
+    public LocalDateTime getFechaActivacion() {
+        return fechaActivacion;
+    }
+
+    public void setFechaActivacion(LocalDateTime fechaActivacion) {
+        this.fechaActivacion = fechaActivacion;
+    }
+
+    public String getDestino() {
+        return destino;
+    }
+
+    public void setDestino(String destino) {
+        this.destino = destino;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Integer getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(Integer intentos) {
+        this.intentos = intentos;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+
+    public void setProximoIntento(LocalDateTime proximoIntento) {
+        this.proximoIntento = proximoIntento;
+    }
+
+    public LocalDateTime getFechaEnvio() {
+        return fechaEnvio;
+    }
+
+    public void setFechaEnvio(LocalDateTime fechaEnvio) {
+        this.fechaEnvio = fechaEnvio;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((codigo == null) ? 0 : codigo.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        EnvioConfiguracionPos other = (EnvioConfiguracionPos) obj;
+        if (codigo == null) {
+            if (other.codigo != null)
+                return false;
+        } else if (!codigo.equals(other.codigo))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvioConfiguracionPos [codigo=" + codigo + ", codigoPos=" + codigoPos + ", modelo=" + modelo
+                + ", destino=" + destino + ", estado=" + estado + ", intentos=" + intentos + "]";
+    }
+
+}
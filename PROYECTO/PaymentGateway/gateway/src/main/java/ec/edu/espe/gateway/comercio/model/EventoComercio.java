@@ -0,0 +1,171 @@
+package ec.edu.espe.gateway.comercio.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import jakarta.validation.constraints.NotNull;
+
+@Entity
+@Table(name = "GTW_EVENTO_COMERCIO", indexes = {
+        @Index(name = "IDX_GTW_EVENTO_COMERCIO_ESTADO", columnList = "ESTADO, COD_COMERCIO, COD_EVENTO") })
+public class EventoComercio implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "COD_EVENTO", nullable = false)
+    private Long codigo;
+    @NotNull
+    @Column(name = "COD_COMERCIO", nullable = false)
+    private Integer codigoComercio;
+    @NotNull
+    @Column(name = "TIPO", length = 3, nullable = false)
+    private String tipo;
+    @Column(name = "ESTADO_ANTERIOR", length = 3)
+    private String estadoAnterior;
+    @Column(name = "ESTADO_NUEVO", length = 3)
+    private String estadoNuevo;
+    @NotNull
+    @Column(name = "FECHA_CREACION", nullable = false)
+    private LocalDateTime fechaCreacion;
+    @NotNull
+    @Column(name = "ESTADO", length = 3, nullable = false)
+    private String estado;
+    @NotNull
+    @Column(name = "INTENTOS", nullable = false)
+    private Integer intentos;
+    @Column(name = "FECHA_PROCESADO")
+    private LocalDateTime fechaProcesado;
+    @Column(name = "FECHA_RECLAMO")
+    private LocalDateTime fechaReclamo;
+    @Column(name = "ERROR", length = 200)
+    private String error;
+
+    public EventoComercio() {
+    }
+
+    public EventoComercio(Long codigo) {
+        this.codigo = codigo;
+    }
+
+    public Long getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(Long codigo) {
+        this.codigo = codigo;
+    }
+
+    public Integer getCodigoComercio() {
+        return codigoComercio;
+    }
+
+    public void setCodigoComercio(Integer codigoComercio) {
+        this.codigoComercio = codigoComercio;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getEstadoAnterior() {
+        return estadoAnterior;
+    }
+
+    public void setEstadoAnterior(String estadoAnterior) {
+        this.estadoAnterior = estadoAnterior;
+    }
+
+    public String getEstadoNuevo() {
+        return estadoNuevo;
+    }
+
+    public void setEstadoNuevo(String estadoNuevo) {
+        this.estadoNuevo = estadoNuevo;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Integer getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(Integer intentos) {
+        this.intentos = intentos;
+    }
+
+    public LocalDateTime getFechaProcesado() {
+        return fechaProcesado;
+    }
+
+    public void setFechaProcesado(LocalDateTime fechaProcesado) {
+        this.fechaProcesado = fechaProcesado;
+    }
+
+    public LocalDateTime getFechaReclamo() {
+        return fechaReclamo;
+    }
+
+    public void setFechaReclamo(LocalDateTime fechaReclamo) {
+        this.fechaReclamo = fechaReclamo;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((codigo == null) ? 0 : codigo.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        EventoComercio other = (EventoComercio) obj;
+        if (codigo == null) {
+            if (other.codigo != null)
+                return false;
+        } else if (!codigo.equals(other.codigo))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoComercio [codigo=" + codigo + ", codigoComercio=" + codigoComercio + ", tipo=" + tipo
+                + ", estadoAnterior=" + estadoAnterior + ", estadoNuevo=" + estadoNuevo + ", estado=" + estado
+                + ", intentos=" + intentos + "]";
+    }
+
+}
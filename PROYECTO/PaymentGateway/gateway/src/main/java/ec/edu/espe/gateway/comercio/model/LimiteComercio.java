@@ -0,0 +1,114 @@
+package ec.edu.espe.gateway.comercio.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Límites de ingreso de transacciones por comercio; una columna nula usa el valor por defecto
+@Entity
+@Table(name = "GTW_LIMITE_COMERCIO")
+public class LimiteComercio implements Serializable {
+
+    @Id
+    @Column(name = "COD_COMERCIO", nullable = false)
+    private Integer codigoComercio;
+    @Column(name = "POR_MINUTO_COMERCIO")
+    private Integer porMinutoComercio;
+    @Column(name = "RAFAGA_COMERCIO")
+    private Integer rafagaComercio;
+    @Column(name = "POR_MINUTO_POS")
+    private Integer porMinutoPos;
+    @Column(name = "RAFAGA_POS")
+    private Integer rafagaPos;
+    @Column(name = "MONTO_DIARIO", precision = 20, scale = 2)
+    private BigDecimal montoDiario;
+
+    public LimiteComercio() {
+    }
+
+    public LimiteComercio(Integer codigoComercio) {
+        this.codigoComercio = codigoComercio;
+    }
+
+    public Integer getCodigoComercio() {
+        return codigoComercio;
+    }
+
+    public void setCodigoComercio(Integer codigoComercio) {
+        this.codigoComercio = codigoComercio;
+    }
+
+    public Integer getPorMinutoComercio() {
+        return porMinutoComercio;
+    }
+
+    public void setPorMinutoComercio(Integer porMinutoComercio) {
+        this.porMinutoComercio = porMinutoComercio;
+    }
+
+    public Integer getRafagaComercio() {
+        return rafagaComercio;
+    }
+
+    public void setRafagaComercio(Integer rafagaComercio) {
+        this.rafagaComercio = rafagaComercio;
+    }
+
+    public Integer getPorMinutoPos() {
+        return porMinutoPos;
+    }
+
+    public void setPorMinutoPos(Integer porMinutoPos) {
+        this.porMinutoPos = porMinutoPos;
+    }
+
+    public Integer getRafagaPos() {
+        return rafagaPos;
+    }
+
+    public void setRafagaPos(Integer rafagaPos) {
+        this.rafagaPos = rafagaPos;
+    }
+
+    public BigDecimal getMontoDiario() {
+        return montoDiario;
+    }
+
+    public void setMontoDiario(BigDecimal montoDiario) {
+        this.montoDiario = montoDiario;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((codigoComercio == null) ? 0 : codigoComercio.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        LimiteComercio other = (LimiteComercio) obj;
+        if (codigoComercio == null) {
+            if (other.codigoComercio != null)
+                return false;
+        } else if (!codigoComercio.equals(other.codigoComercio))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "LimiteComercio [codigoComercio=" + codigoComercio + ", porMinutoComercio=" + porMinutoComercio
+                + ", rafagaComercio=" + rafagaComercio + ", porMinutoPos=" + porMinutoPos + ", rafagaPos="
+                + rafagaPos + ", montoDiario=" + montoDiario + "]";
+    }
+
+}
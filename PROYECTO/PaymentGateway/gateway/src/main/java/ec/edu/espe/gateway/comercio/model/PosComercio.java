@@ -23,6 +23,9 @@ public class PosComercio implements Serializable {
     private LocalDateTime fechaActivacion;
     @Column(name = "ULTIMO_USO")
     private LocalDateTime ultimoUso;
+    // Endpoint del POS que atiende al terminal; nulo usa gateway.pos.url
+    @Column(name = "DESTINO", length = 100)
+    private String destino;
     @NotNull
     @ManyToOne
     @JoinColumn(name = "COD_COMERCIO", nullable = false)
@@ -82,6 +85,14 @@ public class PosComercio implements Serializable {
         this.ultimoUso = ultimoUso;
     }
 
+    public String getDestino() {
+        return destino;
+    }
+
+    public void setDestino(String destino) {
+        this.destino = destino;
+    }
+
     public Comercio getComercio() {
         return comercio;
     }
@@ -128,7 +139,7 @@ public class PosComercio implements Serializable {
     @Override
     public String toString() {
         return "GtwPosComercio [pk=" + pk + ", direccionMac=" + direccionMac + ", estado=" + estado
-                + ", fechaActivacion=" + fechaActivacion + ", ultimoUso=" + ultimoUso + ", gtwComercio=" + comercio
-                + ", codigoComercio=" + codigoComercio + "]";
+                + ", fechaActivacion=" + fechaActivacion + ", ultimoUso=" + ultimoUso + ", destino=" + destino
+                + ", gtwComercio=" + comercio + ", codigoComercio=" + codigoComercio + "]";
     }
 }
\ No newline at end of file
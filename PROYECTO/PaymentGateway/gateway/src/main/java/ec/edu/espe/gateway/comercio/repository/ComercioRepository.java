@@ -2,6 +2,7 @@ package ec.edu.espe.gateway.comercio.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import ec.edu.espe.gateway.comercio.model.Comercio;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.Query;
@@ -15,6 +16,7 @@ public interface ComercioRepository extends JpaRepository<Comercio, Integer> {
     Optional<Comercio> findByCodigoInterno(String codigoInterno);
     Optional<Comercio> findByRuc(String ruc);
     List<Comercio> findByEstado(String estado);
+    List<Comercio> findByFechaModificacionGreaterThanEqual(LocalDateTime fecha);
     List<Comercio> findByRazonSocialContainingIgnoreCaseOrNombreComercialContainingIgnoreCase(String razonSocial, String nombreComercial);
 
     @Query("SELECT c FROM Comercio c WHERE c = :comercio")
@@ -0,0 +1,25 @@
+package ec.edu.espe.gateway.comercio.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ec.edu.espe.gateway.comercio.model.EnvioConfiguracionPos;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface EnvioConfiguracionPosRepository extends JpaRepository<EnvioConfiguracionPos, Long> {
+    List<EnvioConfiguracionPos> findByEstadoAndProximoIntentoLessThanEqualOrderByCodigoAsc(String estado,
+            LocalDateTime fecha, Pageable pageable);
+
+    // Cambio condicionado al próximo intento leído: con varias instancias solo una toma el envío (devuelve 1)
+    @Modifying
+    @Query("UPDATE EnvioConfiguracionPos e SET e.proximoIntento = :reclamo "
+            + "WHERE e.codigo = :codigo AND e.estado = :estado AND e.proximoIntento = :leido")
+    int reclamar(@Param("codigo") Long codigo, @Param("estado") String estado,
+            @Param("leido") LocalDateTime leido, @Param("reclamo") LocalDateTime reclamo);
+
+    Optional<EnvioConfiguracionPos> findFirstByCodigoPosAndModeloOrderByCodigoDesc(String codigoPos, String modelo);
+}
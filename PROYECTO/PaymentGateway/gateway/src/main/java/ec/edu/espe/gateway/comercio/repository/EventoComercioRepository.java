@@ -0,0 +1,31 @@
+package ec.edu.espe.gateway.comercio.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ec.edu.espe.gateway.comercio.model.EventoComercio;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EventoComercioRepository extends JpaRepository<EventoComercio, Long> {
+    List<EventoComercio> findByCodigoComercioAndEstadoInOrderByCodigoAsc(Integer codigoComercio,
+            Collection<String> estados);
+
+    @Query("SELECT DISTINCT e.codigoComercio FROM EventoComercio e WHERE e.estado = :estado")
+    List<Integer> findComerciosConEventosEnEstado(@Param("estado") String estado);
+
+    // Cambio condicionado al estado actual: con varias instancias solo una lo consigue (devuelve 1)
+    @Modifying
+    @Query("UPDATE EventoComercio e SET e.estado = :estadoNuevo, e.fechaReclamo = :fecha "
+            + "WHERE e.codigo = :codigo AND e.estado = :estadoActual")
+    int reclamar(@Param("codigo") Long codigo, @Param("estadoActual") String estadoActual,
+            @Param("estadoNuevo") String estadoNuevo, @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE EventoComercio e SET e.estado = :estadoNuevo "
+            + "WHERE e.estado = :estadoActual AND e.fechaReclamo < :limite")
+    int liberarReclamosVencidos(@Param("estadoActual") String estadoActual,
+            @Param("estadoNuevo") String estadoNuevo, @Param("limite") LocalDateTime limite);
+}
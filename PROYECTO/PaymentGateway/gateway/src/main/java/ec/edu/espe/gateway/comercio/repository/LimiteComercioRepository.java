@@ -0,0 +1,7 @@
+package ec.edu.espe.gateway.comercio.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ec.edu.espe.gateway.comercio.model.LimiteComercio;
+
+public interface LimiteComercioRepository extends JpaRepository<LimiteComercio, Integer> {
+}
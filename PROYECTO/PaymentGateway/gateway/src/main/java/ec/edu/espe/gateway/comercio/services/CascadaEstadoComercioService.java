@@ -0,0 +1,180 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.model.EventoComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercio;
+import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
+import ec.edu.espe.gateway.comercio.repository.EventoComercioRepository;
+import ec.edu.espe.gateway.comercio.repository.PosComercioRepository;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.transaccion.services.TransaccionService;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Efectos de un cambio de estado de comercio que se ejecutan fuera de la petición: estado de los
+ * dispositivos POS, facturación inicial al activar, y rechazo de transacciones en curso y
+ * recurrencias al suspender o inactivar. Cada evento se aplica en su propia transacción.
+ *
+ * Antes de aplicarlo, el carril reclama el evento con un UPDATE de PEN a RUN que se confirma por
+ * separado: si dos carriles (de esta u otra instancia) lo intentan a la vez, solo uno lo aplica.
+ * Un RUN cuyo reclamo supera reclamo-maximo-ms (la instancia cayó a mitad) vuelve a PEN en la
+ * siguiente revisión, así que un efecto que tarde más que eso podría aplicarse dos veces.
+ */
+@Service
+public class CascadaEstadoComercioService {
+
+    private final EventoComercioRepository eventoComercioRepository;
+    private final ComercioRepository comercioRepository;
+    private final PosComercioRepository posComercioRepository;
+    private final FacturacionComercioRepository facturacionComercioRepository;
+    private final TransaccionService transaccionService;
+    private final RegistroUltimoUsoPos registroUltimoUso;
+    private final int intentosMaximos;
+    private final long reclamoMaximoMs;
+
+    public CascadaEstadoComercioService(EventoComercioRepository eventoComercioRepository,
+            ComercioRepository comercioRepository,
+            PosComercioRepository posComercioRepository,
+            FacturacionComercioRepository facturacionComercioRepository,
+            TransaccionService transaccionService,
+            RegistroUltimoUsoPos registroUltimoUso,
+            @Value("${gateway.comercios.eventos.intentos-maximos:10}") int intentosMaximos,
+            @Value("${gateway.comercios.eventos.reclamo-maximo-ms:300000}") long reclamoMaximoMs) {
+        this.eventoComercioRepository = eventoComercioRepository;
+        this.comercioRepository = comercioRepository;
+        this.posComercioRepository = posComercioRepository;
+        this.facturacionComercioRepository = facturacionComercioRepository;
+        this.transaccionService = transaccionService;
+        this.registroUltimoUso = registroUltimoUso;
+        this.intentosMaximos = intentosMaximos;
+        this.reclamoMaximoMs = reclamoMaximoMs;
+    }
+
+    @Transactional
+    public boolean reclamar(Long codigoEvento) {
+        return eventoComercioRepository.reclamar(codigoEvento, EventosComercioService.ESTADO_PENDIENTE,
+                EventosComercioService.ESTADO_EN_CURSO, LocalDateTime.now()) == 1;
+    }
+
+    @Transactional
+    public int liberarReclamosVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minus(Duration.ofMillis(reclamoMaximoMs));
+        return eventoComercioRepository.liberarReclamosVencidos(EventosComercioService.ESTADO_EN_CURSO,
+                EventosComercioService.ESTADO_PENDIENTE, limite);
+    }
+
+    @Transactional
+    public void aplicar(Long codigoEvento) {
+        EventoComercio evento = eventoComercioRepository.findById(codigoEvento)
+                .orElseThrow(() -> new EntityNotFoundException("No existe el evento de comercio: " + codigoEvento));
+        // Solo se aplica un evento reclamado; si ya no está en RUN lo terminó otro carril
+        if (!EventosComercioService.ESTADO_EN_CURSO.equals(evento.getEstado())) {
+            return;
+        }
+        Comercio comercio = comercioRepository.findById(evento.getCodigoComercio())
+                .orElseThrow(() -> new EntityNotFoundException("Comercio no encontrado"));
+
+        switch (evento.getEstadoNuevo()) {
+            case ComercioService.ESTADO_ACTIVO:
+                // Si el comercio ya cambió de nuevo, el evento posterior deja el estado final
+                if (ComercioService.ESTADO_ACTIVO.equals(comercio.getEstado())) {
+                    crearFacturacionInicial(comercio);
+                }
+                break;
+            case ComercioService.ESTADO_SUSPENDIDO:
+            case ComercioService.ESTADO_INACTIVO:
+                transaccionService.procesarCambioEstadoComercio(comercio.getCodigo(), evento.getEstadoNuevo());
+                break;
+            default:
+                break;
+        }
+        // Se usa el estado del evento y no el actual del comercio para respetar el orden de los cambios
+        actualizarEstadoDispositivos(comercio, evento.getEstadoNuevo());
+
+        evento.setEstado(EventosComercioService.ESTADO_PROCESADO);
+        evento.setFechaProcesado(LocalDateTime.now());
+        evento.setError(null);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean registrarFallo(Long codigoEvento, String error) {
+        EventoComercio evento = eventoComercioRepository.findById(codigoEvento).orElse(null);
+        if (evento == null) {
+            return false;
+        }
+        evento.setIntentos(evento.getIntentos() + 1);
+        evento.setError(error == null ? null : error.substring(0, Math.min(error.length(), 200)));
+        if (evento.getIntentos() >= intentosMaximos) {
+            evento.setEstado(EventosComercioService.ESTADO_ERROR);
+            return false;
+        }
+        evento.setEstado(EventosComercioService.ESTADO_PENDIENTE);
+        return true;
+    }
+
+    @Transactional
+    public void crearFacturacionInicial(Comercio comercio) {
+        if (!ComercioService.ESTADO_ACTIVO.equals(comercio.getEstado())) {
+            throw new IllegalStateException("El comercio debe estar activo para iniciar la facturación");
+        }
+
+        boolean existeFacturaActiva = facturacionComercioRepository
+                .findFacturaActivaPorComercio(comercio.getCodigo())
+                .isPresent();
+
+        if (!existeFacturaActiva) {
+            LocalDate fechaInicio = comercio.getFechaActivacion().toLocalDate();
+            LocalDate fechaFin = fechaInicio.plusMonths(1);
+
+            FacturacionComercio nuevaFactura = new FacturacionComercio();
+            nuevaFactura.setFechaInicio(fechaInicio);
+            nuevaFactura.setFechaFin(fechaFin);
+            nuevaFactura.setEstado("ACT");
+            nuevaFactura.setCodigoFacturacion(
+                    "FACT-" + comercio.getCodigo() + "-" + fechaFin.format(DateTimeFormatter.ofPattern("yyyyMM")));
+            nuevaFactura.setComercio(comercio);
+            nuevaFactura.setComision(comercio.getComision());
+            nuevaFactura.setTransaccionesAutorizadas(0);
+            nuevaFactura.setTransaccionesProcesadas(0);
+            nuevaFactura.setTransaccionesRechazadas(0);
+            nuevaFactura.setTransaccionesReversadas(0);
+            nuevaFactura.setValor(BigDecimal.ZERO);
+
+            facturacionComercioRepository.save(nuevaFactura);
+        }
+    }
+
+    private void actualizarEstadoDispositivos(Comercio comercio, String estadoComercio) {
+        List<PosComercio> dispositivos = posComercioRepository.findByComercio(comercio);
+        LocalDateTime fechaActivacionComercio = comercio.getFechaActivacion();
+
+        for (PosComercio dispositivo : dispositivos) {
+            if (ComercioService.ESTADO_INACTIVO.equals(estadoComercio)
+                    || ComercioService.ESTADO_SUSPENDIDO.equals(estadoComercio)) {
+                dispositivo.setEstado("INA");
+                registroUltimoUso.olvidar(dispositivo.getPk());
+            } else if (ComercioService.ESTADO_ACTIVO.equals(estadoComercio)) {
+                // Validar que la fecha de activación del POS no sea anterior a la del comercio
+                if (fechaActivacionComercio != null &&
+                        dispositivo.getFechaActivacion().isBefore(fechaActivacionComercio)) {
+                    dispositivo.setFechaActivacion(fechaActivacionComercio);
+                }
+                dispositivo.setEstado("ACT");
+                registroUltimoUso.registrarActivacion(dispositivo);
+            }
+        }
+        posComercioRepository.saveAll(dispositivos);
+    }
+}
@@ -1,17 +1,15 @@
 package ec.edu.espe.gateway.comercio.services;
 
 import ec.edu.espe.gateway.comercio.model.Comercio;
-import ec.edu.espe.gateway.comercio.model.PosComercio;
 import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
-import ec.edu.espe.gateway.comercio.repository.PosComercioRepository;
 import ec.edu.espe.gateway.comision.model.Comision;
 import ec.edu.espe.gateway.comision.repository.ComisionRepository;
 import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
 import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
-import ec.edu.espe.gateway.transaccion.model.Transaccion;
 import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
 import ec.edu.espe.gateway.facturacion.services.FacturaService;
 import ec.edu.espe.gateway.comision.services.ComisionService;
+import ec.edu.espe.gateway.config.SoloLectura;
 
 import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional;
@@ -21,9 +19,6 @@ import jakarta.transaction.Transactional.TxType;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 @Service
 @Transactional
@@ -35,23 +30,29 @@ public class ComercioService {
     public static final String ESTADO_SUSPENDIDO = "SUS";
 
     private final ComercioRepository comercioRepository;
-    private final PosComercioRepository posComercioRepository;
     private final ComisionRepository comisionRepository;
     private final FacturacionComercioRepository facturacionComercioRepository;
     private final TransaccionRepository transaccionRepository;
+    private final IndiceBusquedaComercio indiceBusqueda;
+    private final EventosComercioService eventosComercio;
+    private final CascadaEstadoComercioService cascadaEstado;
 
     public ComercioService(ComercioRepository comercioRepository,
-            PosComercioRepository posComercioRepository,
             ComisionRepository comisionRepository,
             FacturacionComercioRepository facturacionComercioRepository,
             TransaccionRepository transaccionRepository,
             FacturaService facturaService,
-            ComisionService comisionService) {
+            ComisionService comisionService,
+            IndiceBusquedaComercio indiceBusqueda,
+            EventosComercioService eventosComercio,
+            CascadaEstadoComercioService cascadaEstado) {
         this.comercioRepository = comercioRepository;
-        this.posComercioRepository = posComercioRepository;
         this.comisionRepository = comisionRepository;
         this.facturacionComercioRepository = facturacionComercioRepository;
         this.transaccionRepository = transaccionRepository;
+        this.indiceBusqueda = indiceBusqueda;
+        this.eventosComercio = eventosComercio;
+        this.cascadaEstado = cascadaEstado;
     }
 
     @Transactional(value = TxType.NEVER)
@@ -66,6 +67,7 @@ public class ComercioService {
             comercio.setFechaCreacion(LocalDateTime.now());
             comercio.setEstado(ESTADO_PENDIENTE);
             comercioRepository.save(comercio);
+            indiceBusqueda.actualizar(comercio);
         } catch (Exception e) {
             throw new RuntimeException("Error al registrar comercio: " + e.getMessage());
         }
@@ -101,10 +103,12 @@ public class ComercioService {
         }
     }
 
+    // Valida y cambia el estado; dispositivos, facturación y transacciones se actualizan en segundo plano
     @Transactional
     public void actualizarEstado(Integer codigo, String nuevoEstado) {
         try {
             Comercio comercio = obtenerPorCodigo(codigo);
+            String estadoAnterior = comercio.getEstado();
             validarCambioEstado(comercio, nuevoEstado);
             validarFechasEstado(comercio, nuevoEstado);
 
@@ -113,33 +117,17 @@ public class ComercioService {
                     comercio.setFechaActivacion(LocalDateTime.now());
                     comercio.setFechaSuspension(null);
                     comercio.setEstado(nuevoEstado);
-                    comercioRepository.saveAndFlush(comercio);
-                    crearFacturacionInicial(comercio);
                     break;
                 case ESTADO_SUSPENDIDO:
                     validarSuspension(comercio);
                     comercio.setFechaSuspension(LocalDateTime.now());
                     comercio.setEstado(nuevoEstado);
-                    // Primero cancelar transacciones
-                    List<Transaccion> transaccionesActivas = transaccionRepository
-                            .findByComercioAndEstado(comercio, "ENV");
-                    for (Transaccion transaccion : transaccionesActivas) {
-                        transaccion.setEstado("REC");
-                        transaccionRepository.saveAndFlush(transaccion);
-                    }
                     break;
                 case ESTADO_INACTIVO:
                     validarInactivacion(comercio);
                     comercio.setFechaActivacion(null);
                     comercio.setFechaSuspension(null);
                     comercio.setEstado(nuevoEstado);
-                    // Primero cancelar transacciones
-                    transaccionesActivas = transaccionRepository
-                            .findByComercioAndEstado(comercio, "ENV");
-                    for (Transaccion transaccion : transaccionesActivas) {
-                        transaccion.setEstado("REC");
-                        transaccionRepository.saveAndFlush(transaccion);
-                    }
                     break;
                 case ESTADO_PENDIENTE:
                     validarRetornoAPendiente(comercio);
@@ -147,8 +135,9 @@ public class ComercioService {
                     break;
             }
 
-            comercioRepository.saveAndFlush(comercio);
-            actualizarEstadoDispositivos(comercio);
+            comercioRepository.save(comercio);
+            indiceBusqueda.actualizar(comercio);
+            eventosComercio.publicarCambioEstado(comercio, estadoAnterior, nuevoEstado);
 
         } catch (Exception e) {
             throw new RuntimeException("Error al actualizar estado: " + e.getMessage());
@@ -201,34 +190,6 @@ public class ComercioService {
         }
     }
 
-    private void cancelarTransaccionesActivas(Comercio comercio) {
-        List<Transaccion> transaccionesActivas = transaccionRepository
-                .findByComercioAndEstado(comercio, "ENV");
-        for (Transaccion transaccion : transaccionesActivas) {
-            transaccion.setEstado("REC");
-            transaccionRepository.saveAndFlush(transaccion);
-        }
-    }
-
-    private void actualizarEstadoDispositivos(Comercio comercio) {
-        List<PosComercio> dispositivos = posComercioRepository.findByComercio(comercio);
-        LocalDateTime fechaActivacionComercio = comercio.getFechaActivacion();
-
-        for (PosComercio dispositivo : dispositivos) {
-            if (ESTADO_INACTIVO.equals(comercio.getEstado()) || ESTADO_SUSPENDIDO.equals(comercio.getEstado())) {
-                dispositivo.setEstado("INA");
-            } else if (ESTADO_ACTIVO.equals(comercio.getEstado())) {
-                // Validar que la fecha de activación del POS no sea anterior a la del comercio
-                if (fechaActivacionComercio != null &&
-                        dispositivo.getFechaActivacion().isBefore(fechaActivacionComercio)) {
-                    dispositivo.setFechaActivacion(fechaActivacionComercio);
-                }
-                dispositivo.setEstado("ACT");
-            }
-            posComercioRepository.save(dispositivo);
-        }
-    }
-
     public void actualizarPagosAceptados(Integer codigo, String pagosAceptados) {
         try {
             Comercio comercio = obtenerPorCodigo(codigo);
@@ -238,6 +199,7 @@ public class ComercioService {
             validarPagosAceptados(pagosAceptados);
             comercio.setPagosAceptados(pagosAceptados);
             comercioRepository.save(comercio);
+            indiceBusqueda.actualizar(comercio);
         } catch (Exception e) {
             throw new RuntimeException("Error al actualizar pagos aceptados: " + e.getMessage());
         }
@@ -258,22 +220,34 @@ public class ComercioService {
 
             comercio.setComision(comision);
             comercioRepository.save(comercio);
+            indiceBusqueda.actualizar(comercio);
         } catch (Exception e) {
             throw new RuntimeException("Error al asignar comisión: " + e.getMessage());
         }
     }
 
-    @Transactional(value = TxType.NEVER)
+    @SoloLectura
     public List<Comercio> listarComerciosPorEstado(String estado) {
         return comercioRepository.findByEstado(estado);
     }
 
-    @Transactional(value = TxType.NEVER)
+    @SoloLectura
     public List<Comercio> buscarPorRazonSocialONombreComercial(String criterio) {
         return comercioRepository.findByRazonSocialContainingIgnoreCaseOrNombreComercialContainingIgnoreCase(criterio,
                 criterio);
     }
 
+    // Búsqueda tolerante a errores sobre el índice en memoria; mientras carga se usa la consulta LIKE
+    public IndiceBusquedaComercio.Resultado buscarComercios(String criterio, int pagina, int tamanio) {
+        if (!indiceBusqueda.isCargado()) {
+            List<Comercio> comercios = buscarPorRazonSocialONombreComercial(criterio);
+            int desde = Math.min(pagina * tamanio, comercios.size());
+            return new IndiceBusquedaComercio.Resultado(
+                    comercios.subList(desde, Math.min(desde + tamanio, comercios.size())), comercios.size());
+        }
+        return indiceBusqueda.buscar(criterio, pagina, tamanio);
+    }
+
     private void validarCambioEstado(Comercio comercio, String nuevoEstado) {
         if (comercio.getEstado().equals(nuevoEstado)) {
             throw new IllegalStateException("El comercio ya se encuentra en estado: " + nuevoEstado);
@@ -315,40 +289,10 @@ public class ComercioService {
         comercio.setEstado("ACT");
         comercio.setFechaActivacion(LocalDateTime.now());
         comercioRepository.save(comercio);
+        indiceBusqueda.actualizar(comercio);
 
         // Crear facturación inicial
-        crearFacturacionInicial(comercio);
-    }
-
-    private void crearFacturacionInicial(Comercio comercio) {
-        if (!"ACT".equals(comercio.getEstado())) {
-            throw new IllegalStateException("El comercio debe estar activo para iniciar la facturación");
-        }
-
-        boolean existeFacturaActiva = facturacionComercioRepository
-                .findFacturaActivaPorComercio(comercio.getCodigo())
-                .isPresent();
-
-        if (!existeFacturaActiva) {
-            LocalDate fechaInicio = comercio.getFechaActivacion().toLocalDate();
-            LocalDate fechaFin = fechaInicio.plusMonths(1);
-
-            FacturacionComercio nuevaFactura = new FacturacionComercio();
-            nuevaFactura.setFechaInicio(fechaInicio);
-            nuevaFactura.setFechaFin(fechaFin);
-            nuevaFactura.setEstado("ACT");
-            nuevaFactura.setCodigoFacturacion(
-                    "FACT-" + comercio.getCodigo() + "-" + fechaFin.format(DateTimeFormatter.ofPattern("yyyyMM")));
-            nuevaFactura.setComercio(comercio);
-            nuevaFactura.setComision(comercio.getComision());
-            nuevaFactura.setTransaccionesAutorizadas(0);
-            nuevaFactura.setTransaccionesProcesadas(0);
-            nuevaFactura.setTransaccionesRechazadas(0);
-            nuevaFactura.setTransaccionesReversadas(0);
-            nuevaFactura.setValor(BigDecimal.ZERO);
-
-            facturacionComercioRepository.save(nuevaFactura);
-        }
+        cascadaEstado.crearFacturacionInicial(comercio);
     }
 
     @Transactional(value = TxType.NEVER)
@@ -0,0 +1,294 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.client.PosConfiguracionClient;
+import ec.edu.espe.gateway.comercio.dto.Configuracion;
+import ec.edu.espe.gateway.comercio.dto.ResultadoConfiguracion;
+import ec.edu.espe.gateway.comercio.model.EnvioConfiguracionPos;
+import ec.edu.espe.gateway.comercio.model.PosComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.EnvioConfiguracionPosRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envío de la configuración de terminales hacia el POS. Cada alta guarda una fila en
+ * GTW_ENVIO_CONFIGURACION_POS dentro de la transacción del alta, con el endpoint registrado para
+ * el terminal (GTW_POS_COMERCIO.DESTINO, o gateway.pos.url si no tiene); tras el commit un único
+ * hilo agrupa los envíos pendientes por ese endpoint y los manda en lotes a
+ * /api/pos-configuracion/sincronizar-lote. El POS responde terminal por terminal: las aceptadas
+ * quedan ENV, las rechazadas REC, y si el lote no llega se reintenta con espera exponencial hasta
+ * marcarlas ERR.
+ *
+ * Antes de enviarla, cada fila se reclama con un UPDATE condicionado al próximo intento leído que
+ * lo adelanta reclamo-maximo-ms: si dos instancias leen la misma fila solo una la envía. Si la
+ * instancia cae a mitad del envío, la fila vuelve a estar pendiente al vencer el reclamo.
+ */
+@Service
+public class EnvioConfiguracionPosService {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvioConfiguracionPosService.class);
+
+    public static final String ESTADO_PENDIENTE = "PEN";
+    public static final String ESTADO_ENVIADO = "ENV";
+    public static final String ESTADO_RECHAZADO = "REC";
+    public static final String ESTADO_ERROR = "ERR";
+
+    private final EnvioConfiguracionPosRepository envioRepository;
+    private final PosConfiguracionClient posConfiguracionClient;
+    private final TransactionTemplate transactionTemplate;
+    private final String destinoPorDefecto;
+    private final int loteMaximo;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+    private final int intentosMaximos;
+    private final long reclamoMaximoMs;
+    private final ExecutorService despachador = Executors
+            .newSingleThreadExecutor(tarea -> new Thread(tarea, "pos-configuracion"));
+    private final AtomicBoolean programado = new AtomicBoolean();
+
+    public EnvioConfiguracionPosService(EnvioConfiguracionPosRepository envioRepository,
+            PosConfiguracionClient posConfiguracionClient,
+            TransactionTemplate transactionTemplate,
+            @Value("${gateway.pos.url:http://localhost:8082}") String destinoPorDefecto,
+            @Value("${gateway.pos.configuracion.lote-maximo:100}") int loteMaximo,
+            @Value("${gateway.pos.configuracion.espera-base-ms:1000}") long esperaBaseMs,
+            @Value("${gateway.pos.configuracion.espera-maxima-ms:300000}") long esperaMaximaMs,
+            @Value("${gateway.pos.configuracion.intentos-maximos:12}") int intentosMaximos,
+            @Value("${gateway.pos.configuracion.reclamo-maximo-ms:300000}") long reclamoMaximoMs) {
+        this.envioRepository = envioRepository;
+        this.posConfiguracionClient = posConfiguracionClient;
+        this.transactionTemplate = transactionTemplate;
+        this.destinoPorDefecto = destinoPorDefecto;
+        this.loteMaximo = loteMaximo;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.intentosMaximos = intentosMaximos;
+        this.reclamoMaximoMs = reclamoMaximoMs;
+    }
+
+    public void encolar(PosComercio pos) {
+        LocalDateTime ahora = LocalDateTime.now();
+        EnvioConfiguracionPos envio = new EnvioConfiguracionPos();
+        envio.setCodigoPos(pos.getPk().getCodigo());
+        envio.setModelo(pos.getPk().getModelo());
+        envio.setDireccionMac(pos.getDireccionMac());
+        envio.setCodigoComercio(pos.getComercio().getCodigo());
+        envio.setFechaActivacion(pos.getFechaActivacion());
+        envio.setDestino(pos.getDestino() != null ? pos.getDestino() : destinoPorDefecto);
+        envio.setEstado(ESTADO_PENDIENTE);
+        envio.setIntentos(0);
+        envio.setFechaCreacion(ahora);
+        envio.setProximoIntento(ahora);
+        envioRepository.save(envio);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despachar();
+                }
+            });
+        } else {
+            despachar();
+        }
+    }
+
+    public Optional<EnvioConfiguracionPos> obtenerUltimoEnvio(String codigoPos, String modelo) {
+        return envioRepository.findFirstByCodigoPosAndModeloOrderByCodigoDesc(codigoPos, modelo);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarAlIniciar() {
+        despachar();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.pos.configuracion.revision-ms:5000}",
+            initialDelayString = "${gateway.pos.configuracion.revision-ms:5000}")
+    public void revisarPendientes() {
+        despachar();
+    }
+
+    // Las altas de un despliegue masivo se unen en una sola pasada del despachador
+    private void despachar() {
+        if (!programado.compareAndSet(false, true)) {
+            return;
+        }
+        despachador.execute(() -> {
+            programado.set(false);
+            try {
+                drenar();
+            } catch (Exception e) {
+                log.error("Error al despachar configuraciones pendientes hacia el POS: {}", e.getMessage());
+            }
+        });
+    }
+
+    // Cada envío tomado queda ENV, REC, ERR o con un próximo intento futuro, así el ciclo termina
+    private void drenar() {
+        int consulta = loteMaximo * 10;
+        List<EnvioConfiguracionPos> pendientes;
+        do {
+            pendientes = envioRepository.findByEstadoAndProximoIntentoLessThanEqualOrderByCodigoAsc(
+                    ESTADO_PENDIENTE, LocalDateTime.now(), PageRequest.of(0, consulta));
+            Map<String, List<EnvioConfiguracionPos>> porDestino = new LinkedHashMap<>();
+            for (EnvioConfiguracionPos envio : reclamar(pendientes)) {
+                porDestino.computeIfAbsent(envio.getDestino(), destino -> new ArrayList<>()).add(envio);
+            }
+            porDestino.forEach(this::enviarDestino);
+        } while (pendientes.size() == consulta);
+    }
+
+    // Las filas que otra instancia reclamó primero ya no coinciden con el próximo intento leído y se omiten
+    private List<EnvioConfiguracionPos> reclamar(List<EnvioConfiguracionPos> pendientes) {
+        if (pendientes.isEmpty()) {
+            return pendientes;
+        }
+        LocalDateTime reclamo = LocalDateTime.now().plus(Duration.ofMillis(reclamoMaximoMs));
+        return transactionTemplate.execute(estado -> {
+            List<EnvioConfiguracionPos> reclamados = new ArrayList<>(pendientes.size());
+            for (EnvioConfiguracionPos envio : pendientes) {
+                if (envioRepository.reclamar(envio.getCodigo(), ESTADO_PENDIENTE, envio.getProximoIntento(),
+                        reclamo) == 1) {
+                    envio.setProximoIntento(reclamo);
+                    reclamados.add(envio);
+                }
+            }
+            return reclamados;
+        });
+    }
+
+    private void enviarDestino(String destino, List<EnvioConfiguracionPos> envios) {
+        for (int inicio = 0; inicio < envios.size(); inicio += loteMaximo) {
+            List<EnvioConfiguracionPos> lote = envios.subList(inicio, Math.min(envios.size(), inicio + loteMaximo));
+            if (!enviarLote(destino, lote)) {
+                // El endpoint no responde: el resto de sus lotes espera el mismo reintento
+                posponer(envios.subList(inicio + lote.size(), envios.size()), lote.get(0).getProximoIntento());
+                return;
+            }
+        }
+    }
+
+    private boolean enviarLote(String destino, List<EnvioConfiguracionPos> lote) {
+        List<Configuracion> configuraciones = new ArrayList<>(lote.size());
+        for (EnvioConfiguracionPos envio : lote) {
+            Configuracion configuracion = new Configuracion(new PosComercioPK(envio.getModelo(), envio.getCodigoPos()));
+            configuracion.setDireccionMac(envio.getDireccionMac());
+            configuracion.setCodigoComercio(envio.getCodigoComercio());
+            configuracion.setFechaActivacion(envio.getFechaActivacion());
+            configuraciones.add(configuracion);
+        }
+
+        List<ResultadoConfiguracion> resultados;
+        try {
+            resultados = posConfiguracionClient.sincronizarLote(URI.create(destino), configuraciones);
+        } catch (Exception e) {
+            registrarFallo(destino, lote, e.getMessage());
+            return false;
+        }
+
+        Map<String, ResultadoConfiguracion> porTerminal = new HashMap<>();
+        if (resultados != null) {
+            for (ResultadoConfiguracion resultado : resultados) {
+                porTerminal.put(resultado.getCodigo() + "/" + resultado.getModelo(), resultado);
+            }
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        List<EnvioConfiguracionPos> sinRespuesta = new ArrayList<>();
+        int rechazadas = 0;
+        for (EnvioConfiguracionPos envio : lote) {
+            ResultadoConfiguracion resultado = porTerminal.get(envio.getCodigoPos() + "/" + envio.getModelo());
+            if (resultado == null) {
+                sinRespuesta.add(envio);
+            } else if (resultado.isAceptada()) {
+                envio.setEstado(ESTADO_ENVIADO);
+                envio.setFechaEnvio(ahora);
+                envio.setError(null);
+            } else {
+                rechazadas++;
+                envio.setEstado(ESTADO_RECHAZADO);
+                envio.setFechaEnvio(ahora);
+                envio.setError(recortar(resultado.getError()));
+                log.warn("El POS {} rechazó la configuración del terminal {}/{}: {}", destino,
+                        envio.getCodigoPos(), envio.getModelo(), resultado.getError());
+            }
+        }
+        if (!sinRespuesta.isEmpty()) {
+            registrarFallo(destino, sinRespuesta, "El POS no devolvió resultado para el terminal");
+        }
+        envioRepository.saveAll(lote);
+        log.info("Lote de {} configuraciones enviado a {} ({} rechazadas)", lote.size(), destino, rechazadas);
+        return true;
+    }
+
+    private void registrarFallo(String destino, List<EnvioConfiguracionPos> envios, String error) {
+        LocalDateTime ahora = LocalDateTime.now();
+        int descartados = 0;
+        for (EnvioConfiguracionPos envio : envios) {
+            int intentos = envio.getIntentos() + 1;
+            envio.setIntentos(intentos);
+            envio.setError(recortar(error));
+            if (intentos >= intentosMaximos) {
+                envio.setEstado(ESTADO_ERROR);
+                descartados++;
+            } else {
+                long espera = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intentos - 1, 16));
+                espera += ThreadLocalRandom.current().nextLong(espera / 4 + 1);
+                envio.setProximoIntento(ahora.plusNanos(espera * 1_000_000));
+            }
+        }
+        envioRepository.saveAll(envios);
+        if (descartados > 0) {
+            log.error("{} configuraciones para {} quedan en error tras {} intentos: {}",
+                    descartados, destino, intentosMaximos, error);
+        }
+        if (descartados < envios.size()) {
+            log.warn("Error al enviar {} configuraciones a {}, se reintentará: {}",
+                    envios.size() - descartados, destino, error);
+        }
+    }
+
+    private void posponer(List<EnvioConfiguracionPos> envios, LocalDateTime proximoIntento) {
+        if (envios.isEmpty()) {
+            return;
+        }
+        for (EnvioConfiguracionPos envio : envios) {
+            envio.setProximoIntento(proximoIntento);
+        }
+        envioRepository.saveAll(envios);
+    }
+
+    private static String recortar(String error) {
+        return error == null ? null : error.substring(0, Math.min(error.length(), 200));
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        despachador.shutdown();
+        despachador.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,155 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.model.EventoComercio;
+import ec.edu.espe.gateway.comercio.repository.EventoComercioRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eventos de cambio de estado de comercio. El evento se guarda en GTW_EVENTO_COMERCIO dentro de la
+ * misma transacción que el cambio (no se pierde si la aplicación cae) y, tras el commit, se entrega
+ * a un carril de un solo hilo elegido por comercio: los eventos de un mismo comercio se aplican en
+ * orden y los de comercios distintos en paralelo.
+ * Un evento fallido detiene su carril para ese comercio hasta el siguiente reintento; los pendientes
+ * se vuelven a despachar al arrancar y en cada revisión periódica.
+ * El orden también se respeta entre instancias: un carril solo aplica el evento abierto más antiguo
+ * del comercio después de reclamarlo (ver CascadaEstadoComercioService) y se detiene si ese evento
+ * está en curso en otro carril o si otro lo reclama primero.
+ */
+@Service
+public class EventosComercioService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventosComercioService.class);
+
+    public static final String TIPO_CAMBIO_ESTADO = "EST";
+
+    public static final String ESTADO_PENDIENTE = "PEN";
+    public static final String ESTADO_EN_CURSO = "RUN";
+    public static final String ESTADO_PROCESADO = "PRO";
+    public static final String ESTADO_ERROR = "ERR";
+
+    private static final List<String> ESTADOS_ABIERTOS = List.of(ESTADO_PENDIENTE, ESTADO_EN_CURSO);
+
+    private final EventoComercioRepository eventoComercioRepository;
+    private final CascadaEstadoComercioService cascada;
+    private final ExecutorService[] carriles;
+    private final Set<Integer> programados = ConcurrentHashMap.newKeySet();
+
+    public EventosComercioService(EventoComercioRepository eventoComercioRepository,
+            CascadaEstadoComercioService cascada,
+            @Value("${gateway.comercios.eventos.hilos:4}") int hilos) {
+        this.eventoComercioRepository = eventoComercioRepository;
+        this.cascada = cascada;
+        this.carriles = new ExecutorService[hilos];
+        for (int i = 0; i < hilos; i++) {
+            String nombre = "comercio-eventos-" + i;
+            carriles[i] = Executors.newSingleThreadExecutor(tarea -> new Thread(tarea, nombre));
+        }
+    }
+
+    public void publicarCambioEstado(Comercio comercio, String estadoAnterior, String estadoNuevo) {
+        EventoComercio evento = new EventoComercio();
+        evento.setCodigoComercio(comercio.getCodigo());
+        evento.setTipo(TIPO_CAMBIO_ESTADO);
+        evento.setEstadoAnterior(estadoAnterior);
+        evento.setEstadoNuevo(estadoNuevo);
+        evento.setFechaCreacion(LocalDateTime.now());
+        evento.setEstado(ESTADO_PENDIENTE);
+        evento.setIntentos(0);
+        eventoComercioRepository.save(evento);
+
+        Integer codigoComercio = comercio.getCodigo();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despachar(codigoComercio);
+                }
+            });
+        } else {
+            despachar(codigoComercio);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarAlIniciar() {
+        reintentarPendientes();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.comercios.eventos.revision-ms:30000}",
+            initialDelayString = "${gateway.comercios.eventos.revision-ms:30000}")
+    public void reintentarPendientes() {
+        int liberados = cascada.liberarReclamosVencidos();
+        if (liberados > 0) {
+            log.warn("{} eventos de comercio en curso por más del tiempo máximo vuelven a quedar pendientes", liberados);
+        }
+        List<Integer> comercios = eventoComercioRepository.findComerciosConEventosEnEstado(ESTADO_PENDIENTE);
+        if (!comercios.isEmpty()) {
+            log.info("Despachando eventos pendientes de {} comercios", comercios.size());
+        }
+        comercios.forEach(this::despachar);
+    }
+
+    // Varias solicitudes para el mismo comercio antes de que su carril la atienda se unen en una
+    private void despachar(Integer codigoComercio) {
+        if (!programados.add(codigoComercio)) {
+            return;
+        }
+        carriles[Math.floorMod(codigoComercio.hashCode(), carriles.length)].execute(() -> {
+            programados.remove(codigoComercio);
+            drenar(codigoComercio);
+        });
+    }
+
+    private void drenar(Integer codigoComercio) {
+        List<EventoComercio> abiertos = eventoComercioRepository
+                .findByCodigoComercioAndEstadoInOrderByCodigoAsc(codigoComercio, ESTADOS_ABIERTOS);
+        for (EventoComercio evento : abiertos) {
+            // Un RUN anterior o un reclamo perdido: los eventos siguientes esperan a ese carril
+            if (!cascada.reclamar(evento.getCodigo())) {
+                return;
+            }
+            try {
+                cascada.aplicar(evento.getCodigo());
+                log.info("Evento {} aplicado: comercio {} {} -> {}", evento.getCodigo(), codigoComercio,
+                        evento.getEstadoAnterior(), evento.getEstadoNuevo());
+            } catch (Exception e) {
+                boolean reintentar = cascada.registrarFallo(evento.getCodigo(), e.getMessage());
+                if (reintentar) {
+                    log.warn("Error al aplicar el evento {} del comercio {}, se reintentará: {}",
+                            evento.getCodigo(), codigoComercio, e.getMessage());
+                    return;
+                }
+                log.error("Evento {} del comercio {} descartado tras los intentos máximos: {}",
+                        evento.getCodigo(), codigoComercio, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        for (ExecutorService carril : carriles) {
+            carril.shutdown();
+        }
+        for (ExecutorService carril : carriles) {
+            carril.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de trigramas en memoria sobre razón social, nombre comercial, RUC y código interno.
+ * Se carga al arrancar y se actualiza tras el commit de cada alta o modificación. Cada recarga-ms
+ * además se reindexan los comercios con FECHA_MODIFICACION posterior a la última leída, así los
+ * cambios hechos en otra instancia también aparecen en las búsquedas.
+ * Una coincidencia se puntúa por la fracción de trigramas del criterio presentes en el comercio,
+ * lo que tolera errores de tipeo; las coincidencias exactas como subcadena o prefijo suben en el
+ * orden. Con menos de la cobertura mínima el comercio no se devuelve.
+ */
+@Component
+public class IndiceBusquedaComercio {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusquedaComercio.class);
+
+    // Una modificación confirmada tarde puede llevar una fecha anterior a la última leída: cada recarga
+    // vuelve a leer este margen, y reindexar un comercio sin cambios no altera el índice
+    private static final Duration SOLAPE = Duration.ofMinutes(5);
+
+    private final ComercioRepository comercioRepository;
+    private final double coberturaMinima;
+    private final Map<String, Set<Integer>> comerciosPorTrigrama = new ConcurrentHashMap<>();
+    private final Map<Integer, Documento> documentos = new ConcurrentHashMap<>();
+    private volatile boolean cargado;
+    private volatile LocalDateTime ultimaModificacion;
+
+    public IndiceBusquedaComercio(ComercioRepository comercioRepository,
+            @Value("${gateway.comercios.busqueda.cobertura-minima:0.5}") double coberturaMinima) {
+        this.comercioRepository = comercioRepository;
+        this.coberturaMinima = coberturaMinima;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long inicio = System.nanoTime();
+        indexarTodos(comercioRepository.findAll());
+        cargado = true;
+        log.info("Índice de búsqueda de comercios cargado: {} comercios, {} trigramas en {} ms",
+                documentos.size(), comerciosPorTrigrama.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.comercios.busqueda.recarga-ms:60000}",
+            initialDelayString = "${gateway.comercios.busqueda.recarga-ms:60000}")
+    public void recargar() {
+        if (!cargado) {
+            return;
+        }
+        LocalDateTime desde = ultimaModificacion;
+        List<Comercio> cambiados = desde == null ? comercioRepository.findAll()
+                : comercioRepository.findByFechaModificacionGreaterThanEqual(desde.minus(SOLAPE));
+        indexarTodos(cambiados);
+        log.debug("Índice de búsqueda de comercios recargado: {} comercios leídos", cambiados.size());
+    }
+
+    private void indexarTodos(List<Comercio> comercios) {
+        LocalDateTime maxima = ultimaModificacion;
+        for (Comercio comercio : comercios) {
+            indexar(comercio);
+            LocalDateTime modificacion = comercio.getFechaModificacion();
+            if (modificacion != null && (maxima == null || modificacion.isAfter(maxima))) {
+                maxima = modificacion;
+            }
+        }
+        ultimaModificacion = maxima;
+    }
+
+    public boolean isCargado() {
+        return cargado;
+    }
+
+    // Dentro de una transacción el índice se actualiza solo si hace commit
+    public void actualizar(Comercio comercio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexar(comercio);
+                }
+            });
+        } else {
+            indexar(comercio);
+        }
+    }
+
+    public Resultado buscar(String criterio, int pagina, int tamanio) {
+        String normalizado = normalizar(criterio);
+        if (normalizado.isEmpty()) {
+            return new Resultado(List.of(), 0);
+        }
+        Set<String> trigramasCriterio = trigramas(normalizado);
+        int necesarios = Math.max(1, (int) Math.ceil(coberturaMinima * trigramasCriterio.size()));
+
+        // Todo resultado contiene al menos uno de los (n - necesarios + 1) trigramas menos frecuentes,
+        // así que solo se recorren esas listas y no las de trigramas comunes
+        List<Set<Integer>> listas = new ArrayList<>(trigramasCriterio.size());
+        for (String trigrama : trigramasCriterio) {
+            listas.add(comerciosPorTrigrama.getOrDefault(trigrama, Set.of()));
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> semillas = new HashSet<>();
+        for (Set<Integer> lista : listas.subList(0, trigramasCriterio.size() - necesarios + 1)) {
+            semillas.addAll(lista);
+        }
+
+        // Solo se ordena lo necesario para la página pedida (montículo acotado)
+        Comparator<Candidato> orden = Comparator.comparingDouble(Candidato::puntaje).reversed()
+                .thenComparing(candidato -> candidato.documento().comercio.getRazonSocial(),
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+        int limite = (pagina + 1) * tamanio;
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(limite + 1, orden.reversed());
+        int total = 0;
+        for (Integer codigo : semillas) {
+            Documento documento = documentos.get(codigo);
+            if (documento == null) {
+                continue;
+            }
+            int coincidencias = 0;
+            for (String trigrama : trigramasCriterio) {
+                if (documento.trigramas.contains(trigrama)) {
+                    coincidencias++;
+                }
+            }
+            if (coincidencias >= necesarios) {
+                total++;
+                double cobertura = (double) coincidencias / trigramasCriterio.size();
+                // La bonificación máxima es 1: si ni con ella entra en la página no se calcula
+                if (mejores.size() == limite && cobertura + 1.0 < mejores.peek().puntaje()) {
+                    continue;
+                }
+                mejores.offer(new Candidato(documento, cobertura + documento.bonificacion(normalizado)));
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+            }
+        }
+
+        List<Candidato> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(orden);
+        List<Comercio> comercios = new ArrayList<>(tamanio);
+        for (int i = pagina * tamanio; i < ordenados.size(); i++) {
+            comercios.add(ordenados.get(i).documento().comercio);
+        }
+        return new Resultado(comercios, total);
+    }
+
+    private void indexar(Comercio comercio) {
+        if (comercio == null || comercio.getCodigo() == null) {
+            return;
+        }
+        Documento nuevo = new Documento(comercio);
+        Documento anterior = documentos.put(comercio.getCodigo(), nuevo);
+        if (anterior != null) {
+            for (String trigrama : anterior.trigramas) {
+                if (!nuevo.trigramas.contains(trigrama)) {
+                    Set<Integer> codigos = comerciosPorTrigrama.get(trigrama);
+                    if (codigos != null) {
+                        codigos.remove(comercio.getCodigo());
+                    }
+                }
+            }
+        }
+        for (String trigrama : nuevo.trigramas) {
+            comerciosPorTrigrama.computeIfAbsent(trigrama, clave -> ConcurrentHashMap.newKeySet())
+                    .add(comercio.getCodigo());
+        }
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    // Trigramas de cada palabra con relleno, así criterios de 1 o 2 letras también coinciden
+    static Set<String> trigramas(String normalizado) {
+        Set<String> resultado = new LinkedHashSet<>();
+        for (String palabra : normalizado.split(" ")) {
+            if (palabra.isEmpty()) {
+                continue;
+            }
+            String relleno = "  " + palabra + " ";
+            for (int i = 0; i + 3 <= relleno.length(); i++) {
+                resultado.add(relleno.substring(i, i + 3));
+            }
+        }
+        return resultado;
+    }
+
+    public record Resultado(List<Comercio> comercios, int total) {
+    }
+
+    private record Candidato(Documento documento, double puntaje) {
+    }
+
+    private static final class Documento {
+        final Comercio comercio;
+        final String[] campos;
+        final Set<String> trigramas = new HashSet<>();
+
+        Documento(Comercio comercio) {
+            this.comercio = comercio;
+            this.campos = new String[] {
+                    normalizar(comercio.getRazonSocial()),
+                    normalizar(comercio.getNombreComercial()),
+                    normalizar(comercio.getRuc()),
+                    normalizar(comercio.getCodigoInterno()) };
+            for (String campo : campos) {
+                trigramas.addAll(IndiceBusquedaComercio.trigramas(campo));
+            }
+        }
+
+        double bonificacion(String criterio) {
+            double bonificacion = 0;
+            for (String campo : campos) {
+                if (campo.startsWith(criterio)) {
+                    return 1.0;
+                }
+                if (campo.contains(criterio)) {
+                    bonificacion = 0.5;
+                }
+            }
+            return bonificacion;
+        }
+    }
+}
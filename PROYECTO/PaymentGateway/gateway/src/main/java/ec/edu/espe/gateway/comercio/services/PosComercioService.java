@@ -12,27 +12,30 @@ import java.util.List;
 import java.util.regex.Pattern;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
-import ec.edu.espe.gateway.comercio.client.PosConfiguracionClient;
-import ec.edu.espe.gateway.comercio.dto.Configuracion;
 
 @Service
 public class PosComercioService {
 
     private static final Pattern MAC_ADDRESS_PATTERN = Pattern.compile("^([0-9A-Fa-f]{2}[:-]){5}([0-9A-Fa-f]{2})$");
     private static final Integer CODIGO_POS_LENGTH = 10;
+    // URL base del POS que atiende al terminal: esquema, host y puerto opcional
+    private static final Pattern DESTINO_PATTERN = Pattern.compile("^https?://[A-Za-z0-9.-]+(:[0-9]{1,5})?$");
+    private static final Integer DESTINO_LENGTH = 100;
     public static final String ESTADO_ACTIVO = "ACT";
     public static final String ESTADO_INACTIVO = "INA";
 
     private final PosComercioRepository posComercioRepository;
     private final ComercioRepository comercioRepository;
-    private final PosConfiguracionClient posConfiguracionClient;
+    private final EnvioConfiguracionPosService envioConfiguracion;
+    private final RegistroUltimoUsoPos registroUltimoUso;
 
     public PosComercioService(PosComercioRepository posComercioRepository,
-            ComercioRepository comercioRepository, PosConfiguracionClient posConfiguracionClient) {
+            ComercioRepository comercioRepository, EnvioConfiguracionPosService envioConfiguracion,
+            RegistroUltimoUsoPos registroUltimoUso) {
         this.posComercioRepository = posComercioRepository;
         this.comercioRepository = comercioRepository;
-        this.posConfiguracionClient = posConfiguracionClient;
-        
+        this.envioConfiguracion = envioConfiguracion;
+        this.registroUltimoUso = registroUltimoUso;
     }
 
     public List<PosComercio> obtenerTodos() {
@@ -56,27 +59,10 @@ public class PosComercioService {
         posComercio.setEstado(ESTADO_ACTIVO);
         posComercio.setFechaActivacion(LocalDateTime.now());
         PosComercio posGuardado = posComercioRepository.save(posComercio);
+        registroUltimoUso.registrarActivacion(posGuardado);
 
-        try {
-            // 3. Intentar sincronizar con el POS (solo los campos necesarios)
-            Configuracion configuracionParaSincronizar = new Configuracion();
-            configuracionParaSincronizar.setPk(posGuardado.getPk());
-            configuracionParaSincronizar.setDireccionMac(posGuardado.getDireccionMac());
-            configuracionParaSincronizar.setFechaActivacion(posGuardado.getFechaActivacion());
-            configuracionParaSincronizar.setCodigoComercio(comercioCompleto.getCodigo());
-
-            // Add debug logging
-            System.out.println("Enviando configuración al POS:");
-            System.out.println("PK: " + configuracionParaSincronizar.getPk());
-            System.out.println("DireccionMac: " + configuracionParaSincronizar.getDireccionMac());
-            System.out.println("FechaActivacion: " + configuracionParaSincronizar.getFechaActivacion());
-            System.out.println("CodigoComercio: " + configuracionParaSincronizar.getCodigoComercio());
-
-            posConfiguracionClient.enviarConfiguracion(configuracionParaSincronizar);
-        } catch (Exception e) {
-            System.err.println("Error en sincronización con POS: " + e.getMessage());
-            e.printStackTrace(); // Add stack trace for more detail
-        }
+        // 3. Encolar la sincronización con el POS; se envía en lote después del commit
+        envioConfiguracion.encolar(posGuardado);
 
         return posGuardado;
     }
@@ -94,6 +80,13 @@ public class PosComercioService {
             throw new IllegalArgumentException("La dirección MAC no cumple con el formato válido");
         }
 
+        // Validar endpoint del POS, si se indica
+        if (posComercio.getDestino() != null && (posComercio.getDestino().length() > DESTINO_LENGTH
+                || !DESTINO_PATTERN.matcher(posComercio.getDestino()).matches())) {
+            throw new IllegalArgumentException(
+                    "El destino debe ser una URL http o https sin ruta de hasta 100 caracteres");
+        }
+
         // Validar comercio asociado
         Comercio comercio = comercioRepository.findById(posComercio.getComercio().getCodigo())
                 .orElseThrow(() -> new EntityNotFoundException("El comercio asociado no existe"));
@@ -136,6 +129,7 @@ public class PosComercioService {
             pos.setEstado(ESTADO_ACTIVO);
             pos.setFechaActivacion(fechaActual);
             posComercioRepository.save(pos);
+            registroUltimoUso.registrarActivacion(pos);
         } catch (Exception e) {
             throw new RuntimeException("Error al activar POS: " + e.getMessage());
         }
@@ -147,6 +141,7 @@ public class PosComercioService {
             pos.setEstado(ESTADO_INACTIVO);
             pos.setFechaActivacion(null);
             posComercioRepository.save(pos);
+            registroUltimoUso.olvidar(pos.getPk());
         } catch (Exception e) {
             throw new RuntimeException("Error al inactivar POS: " + e.getMessage());
         }
@@ -169,8 +164,8 @@ public class PosComercioService {
                 throw new IllegalStateException("La fecha de último uso no puede ser anterior a la fecha de activación");
             }
 
-            pos.setUltimoUso(fechaUltimoUso);
-            posComercioRepository.save(pos);
+            // La escritura a la base la hace el registro en su próximo lote
+            registroUltimoUso.registrar(pos.getPk(), fechaUltimoUso);
         } catch (Exception e) {
             throw new RuntimeException("Error al actualizar último uso: " + e.getMessage());
         }
@@ -184,6 +179,7 @@ public class PosComercioService {
                     pos.setEstado(ESTADO_INACTIVO);
                     pos.setFechaActivacion(null);
                     posComercioRepository.save(pos);
+                    registroUltimoUso.olvidar(pos.getPk());
                 }
             }
         } catch (Exception e) {
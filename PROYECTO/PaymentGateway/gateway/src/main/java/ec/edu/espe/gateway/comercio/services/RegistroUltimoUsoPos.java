@@ -0,0 +1,251 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Último uso de cada terminal. Cada transacción autorizada y cada latido solo actualizan un mapa
+ * en memoria; los terminales que cambiaron se escriben a GTW_POS_COMERCIO.ULTIMO_USO en un único
+ * lote por intervalo, así un terminal con cien ventas por minuto cuesta una fila por intervalo.
+ *
+ * Los terminales activos, su comercio, el endpoint de su POS y su último uso se mantienen en una
+ * vista en memoria que responde obtenerSinActividad, comercioDe y destinoDe sin consultar la base. Cada recarga-ms la vista se reemplaza con las filas
+ * de la base (terminales activados o inactivados y usos escritos por otras instancias) sin perder
+ * los usos más recientes de esta instancia. Un latido de un terminal desconocido se confirma una
+ * vez en la base; el resultado negativo se recuerda hasta la siguiente recarga.
+ */
+@Component
+public class RegistroUltimoUsoPos {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroUltimoUsoPos.class);
+
+    // Tope de terminales desconocidos recordados entre recargas; al llenarse se rechazan sin consultar
+    static final int DESCONOCIDOS_MAXIMOS = 10_000;
+
+    // La condición evita retroceder la fecha si otro proceso ya escribió una posterior
+    private static final String ACTUALIZAR = "UPDATE GTW_POS_COMERCIO SET ULTIMO_USO = ? "
+            + "WHERE MODELO = ? AND CODIGO_POS = ? AND (ULTIMO_USO IS NULL OR ULTIMO_USO < ?)";
+
+    // Los terminales activos que nunca se usaron cuentan desde su activación
+    private static final String ACTIVOS = "SELECT MODELO, CODIGO_POS, COALESCE(ULTIMO_USO, FECHA_ACTIVACION), "
+            + "COD_COMERCIO, DESTINO FROM GTW_POS_COMERCIO WHERE ESTADO = ?";
+
+    private static final String ACTIVO = "SELECT MODELO, CODIGO_POS, COALESCE(ULTIMO_USO, FECHA_ACTIVACION), "
+            + "COD_COMERCIO, DESTINO FROM GTW_POS_COMERCIO WHERE MODELO = ? AND CODIGO_POS = ? AND ESTADO = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock escritura = new ReentrantLock();
+    private volatile Map<PosComercioPK, Terminal> activos = new ConcurrentHashMap<>();
+    private volatile Set<PosComercioPK> desconocidos = ConcurrentHashMap.newKeySet();
+    private final Map<PosComercioPK, LocalDateTime> sinEscribir = new ConcurrentHashMap<>();
+
+    public RegistroUltimoUsoPos(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        recargar();
+        log.info("Registro de último uso iniciado con {} terminales activos", activos.size());
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.pos.ultimo-uso.recarga-ms:60000}",
+            initialDelayString = "${gateway.pos.ultimo-uso.recarga-ms:60000}")
+    public void recargar() {
+        Map<PosComercioPK, Terminal> cargados = new ConcurrentHashMap<>();
+        jdbcTemplate.query(ACTIVOS, fila -> {
+            cargados.put(new PosComercioPK(fila.getString(1), fila.getString(2)), terminal(fila));
+        }, PosComercioService.ESTADO_ACTIVO);
+        // Un uso de esta instancia posterior a lo leído (aún sin escribir o escrito durante la consulta)
+        // se conserva
+        Map<PosComercioPK, Terminal> anteriores = activos;
+        cargados.replaceAll((pk, terminal) -> {
+            Terminal anterior = anteriores.get(pk);
+            return anterior == null ? terminal : terminal.conUso(anterior.ultimoUso());
+        });
+        activos = cargados;
+        sinEscribir.forEach((pk, fecha) -> cargados.computeIfPresent(pk,
+                (clave, actual) -> actual.conUso(fecha)));
+        desconocidos = ConcurrentHashMap.newKeySet();
+    }
+
+    public void registrar(PosComercioPK pk, LocalDateTime fecha) {
+        if (pk == null || pk.getCodigo() == null || pk.getModelo() == null || fecha == null) {
+            return;
+        }
+        sinEscribir.merge(pk, fecha, RegistroUltimoUsoPos::masReciente);
+        activos.computeIfPresent(pk, (clave, actual) -> actual.conUso(fecha));
+    }
+
+    // Un terminal dado de alta o reactivado entra al registro aunque todavía no tenga ventas
+    public void registrarActivacion(PosComercio pos) {
+        PosComercioPK pk = pos.getPk();
+        if (pk != null && pos.getFechaActivacion() != null && pos.getComercio() != null) {
+            Terminal terminal = new Terminal(pos.getComercio().getCodigo(), pos.getDestino(),
+                    pos.getFechaActivacion());
+            trasCommit(() -> {
+                activos.merge(pk, terminal, (actual, nuevo) -> nuevo.conUso(actual.ultimoUso()));
+                desconocidos.remove(pk);
+            });
+        }
+    }
+
+    // Un uso pendiente de escribir se conserva: ocurrió antes de la inactivación
+    public void olvidar(PosComercioPK pk) {
+        trasCommit(() -> activos.remove(pk));
+    }
+
+    private void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    public boolean conocido(PosComercioPK pk) {
+        return buscar(pk) != null;
+    }
+
+    /**
+     * Comercio dueño de un terminal activo, o null si el terminal no existe o está inactivo. Es la
+     * única fuente del comercio para los límites de ingreso: el cuerpo de la petición no se usa.
+     */
+    public Integer comercioDe(PosComercioPK pk) {
+        Terminal terminal = buscar(pk);
+        return terminal == null ? null : terminal.codigoComercio();
+    }
+
+    // Endpoint del POS que atiende a un terminal activo; null si no tiene uno propio o no se conoce
+    public String destinoDe(PosComercioPK pk) {
+        Terminal terminal = buscar(pk);
+        return terminal == null ? null : terminal.destino();
+    }
+
+    private Terminal buscar(PosComercioPK pk) {
+        if (pk == null || pk.getModelo() == null || pk.getCodigo() == null) {
+            return null;
+        }
+        Terminal terminal = activos.get(pk);
+        if (terminal != null) {
+            return terminal;
+        }
+        Set<PosComercioPK> rechazados = desconocidos;
+        if (rechazados.contains(pk) || rechazados.size() >= DESCONOCIDOS_MAXIMOS) {
+            return null;
+        }
+        // Activado en otra instancia después de la última recarga
+        List<Terminal> encontrados = jdbcTemplate.query(ACTIVO, (fila, numero) -> terminal(fila),
+                pk.getModelo(), pk.getCodigo(), PosComercioService.ESTADO_ACTIVO);
+        if (encontrados.isEmpty()) {
+            rechazados.add(pk);
+            return null;
+        }
+        return activos.merge(pk, encontrados.get(0), (actual, nuevo) -> nuevo.conUso(actual.ultimoUso()));
+    }
+
+    private static Terminal terminal(ResultSet fila) throws SQLException {
+        Timestamp fecha = fila.getTimestamp(3);
+        return new Terminal(fila.getInt(4), fila.getString(5),
+                fecha == null ? LocalDateTime.MIN : fecha.toLocalDateTime());
+    }
+
+    public List<TerminalSinActividad> obtenerSinActividad(long minutos) {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(minutos);
+        List<TerminalSinActividad> resultado = new ArrayList<>();
+        activos.forEach((pk, terminal) -> {
+            if (terminal.ultimoUso().isBefore(limite)) {
+                resultado.add(new TerminalSinActividad(pk.getCodigo(), pk.getModelo(), terminal.ultimoUso()));
+            }
+        });
+        resultado.sort(Comparator.comparing(TerminalSinActividad::ultimoUso));
+        return resultado;
+    }
+
+    // Lock y no synchronized: la escritura espera a la base y con hilos virtuales fijaría el portador
+    @Scheduled(fixedDelayString = "${gateway.pos.ultimo-uso.intervalo-ms:10000}")
+    public void escribir() {
+        escritura.lock();
+        try {
+            escribirPendientes();
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private void escribirPendientes() {
+        if (sinEscribir.isEmpty()) {
+            return;
+        }
+        Map<PosComercioPK, LocalDateTime> lote = new ConcurrentHashMap<>();
+        for (PosComercioPK pk : sinEscribir.keySet()) {
+            LocalDateTime fecha = sinEscribir.get(pk);
+            if (fecha != null) {
+                lote.put(pk, fecha);
+            }
+        }
+        // Solo se quita si no llegó un uso más reciente mientras tanto
+        lote.forEach(sinEscribir::remove);
+
+        List<Object[]> parametros = new ArrayList<>(lote.size());
+        lote.forEach((pk, fecha) -> {
+            Timestamp valor = Timestamp.valueOf(fecha);
+            parametros.add(new Object[] { valor, pk.getModelo(), pk.getCodigo(), valor });
+        });
+        try {
+            jdbcTemplate.batchUpdate(ACTUALIZAR, parametros);
+            log.debug("Último uso escrito para {} terminales", parametros.size());
+        } catch (Exception e) {
+            // Se devuelven al mapa sin pisar usos más recientes registrados durante la escritura
+            lote.forEach((pk, fecha) -> sinEscribir.merge(pk, fecha, RegistroUltimoUsoPos::masReciente));
+            log.warn("Error al escribir el último uso de {} terminales, se reintentará: {}",
+                    parametros.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        escribir();
+    }
+
+    private static LocalDateTime masReciente(LocalDateTime actual, LocalDateTime nueva) {
+        return nueva.isAfter(actual) ? nueva : actual;
+    }
+
+    private record Terminal(Integer codigoComercio, String destino, LocalDateTime ultimoUso) {
+
+        Terminal conUso(LocalDateTime fecha) {
+            return fecha.isAfter(ultimoUso) ? new Terminal(codigoComercio, destino, fecha) : this;
+        }
+    }
+
+    public record TerminalSinActividad(String codigoPos, String modelo, LocalDateTime ultimoUso) {
+    }
+}
@@ -0,0 +1,54 @@
+package ec.edu.espe.gateway.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Las tablas de transacciones y facturación pasaron de AUTO_INCREMENT a secuencias con
+ * asignación pooled-lo (bloques de 50) para que Hibernate agrupe los INSERT en lotes JDBC.
+ * Al arrancar, cada secuencia se adelanta al MAX del código existente para no chocar con las
+ * filas creadas con el esquema anterior. Se hace al terminar de crear los singletons, con el
+ * esquema ya creado por Flyway o Hibernate y antes de que el servidor web acepte peticiones.
+ */
+@Component
+public class AlineadorSecuencias implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AlineadorSecuencias.class);
+
+    // Secuencia -> tabla y columna de la clave
+    private static final Map<String, String[]> SECUENCIAS = Map.of(
+            "GTW_TRANSACCION_SEQ", new String[] { "GTW_TRANSACCION", "COD_TRANSACCION" },
+            "GTW_FACTURACION_COMERCIO_SEQ", new String[] { "GTW_FACTURACION_COMERCIO", "COD_FACTURACION_COMERCIO" });
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AlineadorSecuencias(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SECUENCIAS.forEach(this::alinear);
+    }
+
+    private void alinear(String secuencia, String[] tablaColumna) {
+        try {
+            Long maximo = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + tablaColumna[1] + "), 0) FROM " + tablaColumna[0], Long.class);
+            Long siguiente = jdbcTemplate.queryForObject(
+                    "SELECT next_not_cached_value FROM " + secuencia, Long.class);
+            if (maximo != null && siguiente != null && siguiente <= maximo) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + (maximo + 1));
+                log.info("Secuencia {} reiniciada en {} (máximo actual en {}: {})",
+                        secuencia, maximo + 1, tablaColumna[0], maximo);
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo alinear la secuencia {}: {}", secuencia, e.getMessage());
+        }
+    }
+}
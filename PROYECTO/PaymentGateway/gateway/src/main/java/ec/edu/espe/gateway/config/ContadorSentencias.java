@@ -0,0 +1,72 @@
+package ec.edu.espe.gateway.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * StatementInspector de Hibernate que cuenta las sentencias SQL ejecutadas por el hilo
+ * de la petición actual, agrupadas por forma (SQL sin literales ni alias numerados).
+ * El conteo solo se activa entre iniciar() y finalizar(), que llama ContadorSentenciasFilter.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<Contexto> CONTEXTO = new ThreadLocal<>();
+    private static final Pattern NUMEROS = Pattern.compile("\\d+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    public static void iniciar() {
+        CONTEXTO.set(new Contexto());
+    }
+
+    public static Contexto finalizar() {
+        Contexto contexto = CONTEXTO.get();
+        CONTEXTO.remove();
+        return contexto;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Contexto contexto = CONTEXTO.get();
+        if (contexto != null) {
+            contexto.registrar(sql);
+        }
+        return sql;
+    }
+
+    static String forma(String sql) {
+        String sinNumeros = NUMEROS.matcher(sql).replaceAll("?");
+        return ESPACIOS.matcher(sinNumeros).replaceAll(" ").trim();
+    }
+
+    public static final class Contexto {
+        private int total;
+        private final Map<String, Integer> porForma = new HashMap<>();
+
+        void registrar(String sql) {
+            total++;
+            porForma.merge(forma(sql), 1, Integer::sum);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<String, Integer> getPorForma() {
+            return Collections.unmodifiableMap(porForma);
+        }
+
+        public Map.Entry<String, Integer> obtenerFormaMasRepetida() {
+            Map.Entry<String, Integer> masRepetida = null;
+            for (Map.Entry<String, Integer> entrada : porForma.entrySet()) {
+                if (masRepetida == null || entrada.getValue() > masRepetida.getValue()) {
+                    masRepetida = entrada;
+                }
+            }
+            return masRepetida;
+        }
+    }
+}
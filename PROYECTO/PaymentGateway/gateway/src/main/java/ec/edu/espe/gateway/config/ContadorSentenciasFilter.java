@@ -0,0 +1,122 @@
+package ec.edu.espe.gateway.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cuenta las sentencias SQL de cada petición y las publica como gateway.http.sentencias
+ * por patrón de URI. Si la petición supera el presupuesto o repite la misma forma de
+ * sentencia demasiadas veces (N+1) se registra una advertencia por cada problema. Con
+ * gateway.sentencias.estricto=true (perfil test) la respuesta se retiene en memoria hasta evaluar
+ * el conteo: si hay problema se descarta y la petición falla con IllegalStateException (500 para el
+ * cliente, excepción en MockMvc). El conteo queda además en el atributo ATRIBUTO_CONTEXTO de la
+ * petición, que leen las pruebas de rendimiento.
+ */
+@Component
+public class ContadorSentenciasFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorSentenciasFilter.class);
+    public static final String METRICA_SENTENCIAS = "gateway.http.sentencias";
+    public static final String ATRIBUTO_CONTEXTO = ContadorSentenciasFilter.class.getName() + ".contexto";
+
+    private final MeterRegistry registry;
+    private final int presupuesto;
+    private final int repeticionesMaximas;
+    private final boolean estricto;
+
+    public ContadorSentenciasFilter(MeterRegistry registry,
+            @Value("${gateway.sentencias.presupuesto:20}") int presupuesto,
+            @Value("${gateway.sentencias.repeticiones-maximas:5}") int repeticionesMaximas,
+            @Value("${gateway.sentencias.estricto:false}") boolean estricto) {
+        this.registry = registry;
+        this.presupuesto = presupuesto;
+        this.repeticionesMaximas = repeticionesMaximas;
+        this.estricto = estricto;
+    }
+
+    // En modo estricto el despacho asíncrono (long-poll de claves) pasa por el filtro para copiar la
+    // respuesta retenida
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return !estricto;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            copiarRespuesta(request, response);
+            return;
+        }
+        HttpServletResponse destino = estricto && !(response instanceof ContentCachingResponseWrapper)
+                ? new ContentCachingResponseWrapper(response) : response;
+        ContadorSentencias.iniciar();
+        ContadorSentencias.Contexto contexto;
+        try {
+            filterChain.doFilter(request, destino);
+        } finally {
+            contexto = ContadorSentencias.finalizar();
+        }
+        if (contexto != null) {
+            request.setAttribute(ATRIBUTO_CONTEXTO, contexto);
+            List<String> problemas = evaluar(request, contexto);
+            if (estricto && !problemas.isEmpty() && !request.isAsyncStarted() && !destino.isCommitted()) {
+                destino.reset();
+                throw new IllegalStateException("Posible N+1: " + String.join("; ", problemas));
+            }
+        }
+        copiarRespuesta(request, destino);
+    }
+
+    private static void copiarRespuesta(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ContentCachingResponseWrapper retenida = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (retenida != null && !request.isAsyncStarted()) {
+            retenida.copyBodyToResponse();
+        }
+    }
+
+    private List<String> evaluar(HttpServletRequest request, ContadorSentencias.Contexto contexto) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : "UNKNOWN";
+        DistributionSummary.builder(METRICA_SENTENCIAS)
+                .tag("uri", uri)
+                .tag("metodo", request.getMethod())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(contexto.getTotal());
+
+        // Se revisan ambos: la forma repetida es la señal de N+1 aunque también se exceda el presupuesto
+        List<String> problemas = new ArrayList<>();
+        if (contexto.getTotal() > presupuesto) {
+            problemas.add(String.format("%s %s ejecutó %d sentencias (presupuesto %d)",
+                    request.getMethod(), uri, contexto.getTotal(), presupuesto));
+        }
+        Map.Entry<String, Integer> masRepetida = contexto.obtenerFormaMasRepetida();
+        if (masRepetida != null && masRepetida.getValue() >= repeticionesMaximas) {
+            problemas.add(String.format("%s %s repitió %d veces la sentencia: %s",
+                    request.getMethod(), uri, masRepetida.getValue(), masRepetida.getKey()));
+        }
+        for (String problema : problemas) {
+            log.warn("Posible N+1: {}", problema);
+        }
+        return problemas;
+    }
+}
@@ -0,0 +1,148 @@
+package ec.edu.espe.gateway.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Límite de peticiones en vuelo que se ajusta con la latencia observada (esquema de gradiente).
+ * Las latencias se acumulan por ventana; al cerrar cada ventana su promedio se compara con la
+ * latencia de referencia, un promedio exponencial de las ventanas con constante de tiempo larga
+ * (minutos, medida en tiempo de reloj y no en ventanas). Mientras la ventana no supere la
+ * referencia más la tolerancia, el límite crece en una cola de √límite; cuando la latencia sube,
+ * el gradiente referencia/ventana lo reduce en proporción, y como la referencia se mueve despacio
+ * una sobrecarga sostenida mantiene el límite bajo durante minutos. Si la latencia baja a menos de
+ * la mitad de la referencia (la sobrecarga terminó), la referencia se corrige rápido hacia abajo. Una petición fallida por sobrecarga
+ * reduce el límite de inmediato. Tomar y devolver un cupo es un compareAndSet; el cierre de
+ * ventana lo hace un solo hilo con un candado no bloqueante.
+ */
+class LimiteConcurrencia {
+
+    private static final int MUESTRAS_MINIMAS = 10;
+    private static final double CORRECCION_REFERENCIA = 0.95;
+    private static final double SUAVIZADO = 0.2;
+    private static final double REDUCCION_POR_FALLO = 0.9;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final double tolerancia;
+    private final long ventanaNanos;
+    private final long constanteReferenciaNanos;
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final LongAdder sumaLatencias = new LongAdder();
+    private final LongAdder muestras = new LongAdder();
+    private final LongAccumulator maximoEnVuelo = new LongAccumulator(Math::max, 0);
+    private final ReentrantLock ajuste = new ReentrantLock();
+    private volatile double limite;
+    private volatile long finVentana;
+    private double latenciaReferencia;
+    private long ultimoAjuste;
+
+    LimiteConcurrencia(int limiteInicial, int limiteMinimo, int limiteMaximo, double tolerancia, long ventanaMs,
+            long referenciaSegundos) {
+        this(limiteInicial, limiteMinimo, limiteMaximo, tolerancia, ventanaMs, referenciaSegundos, System.nanoTime());
+    }
+
+    // El instante inicial y el de cada liberar(latencia, ahora) permiten pruebas sin reloj real
+    LimiteConcurrencia(int limiteInicial, int limiteMinimo, int limiteMaximo, double tolerancia, long ventanaMs,
+            long referenciaSegundos, long inicio) {
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.tolerancia = tolerancia;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        this.constanteReferenciaNanos = TimeUnit.SECONDS.toNanos(Math.max(referenciaSegundos, 1));
+        this.limite = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+        this.finVentana = inicio + ventanaNanos;
+        this.ultimoAjuste = inicio;
+    }
+
+    boolean adquirir() {
+        while (true) {
+            int actual = enVuelo.get();
+            if (actual >= (int) limite) {
+                return false;
+            }
+            if (enVuelo.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void liberar(long latenciaNanos) {
+        liberar(latenciaNanos, System.nanoTime());
+    }
+
+    void liberar(long latenciaNanos, long ahora) {
+        maximoEnVuelo.accumulate(enVuelo.getAndDecrement());
+        sumaLatencias.add(latenciaNanos);
+        muestras.increment();
+
+        if (ahora - finVentana < 0 || muestras.sum() < MUESTRAS_MINIMAS || !ajuste.tryLock()) {
+            return;
+        }
+        try {
+            if (ahora - finVentana < 0) {
+                return;
+            }
+            long cantidad = muestras.sumThenReset();
+            double latenciaVentana = (double) sumaLatencias.sumThenReset() / Math.max(cantidad, 1);
+            long enUso = maximoEnVuelo.getThenReset();
+            finVentana = ahora + ventanaNanos;
+            ajustar(latenciaVentana, enUso, ahora - ultimoAjuste);
+            ultimoAjuste = ahora;
+        } finally {
+            ajuste.unlock();
+        }
+    }
+
+    private void ajustar(double latenciaVentana, long enUso, long transcurridoNanos) {
+        // El peso de cada ventana depende del tiempo transcurrido: con ventanas más cortas o más
+        // frecuentes la referencia sigue un cambio real del servicio (un procesador más lento) en
+        // el mismo tiempo, sin adoptar en segundos la latencia con cola como normal
+        if (latenciaReferencia == 0) {
+            latenciaReferencia = latenciaVentana;
+        } else {
+            double peso = 1 - Math.exp(-(double) transcurridoNanos / constanteReferenciaNanos);
+            latenciaReferencia += (latenciaVentana - latenciaReferencia) * peso;
+            if (latenciaReferencia > 2 * latenciaVentana) {
+                latenciaReferencia *= CORRECCION_REFERENCIA;
+            }
+        }
+        // Con menos de la mitad del límite en uso la latencia no dice nada sobre el límite
+        if (enUso < limite / 2) {
+            return;
+        }
+        double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * latenciaReferencia / latenciaVentana));
+        double nuevo = limite * gradiente + Math.sqrt(limite);
+        fijar(limite * (1 - SUAVIZADO) + nuevo * SUAVIZADO);
+    }
+
+    void liberarConFallo() {
+        enVuelo.decrementAndGet();
+        ajuste.lock();
+        try {
+            fijar(limite * REDUCCION_POR_FALLO);
+        } finally {
+            ajuste.unlock();
+        }
+    }
+
+    // Devuelve el cupo sin tomar muestra: respuestas que no reflejan el costo real (p. ej. 429)
+    void liberarSinMuestra() {
+        enVuelo.decrementAndGet();
+    }
+
+    private void fijar(double nuevo) {
+        limite = Math.max(limiteMinimo, Math.min(limiteMaximo, nuevo));
+    }
+
+    int getLimite() {
+        return (int) limite;
+    }
+
+    int getEnVuelo() {
+        return enVuelo.get();
+    }
+}
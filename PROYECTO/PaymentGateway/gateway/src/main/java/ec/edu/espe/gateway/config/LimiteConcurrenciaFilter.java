@@ -0,0 +1,101 @@
+package ec.edu.espe.gateway.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Descarte de carga en los endpoints de transacciones. Cada petición toma un cupo del límite
+ * adaptativo; sin cupo se responde 503 con Retry-After de inmediato, antes de leer el cuerpo,
+ * de modo que bajo sobrecarga las peticiones aceptadas mantienen su latencia y el resto falla
+ * rápido en lugar de acumularse hasta los timeouts del POS.
+ * Publica gateway.concurrencia.limite, gateway.concurrencia.en-vuelo y gateway.concurrencia.rechazadas.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(LimiteConcurrenciaFilter.class);
+
+    private final LimiteConcurrencia limite;
+    private final boolean habilitado;
+    private final List<String> rutas;
+    private final Counter rechazadas;
+
+    public LimiteConcurrenciaFilter(MeterRegistry registry,
+            @Value("${gateway.concurrencia.habilitado:true}") boolean habilitado,
+            @Value("${gateway.concurrencia.limite-inicial:20}") int limiteInicial,
+            @Value("${gateway.concurrencia.limite-minimo:10}") int limiteMinimo,
+            @Value("${gateway.concurrencia.limite-maximo:500}") int limiteMaximo,
+            @Value("${gateway.concurrencia.tolerancia:1.5}") double tolerancia,
+            @Value("${gateway.concurrencia.ventana-ms:100}") long ventanaMs,
+            @Value("${gateway.concurrencia.referencia-segundos:300}") long referenciaSegundos,
+            @Value("${gateway.concurrencia.rutas:/api/transacciones/pos/,/api/transacciones/sincronizar,/api/transacciones/v2/sincronizar,/api/process-payment}") List<String> rutas) {
+        this.habilitado = habilitado;
+        this.rutas = rutas;
+        this.limite = new LimiteConcurrencia(limiteInicial, limiteMinimo, limiteMaximo, tolerancia, ventanaMs,
+                referenciaSegundos);
+        this.rechazadas = registry.counter("gateway.concurrencia.rechazadas");
+        Gauge.builder("gateway.concurrencia.limite", limite, LimiteConcurrencia::getLimite).register(registry);
+        Gauge.builder("gateway.concurrencia.en-vuelo", limite, LimiteConcurrencia::getEnVuelo).register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!habilitado || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        for (String ruta : rutas) {
+            if (uri.startsWith(ruta)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!limite.adquirir()) {
+            rechazadas.increment();
+            log.debug("Petición {} descartada: {} en vuelo con límite {}", request.getRequestURI(),
+                    limite.getEnVuelo(), limite.getLimite());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean completada = false;
+        try {
+            filterChain.doFilter(request, response);
+            completada = true;
+        } finally {
+            // Solo 503/504 indican sobrecarga; una excepción o un 429 no dicen nada de la capacidad
+            int estado = response.getStatus();
+            if (estado == HttpStatus.SERVICE_UNAVAILABLE.value() || estado == HttpStatus.GATEWAY_TIMEOUT.value()) {
+                limite.liberarConFallo();
+            } else if (!completada || estado == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                limite.liberarSinMuestra();
+            } else {
+                limite.liberar(System.nanoTime() - inicio);
+            }
+        }
+    }
+}
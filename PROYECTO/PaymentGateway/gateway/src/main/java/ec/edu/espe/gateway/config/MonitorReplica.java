@@ -0,0 +1,71 @@
+package ec.edu.espe.gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Consulta periódicamente el retraso de la réplica (Seconds_Behind_Master de SHOW SLAVE STATUS).
+ * Si supera el umbral, la replicación está detenida o la réplica no responde, las lecturas
+ * vuelven al primario hasta la siguiente revisión correcta.
+ * Con exigir-replicacion=false una instancia sin replicación configurada se da por al día
+ * (útil para probar el enrutamiento con dos bases locales independientes).
+ * Métricas: gateway.replica.retraso (segundos, -1 si no se conoce) y gateway.replica.disponible.
+ */
+public final class MonitorReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorReplica.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retrasoMaximoSegundos;
+    private final boolean exigirReplicacion;
+    private volatile boolean disponible;
+    private volatile long retrasoSegundos = -1;
+
+    public MonitorReplica(DataSource replicaDataSource, MeterRegistry registry,
+            long retrasoMaximoSegundos, boolean exigirReplicacion) {
+        this.jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.retrasoMaximoSegundos = retrasoMaximoSegundos;
+        this.exigirReplicacion = exigirReplicacion;
+        registry.gauge("gateway.replica.retraso", this, monitor -> monitor.retrasoSegundos);
+        registry.gauge("gateway.replica.disponible", this, monitor -> monitor.disponible ? 1 : 0);
+    }
+
+    public boolean isDisponible() {
+        return disponible;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.replica.revision-ms:2000}")
+    public void revisar() {
+        boolean anterior = disponible;
+        try {
+            Long retraso = jdbcTemplate.query("SHOW SLAVE STATUS",
+                    rs -> rs.next() ? leerRetraso(rs.getObject("Seconds_Behind_Master")) : null);
+            if (retraso == null && !exigirReplicacion) {
+                retraso = 0L;
+            }
+            retrasoSegundos = retraso == null ? -1 : retraso;
+            disponible = retraso != null && retraso <= retrasoMaximoSegundos;
+        } catch (Exception e) {
+            retrasoSegundos = -1;
+            disponible = false;
+            if (anterior) {
+                log.warn("No se pudo consultar el estado de la réplica: {}", e.getMessage());
+            }
+        }
+        if (anterior != disponible) {
+            log.info("Réplica {} (retraso: {} s, máximo: {} s)",
+                    disponible ? "disponible para lecturas" : "descartada, las lecturas van al primario",
+                    retrasoSegundos, retrasoMaximoSegundos);
+        }
+    }
+
+    // Seconds_Behind_Master es NULL cuando el hilo SQL de replicación no está corriendo
+    private static Long leerRetraso(Object valor) {
+        return valor == null ? null : ((Number) valor).longValue();
+    }
+}
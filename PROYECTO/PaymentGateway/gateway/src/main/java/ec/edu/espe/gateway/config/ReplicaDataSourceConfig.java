@@ -0,0 +1,88 @@
+package ec.edu.espe.gateway.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Enrutamiento primario/réplica. Las transacciones de solo lectura ({@link SoloLectura}) van a
+ * la réplica mientras {@link MonitorReplica} la considere al día; todo lo demás va al primario.
+ * El proxy perezoso retrasa la conexión física hasta la primera sentencia, cuando ya se sabe si
+ * la transacción es de solo lectura.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.replica.habilitada", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    static final String PRIMARIO = "primario";
+    static final String REPLICA = "replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primarioDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primarioDataSource(
+            @Qualifier("primarioDataSourceProperties") DataSourceProperties propiedades) {
+        HikariDataSource dataSource = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("gateway-primario");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("gateway.replica.datasource")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("gateway.replica.datasource.hikari")
+    public HikariDataSource replicaDataSource(
+            @Qualifier("replicaDataSourceProperties") DataSourceProperties propiedades) {
+        HikariDataSource dataSource = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("gateway-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public MonitorReplica monitorReplica(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+            MeterRegistry registry,
+            @Value("${gateway.replica.retraso-maximo-segundos:5}") long retrasoMaximoSegundos,
+            @Value("${gateway.replica.exigir-replicacion:true}") boolean exigirReplicacion) {
+        return new MonitorReplica(replicaDataSource, registry, retrasoMaximoSegundos, exigirReplicacion);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primarioDataSource") DataSource primario,
+            @Qualifier("replicaDataSource") DataSource replica, MonitorReplica monitorReplica) {
+        AbstractRoutingDataSource enrutador = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                        && monitorReplica.isDisponible() ? REPLICA : PRIMARIO;
+            }
+        };
+        enrutador.setTargetDataSources(Map.of(PRIMARIO, primario, REPLICA, replica));
+        enrutador.setDefaultTargetDataSource(primario);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+}
@@ -0,0 +1,21 @@
+package ec.edu.espe.gateway.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Transacción de solo lectura (Spring). Con gateway.replica.habilitada=true las consultas
+ * marcadas así se envían a la réplica mientras su retraso esté dentro del umbral.
+ * Los servicios usan jakarta.transaction.Transactional, que no tiene readOnly.
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface SoloLectura {
+}
@@ -0,0 +1,55 @@
+package ec.edu.espe.gateway.config;
+
+import ec.edu.espe.gateway.transaccion.services.ProcesadorSimulado;
+import jakarta.annotation.PostConstruct;
+import org.springframework.aot.AotDetector;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Con los artefactos AOT del jar de producción, los beans condicionales quedan fijados al
+ * compilar con el perfil produccion: cambiar gateway.replica.habilitada,
+ * gateway.procesador.simulado.habilitado o spring.threads.virtual.enabled en el despliegue no
+ * tendría efecto. Si el valor del despliegue no coincide con los beans compilados el arranque
+ * falla, en lugar de ignorar la propiedad. Las URL de los clientes Feign no entran aquí: se
+ * leen al arrancar de spring.cloud.openfeign.client.config.<cliente>.url.
+ */
+@Component
+public class VerificacionAot {
+
+    private final ApplicationContext contexto;
+    private final Environment entorno;
+
+    public VerificacionAot(ApplicationContext contexto, Environment entorno) {
+        this.contexto = contexto;
+        this.entorno = entorno;
+    }
+
+    @PostConstruct
+    public void verificar() {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return;
+        }
+        List<String> distintas = new ArrayList<>();
+        comparar("gateway.replica.habilitada", ReplicaDataSourceConfig.class, distintas);
+        comparar("gateway.procesador.simulado.habilitado", ProcesadorSimulado.class, distintas);
+        comparar("spring.threads.virtual.enabled", DiagnosticoHilosVirtuales.class, distintas);
+        if (!distintas.isEmpty()) {
+            throw new IllegalStateException("Propiedades fijadas al compilar con AOT y distintas en el despliegue: "
+                    + String.join(", ", distintas) + ". Recompilar con mvn -Pproduccion package o arrancar sin "
+                    + "-Dspring.aot.enabled=true");
+        }
+    }
+
+    private void comparar(String propiedad, Class<?> bean, List<String> distintas) {
+        boolean habilitada = entorno.getProperty(propiedad, Boolean.class, false);
+        boolean compilada = contexto.getBeanNamesForType(bean, false, false).length > 0;
+        if (habilitada != compilada) {
+            distintas.add(propiedad + "=" + habilitada + " (compilado: " + compilada + ")");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 import ec.edu.espe.gateway.comercio.model.Comercio;
@@ -14,7 +15,8 @@ import ec.edu.espe.gateway.comision.model.Comision;
 public class FacturacionComercio {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "facturacion_comercio")
+    @SequenceGenerator(name = "facturacion_comercio", sequenceName = "GTW_FACTURACION_COMERCIO_SEQ", allocationSize = 50)
     @Column(name = "COD_FACTURACION_COMERCIO", nullable = false)
     private Integer codigo;
     @NotNull
@@ -47,6 +49,9 @@ public class FacturacionComercio {
     private LocalDate fechaFacturacion;
     @Column(name = "FECHA_PAGO")
     private LocalDate fechaPago;
+    // Momento en que sus transacciones pasaron al archivo frío; null mientras no se archive
+    @Column(name = "FECHA_ARCHIVO")
+    private LocalDateTime fechaArchivo;
     @NotNull
     @ManyToOne
     @JoinColumn(name = "COD_COMERCIO", nullable = false)
@@ -162,6 +167,14 @@ public class FacturacionComercio {
         this.fechaPago = fechaPago;
     }
 
+    public LocalDateTime getFechaArchivo() {
+        return fechaArchivo;
+    }
+
+    public void setFechaArchivo(LocalDateTime fechaArchivo) {
+        this.fechaArchivo = fechaArchivo;
+    }
+
     public Comercio getComercio() {
         return comercio;
     }
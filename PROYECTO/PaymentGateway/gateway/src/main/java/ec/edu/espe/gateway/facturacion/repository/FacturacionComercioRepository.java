@@ -9,7 +9,13 @@ import ec.edu.espe.gateway.comercio.model.Comercio;
 import java.util.Optional;
 
 public interface FacturacionComercioRepository extends JpaRepository<FacturacionComercio, Integer>{
-    List<FacturacionComercio> findByEstado(String estado);
+    // Comercio y comisión en la misma consulta: como relaciones EAGER se cargarían con una consulta por comercio
+    @Query("SELECT f FROM FacturacionComercio f JOIN FETCH f.comercio c JOIN FETCH c.comision JOIN FETCH f.comision WHERE f.estado = :estado")
+    List<FacturacionComercio> findByEstado(@Param("estado") String estado);
+
+    @Query("SELECT f FROM FacturacionComercio f JOIN FETCH f.comercio c JOIN FETCH c.comision JOIN FETCH f.comision "
+            + "WHERE f.estado = 'PAG' AND f.fechaArchivo IS NULL")
+    List<FacturacionComercio> findPagadasSinArchivar();
     
     @Query("SELECT f FROM FacturacionComercio f WHERE f.comercio.codigo = :codigoComercio AND f.estado = 'ACT' ORDER BY f.fechaInicio DESC")
     Optional<FacturacionComercio> findFacturaActivaPorComercio(@Param("codigoComercio") Integer codigoComercio);
@@ -14,6 +14,7 @@ import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,26 +36,33 @@ public class FacturaService {
     public void procesarFacturacionAutomatica() {
         List<FacturacionComercio> facturasActivas = facturacionComercioRepository.findByEstado("ACT");
 
+        // Las facturas nuevas se insertan juntas al final para que salgan en lotes JDBC
+        List<FacturacionComercio> nuevasFacturas = new ArrayList<>();
         for (FacturacionComercio factura : facturasActivas) {
             if (factura.getFechaFin().isBefore(LocalDate.now())) {
-                procesarFactura(factura);
+                nuevasFacturas.add(cerrarFactura(factura));
             }
         }
+        facturacionComercioRepository.saveAll(nuevasFacturas);
     }
 
     @Transactional
     public void procesarFactura(FacturacionComercio factura) {
-        // Calcular comisiones y actualizar estado a FACTURADO
+        facturacionComercioRepository.save(cerrarFactura(factura));
+    }
+
+    // Calcula comisiones, marca la factura como FACTURADA y devuelve la del siguiente período
+    private FacturacionComercio cerrarFactura(FacturacionComercio factura) {
         BigDecimal totalComisiones = calcularComisiones(factura.getComercio(), factura);
         factura.setValor(totalComisiones);
         factura.setEstado("FAC"); // FACTURADO
         facturacionComercioRepository.save(factura);
         
         // Crear nueva factura inmediatamente después
-        crearNuevaFactura(factura.getComercio(), factura.getFechaFin());
+        return crearNuevaFactura(factura.getComercio(), factura.getFechaFin());
     }
 
-    private void crearNuevaFactura(Comercio comercio, LocalDate fechaInicio) {
+    private FacturacionComercio crearNuevaFactura(Comercio comercio, LocalDate fechaInicio) {
         LocalDate fechaFin = fechaInicio.plusMonths(1);
 
         FacturacionComercio nuevaFactura = new FacturacionComercio();
@@ -70,8 +78,7 @@ public class FacturaService {
         nuevaFactura.setTransaccionesRechazadas(0);
         nuevaFactura.setTransaccionesReversadas(0);
         nuevaFactura.setValor(BigDecimal.ZERO);
-
-        facturacionComercioRepository.save(nuevaFactura);
+        return nuevaFactura;
     }
 
     private BigDecimal calcularComisiones(Comercio comercio, FacturacionComercio factura) {
@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 import org.springframework.stereotype.Service;
 import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
 import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.config.SoloLectura;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
@@ -39,7 +40,7 @@ public class FacturacionComercioService {
         }
     }
 
-    @Transactional(value = TxType.NEVER)
+    @SoloLectura
     public List<FacturacionComercio> obtenerPorEstado(String estado) {
         return facturacionComercioRepository.findByEstado(estado);
     }
@@ -105,7 +106,7 @@ public class FacturacionComercioService {
         }
     }
 
-    @Transactional(value = TxType.NEVER)
+    @SoloLectura
     public List<FacturacionComercio> obtenerFacturacionesPendientesPago() {
         return facturacionComercioRepository.findByEstado(ESTADO_FACTURADO);
     }
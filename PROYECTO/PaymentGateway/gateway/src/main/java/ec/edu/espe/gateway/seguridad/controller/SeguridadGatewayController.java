@@ -1,9 +1,13 @@
 package ec.edu.espe.gateway.seguridad.controller;
 
+import ec.edu.espe.gateway.seguridad.dto.ClavesGatewayDTO;
 import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
+import ec.edu.espe.gateway.seguridad.services.DistribucionClavesService;
 import ec.edu.espe.gateway.seguridad.services.SeguridadGatewayService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.http.HttpStatus;
 
 @RestController
@@ -11,20 +15,53 @@ import org.springframework.http.HttpStatus;
 public class SeguridadGatewayController {
 
     private final SeguridadGatewayService gatewayService;
+    private final DistribucionClavesService distribucionClavesService;
 
-    public SeguridadGatewayController(SeguridadGatewayService gatewayService) {
+    public SeguridadGatewayController(SeguridadGatewayService gatewayService,
+            DistribucionClavesService distribucionClavesService) {
         this.gatewayService = gatewayService;
+        this.distribucionClavesService = distribucionClavesService;
     }
 
     // Endpoint para que el POS obtenga la clave activa
     @GetMapping("/clave-activa")
-    public ResponseEntity<SeguridadGateway> obtenerClaveActiva() {
+    public ResponseEntity<SeguridadGateway> obtenerClaveActiva(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             SeguridadGateway claveActiva = gatewayService.obtenerClaveActiva();
-            return ResponseEntity.ok(claveActiva);
+            if (distribucionClavesService.coincideVersion(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .header(HttpHeaders.ETAG, distribucionClavesService.obtenerEtag())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.ETAG, distribucionClavesService.obtenerEtag())
+                    .body(claveActiva);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .build();
         }
     }
+
+    // Clave activa y próxima clave preanunciada. Con If-None-Match responde 304 si no hubo cambios;
+    // con esperar > 0 mantiene la petición abierta (long-poll) hasta que la versión cambie.
+    @GetMapping("/claves")
+    public DeferredResult<ResponseEntity<ClavesGatewayDTO>> obtenerClaves(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(defaultValue = "0") long esperar) {
+        DeferredResult<ResponseEntity<ClavesGatewayDTO>> resultado = new DeferredResult<>();
+        try {
+            gatewayService.obtenerClaveActiva();
+            if (!distribucionClavesService.coincideVersion(ifNoneMatch)) {
+                resultado.setResult(distribucionClavesService.construirRespuesta());
+            } else if (esperar > 0) {
+                return distribucionClavesService.esperarCambio(ifNoneMatch, esperar);
+            } else {
+                resultado.setResult(distribucionClavesService.sinCambios());
+            }
+        } catch (RuntimeException e) {
+            resultado.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        }
+        return resultado;
+    }
 }
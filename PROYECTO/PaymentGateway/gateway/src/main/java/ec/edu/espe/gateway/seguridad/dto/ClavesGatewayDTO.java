@@ -0,0 +1,49 @@
+package ec.edu.espe.gateway.seguridad.dto;
+
+import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
+
+public class ClavesGatewayDTO {
+
+    private String version;
+    private SeguridadGateway activa;
+    private SeguridadGateway proxima;
+
+    public ClavesGatewayDTO() {
+    }
+
+    public ClavesGatewayDTO(String version, SeguridadGateway activa, SeguridadGateway proxima) {
+        this.version = version;
+        this.activa = activa;
+        this.proxima = proxima;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public SeguridadGateway getActiva() {
+        return activa;
+    }
+
+    public void setActiva(SeguridadGateway activa) {
+        this.activa = activa;
+    }
+
+    public SeguridadGateway getProxima() {
+        return proxima;
+    }
+
+    public void setProxima(SeguridadGateway proxima) {
+        this.proxima = proxima;
+    }
+
+    @Override
+    public String toString() {
+        return "ClavesGatewayDTO [version=" + version + ", activa=" + (activa == null ? null : activa.getCodigo())
+                + ", proxima=" + (proxima == null ? null : proxima.getCodigo()) + "]";
+    }
+}
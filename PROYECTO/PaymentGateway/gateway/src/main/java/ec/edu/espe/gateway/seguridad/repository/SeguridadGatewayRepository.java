@@ -1,11 +1,16 @@
 package ec.edu.espe.gateway.seguridad.repository;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
 
 public interface SeguridadGatewayRepository extends JpaRepository<SeguridadGateway, Integer>{
     List<SeguridadGateway> findByEstado(String estado);
 
+    List<SeguridadGateway> findByEstadoOrderByCodigoDesc(String estado, Pageable pageable);
+
+    Optional<SeguridadGateway> findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc(String estado);
 }
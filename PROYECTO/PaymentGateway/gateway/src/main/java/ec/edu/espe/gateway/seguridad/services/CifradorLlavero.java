@@ -0,0 +1,88 @@
+package ec.edu.espe.gateway.seguridad.services;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cifrado AES con las claves del llavero reutilizando instancias de Cipher.
+ * Cipher.getInstance recorre los proveedores de seguridad en cada llamada; con un pool
+ * solo se paga el init con la clave. El pool es una cola sin bloqueo (no ThreadLocal)
+ * para que funcione igual con hilos virtuales.
+ */
+@Component
+public class CifradorLlavero {
+
+    private static final String ALGORITMO = "AES";
+    private static final int MAXIMO_CIFRADORES_LIBRES = 64;
+
+    private final LlaveroClaves llavero;
+    private final ConcurrentLinkedQueue<Cipher> libres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger totalLibres = new AtomicInteger();
+
+    public CifradorLlavero(LlaveroClaves llavero) {
+        this.llavero = llavero;
+    }
+
+    // El texto cifrado lleva el ID de la clave como prefijo: <id>:<base64>
+    public String encriptar(byte[] datos) {
+        LlaveroClaves.ClaveVersionada clave = llavero.obtenerActiva();
+        Cipher cipher = tomar();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, clave.getSecretKey());
+            byte[] encriptado = cipher.doFinal(datos);
+            return clave.getId() + LlaveroClaves.SEPARADOR_ID + Base64.getEncoder().encodeToString(encriptado);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al encriptar la información: " + e.getMessage());
+        } finally {
+            devolver(cipher);
+        }
+    }
+
+    public byte[] desencriptar(String informacionEncriptada) {
+        int separador = informacionEncriptada.indexOf(LlaveroClaves.SEPARADOR_ID);
+        LlaveroClaves.ClaveVersionada clave;
+        String cuerpo;
+        if (separador < 0) {
+            // Texto cifrado sin ID (formato anterior): se asume la clave activa
+            clave = llavero.obtenerActiva();
+            cuerpo = informacionEncriptada;
+        } else {
+            clave = llavero.obtenerPorId(informacionEncriptada.substring(0, separador));
+            cuerpo = informacionEncriptada.substring(separador + 1);
+        }
+        Cipher cipher = tomar();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, clave.getSecretKey());
+            return cipher.doFinal(Base64.getDecoder().decode(cuerpo));
+        } catch (Exception e) {
+            throw new RuntimeException("Error al desencriptar la información: " + e.getMessage());
+        } finally {
+            devolver(cipher);
+        }
+    }
+
+    private Cipher tomar() {
+        Cipher cipher = libres.poll();
+        if (cipher != null) {
+            totalLibres.decrementAndGet();
+            return cipher;
+        }
+        try {
+            return Cipher.getInstance(ALGORITMO);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al crear el cifrador: " + e.getMessage());
+        }
+    }
+
+    private void devolver(Cipher cipher) {
+        if (totalLibres.incrementAndGet() <= MAXIMO_CIFRADORES_LIBRES) {
+            libres.offer(cipher);
+        } else {
+            totalLibres.decrementAndGet();
+        }
+    }
+}
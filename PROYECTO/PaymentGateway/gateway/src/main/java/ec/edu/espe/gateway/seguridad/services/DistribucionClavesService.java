@@ -0,0 +1,98 @@
+package ec.edu.espe.gateway.seguridad.services;
+
+import ec.edu.espe.gateway.seguridad.dto.ClavesGatewayDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Distribución de claves hacia los POS. Cada respuesta lleva como ETag la versión del llavero,
+ * así la consulta periódica del POS con If-None-Match se resuelve casi siempre con un 304.
+ * Opcionalmente el POS puede esperar (long-poll) hasta que la versión cambie; al publicarse
+ * una nueva versión se liberan todas las esperas con la respuesta ya construida.
+ */
+@Service
+public class DistribucionClavesService {
+
+    private static final Logger log = LoggerFactory.getLogger(DistribucionClavesService.class);
+    public static final long ESPERA_MAXIMA_SEGUNDOS = 60;
+
+    private final LlaveroClaves llavero;
+    private final ConcurrentLinkedQueue<Espera> esperas = new ConcurrentLinkedQueue<>();
+
+    public DistribucionClavesService(LlaveroClaves llavero) {
+        this.llavero = llavero;
+    }
+
+    public String obtenerEtag() {
+        return "\"" + llavero.getVersion() + "\"";
+    }
+
+    public boolean coincideVersion(String ifNoneMatch) {
+        return ifNoneMatch != null && ifNoneMatch.equals(obtenerEtag());
+    }
+
+    public ResponseEntity<ClavesGatewayDTO> construirRespuesta() {
+        LlaveroClaves.ClaveVersionada proxima = llavero.obtenerProxima();
+        ClavesGatewayDTO claves = new ClavesGatewayDTO(
+                llavero.getVersion(),
+                llavero.obtenerActiva().getEntidad(),
+                proxima == null ? null : proxima.getEntidad());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ETAG, obtenerEtag())
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(claves);
+    }
+
+    public ResponseEntity<ClavesGatewayDTO> sinCambios() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(HttpHeaders.ETAG, obtenerEtag())
+                .build();
+    }
+
+    public DeferredResult<ResponseEntity<ClavesGatewayDTO>> esperarCambio(String ifNoneMatch, long segundos) {
+        long espera = Math.min(Math.max(segundos, 1), ESPERA_MAXIMA_SEGUNDOS);
+        DeferredResult<ResponseEntity<ClavesGatewayDTO>> resultado = new DeferredResult<>(espera * 1000, this::sinCambios);
+        Espera registro = new Espera(ifNoneMatch, resultado);
+        esperas.add(registro);
+        resultado.onCompletion(() -> esperas.remove(registro));
+        // La versión pudo cambiar entre la comparación del controlador y el registro de la espera
+        if (!coincideVersion(ifNoneMatch)) {
+            resultado.setResult(construirRespuesta());
+        }
+        return resultado;
+    }
+
+    public void publicarVersion() {
+        if (esperas.isEmpty() || llavero.estaVacio()) {
+            return;
+        }
+        ResponseEntity<ClavesGatewayDTO> respuesta = construirRespuesta();
+        int liberadas = 0;
+        Iterator<Espera> iterador = esperas.iterator();
+        while (iterador.hasNext()) {
+            Espera espera = iterador.next();
+            if (!coincideVersion(espera.etag) && espera.resultado.setResult(respuesta)) {
+                liberadas++;
+            }
+        }
+        log.info("Nueva versión de claves {} publicada a {} POS en espera", llavero.getVersion(), liberadas);
+    }
+
+    private static final class Espera {
+        final String etag;
+        final DeferredResult<ResponseEntity<ClavesGatewayDTO>> resultado;
+
+        Espera(String etag, DeferredResult<ResponseEntity<ClavesGatewayDTO>> resultado) {
+            this.etag = etag;
+            this.resultado = resultado;
+        }
+    }
+}
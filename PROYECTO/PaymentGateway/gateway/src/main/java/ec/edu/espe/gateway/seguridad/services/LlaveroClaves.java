@@ -0,0 +1,146 @@
+package ec.edu.espe.gateway.seguridad.services;
+
+import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Llavero en memoria con la clave activa del gateway, la próxima clave preanunciada y las
+ * últimas claves retiradas.
+ * Cada clave se identifica con un ID derivado de su material (huella SHA-256), de modo que
+ * gateway y POS calculan el mismo ID sin compartir secuencias de base de datos.
+ * El contenido se reemplaza de forma atómica en cada rotación; su versión (IDs de la clave
+ * activa y de la próxima) se usa como ETag para la distribución hacia los POS.
+ */
+@Component
+public class LlaveroClaves {
+
+    public static final String SEPARADOR_ID = ":";
+    private static final int LONGITUD_ID = 8;
+
+    private final AtomicReference<Contenido> contenido = new AtomicReference<>(Contenido.VACIO);
+
+    public void recargar(SeguridadGateway activa, SeguridadGateway proxima, List<SeguridadGateway> retiradas) {
+        Map<String, ClaveVersionada> porId = new LinkedHashMap<>();
+        ClaveVersionada claveActiva = null;
+        ClaveVersionada claveProxima = null;
+        if (activa != null) {
+            claveActiva = new ClaveVersionada(activa);
+            porId.put(claveActiva.getId(), claveActiva);
+        }
+        if (proxima != null) {
+            claveProxima = new ClaveVersionada(proxima);
+            porId.putIfAbsent(claveProxima.getId(), claveProxima);
+        }
+        for (SeguridadGateway retirada : retiradas) {
+            ClaveVersionada clave = new ClaveVersionada(retirada);
+            porId.putIfAbsent(clave.getId(), clave);
+        }
+        this.contenido.set(new Contenido(claveActiva, claveProxima, Collections.unmodifiableMap(porId)));
+    }
+
+    public String getVersion() {
+        return this.contenido.get().version;
+    }
+
+    public boolean estaVacio() {
+        return this.contenido.get().activa == null;
+    }
+
+    public ClaveVersionada obtenerActiva() {
+        ClaveVersionada activa = this.contenido.get().activa;
+        if (activa == null) {
+            throw new IllegalStateException("El llavero no tiene una clave activa cargada");
+        }
+        return activa;
+    }
+
+    public ClaveVersionada obtenerProxima() {
+        return this.contenido.get().proxima;
+    }
+
+    public ClaveVersionada obtenerPorId(String id) {
+        ClaveVersionada clave = this.contenido.get().porId.get(id);
+        if (clave == null) {
+            throw new IllegalArgumentException("No existe una clave con ID " + id + " en el llavero");
+        }
+        return clave;
+    }
+
+    public List<ClaveVersionada> obtenerTodas() {
+        return new ArrayList<>(this.contenido.get().porId.values());
+    }
+
+    public static String calcularId(String claveBase64) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] huella = digest.digest(claveBase64.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(huella, 0, LONGITUD_ID / 2);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al calcular el ID de la clave: " + e.getMessage());
+        }
+    }
+
+    public static SecretKey reconstruirClave(String claveBase64) {
+        String claveAjustada = claveBase64;
+        while (claveAjustada.length() % 4 != 0) {
+            claveAjustada += "=";
+        }
+        byte[] claveBytes = Base64.getDecoder().decode(claveAjustada);
+        byte[] clave16Bytes = new byte[16];
+        System.arraycopy(claveBytes, 0, clave16Bytes, 0, Math.min(claveBytes.length, 16));
+        return new SecretKeySpec(clave16Bytes, "AES");
+    }
+
+    public static class ClaveVersionada {
+        private final String id;
+        private final SeguridadGateway entidad;
+        private final SecretKey secretKey;
+
+        ClaveVersionada(SeguridadGateway entidad) {
+            this.id = calcularId(entidad.getClave());
+            this.entidad = entidad;
+            this.secretKey = reconstruirClave(entidad.getClave());
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public SeguridadGateway getEntidad() {
+            return entidad;
+        }
+
+        public SecretKey getSecretKey() {
+            return secretKey;
+        }
+    }
+
+    private static final class Contenido {
+        static final Contenido VACIO = new Contenido(null, null, Map.of());
+
+        final ClaveVersionada activa;
+        final ClaveVersionada proxima;
+        final Map<String, ClaveVersionada> porId;
+        final String version;
+
+        Contenido(ClaveVersionada activa, ClaveVersionada proxima, Map<String, ClaveVersionada> porId) {
+            this.activa = activa;
+            this.proxima = proxima;
+            this.porId = porId;
+            this.version = (activa == null ? "-" : activa.getId()) + "." + (proxima == null ? "-" : proxima.getId());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ec.edu.espe.gateway.seguridad.services;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
 import ec.edu.espe.gateway.seguridad.repository.SeguridadGatewayRepository;
@@ -12,22 +13,38 @@ import javax.crypto.KeyGenerator;
 import java.security.SecureRandom;
 import javax.crypto.SecretKey;
 import java.util.Base64;
-import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @EnableScheduling
 public class SeguridadGatewayService {
 
     private final SeguridadGatewayRepository repository;
+    private final LlaveroClaves llavero;
+    private final DistribucionClavesService distribucionClavesService;
+    private final CifradorLlavero cifrador;
+    private final TransactionTemplate transactionTemplate;
 
     public static final String ESTADO_ACTIVO = "ACT";
     public static final String ESTADO_INACTIVO = "INA";
     public static final String ESTADO_PENDIENTE = "PEN";
+    public static final int CLAVES_RETIRADAS_EN_LLAVERO = 3;
+    public static final int DIAS_VIGENCIA_CLAVE = 20;
+    public static final int DIAS_PREANUNCIO_CLAVE = 3;
 
-    public SeguridadGatewayService(SeguridadGatewayRepository repository) {
+    public SeguridadGatewayService(SeguridadGatewayRepository repository, LlaveroClaves llavero,
+            DistribucionClavesService distribucionClavesService, CifradorLlavero cifrador,
+            TransactionTemplate transactionTemplate) {
         this.repository = repository;
+        this.llavero = llavero;
+        this.distribucionClavesService = distribucionClavesService;
+        this.cifrador = cifrador;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public List<SeguridadGateway> getGatewaysByEstadoActivo() {
@@ -42,10 +59,16 @@ public class SeguridadGatewayService {
         try {
             gateway.setFechaCreacion(LocalDateTime.now());
             gateway.setEstado(ESTADO_PENDIENTE);
+            // Una clave creada a mano sin fecha entra a la rotación en la fecha de la próxima clave
+            if (gateway.getFechaActivacion() == null) {
+                gateway.setFechaActivacion(fechaRotacion());
+            }
             if (gateway.getClave().length() > 128) {
                 throw new IllegalArgumentException("La clave no puede exceder los 128 caracteres.");
             }
-            return repository.save(gateway);
+            SeguridadGateway guardado = repository.save(gateway);
+            recargarLlavero();
+            return guardado;
         } catch (Exception ex) {
             throw new RuntimeException("No se pudo crear el gateway. Motivo: " + ex.getMessage());
         }
@@ -72,7 +95,9 @@ public class SeguridadGatewayService {
                                 && gatewayExistente.getFechaActivacion() == null) {
                             gatewayExistente.setFechaActivacion(LocalDate.now());
                         }
-                        return repository.save(gatewayExistente);
+                        SeguridadGateway actualizado = repository.save(gatewayExistente);
+                        recargarLlavero();
+                        return actualizado;
                     })
                     .orElseThrow(() -> new EntityNotFoundException("Gateway con ID " + id + " no encontrado."));
         } catch (EntityNotFoundException ex) {
@@ -90,6 +115,7 @@ public class SeguridadGatewayService {
 
             if (ESTADO_INACTIVO.equals(gateway.getEstado())) {
                 repository.deleteById(id);
+                recargarLlavero();
             } else {
                 throw new IllegalStateException("No se puede eliminar un Gateway con estado diferente a 'INA'.");
             }
@@ -112,31 +138,52 @@ public class SeguridadGatewayService {
         }
     }
 
-    @Scheduled(cron = "0 0 0 */20 * *")
+    // Revisión horaria: preanuncia la próxima clave DIAS_PREANUNCIO_CLAVE días antes de la rotación
+    // para que los POS la reciban con anticipación, y la activa cuando llega su fecha.
+    @Scheduled(cron = "0 0 * * * *")
     public void generarClaveAutomaticamente() {
         try {
-            List<SeguridadGateway> clavesActivas = repository.findByEstado(ESTADO_ACTIVO);
-            if (!clavesActivas.isEmpty()) {
-                SeguridadGateway claveActual = clavesActivas.get(0);
-                if (claveActual.getFechaActivacion().plusDays(20).isAfter(LocalDate.now())) {
-                    return;
-                }
-                claveActual.setEstado(ESTADO_INACTIVO);
-                repository.save(claveActual);
+            LocalDate hoy = LocalDate.now();
+            SeguridadGateway claveActual = repository.findByEstado(ESTADO_ACTIVO)
+                    .stream()
+                    .findFirst()
+                    .orElse(null);
+            if (claveActual == null) {
+                inicializarClave();
+                return;
+            }
+
+            LocalDate fechaRotacion = claveActual.getFechaActivacion().plusDays(DIAS_VIGENCIA_CLAVE);
+            SeguridadGateway proximaClave = buscarProximaClave();
+
+            if (proximaClave == null && !hoy.isBefore(fechaRotacion.minusDays(DIAS_PREANUNCIO_CLAVE))) {
+                proximaClave = new SeguridadGateway();
+                proximaClave.setClave(generarClaveSegura());
+                proximaClave.setFechaCreacion(LocalDateTime.now());
+                proximaClave.setFechaActivacion(fechaRotacion.isAfter(hoy) ? fechaRotacion : hoy);
+                proximaClave.setEstado(ESTADO_PENDIENTE);
+                proximaClave = repository.save(proximaClave);
             }
 
-            SeguridadGateway nuevaClave = new SeguridadGateway();
-            nuevaClave.setClave(generarClaveSegura());
-            nuevaClave.setFechaCreacion(LocalDateTime.now());
-            nuevaClave.setFechaActivacion(LocalDate.now());
-            nuevaClave.setEstado(ESTADO_ACTIVO);
-            repository.save(nuevaClave);
+            if (proximaClave != null && !hoy.isBefore(proximaClave.getFechaActivacion())) {
+                // Ambos cambios en una transacción: una caída entre los dos no deja al gateway sin clave activa
+                SeguridadGateway activar = proximaClave;
+                transactionTemplate.executeWithoutResult(estado -> {
+                    claveActual.setEstado(ESTADO_INACTIVO);
+                    repository.save(claveActual);
+                    activar.setEstado(ESTADO_ACTIVO);
+                    repository.save(activar);
+                });
+            }
+            recargarLlavero();
         } catch (Exception e) {
             throw new RuntimeException("Error al generar clave automáticamente: " + e.getMessage());
         }
     }
 
-    @PostConstruct
+    // Al quedar lista la aplicación y no en @PostConstruct: la corrida de entrenamiento CDS termina al
+    // refrescar el contexto sin tocar la base. Mientras tanto obtenerClaveActiva() carga el llavero
+    @EventListener(ApplicationReadyEvent.class)
     public void inicializarClave() {
         try {
             if (repository.findByEstado(ESTADO_ACTIVO).isEmpty()) {
@@ -147,15 +194,72 @@ public class SeguridadGatewayService {
                 nuevaClave.setEstado(ESTADO_ACTIVO);
                 repository.save(nuevaClave);
             }
+            recargarLlavero();
         } catch (Exception e) {
             throw new RuntimeException("Error al inicializar la primera clave: " + e.getMessage());
         }
     }
 
     public SeguridadGateway obtenerClaveActiva() {
+        if (llavero.estaVacio()) {
+            recargarLlavero();
+        }
+        if (llavero.estaVacio()) {
+            throw new RuntimeException("No se encontró una clave activa");
+        }
+        return llavero.obtenerActiva().getEntidad();
+    }
+
+    public void recargarLlavero() {
+        String versionAnterior = llavero.getVersion();
+        SeguridadGateway activa = repository.findByEstado(ESTADO_ACTIVO)
+                .stream()
+                .findFirst()
+                .orElse(null);
+        SeguridadGateway proxima = buscarProximaClave();
+        List<SeguridadGateway> retiradas = repository.findByEstadoOrderByCodigoDesc(ESTADO_INACTIVO,
+                PageRequest.of(0, CLAVES_RETIRADAS_EN_LLAVERO));
+        llavero.recargar(activa, proxima, retiradas);
+        if (!versionAnterior.equals(llavero.getVersion())) {
+            distribucionClavesService.publicarVersion();
+        }
+    }
+
+    // Solo las pendientes con fecha entran a la rotación y al llavero que reciben los POS
+    private SeguridadGateway buscarProximaClave() {
+        return repository.findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc(ESTADO_PENDIENTE)
+                .orElse(null);
+    }
+
+    private LocalDate fechaRotacion() {
+        LocalDate hoy = LocalDate.now();
         return repository.findByEstado(ESTADO_ACTIVO)
                 .stream()
                 .findFirst()
-                .orElseThrow(() -> new RuntimeException("No se encontró una clave activa"));
+                .map(activa -> activa.getFechaActivacion().plusDays(DIAS_VIGENCIA_CLAVE))
+                .filter(fecha -> fecha.isAfter(hoy))
+                .orElse(hoy);
+    }
+
+    // El texto cifrado lleva el ID de la clave como prefijo: <id>:<base64>
+    public String encriptar(String informacion) {
+        llaveroCargado();
+        return cifrador.encriptar(informacion.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String desencriptar(String informacionEncriptada) {
+        return new String(desencriptarBytes(informacionEncriptada), StandardCharsets.UTF_8);
+    }
+
+    public byte[] desencriptarBytes(String informacionEncriptada) {
+        llaveroCargado();
+        return cifrador.desencriptar(informacionEncriptada);
+    }
+
+    private LlaveroClaves llaveroCargado() {
+        if (llavero.estaVacio()) {
+            recargarLlavero();
+        }
+        return llavero;
     }
 }
@@ -0,0 +1,18 @@
+package ec.edu.espe.gateway.transaccion.client;
+
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.net.URI;
+import java.util.List;
+
+// URL en spring.cloud.openfeign.client.config.pos-resultados.url, resuelta al arrancar
+@FeignClient(name = "pos-resultados")
+public interface PosResultadoClient {
+
+    // El URI reemplaza la URL base: cada lote va al endpoint registrado para sus terminales
+    @PostMapping("/api/pagos/resultados")
+    String enviarResultados(URI destino, @RequestBody List<EstadoPagoDTO> resultados);
+}
@@ -1,32 +1,66 @@
 package ec.edu.espe.gateway.transaccion.controller;
 
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
+import ec.edu.espe.gateway.transaccion.model.PagoCifradoDTO;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.services.LimitadorTransacciones;
+import ec.edu.espe.gateway.transaccion.services.PagoCifradoService;
+import ec.edu.espe.gateway.transaccion.services.TransaccionService;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
 @RestController
 @RequestMapping("/api/process-payment")
 public class PagoController {
 
+    private static final Logger log = LoggerFactory.getLogger(PagoController.class);
+    private final PagoCifradoService pagoCifradoService;
+    private final TransaccionService transaccionService;
+    private final LimitadorTransacciones limitador;
+
+    public PagoController(PagoCifradoService pagoCifradoService, TransaccionService transaccionService,
+            LimitadorTransacciones limitador) {
+        this.pagoCifradoService = pagoCifradoService;
+        this.transaccionService = transaccionService;
+        this.limitador = limitador;
+    }
+
     @PostMapping
-    public ResponseEntity<String> procesarPago(@RequestBody Map<String, String> request) {
+    public ResponseEntity<EstadoPagoDTO> procesarPago(@RequestBody PagoCifradoDTO request) {
+        Transaccion transaccion;
+        try {
+            transaccion = pagoCifradoService.descifrar(request.getEncryptedData());
+        } catch (RuntimeException e) {
+            log.warn("Pago cifrado rechazado: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        long espera = limitador.verificar(new PosComercioPK(transaccion.getModeloPos(), transaccion.getCodigoPos()));
+        if (espera > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, LimitadorTransacciones.segundosEspera(espera))
+                    .build();
+        }
+
         try {
-            String encryptedData = request.get("encryptedData");
-            
-            // Imprimir los datos recibidos
-            System.out.println("========== DATOS RECIBIDOS EN PAYMENT GATEWAY ==========");
-            System.out.println("Datos encriptados: " + encryptedData);
-            System.out.println("====================================================");
-            
-            return ResponseEntity.ok("Datos recibidos correctamente");
-            
+            Transaccion procesada = transaccionService.procesarTransaccionPOS(transaccion);
+            return ResponseEntity.ok(new EstadoPagoDTO(procesada.getCodigoUnicoTransaccion(), procesada.getEstado()));
+        } catch (EntityNotFoundException e) {
+            log.error("Entidad no encontrada: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
-            System.err.println("Error al procesar el pago: " + e.getMessage());
-            return ResponseEntity.internalServerError().body("Error al procesar el pago");
+            log.error("Error al procesar el pago: {}", e.getMessage());
+            return ResponseEntity.internalServerError()
+                    .body(new EstadoPagoDTO(transaccion.getCodigoUnicoTransaccion(), null));
         }
     }
 }
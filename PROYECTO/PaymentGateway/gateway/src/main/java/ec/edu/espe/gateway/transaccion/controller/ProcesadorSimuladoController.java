@@ -0,0 +1,34 @@
+package ec.edu.espe.gateway.transaccion.controller;
+
+import ec.edu.espe.gateway.transaccion.model.ValidacionTransaccionDTO;
+import ec.edu.espe.gateway.transaccion.services.ProcesadorSimulado;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Expone el procesador simulado en /api/v1/transacciones, la misma ruta del procesador externo.
+ * Con gateway.procesador.url apuntando al propio gateway, el flujo de autorización completo se
+ * ejecuta sin el servicio externo.
+ */
+@RestController
+@RequestMapping("/api/v1/transacciones")
+@ConditionalOnProperty(name = "gateway.procesador.simulado.habilitado", havingValue = "true")
+public class ProcesadorSimuladoController {
+
+    private final ProcesadorSimulado procesadorSimulado;
+
+    public ProcesadorSimuladoController(ProcesadorSimulado procesadorSimulado) {
+        this.procesadorSimulado = procesadorSimulado;
+    }
+
+    @PostMapping
+    public ResponseEntity<String> validarTransaccion(@RequestBody ValidacionTransaccionDTO transaccion)
+            throws InterruptedException {
+        ProcesadorSimulado.Respuesta respuesta = procesadorSimulado.procesar(transaccion);
+        return ResponseEntity.status(respuesta.estado()).body(respuesta.mensaje());
+    }
+}
@@ -2,12 +2,19 @@ package ec.edu.espe.gateway.transaccion.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
 import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.services.AutorizacionAsincronaService;
+import ec.edu.espe.gateway.transaccion.services.LimitadorTransacciones;
 import ec.edu.espe.gateway.transaccion.services.TransaccionService;
 import ec.edu.espe.gateway.transaccion.services.RecurrenceService;
 import jakarta.persistence.EntityNotFoundException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -18,16 +25,25 @@ public class TransaccionController {
     private static final Logger log = LoggerFactory.getLogger(TransaccionController.class);
     private final TransaccionService transaccionService;
     private final RecurrenceService recurrenceService;
+    private final AutorizacionAsincronaService autorizacionAsincronaService;
+    private final LimitadorTransacciones limitador;
 
-    public TransaccionController(TransaccionService transaccionService, RecurrenceService recurrenceService) {
+    public TransaccionController(TransaccionService transaccionService, RecurrenceService recurrenceService,
+            AutorizacionAsincronaService autorizacionAsincronaService, LimitadorTransacciones limitador) {
         this.transaccionService = transaccionService;
         this.recurrenceService = recurrenceService;
+        this.autorizacionAsincronaService = autorizacionAsincronaService;
+        this.limitador = limitador;
     }
 
     @PostMapping("/pos/{codigoPos}")
     public ResponseEntity<?> crearTransaccionPOS(
             @PathVariable String codigoPos,
             @RequestBody Transaccion transaccion) {
+        long espera = limitador.verificar(new PosComercioPK(transaccion.getModeloPos(), codigoPos));
+        if (espera > 0) {
+            return limitada(espera);
+        }
         try {
             Transaccion nuevaTransaccion = transaccionService.crearTransaccionPOS(transaccion, codigoPos);
             return ResponseEntity.ok(nuevaTransaccion);
@@ -60,6 +76,12 @@ public class TransaccionController {
         return ResponseEntity.ok(transacciones);
     }
 
+    @GetMapping("/codigo-unico/{codigoUnicoTransaccion}")
+    public ResponseEntity<Transaccion> obtenerPorCodigoUnico(@PathVariable String codigoUnicoTransaccion) {
+        Transaccion transaccion = transaccionService.obtenerPorCodigoUnico(codigoUnicoTransaccion);
+        return transaccion == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(transaccion);
+    }
+
     @GetMapping("/comercio/{codigoComercio}")
     public ResponseEntity<List<Transaccion>> obtenerPorComercioYFecha(
             @PathVariable Integer codigoComercio,
@@ -96,6 +118,10 @@ public class TransaccionController {
 
     @PostMapping("/sincronizar")
     public ResponseEntity<String> sincronizarTransaccion(@RequestBody Transaccion transaccion) {
+        long espera = limitador.verificar(terminal(transaccion));
+        if (espera > 0) {
+            return limitada(espera);
+        }
         log.info("Recibiendo petición de sincronización desde POS");
         log.info("Datos de transacción recibidos: {}", transaccion);
         log.info("Comercio ID: {}", transaccion.getComercio().getCodigo());
@@ -120,4 +146,49 @@ public class TransaccionController {
                     .body("Error al sincronizar la transacción: " + e.getMessage());
         }
     }
+
+    // Versión asíncrona de /sincronizar: responde 202 apenas la transacción queda persistida.
+    // El resultado del procesador se consulta en GET /{codigoUnicoTransaccion}/estado
+    @PostMapping("/v2/sincronizar")
+    public ResponseEntity<EstadoPagoDTO> sincronizarTransaccionAsincrona(@RequestBody Transaccion transaccion) {
+        long espera = limitador.verificar(terminal(transaccion));
+        if (espera > 0) {
+            return limitada(espera);
+        }
+        try {
+            EstadoPagoDTO estado = autorizacionAsincronaService.aceptar(transaccion);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transacciones/" + estado.getCodigoUnicoTransaccion() + "/estado"))
+                    .body(estado);
+        } catch (EntityNotFoundException e) {
+            log.error("Entidad no encontrada: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.error("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error inesperado al aceptar la transacción: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/{codigoUnicoTransaccion}/estado")
+    public ResponseEntity<EstadoPagoDTO> obtenerEstadoTransaccion(@PathVariable String codigoUnicoTransaccion) {
+        String estado = autorizacionAsincronaService.obtenerEstado(codigoUnicoTransaccion);
+        if (estado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new EstadoPagoDTO(codigoUnicoTransaccion, estado));
+    }
+
+    // El comercio del límite se resuelve desde el terminal, no desde el cuerpo
+    private static PosComercioPK terminal(Transaccion transaccion) {
+        return new PosComercioPK(transaccion.getModeloPos(), transaccion.getCodigoPos());
+    }
+
+    private static <T> ResponseEntity<T> limitada(long espera) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, LimitadorTransacciones.segundosEspera(espera))
+                .build();
+    }
 }
@@ -0,0 +1,30 @@
+package ec.edu.espe.gateway.transaccion.model;
+
+public class EstadoPagoDTO {
+    private String codigoUnicoTransaccion;
+    private String estado;
+
+    public EstadoPagoDTO() {
+    }
+
+    public EstadoPagoDTO(String codigoUnicoTransaccion, String estado) {
+        this.codigoUnicoTransaccion = codigoUnicoTransaccion;
+        this.estado = estado;
+    }
+
+    public String getCodigoUnicoTransaccion() {
+        return codigoUnicoTransaccion;
+    }
+
+    public void setCodigoUnicoTransaccion(String codigoUnicoTransaccion) {
+        this.codigoUnicoTransaccion = codigoUnicoTransaccion;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,13 @@
+package ec.edu.espe.gateway.transaccion.model;
+
+public class PagoCifradoDTO {
+    private String encryptedData;
+
+    public String getEncryptedData() {
+        return encryptedData;
+    }
+
+    public void setEncryptedData(String encryptedData) {
+        this.encryptedData = encryptedData;
+    }
+}
@@ -12,20 +12,33 @@ import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
 import ec.edu.espe.gateway.comercio.model.Comercio;
 
 @Entity
-@Table(name = "GTW_TRANSACCION")
+// Particionada por mes sobre FECHA (ver ParticionesTransaccionService): sin claves foráneas en BD y
+// toda clave única incluye FECHA. La de código único evita registrar dos veces un reintento del POS
+@Table(name = "GTW_TRANSACCION", indexes = {
+        @Index(name = "IDX_GTW_TRANSACCION_COMERCIO_FECHA", columnList = "COD_COMERCIO, FECHA"),
+        @Index(name = "IDX_GTW_TRANSACCION_TIPO_ESTADO", columnList = "TIPO, ESTADO"),
+        @Index(name = "IDX_GTW_TRANSACCION_FACTURACION", columnList = "COD_FACTURACION_COMERCIO") },
+        uniqueConstraints = @UniqueConstraint(name = "UK_GTW_TRANSACCION_CODIGO_UNICO",
+                columnNames = { "CODIGO_UNICO_TRANSACCION", "FECHA" }))
 public class Transaccion implements Serializable {
 
+    // En BD la clave primaria es (COD_TRANSACCION, FECHA), como exige el particionado; aquí se
+    // mapea solo el código porque la secuencia ya lo hace único y todo el gateway lo usa como
+    // identificador. Costo aceptado: buscar, actualizar o borrar por código sin FECHA no descarta
+    // particiones y revisa el índice de la clave en cada una (retención más meses de adelanto).
+    // Son operaciones de una fila o en lotes pequeños; las consultas por rango filtran por FECHA
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaccion")
+    @SequenceGenerator(name = "transaccion", sequenceName = "GTW_TRANSACCION_SEQ", allocationSize = 50)
     @Column(name = "COD_TRANSACCION", nullable = false)
     private Integer codigo;
     @NotNull
     @ManyToOne
-    @JoinColumn(name = "COD_COMERCIO", nullable = false)
+    @JoinColumn(name = "COD_COMERCIO", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Comercio comercio;
     @NotNull
     @ManyToOne
-    @JoinColumn(name = "COD_FACTURACION_COMERCIO", nullable = false)
+    @JoinColumn(name = "COD_FACTURACION_COMERCIO", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private FacturacionComercio facturacionComercio;
     @NotNull
     @Column(name = "TIPO", length = 3, nullable = false)
@@ -63,6 +76,10 @@ public class Transaccion implements Serializable {
     private LocalDate fechaFinRecurrencia;
     @Transient
     private String codigoInterno;
+    @Transient
+    private String codigoPos;
+    @Transient
+    private String modeloPos;
 
     // Empty Constructor
 
@@ -209,6 +226,22 @@ public class Transaccion implements Serializable {
         this.codigoInterno = codigoInterno;
     }
 
+    public String getCodigoPos() {
+        return codigoPos;
+    }
+
+    public void setCodigoPos(String codigoPos) {
+        this.codigoPos = codigoPos;
+    }
+
+    public String getModeloPos() {
+        return modeloPos;
+    }
+
+    public void setModeloPos(String modeloPos) {
+        this.modeloPos = modeloPos;
+    }
+
     // HashCode and Equals
 
     @Override
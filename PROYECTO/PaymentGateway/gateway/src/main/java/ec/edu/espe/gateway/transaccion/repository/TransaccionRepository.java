@@ -3,11 +3,12 @@ package ec.edu.espe.gateway.transaccion.repository;
 import ec.edu.espe.gateway.transaccion.model.Transaccion;
 import ec.edu.espe.gateway.comercio.model.Comercio;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -17,14 +18,27 @@ public interface TransaccionRepository extends JpaRepository<Transaccion, Intege
     
     List<Transaccion> findByEstado(String estado);
     
-    List<Transaccion> findByComercio_CodigoAndFechaBetween(Integer codigoComercio, LocalDate fechaInicio, LocalDate fechaFin);
+    // Rango semiabierto [desde, hasta) sobre FECHA para que MariaDB descarte las particiones fuera del rango
+    @Query("SELECT t FROM Transaccion t WHERE t.comercio.codigo = :codigoComercio AND t.fecha >= :desde AND t.fecha < :hasta")
+    List<Transaccion> findByComercioEnRango(@Param("codigoComercio") Integer codigoComercio,
+            @Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
 
     List<Transaccion> findByComercioAndEstado(Comercio comercio, String estado);
     
+    @Modifying
+    @Query("UPDATE Transaccion t SET t.estado = :estadoNuevo WHERE t.comercio.codigo = :codigoComercio AND t.estado = :estadoActual")
+    int actualizarEstadoPorComercio(@Param("codigoComercio") Integer codigoComercio,
+            @Param("estadoActual") String estadoActual, @Param("estadoNuevo") String estadoNuevo);
+
     @Query("SELECT t FROM Transaccion t WHERE t.tipo = 'REC' AND t.comercio.codigo = :codigoComercio AND t.estado = 'ENV'")
     List<Transaccion> findActiveRecurrentTransactionsByComercio(@Param("codigoComercio") Integer codigoComercio);
 
     Boolean existsByCodigoUnicoTransaccion(String codigoUnicoTransaccion);
+
+    Optional<Transaccion> findByCodigoUnicoTransaccion(String codigoUnicoTransaccion);
+
+    @Query("SELECT t.estado FROM Transaccion t WHERE t.codigoUnicoTransaccion = :codigoUnico")
+    Optional<String> findEstadoByCodigoUnicoTransaccion(@Param("codigoUnico") String codigoUnico);
     
     @Query("SELECT t FROM Transaccion t WHERE t.facturacionComercio.codigo = :codigoFacturacion")
     List<Transaccion> findByFacturacionComercio(@Param("codigoFacturacion") Integer codigoFacturacion);
@@ -0,0 +1,355 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archivo frío de transacciones de facturaciones pagadas (PAG).
+ * Las transacciones de cada facturación se escriben en archivos por comercio y mes
+ * (<directorio>/<comercio>/<AAAAMM>-F<facturacion>.seg) y luego se borran de GTW_TRANSACCION.
+ * Si el proceso se interrumpe entre la escritura y el borrado, la siguiente ejecución une las
+ * filas que siguen en la tabla con las ya archivadas, así que no se pierde ni se duplica nada.
+ * Una facturación archivada se marca con FECHA_ARCHIVO y las siguientes ejecuciones la omiten.
+ * Las transacciones recurrentes activas se quedan en la tabla porque son plantillas.
+ *
+ * Con varias instancias el directorio es compartido: solo archiva la que obtiene el bloqueo
+ * GET_LOCK de la base (se libera solo si se cae su conexión) y todas releen el directorio cada
+ * revision-ms para ver los archivos que escribió otra. Las búsquedas por código único usan un
+ * índice en memoria de 8 bytes por transacción archivada (32 bits altos del hash y el segmento)
+ * en lugar de recorrer cada segmento; los segmentos aún no indexados se revisan uno por uno.
+ */
+@Service
+public class ArchivoTransaccionesService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoTransaccionesService.class);
+    private static final String EXTENSION = ".seg";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int LOTE_BORRADO = 1000;
+    private static final String BLOQUEO = "gateway.archivo-transacciones";
+    private static final String MARCAR_ARCHIVADA = "UPDATE GTW_FACTURACION_COMERCIO SET FECHA_ARCHIVO = ? "
+            + "WHERE COD_FACTURACION_COMERCIO = ?";
+
+    private final TransaccionRepository transaccionRepository;
+    private final FacturacionComercioRepository facturacionComercioRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directorio;
+    private final boolean habilitado;
+    private final Map<Path, SegmentoTransacciones> segmentos = new ConcurrentHashMap<>();
+    private final Map<Path, FileTime> modificados = new ConcurrentHashMap<>();
+    private final Map<Path, SegmentoTransacciones> sinIndexar = new ConcurrentHashMap<>();
+    private volatile IndiceCodigos indice = IndiceCodigos.crear(List.of());
+    private final ReentrantLock revision = new ReentrantLock();
+    private final Counter archivadas;
+    private final Counter lecturas;
+
+    public ArchivoTransaccionesService(TransaccionRepository transaccionRepository,
+            FacturacionComercioRepository facturacionComercioRepository,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry registry,
+            @Value("${gateway.archivo.directorio:${gateway.datos.directorio}/archivo-transacciones}") String directorio,
+            @Value("${gateway.archivo.habilitado:true}") boolean habilitado) {
+        this.transaccionRepository = transaccionRepository;
+        this.facturacionComercioRepository = facturacionComercioRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.directorio = Paths.get(directorio);
+        this.habilitado = habilitado;
+        this.archivadas = registry.counter("gateway.archivo.transacciones", "operacion", "archivada");
+        this.lecturas = registry.counter("gateway.archivo.transacciones", "operacion", "leida");
+        registry.gaugeMapSize("gateway.archivo.segmentos", Tags.empty(), segmentos);
+    }
+
+    @PostConstruct
+    public void cargarSegmentos() {
+        refrescarSegmentos();
+        log.info("Archivo de transacciones: {} segmentos cargados desde {}", segmentos.size(), directorio);
+    }
+
+    // Registra los archivos nuevos o reemplazados (también los de otras instancias), olvida los
+    // borrados y rehace el índice de códigos si algo cambió. Lock y no synchronized: la revisión lee
+    // el disco y con hilos virtuales fijaría el portador
+    @Scheduled(fixedDelayString = "${gateway.archivo.revision-ms:60000}")
+    public void refrescarSegmentos() {
+        revision.lock();
+        try {
+            revisarDirectorio();
+        } finally {
+            revision.unlock();
+        }
+    }
+
+    private void revisarDirectorio() {
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+        Map<Path, FileTime> encontrados = new HashMap<>();
+        try (Stream<Path> archivos = Files.walk(directorio, 2)) {
+            archivos.filter(archivo -> archivo.getFileName().toString().endsWith(EXTENSION))
+                    .forEach(archivo -> {
+                        try {
+                            encontrados.put(archivo, Files.getLastModifiedTime(archivo));
+                        } catch (IOException e) {
+                            // Reemplazado o borrado mientras se recorría; se verá en la próxima revisión
+                        }
+                    });
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error al revisar el archivo de transacciones en {}: {}", directorio, e.getMessage());
+            return;
+        }
+
+        boolean cambios = segmentos.keySet().removeIf(archivo -> !encontrados.containsKey(archivo));
+        modificados.keySet().retainAll(encontrados.keySet());
+        sinIndexar.keySet().retainAll(encontrados.keySet());
+        for (Map.Entry<Path, FileTime> archivo : encontrados.entrySet()) {
+            if (!archivo.getValue().equals(modificados.get(archivo.getKey()))) {
+                registrar(archivo.getKey());
+                cambios = true;
+            }
+        }
+        if (cambios || !sinIndexar.isEmpty()) {
+            indexar();
+        }
+    }
+
+    @Scheduled(cron = "${gateway.archivo.cron:0 0 3 * * *}")
+    public void archivarFacturacionesPagadas() {
+        if (!habilitado) {
+            return;
+        }
+        Boolean archivado = jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion -> {
+            if (!bloquear(conexion, "SELECT GET_LOCK(?, 0)")) {
+                return false;
+            }
+            try {
+                borrarTemporales();
+                for (FacturacionComercio facturacion : facturacionComercioRepository.findPagadasSinArchivar()) {
+                    try {
+                        archivar(facturacion);
+                        jdbcTemplate.update(MARCAR_ARCHIVADA, Timestamp.valueOf(LocalDateTime.now()),
+                                facturacion.getCodigo());
+                    } catch (Exception e) {
+                        log.error("Error al archivar las transacciones de la facturación {}: {}",
+                                facturacion.getCodigo(), e.getMessage());
+                    }
+                }
+            } finally {
+                bloquear(conexion, "SELECT RELEASE_LOCK(?)");
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(archivado)) {
+            refrescarSegmentos();
+        } else {
+            log.info("Otra instancia está archivando transacciones; se omite esta ejecución");
+        }
+    }
+
+    public void archivar(FacturacionComercio facturacion) throws IOException {
+        List<Transaccion> transacciones = transaccionRepository.findByFacturacionComercio(facturacion.getCodigo())
+                .stream()
+                .filter(t -> !("REC".equals(t.getTipo()) && "ENV".equals(t.getEstado())))
+                .collect(Collectors.toList());
+        if (transacciones.isEmpty()) {
+            return;
+        }
+
+        Map<YearMonth, List<Transaccion>> porMes = new TreeMap<>(transacciones.stream()
+                .collect(Collectors.groupingBy(t -> YearMonth.from(t.getFecha()))));
+        Integer codigoComercio = facturacion.getComercio().getCodigo();
+        for (Map.Entry<YearMonth, List<Transaccion>> mes : porMes.entrySet()) {
+            Path archivo = directorio.resolve(String.valueOf(codigoComercio))
+                    .resolve(mes.getKey().format(FORMATO_MES) + "-F" + facturacion.getCodigo() + EXTENSION);
+            List<Transaccion> filas = unirConArchivadas(archivo, mes.getValue());
+            SegmentoTransacciones.escribir(archivo, codigoComercio, filas);
+            registrar(archivo);
+        }
+
+        List<Integer> codigos = transacciones.stream().map(Transaccion::getCodigo).collect(Collectors.toList());
+        for (int i = 0; i < codigos.size(); i += LOTE_BORRADO) {
+            transaccionRepository.deleteAllByIdInBatch(codigos.subList(i, Math.min(i + LOTE_BORRADO, codigos.size())));
+        }
+        archivadas.increment(codigos.size());
+        log.info("Facturación {} del comercio {}: {} transacciones archivadas en {} archivos",
+                facturacion.getCodigo(), codigoComercio, codigos.size(), porMes.size());
+    }
+
+    public Transaccion buscarPorCodigoUnico(String codigoUnico) {
+        Transaccion transaccion = indice.buscar(codigoUnico);
+        if (transaccion == null) {
+            for (SegmentoTransacciones segmento : sinIndexar.values()) {
+                transaccion = segmento.buscar(codigoUnico);
+                if (transaccion != null) {
+                    break;
+                }
+            }
+        }
+        if (transaccion != null) {
+            lecturas.increment();
+        }
+        return transaccion;
+    }
+
+    public List<Transaccion> buscarPorComercioEnRango(Integer codigoComercio, LocalDateTime desde, LocalDateTime hasta) {
+        List<Transaccion> resultado = new ArrayList<>();
+        for (SegmentoTransacciones segmento : segmentos.values()) {
+            if (segmento.getCodigoComercio() == codigoComercio && segmento.cubre(desde, hasta)) {
+                resultado.addAll(segmento.leer(desde, hasta));
+            }
+        }
+        lecturas.increment(resultado.size());
+        return resultado;
+    }
+
+    private List<Transaccion> unirConArchivadas(Path archivo, List<Transaccion> nuevas) throws IOException {
+        if (!Files.exists(archivo)) {
+            return nuevas;
+        }
+        Map<Integer, Transaccion> porCodigo = new LinkedHashMap<>();
+        for (Transaccion archivada : SegmentoTransacciones.abrir(archivo).leerTodas()) {
+            porCodigo.put(archivada.getCodigo(), archivada);
+        }
+        for (Transaccion nueva : nuevas) {
+            porCodigo.put(nueva.getCodigo(), nueva);
+        }
+        return new ArrayList<>(porCodigo.values());
+    }
+
+    // Hasta el siguiente indexar() el segmento se busca de forma lineal junto con los demás sin indexar
+    private void registrar(Path archivo) {
+        try {
+            FileTime modificado = Files.getLastModifiedTime(archivo);
+            SegmentoTransacciones segmento = SegmentoTransacciones.abrir(archivo);
+            segmentos.put(archivo, segmento);
+            sinIndexar.put(archivo, segmento);
+            modificados.put(archivo, modificado);
+        } catch (Exception e) {
+            log.error("No se pudo abrir el archivo de transacciones {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    // Solo se llama con el lock de revisión tomado
+    private void indexar() {
+        List<SegmentoTransacciones> indexados = new ArrayList<>(segmentos.values());
+        indice = IndiceCodigos.crear(indexados);
+        for (SegmentoTransacciones segmento : indexados) {
+            sinIndexar.remove(segmento.getArchivo(), segmento);
+        }
+    }
+
+    // Solo la instancia con el bloqueo escribe, así que un temporal que quede es de una escritura interrumpida
+    private void borrarTemporales() {
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+        try (Stream<Path> archivos = Files.walk(directorio, 2)) {
+            for (Path temporal : archivos.filter(archivo -> archivo.getFileName().toString()
+                    .endsWith(SegmentoTransacciones.TEMPORAL)).collect(Collectors.toList())) {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("No se pudieron borrar los temporales de {}: {}", directorio, e.getMessage());
+        }
+    }
+
+    private static boolean bloquear(Connection conexion, String sql) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setString(1, BLOQUEO);
+            try (ResultSet resultado = sentencia.executeQuery()) {
+                return resultado.next() && resultado.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * Índice inmutable de todos los segmentos: cada entrada empaca los 32 bits altos del hash del
+     * código único con la posición del segmento, ordenadas para búsqueda binaria. Las colisiones
+     * las descarta SegmentoTransacciones.buscar, que compara el código completo.
+     */
+    static final class IndiceCodigos {
+
+        private final long[] entradas;
+        private final SegmentoTransacciones[] segmentos;
+
+        private IndiceCodigos(long[] entradas, SegmentoTransacciones[] segmentos) {
+            this.entradas = entradas;
+            this.segmentos = segmentos;
+        }
+
+        static IndiceCodigos crear(List<SegmentoTransacciones> segmentos) {
+            int total = 0;
+            for (SegmentoTransacciones segmento : segmentos) {
+                total += segmento.getFilas();
+            }
+            long[] entradas = new long[total];
+            int i = 0;
+            for (int posicion = 0; posicion < segmentos.size(); posicion++) {
+                for (long hash : segmentos.get(posicion).obtenerHashes()) {
+                    entradas[i++] = empacar(hash, posicion);
+                }
+            }
+            Arrays.sort(entradas);
+            return new IndiceCodigos(entradas, segmentos.toArray(new SegmentoTransacciones[0]));
+        }
+
+        Transaccion buscar(String codigoUnico) {
+            long hash = SegmentoTransacciones.hash(codigoUnico);
+            int clave = (int) (hash >>> 32);
+            int i = Arrays.binarySearch(entradas, empacar(hash, 0));
+            int anterior = -1;
+            for (i = i < 0 ? -i - 1 : i; i < entradas.length && (int) (entradas[i] >> 32) == clave; i++) {
+                int posicion = (int) entradas[i];
+                if (posicion == anterior) {
+                    continue;
+                }
+                anterior = posicion;
+                Transaccion transaccion = segmentos[posicion].buscar(codigoUnico);
+                if (transaccion != null) {
+                    return transaccion;
+                }
+            }
+            return null;
+        }
+
+        private static long empacar(long hash, int posicion) {
+            return (hash & 0xFFFFFFFF00000000L) | posicion;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Flujo de autorización asíncrono: la transacción se persiste como ENVIADA y la petición
+ * responde de inmediato; la llamada al procesador se ejecuta después del commit en el
+ * ejecutor de tareas de la aplicación (hilos virtuales con el perfil virtual).
+ *
+ * Un reintento del POS repite código único y fecha. La clave única
+ * UK_GTW_TRANSACCION_CODIGO_UNICO (CODIGO_UNICO_TRANSACCION, FECHA) hace que, entre reintentos
+ * concurrentes, solo uno inserte y envíe el pago al procesador; los demás devuelven el estado
+ * de la transacción ya registrada.
+ */
+@Service
+public class AutorizacionAsincronaService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutorizacionAsincronaService.class);
+
+    private final TransaccionService transaccionService;
+    private final TransaccionRepository transaccionRepository;
+    private final EstadoTransaccionCache estadoCache;
+    private final ArchivoTransaccionesService archivoTransacciones;
+    private final MetricasTransaccion metricas;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor ejecutor;
+
+    public AutorizacionAsincronaService(TransaccionService transaccionService,
+            TransaccionRepository transaccionRepository,
+            EstadoTransaccionCache estadoCache,
+            ArchivoTransaccionesService archivoTransacciones,
+            MetricasTransaccion metricas,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor ejecutor) {
+        this.transaccionService = transaccionService;
+        this.transaccionRepository = transaccionRepository;
+        this.estadoCache = estadoCache;
+        this.archivoTransacciones = archivoTransacciones;
+        this.metricas = metricas;
+        this.transactionTemplate = transactionTemplate;
+        this.ejecutor = ejecutor;
+    }
+
+    public EstadoPagoDTO aceptar(Transaccion transaccion) {
+        String codigoUnico = transaccion.getCodigoUnicoTransaccion();
+        if (codigoUnico == null || codigoUnico.isBlank()) {
+            throw new IllegalArgumentException("El código único de transacción es requerido");
+        }
+
+        // Reintento del POS: se devuelve el estado actual sin registrar de nuevo
+        String estadoExistente = obtenerEstado(codigoUnico);
+        if (estadoExistente != null) {
+            return new EstadoPagoDTO(codigoUnico, estadoExistente);
+        }
+
+        Timer.Sample muestra = metricas.iniciar();
+        Transaccion transaccionGuardada;
+        try {
+            // El flush dentro de la transacción hace que un duplicado falle aquí y no al confirmar
+            transaccionGuardada = transactionTemplate.execute(estado -> {
+                Transaccion guardada = transaccionService.registrarTransaccionPOS(transaccion);
+                transaccionRepository.flush();
+                return guardada;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otro reintento concurrente del mismo pago se registró primero
+            String estadoRegistrado = transaccionRepository.findEstadoByCodigoUnicoTransaccion(codigoUnico)
+                    .orElseThrow(() -> e);
+            log.info("Transacción {} ya registrada por un reintento concurrente, estado {}", codigoUnico,
+                    estadoRegistrado);
+            return new EstadoPagoDTO(codigoUnico, estadoRegistrado);
+        }
+        metricas.finalizar(muestra, MetricasTransaccion.FLUJO_ACEPTAR, transaccionGuardada.getMarca(),
+                transaccionGuardada.getEstado(), MetricasTransaccion.RESULTADO_EXITO);
+
+        estadoCache.actualizar(codigoUnico, transaccionGuardada.getEstado());
+        ejecutor.execute(() -> autorizar(transaccionGuardada));
+        return new EstadoPagoDTO(codigoUnico, transaccionGuardada.getEstado());
+    }
+
+    public String obtenerEstado(String codigoUnico) {
+        String estado = estadoCache.obtener(codigoUnico);
+        if (estado != null) {
+            return estado;
+        }
+        estado = transaccionRepository.findEstadoByCodigoUnicoTransaccion(codigoUnico).orElse(null);
+        if (estado == null) {
+            Transaccion archivada = archivoTransacciones.buscarPorCodigoUnico(codigoUnico);
+            estado = archivada == null ? null : archivada.getEstado();
+        }
+        if (estado != null) {
+            estadoCache.actualizar(codigoUnico, estado);
+        }
+        return estado;
+    }
+
+    private void autorizar(Transaccion transaccionGuardada) {
+        Timer.Sample muestra = metricas.iniciar();
+        boolean autorizada = false;
+        try {
+            autorizada = transaccionService.autorizarTransaccionPOS(transaccionGuardada);
+        } catch (Exception e) {
+            log.error("Error al autorizar la transacción {}: {}",
+                    transaccionGuardada.getCodigoUnicoTransaccion(), e.getMessage());
+        } finally {
+            estadoCache.actualizar(transaccionGuardada.getCodigoUnicoTransaccion(), transaccionGuardada.getEstado());
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_AUTORIZAR, transaccionGuardada.getMarca(),
+                    transaccionGuardada.getEstado(),
+                    autorizada ? MetricasTransaccion.RESULTADO_EXITO : MetricasTransaccion.RESULTADO_ERROR);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estados recientes por código único de transacción para responder las consultas de estado
+ * sin ir a la base. Acotado: al superar el máximo se descartan los códigos más antiguos
+ * (orden de inserción) y esas consultas pasan a resolverse en la base.
+ */
+@Component
+public class EstadoTransaccionCache {
+
+    private final int maximo;
+    private final Map<String, String> estados = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> ordenInsercion = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamanio = new AtomicInteger();
+
+    public EstadoTransaccionCache(@Value("${gateway.transacciones.estados-recientes:100000}") int maximo) {
+        this.maximo = maximo;
+    }
+
+    public void actualizar(String codigoUnico, String estado) {
+        if (estados.put(codigoUnico, estado) == null) {
+            ordenInsercion.offer(codigoUnico);
+            if (tamanio.incrementAndGet() > maximo) {
+                String masAntiguo = ordenInsercion.poll();
+                if (masAntiguo != null && estados.remove(masAntiguo) != null) {
+                    tamanio.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    public String obtener(String codigoUnico) {
+        return estados.get(codigoUnico);
+    }
+}
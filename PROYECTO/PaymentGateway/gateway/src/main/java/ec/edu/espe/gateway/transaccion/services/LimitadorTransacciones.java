@@ -0,0 +1,196 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.LimiteComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.LimiteComercioRepository;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Límite de ingreso de transacciones por terminal (modelo y código) y por comercio, evaluado antes
+ * de tocar la base. El comercio de cada terminal sale de la vista en memoria de GTW_POS_COMERCIO y
+ * nunca del cuerpo de la petición; solo los terminales activos tienen cubeta propia, los desconocidos
+ * comparten una sola, así que cambiar el modelo o el código en cada petición no abre cubetas nuevas.
+ * Cada cubeta de fichas se guarda como un único AtomicLong con el instante teórico de la próxima
+ * ficha libre (GCRA): tomar una ficha es un compareAndSet, sin bloqueos. Una cubeta
+ * llena equivale a no tener cubeta, así que la revisión periódica la elimina sin perder estado.
+ * Con el máximo de claves alcanzado, las claves nuevas comparten una cubeta de desborde hasta la
+ * siguiente revisión; la petición nunca recorre el mapa.
+ * Los límites por comercio se leen de GTW_LIMITE_COMERCIO y se recargan periódicamente.
+ */
+@Component
+public class LimitadorTransacciones {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitadorTransacciones.class);
+    public static final String METRICA_LIMITADAS = "gateway.transacciones.limitadas";
+
+    private final LimiteComercioRepository limiteComercioRepository;
+    private final RegistroUltimoUsoPos terminales;
+    private final boolean habilitado;
+    private final int clavesMaximas;
+    private final Limites porDefecto;
+    private final Map<PosComercioPK, AtomicLong> cubetasPos = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> cubetasComercio = new ConcurrentHashMap<>();
+    private final AtomicLong desbordePos = new AtomicLong(System.nanoTime());
+    private final AtomicLong desbordeComercio = new AtomicLong(System.nanoTime());
+    private final AtomicLong desconocidos = new AtomicLong(System.nanoTime());
+    private final Counter limitadasPos;
+    private final Counter limitadasComercio;
+    private volatile Map<Integer, Limites> limitesPorComercio = Map.of();
+
+    public LimitadorTransacciones(LimiteComercioRepository limiteComercioRepository,
+            RegistroUltimoUsoPos terminales, MeterRegistry registry,
+            @Value("${gateway.limites.habilitado:true}") boolean habilitado,
+            @Value("${gateway.limites.claves-maximas:100000}") int clavesMaximas,
+            @Value("${gateway.limites.pos.por-minuto:600}") int porMinutoPos,
+            @Value("${gateway.limites.pos.rafaga:20}") int rafagaPos,
+            @Value("${gateway.limites.comercio.por-minuto:6000}") int porMinutoComercio,
+            @Value("${gateway.limites.comercio.rafaga:200}") int rafagaComercio) {
+        this.limiteComercioRepository = limiteComercioRepository;
+        this.terminales = terminales;
+        this.habilitado = habilitado;
+        this.clavesMaximas = clavesMaximas;
+        this.porDefecto = new Limites(Cubeta.de(porMinutoPos, rafagaPos), Cubeta.de(porMinutoComercio, rafagaComercio));
+        this.limitadasPos = registry.counter(METRICA_LIMITADAS, "clave", "pos");
+        this.limitadasComercio = registry.counter(METRICA_LIMITADAS, "clave", "comercio");
+    }
+
+    /**
+     * Toma una ficha del terminal y otra del comercio. Devuelve 0 si la transacción puede pasar o
+     * los nanosegundos que faltan para la próxima ficha. El mismo código de POS en modelos distintos
+     * son terminales distintos. Un terminal desconocido o inactivo solo toma de la cubeta compartida
+     * de desconocidos, con el límite por defecto de un terminal.
+     */
+    public long verificar(PosComercioPK terminal) {
+        if (!habilitado) {
+            return 0;
+        }
+        long ahora = System.nanoTime();
+        Integer codigoComercio = terminales.comercioDe(terminal);
+        if (codigoComercio == null) {
+            long espera = tomar(desconocidos, porDefecto.pos(), ahora);
+            if (espera > 0) {
+                limitadasPos.increment();
+            }
+            return espera;
+        }
+        Limites limites = limitesPorComercio.getOrDefault(codigoComercio, porDefecto);
+
+        long espera = tomar(cubeta(cubetasPos, terminal, desbordePos, ahora), limites.pos(), ahora);
+        if (espera > 0) {
+            limitadasPos.increment();
+            return espera;
+        }
+        espera = tomar(cubeta(cubetasComercio, codigoComercio, desbordeComercio, ahora), limites.comercio(), ahora);
+        if (espera > 0) {
+            limitadasComercio.increment();
+        }
+        return espera;
+    }
+
+    // Valor para la cabecera Retry-After: segundos enteros, redondeando hacia arriba
+    public static String segundosEspera(long esperaNanos) {
+        return String.valueOf(Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private static long tomar(AtomicLong cubeta, Cubeta limite, long ahora) {
+        if (limite == null) {
+            return 0;
+        }
+        while (true) {
+            long proxima = cubeta.get();
+            long base = proxima - ahora > 0 ? proxima : ahora;
+            long espera = base - limite.toleranciaNanos() - ahora;
+            if (espera > 0) {
+                return espera;
+            }
+            if (cubeta.compareAndSet(proxima, base + limite.intervaloNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    private <K> AtomicLong cubeta(Map<K, AtomicLong> cubetas, K clave, AtomicLong desborde, long ahora) {
+        AtomicLong cubeta = cubetas.get(clave);
+        if (cubeta != null) {
+            return cubeta;
+        }
+        if (cubetas.size() >= clavesMaximas) {
+            return desborde;
+        }
+        return cubetas.computeIfAbsent(clave, k -> new AtomicLong(ahora));
+    }
+
+    private static <K> void limpiar(Map<K, AtomicLong> cubetas, long ahora) {
+        cubetas.values().removeIf(cubeta -> cubeta.get() - ahora <= 0);
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.limites.revision-ms:30000}",
+            initialDelayString = "${gateway.limites.revision-ms:30000}")
+    public void revisar() {
+        long ahora = System.nanoTime();
+        limpiar(cubetasPos, ahora);
+        limpiar(cubetasComercio, ahora);
+        cargarLimites();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarLimites() {
+        try {
+            Map<Integer, Limites> nuevos = new HashMap<>();
+            for (LimiteComercio limite : limiteComercioRepository.findAll()) {
+                nuevos.put(limite.getCodigoComercio(), new Limites(
+                        combinar(limite.getPorMinutoPos(), limite.getRafagaPos(), porDefecto.pos()),
+                        combinar(limite.getPorMinutoComercio(), limite.getRafagaComercio(), porDefecto.comercio())));
+            }
+            limitesPorComercio = nuevos;
+            log.debug("Límites de ingreso cargados para {} comercios", nuevos.size());
+        } catch (Exception e) {
+            log.warn("No se pudieron recargar los límites por comercio, se mantienen los anteriores: {}",
+                    e.getMessage());
+        }
+    }
+
+    private static Cubeta combinar(Integer porMinuto, Integer rafaga, Cubeta porDefecto) {
+        if (porMinuto == null && rafaga == null) {
+            return porDefecto;
+        }
+        if (porMinuto == null) {
+            return porDefecto == null ? null : porDefecto.conRafaga(rafaga);
+        }
+        return Cubeta.de(porMinuto, rafaga != null ? rafaga : 1);
+    }
+
+    private record Limites(Cubeta pos, Cubeta comercio) {
+    }
+
+    // Un límite de 0 o negativo por minuto desactiva la cubeta (null)
+    private record Cubeta(long intervaloNanos, long toleranciaNanos) {
+
+        static Cubeta de(int porMinuto, int rafaga) {
+            if (porMinuto <= 0) {
+                return null;
+            }
+            long intervalo = TimeUnit.MINUTES.toNanos(1) / porMinuto;
+            return new Cubeta(intervalo, intervalo * (Math.max(rafaga, 1) - 1));
+        }
+
+        Cubeta conRafaga(int rafaga) {
+            return new Cubeta(intervaloNanos, intervaloNanos * (Math.max(rafaga, 1) - 1));
+        }
+    }
+}
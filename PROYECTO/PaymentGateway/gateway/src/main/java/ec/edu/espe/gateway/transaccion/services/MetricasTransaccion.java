@@ -0,0 +1,85 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Temporizadores por etapa del flujo de transacciones, publicados en /actuator/prometheus.
+ * gateway.transaccion.etapa: una serie por etapa (pos, comercio, facturacion, insercion,
+ * preparacion, procesador, estado) con tags marca y resultado.
+ * gateway.transaccion: duración total con tags flujo (crear, procesar, aceptar, autorizar), marca, estado y resultado.
+ */
+@Component
+public class MetricasTransaccion {
+
+    public static final String METRICA_ETAPA = "gateway.transaccion.etapa";
+    public static final String METRICA_TOTAL = "gateway.transaccion";
+
+    public static final String ETAPA_POS = "pos";
+    public static final String ETAPA_COMERCIO = "comercio";
+    public static final String ETAPA_FACTURACION = "facturacion";
+    public static final String ETAPA_INSERCION = "insercion";
+    public static final String ETAPA_PREPARACION = "preparacion";
+    public static final String ETAPA_PROCESADOR = "procesador";
+    public static final String ETAPA_ESTADO = "estado";
+
+    public static final String FLUJO_CREAR = "crear";
+    public static final String FLUJO_PROCESAR = "procesar";
+    public static final String FLUJO_ACEPTAR = "aceptar";
+    public static final String FLUJO_AUTORIZAR = "autorizar";
+
+    public static final String RESULTADO_EXITO = "exito";
+    public static final String RESULTADO_ERROR = "error";
+
+    // Las marcas fuera de este conjunto se agrupan para no multiplicar las series
+    private static final Set<String> MARCAS_CONOCIDAS = Set.of("MSCD", "VISA", "AMEX", "DINE");
+    private static final String MARCA_OTRA = "OTRA";
+
+    private final MeterRegistry registry;
+
+    public MetricasTransaccion(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T medir(String etapa, String marca, Supplier<T> accion) {
+        Timer.Sample sample = Timer.start(registry);
+        String resultado = RESULTADO_ERROR;
+        try {
+            T valor = accion.get();
+            resultado = RESULTADO_EXITO;
+            return valor;
+        } finally {
+            sample.stop(temporizador(METRICA_ETAPA,
+                    Tags.of("etapa", etapa, "marca", normalizarMarca(marca), "resultado", resultado)));
+        }
+    }
+
+    public Timer.Sample iniciar() {
+        return Timer.start(registry);
+    }
+
+    public void finalizar(Timer.Sample sample, String flujo, String marca, String estado, String resultado) {
+        sample.stop(temporizador(METRICA_TOTAL, Tags.of(
+                "flujo", flujo,
+                "marca", normalizarMarca(marca),
+                "estado", estado == null ? "NA" : estado,
+                "resultado", resultado)));
+    }
+
+    private Timer temporizador(String nombre, Tags tags) {
+        return Timer.builder(nombre)
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String normalizarMarca(String marca) {
+        return marca != null && MARCAS_CONOCIDAS.contains(marca) ? marca : MARCA_OTRA;
+    }
+}
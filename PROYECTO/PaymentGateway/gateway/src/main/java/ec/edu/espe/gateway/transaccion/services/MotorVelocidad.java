@@ -0,0 +1,468 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.LimiteComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.LimiteComercioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Reglas de velocidad y tope en memoria para la autorización: transacciones y monto por tarjeta,
+ * transacciones por minuto por terminal (modelo y código) y monto diario por comercio. Cada regla es una ventana
+ * deslizante de ranuras en un anillo; cada ranura es un solo long con la época de la ranura en los
+ * bits bajos y el acumulado en los altos, así sumar es un compareAndSet y una ranura vieja se
+ * reinicia en el mismo paso. Las ventanas de POS y comercio se reparten en franjas por hilo para
+ * que un comercio con mucho tráfico no concentre todos los CAS en una ranura.
+ * La evaluación y el registro van separados: el llamador registra solo las transacciones que
+ * quedaron guardadas, así un pago que falla al insertarse no consume cupo. No son atómicos entre
+ * sí: dos pagos simultáneos en el borde del límite pueden pasar ambos. El estado se guarda
+ * periódicamente en un archivo del directorio de datos y se recarga al arrancar; las épocas
+ * guardadas hacen que lo vencido durante la caída se descarte solo.
+ *
+ * La tarjeta se identifica por un HMAC-SHA256 del número con una clave secreta
+ * (gateway.velocidad.clave) que no tiene valor por defecto: sin ella el motor no arranca. Sin la
+ * clave, las huellas del archivo de estado no permiten recuperar números por fuerza bruta.
+ *
+ * Las ventanas son de cada instancia y no se comparten: con N instancias detrás de un balanceador
+ * una tarjeta, un POS o un comercio puede llegar hasta N veces el límite configurado. Con varias
+ * instancias los límites deben dividirse entre ellas o el balanceo debe fijar cada POS a una.
+ */
+@Component
+public class MotorVelocidad {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorVelocidad.class);
+    public static final String METRICA_RECHAZOS = "gateway.velocidad.rechazos";
+
+    public static final String REGLA_TARJETA_CANTIDAD = "tarjeta-cantidad";
+    public static final String REGLA_TARJETA_MONTO = "tarjeta-monto-diario";
+    public static final String REGLA_POS_CANTIDAD = "pos-cantidad-minuto";
+    public static final String REGLA_COMERCIO_MONTO = "comercio-monto-diario";
+
+    private static final int MAGIA = 0x47564c32; // "GVL2"
+    private static final int BITS_EPOCA = 20;
+    private static final long MASCARA_EPOCA = (1L << BITS_EPOCA) - 1;
+    private static final long HORA_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int FRANJAS = 4;
+    private static final String HMAC = "HmacSHA256";
+    static final int LARGO_MINIMO_CLAVE = 32;
+
+    private final Dimension<Long> tarjetas;
+    private final Dimension<PosComercioPK> terminales;
+    private final Dimension<Integer> comercios;
+    private final LimiteComercioRepository limiteComercioRepository;
+    private final MeterRegistry registry;
+    private final boolean habilitado;
+    private final SecretKeySpec clave;
+    private final Path archivoEstado;
+    private volatile Map<Integer, Long> montoDiarioPorComercio = Map.of();
+
+    public MotorVelocidad(LimiteComercioRepository limiteComercioRepository, MeterRegistry registry,
+            @Value("${gateway.velocidad.habilitado:true}") boolean habilitado,
+            @Value("${gateway.velocidad.clave:}") String clave,
+            @Value("${gateway.velocidad.archivo:${gateway.datos.directorio}/velocidad.estado}") String archivoEstado,
+            @Value("${gateway.velocidad.tarjeta.transacciones:10}") long transaccionesTarjeta,
+            @Value("${gateway.velocidad.tarjeta.ventana-minutos:10}") int ventanaTarjetaMinutos,
+            @Value("${gateway.velocidad.tarjeta.monto-diario:5000}") BigDecimal montoDiarioTarjeta,
+            @Value("${gateway.velocidad.pos.transacciones-minuto:120}") long transaccionesMinutoPos,
+            @Value("${gateway.velocidad.comercio.monto-diario:100000}") BigDecimal montoDiarioComercio) {
+        this.limiteComercioRepository = limiteComercioRepository;
+        this.registry = registry;
+        this.habilitado = habilitado;
+        if (habilitado && (clave == null || clave.length() < LARGO_MINIMO_CLAVE)) {
+            throw new IllegalStateException("gateway.velocidad.clave debe tener al menos " + LARGO_MINIMO_CLAVE
+                    + " caracteres (por ejemplo con la variable GATEWAY_VELOCIDAD_CLAVE)");
+        }
+        this.clave = habilitado ? new SecretKeySpec(clave.getBytes(StandardCharsets.UTF_8), HMAC) : null;
+        this.archivoEstado = Paths.get(archivoEstado);
+        this.tarjetas = new Dimension<>(1, List.of(
+                new Regla(REGLA_TARJETA_CANTIDAD, false, ventanaTarjetaMinutos, TimeUnit.MINUTES.toMillis(1),
+                        transaccionesTarjeta),
+                new Regla(REGLA_TARJETA_MONTO, true, 24, HORA_MS, centavos(montoDiarioTarjeta))));
+        this.terminales = new Dimension<>(FRANJAS, List.of(
+                new Regla(REGLA_POS_CANTIDAD, false, 12, TimeUnit.SECONDS.toMillis(5), transaccionesMinutoPos)));
+        this.comercios = new Dimension<>(FRANJAS, List.of(
+                new Regla(REGLA_COMERCIO_MONTO, true, 96, TimeUnit.MINUTES.toMillis(15),
+                        centavos(montoDiarioComercio))));
+    }
+
+    /**
+     * Evalúa todas las reglas sin registrar nada. Si ninguna se excede, la transacción se cuenta
+     * en sus ventanas con {@link #registrar(Evaluacion)} una vez guardada.
+     */
+    public Evaluacion evaluar(String numeroTarjeta, PosComercioPK terminal, Integer codigoComercio,
+            BigDecimal monto) {
+        if (!habilitado) {
+            return Evaluacion.SIN_REGLAS;
+        }
+        long ahora = System.currentTimeMillis();
+        long valor = centavos(monto);
+        Long tarjeta = numeroTarjeta == null ? null : huella(numeroTarjeta);
+        Long montoDiarioComercio = codigoComercio == null ? null : montoDiarioPorComercio.get(codigoComercio);
+
+        Ventana[] ventanasTarjeta = tarjeta == null ? null : tarjetas.ventanas(tarjeta);
+        Ventana[] ventanasPos = terminal == null || terminal.getCodigo() == null ? null
+                : terminales.ventanas(terminal);
+        Ventana[] ventanasComercio = codigoComercio == null ? null : comercios.ventanas(codigoComercio);
+
+        String excedida = tarjetas.excedida(ventanasTarjeta, ahora, valor, null);
+        if (excedida == null) {
+            excedida = terminales.excedida(ventanasPos, ahora, valor, null);
+        }
+        if (excedida == null) {
+            excedida = comercios.excedida(ventanasComercio, ahora, valor, montoDiarioComercio);
+        }
+        if (excedida != null) {
+            registry.counter(METRICA_RECHAZOS, "regla", excedida).increment();
+        }
+        return new Evaluacion(excedida, valor, ventanasTarjeta, ventanasPos, ventanasComercio);
+    }
+
+    // Cuenta una transacción aceptada por evaluar; una rechazada no se registra
+    public void registrar(Evaluacion evaluacion) {
+        if (evaluacion.excedida != null) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        tarjetas.registrar(evaluacion.ventanasTarjeta, ahora, evaluacion.valor);
+        terminales.registrar(evaluacion.ventanasPos, ahora, evaluacion.valor);
+        comercios.registrar(evaluacion.ventanasComercio, ahora, evaluacion.valor);
+    }
+
+    /**
+     * Resultado de evaluar: la primera regla excedida (null si ninguna) y las ventanas de la
+     * transacción, para registrarla sin volver a calcular la huella de la tarjeta.
+     */
+    public static final class Evaluacion {
+
+        static final Evaluacion SIN_REGLAS = new Evaluacion(null, 0, null, null, null);
+
+        private final String excedida;
+        private final long valor;
+        private final Ventana[] ventanasTarjeta;
+        private final Ventana[] ventanasPos;
+        private final Ventana[] ventanasComercio;
+
+        Evaluacion(String excedida, long valor, Ventana[] ventanasTarjeta, Ventana[] ventanasPos,
+                Ventana[] ventanasComercio) {
+            this.excedida = excedida;
+            this.valor = valor;
+            this.ventanasTarjeta = ventanasTarjeta;
+            this.ventanasPos = ventanasPos;
+            this.ventanasComercio = ventanasComercio;
+        }
+
+        public String getExcedida() {
+            return excedida;
+        }
+    }
+
+    // La tarjeta se identifica por los primeros 64 bits del HMAC; el número nunca se guarda en memoria
+    // ni en disco
+    private long huella(String numeroTarjeta) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(clave);
+            byte[] resumen = mac.doFinal(numeroTarjeta.getBytes(StandardCharsets.UTF_8));
+            long huella = 0;
+            for (int i = 0; i < 8; i++) {
+                huella = (huella << 8) | (resumen[i] & 0xFF);
+            }
+            return huella;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+
+    private static long centavos(BigDecimal monto) {
+        return monto == null ? 0 : monto.movePointRight(2).longValue();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        cargarEstado();
+        cargarLimites();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.velocidad.guardado-ms:60000}",
+            initialDelayString = "${gateway.velocidad.guardado-ms:60000}")
+    public void mantener() {
+        long ahora = System.currentTimeMillis();
+        tarjetas.limpiar(ahora);
+        terminales.limpiar(ahora);
+        comercios.limpiar(ahora);
+        guardarEstado();
+        cargarLimites();
+    }
+
+    private void cargarLimites() {
+        try {
+            Map<Integer, Long> nuevos = new HashMap<>();
+            for (LimiteComercio limite : limiteComercioRepository.findAll()) {
+                if (limite.getMontoDiario() != null) {
+                    nuevos.put(limite.getCodigoComercio(), centavos(limite.getMontoDiario()));
+                }
+            }
+            montoDiarioPorComercio = nuevos;
+        } catch (Exception e) {
+            log.warn("No se pudieron recargar los montos diarios por comercio: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        guardarEstado();
+    }
+
+    // Escribe en un temporal y lo renombra, así un arranque nunca lee un estado a medias
+    void guardarEstado() {
+        if (!habilitado) {
+            return;
+        }
+        Path temporal = archivoEstado.resolveSibling(archivoEstado.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(temporal.toAbsolutePath().getParent());
+            try (DataOutputStream salida = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+                salida.writeInt(MAGIA);
+                tarjetas.escribir(salida, DataOutputStream::writeLong);
+                terminales.escribir(salida, (datos, pk) -> {
+                    datos.writeUTF(pk.getModelo() == null ? "" : pk.getModelo());
+                    datos.writeUTF(pk.getCodigo());
+                });
+                comercios.escribir(salida, DataOutputStream::writeInt);
+            }
+            Files.move(temporal, archivoEstado, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el estado de velocidad en {}: {}", archivoEstado, e.getMessage());
+        }
+    }
+
+    void cargarEstado() {
+        if (!habilitado || !Files.exists(archivoEstado)) {
+            return;
+        }
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(archivoEstado)))) {
+            if (entrada.readInt() != MAGIA) {
+                log.warn("Archivo de estado de velocidad {} con formato desconocido, se ignora", archivoEstado);
+                return;
+            }
+            int claves = tarjetas.leer(entrada, DataInput::readLong)
+                    + terminales.leer(entrada, datos -> {
+                        String modelo = datos.readUTF();
+                        return new PosComercioPK(modelo.isEmpty() ? null : modelo, datos.readUTF());
+                    })
+                    + comercios.leer(entrada, DataInput::readInt);
+            log.info("Estado de velocidad recuperado de {}: {} claves", archivoEstado, claves);
+        } catch (IOException e) {
+            log.warn("No se pudo leer el estado de velocidad de {}: {}", archivoEstado, e.getMessage());
+        }
+    }
+
+    private record Regla(String nombre, boolean monto, int ranuras, long anchoMs, long limite) {
+    }
+
+    @FunctionalInterface
+    private interface Escritor<K> {
+        void escribir(DataOutputStream salida, K clave) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Lector<K> {
+        K leer(DataInputStream entrada) throws IOException;
+    }
+
+    // Reglas que comparten clave (tarjeta, terminal o comercio) y sus ventanas por clave
+    private static final class Dimension<K> {
+        private final int franjas;
+        private final List<Regla> reglas;
+        private final Map<K, Ventana[]> porClave = new ConcurrentHashMap<>();
+
+        Dimension(int franjas, List<Regla> reglas) {
+            this.franjas = franjas;
+            this.reglas = reglas;
+        }
+
+        Ventana[] ventanas(K clave) {
+            Ventana[] ventanas = porClave.get(clave);
+            return ventanas != null ? ventanas : porClave.computeIfAbsent(clave, k -> nuevas());
+        }
+
+        private Ventana[] nuevas() {
+            Ventana[] ventanas = new Ventana[reglas.size()];
+            for (int i = 0; i < ventanas.length; i++) {
+                ventanas[i] = new Ventana(reglas.get(i).ranuras(), reglas.get(i).anchoMs(), franjas);
+            }
+            return ventanas;
+        }
+
+        // El límite particular, si existe, reemplaza al de las reglas de monto
+        String excedida(Ventana[] ventanas, long ahora, long valor, Long limiteParticular) {
+            if (ventanas == null) {
+                return null;
+            }
+            for (int i = 0; i < ventanas.length; i++) {
+                Regla regla = reglas.get(i);
+                long limite = regla.monto() && limiteParticular != null ? limiteParticular : regla.limite();
+                if (limite <= 0) {
+                    continue;
+                }
+                long incremento = regla.monto() ? valor : 1;
+                if (ventanas[i].suma(ahora) + incremento > limite) {
+                    return regla.nombre();
+                }
+            }
+            return null;
+        }
+
+        void registrar(Ventana[] ventanas, long ahora, long valor) {
+            if (ventanas == null) {
+                return;
+            }
+            for (int i = 0; i < ventanas.length; i++) {
+                ventanas[i].agregar(ahora, reglas.get(i).monto() ? valor : 1);
+            }
+        }
+
+        // Una clave sin nada vigente en ninguna ventana equivale a una nueva y se libera
+        void limpiar(long ahora) {
+            porClave.values().removeIf(ventanas -> {
+                for (Ventana ventana : ventanas) {
+                    if (ventana.suma(ahora) != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+
+        // Ranuras guardadas por clave: si la configuración cambió, el estado anterior no se puede usar
+        private int ranurasPorClave() {
+            int total = 0;
+            for (Regla regla : reglas) {
+                total += regla.ranuras() * franjas;
+            }
+            return total;
+        }
+
+        void escribir(DataOutputStream salida, Escritor<K> escritor) throws IOException {
+            Map<K, Ventana[]> copia = new HashMap<>(porClave);
+            salida.writeInt(ranurasPorClave());
+            salida.writeInt(copia.size());
+            for (Map.Entry<K, Ventana[]> entrada : copia.entrySet()) {
+                escritor.escribir(salida, entrada.getKey());
+                for (Ventana ventana : entrada.getValue()) {
+                    ventana.escribir(salida);
+                }
+            }
+        }
+
+        int leer(DataInputStream entrada, Lector<K> lector) throws IOException {
+            if (entrada.readInt() != ranurasPorClave()) {
+                throw new IOException("las reglas cambiaron desde que se guardó el estado");
+            }
+            int claves = entrada.readInt();
+            for (int c = 0; c < claves; c++) {
+                K clave = lector.leer(entrada);
+                Ventana[] ventanas = ventanas(clave);
+                for (Ventana ventana : ventanas) {
+                    ventana.leer(entrada);
+                }
+            }
+            return claves;
+        }
+    }
+
+    /**
+     * Anillo de ranuras de ancho fijo, repetido por franja. Cada ranura guarda
+     * (acumulado << BITS_EPOCA) | (época & MASCARA_EPOCA); una ranura cuya época no cae dentro de la
+     * ventana actual se lee como cero y se reinicia al escribir.
+     */
+    static final class Ventana {
+        private final int ranuras;
+        private final long anchoMs;
+        private final int franjas;
+        private final AtomicLongArray valores;
+
+        Ventana(int ranuras, long anchoMs, int franjas) {
+            this.ranuras = ranuras;
+            this.anchoMs = anchoMs;
+            this.franjas = franjas;
+            this.valores = new AtomicLongArray(ranuras * franjas);
+        }
+
+        void agregar(long ahoraMs, long valor) {
+            long epoca = ahoraMs / anchoMs;
+            int franja = franjas == 1 ? 0 : (int) (Thread.currentThread().threadId() % franjas);
+            int indice = franja * ranuras + (int) (epoca % ranuras);
+            long epocaBits = epoca & MASCARA_EPOCA;
+            while (true) {
+                long actual = valores.get(indice);
+                long nuevo = (actual & MASCARA_EPOCA) == epocaBits
+                        ? actual + (valor << BITS_EPOCA)
+                        : (valor << BITS_EPOCA) | epocaBits;
+                if (valores.compareAndSet(indice, actual, nuevo)) {
+                    return;
+                }
+            }
+        }
+
+        long suma(long ahoraMs) {
+            long epocaBits = (ahoraMs / anchoMs) & MASCARA_EPOCA;
+            long total = 0;
+            for (int i = 0; i < valores.length(); i++) {
+                long valor = valores.get(i);
+                long antiguedad = (epocaBits - (valor & MASCARA_EPOCA)) & MASCARA_EPOCA;
+                if (antiguedad < ranuras) {
+                    total += valor >>> BITS_EPOCA;
+                }
+            }
+            return total;
+        }
+
+        void escribir(DataOutputStream salida) throws IOException {
+            for (int i = 0; i < valores.length(); i++) {
+                salida.writeLong(valores.get(i));
+            }
+        }
+
+        // Solo se recuperan ranuras con datos; una ranura ya escrita tras el arranque no se pisa
+        void leer(DataInputStream entrada) throws IOException {
+            for (int i = 0; i < valores.length(); i++) {
+                long guardado = entrada.readLong();
+                if (guardado != 0) {
+                    valores.compareAndSet(i, 0, guardado);
+                }
+            }
+        }
+    }
+}
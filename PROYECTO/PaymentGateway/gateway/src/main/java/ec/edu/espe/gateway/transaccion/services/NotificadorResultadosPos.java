@@ -0,0 +1,186 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
+import ec.edu.espe.gateway.transaccion.client.PosResultadoClient;
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Notifica a los POS el resultado (AUT/REC) de sus transacciones.
+ * Los resultados se agrupan por el endpoint del POS que atiende a cada terminal
+ * (GTW_POS_COMERCIO.DESTINO, o gateway.pos.url si no tiene uno propio) y se envían en lote cuando
+ * el lote se llena o cuando el resultado más antiguo alcanza el retraso máximo. Un lote fallido se
+ * reintenta con espera exponencial; tras los intentos máximos se descarta y el POS puede consultar
+ * el estado en GET /api/transacciones/{codigoUnico}/estado.
+ * La tarea programada solo reparte: los envíos corren en hilos virtuales propios, uno a la vez por
+ * endpoint, para que un POS lento o caído no retenga el planificador que comparten las demás tareas.
+ *
+ * La cola vive solo en memoria: los resultados aún no enviados cuando la instancia se detiene o
+ * cae se pierden. No se persiste porque el estado de cada transacción ya está en la base y la
+ * consulta de estado anterior es la vía de recuperación del POS.
+ */
+@Service
+public class NotificadorResultadosPos {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificadorResultadosPos.class);
+
+    private final PosResultadoClient posResultadoClient;
+    private final RegistroUltimoUsoPos terminales;
+    private final String destinoPorDefecto;
+    private final int loteMaximo;
+    private final long retrasoMaximoMs;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+    private final int intentosMaximos;
+    private final Map<String, PendientesPos> pendientesPorDestino = new ConcurrentHashMap<>();
+    private final ExecutorService envios = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("notificaciones-pos-", 0).factory());
+
+    public NotificadorResultadosPos(PosResultadoClient posResultadoClient, RegistroUltimoUsoPos terminales,
+            @Value("${gateway.pos.url:http://localhost:8082}") String destinoPorDefecto,
+            @Value("${gateway.pos.notificaciones.lote-maximo:200}") int loteMaximo,
+            @Value("${gateway.pos.notificaciones.retraso-maximo-ms:500}") long retrasoMaximoMs,
+            @Value("${gateway.pos.notificaciones.espera-base-ms:1000}") long esperaBaseMs,
+            @Value("${gateway.pos.notificaciones.espera-maxima-ms:60000}") long esperaMaximaMs,
+            @Value("${gateway.pos.notificaciones.intentos-maximos:8}") int intentosMaximos) {
+        this.posResultadoClient = posResultadoClient;
+        this.terminales = terminales;
+        this.destinoPorDefecto = destinoPorDefecto;
+        this.loteMaximo = loteMaximo;
+        this.retrasoMaximoMs = retrasoMaximoMs;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.intentosMaximos = intentosMaximos;
+    }
+
+    public void encolar(PosComercioPK terminal, String codigoUnicoTransaccion, String estado) {
+        if (terminal == null || terminal.getCodigo() == null || codigoUnicoTransaccion == null) {
+            return;
+        }
+        String destino = terminales.destinoDe(terminal);
+        pendientesPorDestino.computeIfAbsent(destino != null ? destino : destinoPorDefecto,
+                clave -> new PendientesPos()).agregar(new EstadoPagoDTO(codigoUnicoTransaccion, estado));
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.pos.notificaciones.intervalo-ms:100}")
+    public void enviarLotes() {
+        long ahora = System.currentTimeMillis();
+        pendientesPorDestino.forEach((destino, pendientes) -> {
+            if (!pendientes.enviando.compareAndSet(false, true)) {
+                return;
+            }
+            if (pendientes.listoParaEnviar(ahora)) {
+                envios.execute(() -> enviarPendientes(destino, ahora));
+            } else {
+                pendientes.enviando.set(false);
+            }
+        });
+    }
+
+    // Envía los lotes listos de un endpoint hasta vaciarlo o hasta que un envío falle
+    void enviarPendientes(String destino, long ahora) {
+        PendientesPos pendientes = pendientesPorDestino.get(destino);
+        try {
+            while (pendientes.listoParaEnviar(ahora)) {
+                List<EstadoPagoDTO> lote = pendientes.tomarLote();
+                if (lote.isEmpty() || !enviar(destino, pendientes, lote, ahora)) {
+                    break;
+                }
+            }
+        } finally {
+            pendientes.enviando.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        envios.shutdownNow();
+    }
+
+    private boolean enviar(String destino, PendientesPos pendientes, List<EstadoPagoDTO> lote, long ahora) {
+        try {
+            posResultadoClient.enviarResultados(URI.create(destino), lote);
+            pendientes.intentos = 0;
+            log.debug("Lote de {} resultados enviado al POS {}", lote.size(), destino);
+            return true;
+        } catch (Exception e) {
+            pendientes.intentos++;
+            if (pendientes.intentos > intentosMaximos) {
+                log.error("Se descartan {} resultados para el POS {} tras {} intentos: {}",
+                        lote.size(), destino, intentosMaximos, e.getMessage());
+                pendientes.intentos = 0;
+                return false;
+            }
+            long espera = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(pendientes.intentos - 1, 16));
+            espera += ThreadLocalRandom.current().nextLong(espera / 4 + 1);
+            pendientes.reintento = lote;
+            pendientes.proximoIntento = ahora + espera;
+            log.warn("Error al enviar {} resultados al POS {} (intento {}), reintento en {} ms: {}",
+                    lote.size(), destino, pendientes.intentos, espera, e.getMessage());
+            return false;
+        }
+    }
+
+    // Los campos de reintento solo los usa quien tiene la bandera enviando; la cola admite productores
+    // concurrentes
+    private final class PendientesPos {
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final ConcurrentLinkedQueue<EstadoPagoDTO> cola = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger tamanio = new AtomicInteger();
+        private volatile long primerEncolado;
+        private List<EstadoPagoDTO> reintento;
+        private long proximoIntento;
+        private int intentos;
+
+        void agregar(EstadoPagoDTO resultado) {
+            cola.offer(resultado);
+            if (tamanio.getAndIncrement() == 0) {
+                primerEncolado = System.currentTimeMillis();
+            }
+        }
+
+        boolean listoParaEnviar(long ahora) {
+            if (ahora < proximoIntento) {
+                return false;
+            }
+            if (reintento != null) {
+                return true;
+            }
+            int pendientes = tamanio.get();
+            return pendientes >= loteMaximo || (pendientes > 0 && ahora - primerEncolado >= retrasoMaximoMs);
+        }
+
+        List<EstadoPagoDTO> tomarLote() {
+            if (reintento != null) {
+                List<EstadoPagoDTO> lote = reintento;
+                reintento = null;
+                return lote;
+            }
+            List<EstadoPagoDTO> lote = new ArrayList<>(Math.min(tamanio.get(), loteMaximo));
+            EstadoPagoDTO resultado;
+            while (lote.size() < loteMaximo && (resultado = cola.poll()) != null) {
+                lote.add(resultado);
+            }
+            tamanio.addAndGet(-lote.size());
+            return lote;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import ec.edu.espe.gateway.seguridad.services.SeguridadGatewayService;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+@Service
+public class PagoCifradoService {
+
+    private final SeguridadGatewayService seguridadGatewayService;
+    // Lector precompilado para Transaccion: el JSON descifrado se lee directo al modelo
+    private final ObjectReader lectorTransaccion;
+
+    public PagoCifradoService(SeguridadGatewayService seguridadGatewayService, ObjectMapper objectMapper) {
+        this.seguridadGatewayService = seguridadGatewayService;
+        this.lectorTransaccion = objectMapper.readerFor(Transaccion.class);
+    }
+
+    public Transaccion descifrar(String encryptedData) {
+        if (encryptedData == null || encryptedData.isBlank()) {
+            throw new IllegalArgumentException("Los datos encriptados son requeridos");
+        }
+        // Con el llavero vacío (recién arrancado) se carga de la base antes de descifrar
+        byte[] contenido = seguridadGatewayService.desencriptarBytes(encryptedData);
+        Transaccion transaccion;
+        try {
+            transaccion = lectorTransaccion.readValue(contenido);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("El contenido del pago no es válido: " + e.getMessage());
+        }
+        if (transaccion.getComercio() == null || transaccion.getFacturacionComercio() == null) {
+            throw new IllegalArgumentException("El pago debe indicar comercio y facturación");
+        }
+        return transaccion;
+    }
+}
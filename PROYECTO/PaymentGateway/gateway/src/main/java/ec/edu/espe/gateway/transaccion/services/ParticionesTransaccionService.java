@@ -0,0 +1,233 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Particionado mensual por RANGE COLUMNS(FECHA) de GTW_TRANSACCION, alineado con los períodos
+ * de facturación. Cada partición se llama pAAAAMM y existe una partición pmax vacía para que
+ * ninguna inserción falle; las particiones futuras se crean con REORGANIZE de pmax, que es
+ * inmediato mientras pmax no tenga filas.
+ *
+ * Una partición fuera de la retención se separa (CONVERT PARTITION ... TO TABLE, MariaDB 10.7+)
+ * o se elimina solo si todas las facturaciones de su mes están PAG y no contiene transacciones
+ * recurrentes activas, que sirven de plantilla para las siguientes ejecuciones. Eliminar exige
+ * además que la partición esté vacía: ArchivoTransaccionesService borra de la tabla lo que ya
+ * escribió en el archivo frío, así que cualquier fila que quede no está archivada en otro lado.
+ *
+ * La clave primaria pasa a (COD_TRANSACCION, FECHA) porque MariaDB exige la columna de partición
+ * en toda clave única; ver el comentario de Transaccion sobre el costo de buscar solo por código.
+ *
+ * Convertir una tabla existente la reconstruye por completo, por eso solo se hace con
+ * gateway.particiones.convertir-tabla=true (en una ventana de mantenimiento).
+ *
+ * El mantenimiento corre solo en el cron y no al arrancar: con varias instancias cada despliegue
+ * ejecutaría el DDL a la vez. Además solo lo ejecuta la instancia que obtiene el bloqueo GET_LOCK
+ * de la base; las demás omiten esa ejecución. Mientras tanto las inserciones caen en pmax.
+ */
+@Service
+public class ParticionesTransaccionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticionesTransaccionService.class);
+
+    public static final String PURGA_SEPARAR = "SEPARAR";
+    public static final String PURGA_ELIMINAR = "ELIMINAR";
+    public static final String PURGA_NINGUNA = "NINGUNA";
+
+    private static final String TABLA = "GTW_TRANSACCION";
+    private static final String BLOQUEO = "gateway.particiones-transaccion";
+    private static final String PARTICION_MAXIMA = "pmax";
+    private static final DateTimeFormatter FORMATO_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelanto;
+    private final int retencionMeses;
+    private final String purga;
+    private final boolean convertirTabla;
+
+    public ParticionesTransaccionService(JdbcTemplate jdbcTemplate,
+            @Value("${gateway.particiones.meses-adelanto:3}") int mesesAdelanto,
+            @Value("${gateway.particiones.retencion-meses:24}") int retencionMeses,
+            @Value("${gateway.particiones.purga:SEPARAR}") String purga,
+            @Value("${gateway.particiones.convertir-tabla:false}") boolean convertirTabla) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelanto = mesesAdelanto;
+        this.retencionMeses = retencionMeses;
+        this.purga = purga;
+        this.convertirTabla = convertirTabla;
+    }
+
+    @Scheduled(cron = "${gateway.particiones.cron:0 30 2 * * *}")
+    public void mantener() {
+        Boolean mantenido = jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion -> {
+            if (!bloquear(conexion, "SELECT GET_LOCK(?, 0)")) {
+                return false;
+            }
+            try {
+                mantenerParticiones();
+            } finally {
+                bloquear(conexion, "SELECT RELEASE_LOCK(?)");
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(mantenido)) {
+            log.info("Otra instancia está manteniendo las particiones de {}; se omite esta ejecución", TABLA);
+        }
+    }
+
+    private void mantenerParticiones() {
+        try {
+            List<String> particiones = obtenerParticiones();
+            if (particiones.isEmpty()) {
+                if (!convertirTabla) {
+                    log.warn("{} no está particionada; activar gateway.particiones.convertir-tabla para convertirla", TABLA);
+                    return;
+                }
+                convertir();
+                particiones = obtenerParticiones();
+            }
+            crearParticionesFuturas(particiones);
+            purgarParticionesVencidas(particiones);
+        } catch (Exception e) {
+            log.error("Error en el mantenimiento de particiones de {}: {}", TABLA, e.getMessage());
+        }
+    }
+
+    private static boolean bloquear(Connection conexion, String sql) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setString(1, BLOQUEO);
+            try (ResultSet resultado = sentencia.executeQuery()) {
+                return resultado.next() && resultado.getInt(1) == 1;
+            }
+        }
+    }
+
+    private List<String> obtenerParticiones() {
+        return jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                String.class, TABLA);
+    }
+
+    // Las tablas particionadas no admiten claves foráneas y toda clave única debe incluir FECHA
+    private void convertir() {
+        List<String> clavesForaneas = jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS "
+                        + "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                String.class, TABLA);
+        for (String claveForanea : clavesForaneas) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP FOREIGN KEY `" + claveForanea + "`");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP PRIMARY KEY, ADD PRIMARY KEY (COD_TRANSACCION, FECHA)");
+
+        LocalDate fechaMinima = jdbcTemplate.queryForObject("SELECT DATE(MIN(FECHA)) FROM " + TABLA, LocalDate.class);
+        YearMonth desde = fechaMinima == null ? YearMonth.now() : YearMonth.from(fechaMinima);
+        StringJoiner definicion = new StringJoiner(", ",
+                "ALTER TABLE " + TABLA + " PARTITION BY RANGE COLUMNS(FECHA) (", ")");
+        for (YearMonth mes = desde; !mes.isAfter(YearMonth.now().plusMonths(mesesAdelanto)); mes = mes.plusMonths(1)) {
+            definicion.add(definirParticion(mes));
+        }
+        definicion.add("PARTITION " + PARTICION_MAXIMA + " VALUES LESS THAN (MAXVALUE)");
+        log.info("Convirtiendo {} a particiones mensuales desde {}", TABLA, desde);
+        jdbcTemplate.execute(definicion.toString());
+    }
+
+    private void crearParticionesFuturas(List<String> particiones) {
+        YearMonth ultima = particiones.stream()
+                .filter(nombre -> !PARTICION_MAXIMA.equals(nombre))
+                .map(ParticionesTransaccionService::mesDeParticion)
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.now().minusMonths(1));
+        YearMonth hasta = YearMonth.now().plusMonths(mesesAdelanto);
+        if (!ultima.isBefore(hasta)) {
+            return;
+        }
+        StringJoiner nuevas = new StringJoiner(", ",
+                "ALTER TABLE " + TABLA + " REORGANIZE PARTITION " + PARTICION_MAXIMA + " INTO (", ")");
+        for (YearMonth mes = ultima.plusMonths(1); !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            nuevas.add(definirParticion(mes));
+        }
+        nuevas.add("PARTITION " + PARTICION_MAXIMA + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute(nuevas.toString());
+        log.info("Particiones de {} creadas hasta {}", TABLA, hasta);
+    }
+
+    private void purgarParticionesVencidas(List<String> particiones) {
+        if (PURGA_NINGUNA.equals(purga)) {
+            return;
+        }
+        YearMonth limite = YearMonth.now().minusMonths(retencionMeses);
+        List<String> vencidas = new ArrayList<>();
+        for (String particion : particiones) {
+            if (!PARTICION_MAXIMA.equals(particion) && mesDeParticion(particion).isBefore(limite)) {
+                vencidas.add(particion);
+            }
+        }
+        for (String particion : vencidas) {
+            YearMonth mes = mesDeParticion(particion);
+            if (!puedePurgarse(particion, mes)) {
+                log.info("Partición {} de {} fuera de retención pero con facturaciones sin pagar o recurrencias activas",
+                        particion, TABLA);
+                continue;
+            }
+            if (PURGA_ELIMINAR.equals(purga)) {
+                long sinArchivar = contarFilas(particion);
+                if (sinArchivar > 0) {
+                    log.warn("Partición {} de {} no se elimina: {} transacciones sin archivar",
+                            particion, TABLA, sinArchivar);
+                    continue;
+                }
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP PARTITION " + particion);
+                log.info("Partición {} de {} eliminada", particion, TABLA);
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " CONVERT PARTITION " + particion
+                        + " TO TABLE " + TABLA + "_" + particion.substring(1));
+                log.info("Partición {} de {} separada en la tabla {}_{}", particion, TABLA, TABLA, particion.substring(1));
+            }
+        }
+    }
+
+    private boolean puedePurgarse(String particion, YearMonth mes) {
+        Integer facturacionesPendientes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM GTW_FACTURACION_COMERCIO WHERE FECHA_INICIO <= ? AND FECHA_FIN >= ? AND ESTADO <> 'PAG'",
+                Integer.class, mes.atEndOfMonth(), mes.atDay(1));
+        if (facturacionesPendientes == null || facturacionesPendientes > 0) {
+            return false;
+        }
+        List<Integer> recurrentesActivas = jdbcTemplate.queryForList(
+                "SELECT 1 FROM " + TABLA + " PARTITION (" + particion + ") WHERE TIPO = 'REC' AND ESTADO = 'ENV' LIMIT 1",
+                Integer.class);
+        return recurrentesActivas.isEmpty();
+    }
+
+    private long contarFilas(String particion) {
+        Long filas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLA + " PARTITION (" + particion + ")", Long.class);
+        return filas == null ? 0 : filas;
+    }
+
+    private static String definirParticion(YearMonth mes) {
+        return "PARTITION " + mes.format(FORMATO_PARTICION) + " VALUES LESS THAN ('" + mes.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static YearMonth mesDeParticion(String particion) {
+        return YearMonth.parse(particion, FORMATO_PARTICION);
+    }
+}
@@ -0,0 +1,182 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.transaccion.model.ValidacionTransaccionDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Procesador de autorizaciones simulado, embebido en el gateway, para medir el flujo de autorización
+ * sin el servicio externo. Por cada pago decide, en este orden:
+ * - timeout: no responde hasta timeout-ms (por encima del read-timeout del cliente) y luego da 504;
+ * - error: 500 tras la latencia simulada;
+ * - reglas por marca: marca sin regla, tarjeta vencida, CVV con longitud distinta a la de la marca
+ * (4 en AMEX, 3 en el resto) o monto sobre el máximo se declinan con 402; si no, se aprueba con la
+ * probabilidad de la marca.
+ * La latencia sale de la distribución configurada (fija, uniforme, exponencial o lognormal) acotada
+ * al máximo. Con una semilla distinta de 0 el azar se deriva del código único de la transacción, así
+ * un mismo pago recibe siempre la misma respuesta sin importar el orden de llegada.
+ * Publica gateway.procesador.simulado con tag resultado.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.procesador.simulado.habilitado", havingValue = "true")
+public class ProcesadorSimulado {
+
+    public static final String METRICA_RESULTADOS = "gateway.procesador.simulado";
+
+    public static final String DISTRIBUCION_FIJA = "fija";
+    public static final String DISTRIBUCION_UNIFORME = "uniforme";
+    public static final String DISTRIBUCION_EXPONENCIAL = "exponencial";
+    public static final String DISTRIBUCION_LOGNORMAL = "lognormal";
+
+    private static final DateTimeFormatter FORMATO_EXPIRACION = DateTimeFormatter.ofPattern("MM/yy");
+
+    private final MeterRegistry registry;
+    private final long semilla;
+    private final String distribucion;
+    private final double latenciaMediaMs;
+    private final double dispersion;
+    private final long latenciaMaximaMs;
+    private final double tasaError;
+    private final double tasaTimeout;
+    private final long timeoutMs;
+    private final Map<String, ReglaMarca> reglas;
+
+    public ProcesadorSimulado(MeterRegistry registry,
+            @Value("${gateway.procesador.simulado.semilla:0}") long semilla,
+            @Value("${gateway.procesador.simulado.latencia.distribucion:lognormal}") String distribucion,
+            @Value("${gateway.procesador.simulado.latencia.media-ms:20}") double latenciaMediaMs,
+            @Value("${gateway.procesador.simulado.latencia.dispersion:0.5}") double dispersion,
+            @Value("${gateway.procesador.simulado.latencia.maxima-ms:2000}") long latenciaMaximaMs,
+            @Value("${gateway.procesador.simulado.tasa-error:0}") double tasaError,
+            @Value("${gateway.procesador.simulado.tasa-timeout:0}") double tasaTimeout,
+            @Value("${gateway.procesador.simulado.timeout-ms:15000}") long timeoutMs,
+            @Value("${gateway.procesador.simulado.reglas:VISA:0.97:10000,MSCD:0.96:10000,AMEX:0.93:5000,DINE:0.9:3000}") String reglas) {
+        if (!DISTRIBUCION_FIJA.equals(distribucion) && !DISTRIBUCION_UNIFORME.equals(distribucion)
+                && !DISTRIBUCION_EXPONENCIAL.equals(distribucion) && !DISTRIBUCION_LOGNORMAL.equals(distribucion)) {
+            throw new IllegalArgumentException("Distribución de latencia inválida: " + distribucion);
+        }
+        this.registry = registry;
+        this.semilla = semilla;
+        this.distribucion = distribucion;
+        this.latenciaMediaMs = latenciaMediaMs;
+        this.dispersion = dispersion;
+        this.latenciaMaximaMs = latenciaMaximaMs;
+        this.tasaError = tasaError;
+        this.tasaTimeout = tasaTimeout;
+        this.timeoutMs = timeoutMs;
+        this.reglas = leerReglas(reglas);
+    }
+
+    // Formato marca:probabilidad de aprobación:monto máximo, separados por comas
+    private static Map<String, ReglaMarca> leerReglas(String valor) {
+        Map<String, ReglaMarca> reglas = new HashMap<>();
+        for (String elemento : valor.split(",")) {
+            if (elemento.isBlank()) {
+                continue;
+            }
+            String[] partes = elemento.trim().split(":");
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Regla de marca inválida: " + elemento);
+            }
+            reglas.put(partes[0].trim(), new ReglaMarca(Double.parseDouble(partes[1].trim()),
+                    Double.parseDouble(partes[2].trim())));
+        }
+        return reglas;
+    }
+
+    public Respuesta procesar(ValidacionTransaccionDTO transaccion) throws InterruptedException {
+        RandomGenerator aleatorio = aleatorio(transaccion.getCodigoUnicoTransaccion());
+        if (aleatorio.nextDouble() < tasaTimeout) {
+            Thread.sleep(timeoutMs);
+            return contar(new Respuesta(HttpStatus.GATEWAY_TIMEOUT, "Tiempo de espera agotado", "timeout"));
+        }
+        boolean error = aleatorio.nextDouble() < tasaError;
+        double sorteoAprobacion = aleatorio.nextDouble();
+        long latencia = latencia(aleatorio);
+        if (latencia > 0) {
+            Thread.sleep(latencia);
+        }
+        if (error) {
+            return contar(new Respuesta(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno del procesador", "error"));
+        }
+        String motivo = motivoRechazo(transaccion, sorteoAprobacion);
+        if (motivo != null) {
+            return contar(new Respuesta(HttpStatus.PAYMENT_REQUIRED, "Transacción "
+                    + transaccion.getCodigoUnicoTransaccion() + " declinada: " + motivo, "declinada"));
+        }
+        return contar(new Respuesta(HttpStatus.OK, "Transacción " + transaccion.getCodigoUnicoTransaccion()
+                + " aprobada", "aprobada"));
+    }
+
+    private String motivoRechazo(ValidacionTransaccionDTO transaccion, double sorteoAprobacion) {
+        ReglaMarca regla = transaccion.getMarca() == null ? null : reglas.get(transaccion.getMarca());
+        if (regla == null) {
+            return "marca no soportada";
+        }
+        if (vencida(transaccion.getFechaExpiracionTarjeta())) {
+            return "tarjeta vencida";
+        }
+        int longitudCvv = "AMEX".equals(transaccion.getMarca()) ? 4 : 3;
+        if (transaccion.getCvv() == null || transaccion.getCvv().length() != longitudCvv) {
+            return "CVV inválido";
+        }
+        if (transaccion.getMonto() == null || transaccion.getMonto() > regla.montoMaximo()) {
+            return "monto excede el máximo de la marca";
+        }
+        if (sorteoAprobacion >= regla.probabilidadAprobacion()) {
+            return "fondos insuficientes";
+        }
+        return null;
+    }
+
+    private static boolean vencida(String fechaExpiracion) {
+        if (fechaExpiracion == null) {
+            return true;
+        }
+        try {
+            return YearMonth.parse(fechaExpiracion, FORMATO_EXPIRACION).isBefore(YearMonth.now());
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    private long latencia(RandomGenerator aleatorio) {
+        double valor = switch (distribucion) {
+            case DISTRIBUCION_FIJA -> latenciaMediaMs;
+            case DISTRIBUCION_UNIFORME -> latenciaMediaMs * (1 + dispersion * (2 * aleatorio.nextDouble() - 1));
+            case DISTRIBUCION_EXPONENCIAL -> latenciaMediaMs * aleatorio.nextExponential();
+            default -> latenciaMediaMs * Math.exp(dispersion * aleatorio.nextGaussian());
+        };
+        return Math.max(0, Math.min(latenciaMaximaMs, Math.round(valor)));
+    }
+
+    private RandomGenerator aleatorio(String codigoUnico) {
+        if (semilla == 0 || codigoUnico == null) {
+            return ThreadLocalRandom.current();
+        }
+        return new SplittableRandom(semilla * 31 + codigoUnico.hashCode());
+    }
+
+    private Respuesta contar(Respuesta respuesta) {
+        registry.counter(METRICA_RESULTADOS, "resultado", respuesta.resultado()).increment();
+        return respuesta;
+    }
+
+    private record ReglaMarca(double probabilidadAprobacion, double montoMaximo) {
+    }
+
+    public record Respuesta(HttpStatus estado, String mensaje, String resultado) {
+    }
+}
@@ -13,7 +13,11 @@ import jakarta.persistence.EntityNotFoundException;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -36,34 +40,44 @@ public class RecurrenceService {
         LocalDateTime fechaActual = LocalDateTime.now();
         List<Transaccion> transaccionesRecurrentes = transaccionRepository.findRecurrentTransactionsToProcess(fechaActual);
 
+        // Las nuevas transacciones se insertan juntas al final para que salgan en lotes JDBC
+        List<Transaccion> nuevasTransacciones = new ArrayList<>();
+        Map<Integer, Optional<FacturacionComercio>> facturacionPorComercio = new HashMap<>();
         for (Transaccion transaccionRecurrente : transaccionesRecurrentes) {
             try {
-                procesarTransaccionRecurrente(transaccionRecurrente, fechaActual);
+                Transaccion nuevaTransaccion = procesarTransaccionRecurrente(transaccionRecurrente, fechaActual,
+                        facturacionPorComercio);
+                if (nuevaTransaccion != null) {
+                    nuevasTransacciones.add(nuevaTransaccion);
+                }
             } catch (Exception e) {
                 System.err.println("Error al procesar transacción recurrente " + 
                                  transaccionRecurrente.getCodigo() + ": " + e.getMessage());
             }
         }
+        transaccionRepository.saveAll(nuevasTransacciones);
     }
 
-    private void procesarTransaccionRecurrente(Transaccion transaccionRecurrente, LocalDateTime fechaActual) {
+    private Transaccion procesarTransaccionRecurrente(Transaccion transaccionRecurrente, LocalDateTime fechaActual,
+            Map<Integer, Optional<FacturacionComercio>> facturacionPorComercio) {
         // Validar estado del comercio
         Comercio comercio = transaccionRecurrente.getComercio();
         if (!"ACT".equals(comercio.getEstado())) {
             detenerRecurrencia(transaccionRecurrente, "Comercio inactivo o suspendido");
-            return;
+            return null;
         }
 
-        // Obtener facturación activa
-        FacturacionComercio facturacionActiva = facturacionComercioRepository
-                .findByComercioAndEstado(comercio, "ACT")
-                .stream()
-                .findFirst()
+        // Obtener facturación activa (una consulta por comercio)
+        FacturacionComercio facturacionActiva = facturacionPorComercio
+                .computeIfAbsent(comercio.getCodigo(), codigo -> facturacionComercioRepository
+                        .findByComercioAndEstado(comercio, "ACT")
+                        .stream()
+                        .findFirst())
                 .orElse(null);
 
         if (facturacionActiva == null) {
             detenerRecurrencia(transaccionRecurrente, "No existe facturación activa");
-            return;
+            return null;
         }
 
         // Crear nueva transacción
@@ -80,10 +94,9 @@ public class RecurrenceService {
             transaccionRecurrente.getDetalle(), 
             transaccionRecurrente.getCodigoUnicoTransaccion()));
 
-        transaccionRepository.save(nuevaTransaccion);
-
         // Actualizar próxima fecha de ejecución y registro histórico
         actualizarFechaEjecucion(transaccionRecurrente, nuevaTransaccion);
+        return nuevaTransaccion;
     }
 
     private void detenerRecurrencia(Transaccion transaccion, String motivo) {
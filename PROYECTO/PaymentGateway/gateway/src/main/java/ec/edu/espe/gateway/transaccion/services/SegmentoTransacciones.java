@@ -0,0 +1,312 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo de transacciones archivadas de un comercio en un mes, de solo lectura una vez escrito.
+ *
+ * Formato: cabecera (filas, comercio, fecha mínima y máxima), directorio de columnas, índice
+ * ordenado de hashes de codigoUnicoTransaccion y después una columna comprimida (Deflater) por
+ * campo. El índice y la cabecera no están comprimidos para poder buscar directamente sobre el
+ * archivo mapeado en memoria; solo se descomprimen las columnas al leer filas.
+ */
+public final class SegmentoTransacciones {
+
+    private static final int MAGICO = 0x47545741; // "GTWA"
+    private static final short VERSION = 1;
+    private static final int COLUMNAS = 14;
+    private static final int TAMANIO_CABECERA = 4 + 2 + 4 + 4 + 8 + 8 + 2;
+    private static final int TAMANIO_DIRECTORIO = COLUMNAS * 12;
+    private static final int TAMANIO_ENTRADA_INDICE = 8 + 4;
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+    static final String TEMPORAL = ".tmp";
+
+    private final Path archivo;
+    private final MappedByteBuffer datos;
+    private final int filas;
+    private final int codigoComercio;
+    private final LocalDateTime fechaMinima;
+    private final LocalDateTime fechaMaxima;
+
+    private SegmentoTransacciones(Path archivo, MappedByteBuffer datos) {
+        this.archivo = archivo;
+        this.datos = datos;
+        if (datos.getInt(0) != MAGICO || datos.getShort(4) != VERSION) {
+            throw new IllegalStateException("Archivo de transacciones no reconocido: " + archivo);
+        }
+        this.filas = datos.getInt(6);
+        this.codigoComercio = datos.getInt(10);
+        this.fechaMinima = LocalDateTime.ofEpochSecond(datos.getLong(14), 0, ZoneOffset.UTC);
+        this.fechaMaxima = LocalDateTime.ofEpochSecond(datos.getLong(22), 0, ZoneOffset.UTC);
+    }
+
+    public static SegmentoTransacciones abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return new SegmentoTransacciones(archivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    // Escribe en un temporal de nombre único y lo renombra, así un lector nunca ve un archivo a
+    // medias y dos escritores no comparten el temporal
+    public static void escribir(Path archivo, int codigoComercio, List<Transaccion> transacciones) throws IOException {
+        List<Transaccion> ordenadas = new ArrayList<>(transacciones);
+        ordenadas.sort(Comparator.comparing(Transaccion::getFecha));
+
+        ByteArrayOutputStream[] columnas = new ByteArrayOutputStream[COLUMNAS];
+        DataOutputStream[] salidas = new DataOutputStream[COLUMNAS];
+        for (int i = 0; i < COLUMNAS; i++) {
+            columnas[i] = new ByteArrayOutputStream();
+            salidas[i] = new DataOutputStream(columnas[i]);
+        }
+        long[][] indice = new long[ordenadas.size()][];
+        for (int fila = 0; fila < ordenadas.size(); fila++) {
+            Transaccion t = ordenadas.get(fila);
+            salidas[0].writeInt(t.getCodigo());
+            salidas[1].writeInt(t.getFacturacionComercio().getCodigo());
+            salidas[2].writeUTF(t.getTipo());
+            salidas[3].writeUTF(t.getMarca());
+            salidas[4].writeUTF(t.getDetalle());
+            salidas[5].writeUTF(t.getMonto().toPlainString());
+            salidas[6].writeUTF(t.getCodigoUnicoTransaccion());
+            salidas[7].writeLong(t.getFecha().toEpochSecond(ZoneOffset.UTC));
+            salidas[7].writeInt(t.getFecha().getNano());
+            salidas[8].writeUTF(t.getEstado());
+            salidas[9].writeUTF(t.getMoneda());
+            salidas[10].writeUTF(t.getPais());
+            salidas[11].writeUTF(t.getTarjeta());
+            salidas[12].writeLong(t.getFechaEjecucionRecurrencia() == null ? SIN_FECHA
+                    : t.getFechaEjecucionRecurrencia().toEpochDay());
+            salidas[13].writeLong(t.getFechaFinRecurrencia() == null ? SIN_FECHA
+                    : t.getFechaFinRecurrencia().toEpochDay());
+            indice[fila] = new long[] { hash(t.getCodigoUnicoTransaccion()), fila };
+        }
+        Arrays.sort(indice, Comparator.comparingLong(entrada -> entrada[0]));
+
+        byte[][] comprimidas = new byte[COLUMNAS][];
+        int[] originales = new int[COLUMNAS];
+        for (int i = 0; i < COLUMNAS; i++) {
+            byte[] original = columnas[i].toByteArray();
+            originales[i] = original.length;
+            comprimidas[i] = comprimir(original);
+        }
+
+        int inicioColumnas = TAMANIO_CABECERA + TAMANIO_DIRECTORIO + ordenadas.size() * TAMANIO_ENTRADA_INDICE;
+        int total = inicioColumnas;
+        for (byte[] comprimida : comprimidas) {
+            total += comprimida.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        buffer.putInt(MAGICO).putShort(VERSION).putInt(ordenadas.size()).putInt(codigoComercio);
+        buffer.putLong(ordenadas.isEmpty() ? 0 : ordenadas.get(0).getFecha().toEpochSecond(ZoneOffset.UTC));
+        buffer.putLong(ordenadas.isEmpty() ? 0
+                : ordenadas.get(ordenadas.size() - 1).getFecha().toEpochSecond(ZoneOffset.UTC) + 1);
+        buffer.putShort((short) COLUMNAS);
+        int desplazamiento = inicioColumnas;
+        for (int i = 0; i < COLUMNAS; i++) {
+            buffer.putInt(desplazamiento).putInt(comprimidas[i].length).putInt(originales[i]);
+            desplazamiento += comprimidas[i].length;
+        }
+        for (long[] entrada : indice) {
+            buffer.putLong(entrada[0]).putInt((int) entrada[1]);
+        }
+        for (byte[] comprimida : comprimidas) {
+            buffer.put(comprimida);
+        }
+        buffer.flip();
+
+        Files.createDirectories(archivo.getParent());
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + "." + UUID.randomUUID() + TEMPORAL);
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(true);
+            }
+            Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    public int getFilas() {
+        return filas;
+    }
+
+    public int getCodigoComercio() {
+        return codigoComercio;
+    }
+
+    // Rango semiabierto [desde, hasta), igual que las consultas sobre la tabla; fechaMaxima es exclusiva
+    public boolean cubre(LocalDateTime desde, LocalDateTime hasta) {
+        return filas > 0 && fechaMinima.isBefore(hasta) && fechaMaxima.isAfter(desde);
+    }
+
+    public Transaccion buscar(String codigoUnico) {
+        long buscado = hash(codigoUnico);
+        int inicioIndice = TAMANIO_CABECERA + TAMANIO_DIRECTORIO;
+        int bajo = 0;
+        int alto = filas - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            long valor = datos.getLong(inicioIndice + medio * TAMANIO_ENTRADA_INDICE);
+            if (valor < buscado) {
+                bajo = medio + 1;
+            } else if (valor > buscado) {
+                alto = medio - 1;
+            } else {
+                // Retrocede al primer hash igual y verifica el código contra la columna
+                while (medio > 0 && datos.getLong(inicioIndice + (medio - 1) * TAMANIO_ENTRADA_INDICE) == buscado) {
+                    medio--;
+                }
+                List<Transaccion> todas = null;
+                for (int i = medio; i < filas
+                        && datos.getLong(inicioIndice + i * TAMANIO_ENTRADA_INDICE) == buscado; i++) {
+                    if (todas == null) {
+                        todas = leerTodas();
+                    }
+                    Transaccion candidata = todas.get(datos.getInt(inicioIndice + i * TAMANIO_ENTRADA_INDICE + 8));
+                    if (codigoUnico.equals(candidata.getCodigoUnicoTransaccion())) {
+                        return candidata;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Hashes del índice en el orden del archivo (ascendente)
+    public long[] obtenerHashes() {
+        int inicioIndice = TAMANIO_CABECERA + TAMANIO_DIRECTORIO;
+        long[] hashes = new long[filas];
+        for (int i = 0; i < filas; i++) {
+            hashes[i] = datos.getLong(inicioIndice + i * TAMANIO_ENTRADA_INDICE);
+        }
+        return hashes;
+    }
+
+    public List<Transaccion> leer(LocalDateTime desde, LocalDateTime hasta) {
+        List<Transaccion> resultado = new ArrayList<>();
+        if (!cubre(desde, hasta)) {
+            return resultado;
+        }
+        for (Transaccion transaccion : leerTodas()) {
+            if (!transaccion.getFecha().isBefore(desde) && transaccion.getFecha().isBefore(hasta)) {
+                resultado.add(transaccion);
+            }
+        }
+        return resultado;
+    }
+
+    public List<Transaccion> leerTodas() {
+        try {
+            DataInputStream[] columnas = new DataInputStream[COLUMNAS];
+            for (int i = 0; i < COLUMNAS; i++) {
+                columnas[i] = new DataInputStream(new ByteArrayInputStream(descomprimir(i)));
+            }
+            Comercio comercio = new Comercio(codigoComercio);
+            List<Transaccion> transacciones = new ArrayList<>(filas);
+            for (int fila = 0; fila < filas; fila++) {
+                Transaccion t = new Transaccion(columnas[0].readInt());
+                t.setComercio(comercio);
+                t.setFacturacionComercio(new FacturacionComercio(columnas[1].readInt()));
+                t.setTipo(columnas[2].readUTF());
+                t.setMarca(columnas[3].readUTF());
+                t.setDetalle(columnas[4].readUTF());
+                t.setMonto(new BigDecimal(columnas[5].readUTF()));
+                t.setCodigoUnicoTransaccion(columnas[6].readUTF());
+                t.setFecha(LocalDateTime.ofEpochSecond(columnas[7].readLong(), columnas[7].readInt(), ZoneOffset.UTC));
+                t.setEstado(columnas[8].readUTF());
+                t.setMoneda(columnas[9].readUTF());
+                t.setPais(columnas[10].readUTF());
+                t.setTarjeta(columnas[11].readUTF());
+                long ejecucion = columnas[12].readLong();
+                t.setFechaEjecucionRecurrencia(ejecucion == SIN_FECHA ? null : LocalDate.ofEpochDay(ejecucion));
+                long fin = columnas[13].readLong();
+                t.setFechaFinRecurrencia(fin == SIN_FECHA ? null : LocalDate.ofEpochDay(fin));
+                transacciones.add(t);
+            }
+            return transacciones;
+        } catch (IOException | DataFormatException e) {
+            throw new RuntimeException("Error al leer el archivo de transacciones " + archivo + ": " + e.getMessage());
+        }
+    }
+
+    private byte[] descomprimir(int columna) throws DataFormatException {
+        int entrada = TAMANIO_CABECERA + columna * 12;
+        int desplazamiento = datos.getInt(entrada);
+        int longitud = datos.getInt(entrada + 4);
+        byte[] original = new byte[datos.getInt(entrada + 8)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(datos.slice(desplazamiento, longitud));
+            int leidos = 0;
+            while (leidos < original.length && !inflater.finished()) {
+                leidos += inflater.inflate(original, leidos, original.length - leidos);
+            }
+            return original;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] comprimir(byte[] original) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(original);
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, original.length / 4));
+            byte[] bloque = new byte[8192];
+            while (!deflater.finished()) {
+                salida.write(bloque, 0, deflater.deflate(bloque));
+            }
+            return salida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // FNV-1a de 64 bits; las colisiones se resuelven comparando el código completo
+    static long hash(String codigoUnico) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : codigoUnico.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -10,16 +10,25 @@ import ec.edu.espe.gateway.comercio.model.Comercio;
 import ec.edu.espe.gateway.comercio.model.PosComercio;
 import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
 import ec.edu.espe.gateway.comercio.repository.PosComercioRepository;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
 import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
 import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
 import ec.edu.espe.gateway.comercio.model.PosComercioPK;
 import ec.edu.espe.gateway.transaccion.client.ValidacionTransaccionClient;
+import ec.edu.espe.gateway.config.SoloLectura;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
@@ -35,28 +44,52 @@ public class TransaccionService {
     public static final String ESTADO_RECHAZADO = "REC";
     public static final String ESTADO_REVERSADO = "REV";
 
+    // Respuestas 4xx del procesador que no son un rechazo del pago y se reintentan más tarde
+    private static final int HTTP_TIMEOUT = 408;
+    private static final int HTTP_DEMASIADAS_PETICIONES = 429;
+
     private final TransaccionRepository transaccionRepository;
     private final ComercioRepository comercioRepository;
     private final PosComercioRepository posComercioRepository;
     private final FacturacionComercioRepository facturacionComercioRepository;
     private final ValidacionTransaccionClient validacionTransaccionClient;
     private final ObjectMapper objectMapper;
+    private final MetricasTransaccion metricas;
+    private final NotificadorResultadosPos notificadorResultadosPos;
+    private final ArchivoTransaccionesService archivoTransacciones;
+    private final RegistroUltimoUsoPos registroUltimoUso;
+    private final MotorVelocidad motorVelocidad;
+    private final TransactionTemplate transactionTemplate;
 
     public TransaccionService(TransaccionRepository transaccionRepository,
             ComercioRepository comercioRepository,
             PosComercioRepository posComercioRepository,
             FacturacionComercioRepository facturacionComercioRepository,
             ValidacionTransaccionClient validacionTransaccionClient,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            MetricasTransaccion metricas,
+            NotificadorResultadosPos notificadorResultadosPos,
+            ArchivoTransaccionesService archivoTransacciones,
+            RegistroUltimoUsoPos registroUltimoUso,
+            MotorVelocidad motorVelocidad,
+            TransactionTemplate transactionTemplate) {
         this.transaccionRepository = transaccionRepository;
         this.comercioRepository = comercioRepository;
         this.posComercioRepository = posComercioRepository;
         this.facturacionComercioRepository = facturacionComercioRepository;
         this.validacionTransaccionClient = validacionTransaccionClient;
         this.objectMapper = objectMapper;
+        this.metricas = metricas;
+        this.notificadorResultadosPos = notificadorResultadosPos;
+        this.archivoTransacciones = archivoTransacciones;
+        this.registroUltimoUso = registroUltimoUso;
+        this.motorVelocidad = motorVelocidad;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public Transaccion crearTransaccionPOS(Transaccion transaccion, String codigoPos) {
+        Timer.Sample muestra = metricas.iniciar();
+        String marca = transaccion.getMarca();
         try {
             LocalDateTime fechaActual = LocalDateTime.now();
 
@@ -65,24 +98,30 @@ public class TransaccionService {
             }
 
             // Validar POS
-            PosComercio pos = posComercioRepository.findById(new PosComercioPK(codigoPos, "POS"))
-                    .orElseThrow(() -> new EntityNotFoundException("POS no encontrado"));
+            PosComercio pos = metricas.medir(MetricasTransaccion.ETAPA_POS, marca, () -> posComercioRepository
+                    .findById(new PosComercioPK(codigoPos, "POS"))
+                    .orElseThrow(() -> new EntityNotFoundException("POS no encontrado")));
             if (!"ACT".equals(pos.getEstado())) {
                 throw new IllegalStateException("El POS debe estar activo para crear transacciones");
             }
 
             // Validar comercio
-            Comercio comercio = pos.getComercio();
-            if (!"ACT".equals(comercio.getEstado())) {
-                throw new IllegalStateException("El comercio debe estar activo para crear transacciones");
-            }
+            Comercio comercio = metricas.medir(MetricasTransaccion.ETAPA_COMERCIO, marca, () -> {
+                Comercio comercioPos = pos.getComercio();
+                if (!"ACT".equals(comercioPos.getEstado())) {
+                    throw new IllegalStateException("El comercio debe estar activo para crear transacciones");
+                }
+                return comercioPos;
+            });
 
             // Obtener facturación activa
-            FacturacionComercio facturacionActiva = facturacionComercioRepository
-                    .findByComercioAndEstado(comercio, "ACT")
-                    .stream()
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalStateException("No existe facturación activa para el comercio"));
+            FacturacionComercio facturacionActiva = metricas.medir(MetricasTransaccion.ETAPA_FACTURACION, marca,
+                    () -> facturacionComercioRepository
+                            .findByComercioAndEstado(comercio, "ACT")
+                            .stream()
+                            .findFirst()
+                            .orElseThrow(() -> new IllegalStateException(
+                                    "No existe facturación activa para el comercio")));
 
             // Configurar campos inmutables
             transaccion.setComercio(comercio);
@@ -92,8 +131,19 @@ public class TransaccionService {
             transaccion.setCodigoUnicoTransaccion(generarCodigoUnico());
 
             validarTransaccion(transaccion);
-            return transaccionRepository.save(transaccion);
+            MotorVelocidad.Evaluacion velocidad = evaluarVelocidad(transaccion, codigoPos, comercio.getCodigo());
+            if (velocidad.getExcedida() != null) {
+                transaccion.setEstado(ESTADO_RECHAZADO);
+            }
+            Transaccion transaccionGuardada = metricas.medir(MetricasTransaccion.ETAPA_INSERCION, marca,
+                    () -> transaccionRepository.save(transaccion));
+            registrarVelocidad(velocidad);
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_CREAR, marca, transaccionGuardada.getEstado(),
+                    MetricasTransaccion.RESULTADO_EXITO);
+            return transaccionGuardada;
         } catch (Exception e) {
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_CREAR, marca, transaccion.getEstado(),
+                    MetricasTransaccion.RESULTADO_ERROR);
             throw new RuntimeException("Error al crear transacción: " + e.getMessage());
         }
     }
@@ -200,93 +250,198 @@ public class TransaccionService {
 
     public void procesarCambioEstadoComercio(Integer codigoComercio, String nuevoEstado) {
         if ("INA".equals(nuevoEstado) || "SUS".equals(nuevoEstado)) {
-            Comercio comercio = comercioRepository.findById(codigoComercio)
-                    .orElseThrow(() -> new EntityNotFoundException("Comercio no encontrado"));
-
-            List<Transaccion> transaccionesEnCurso = transaccionRepository.findByComercioAndEstado(comercio,
-                    ESTADO_ENVIADO);
-
-            // Rechazar transacciones en curso
-            for (Transaccion transaccion : transaccionesEnCurso) {
-                transaccion.setEstado(ESTADO_RECHAZADO);
-                transaccionRepository.save(transaccion);
-            }
-
-            // Detener transacciones recurrentes
+            // Primero las recurrencias (registran fecha fin) y luego el resto de transacciones en curso
             detenerTransaccionesRecurrentes(codigoComercio);
+            int rechazadas = transaccionRepository.actualizarEstadoPorComercio(codigoComercio, ESTADO_ENVIADO,
+                    ESTADO_RECHAZADO);
+            log.info("Comercio {} pasó a {}: {} transacciones en curso rechazadas", codigoComercio, nuevoEstado,
+                    rechazadas);
         }
     }
 
     // Métodos de consulta
+    @SoloLectura
     public List<Transaccion> obtenerPorEstado(String estado) {
         return transaccionRepository.findByEstado(estado);
     }
 
+    @SoloLectura
     public List<Transaccion> obtenerPorComercioYFecha(Integer codigoComercio,
             LocalDate fechaInicio,
             LocalDate fechaFin) {
-        return transaccionRepository.findByComercio_CodigoAndFechaBetween(
-                codigoComercio, fechaInicio, fechaFin);
+        // fechaFin es inclusiva: se consulta hasta el inicio del día siguiente
+        LocalDateTime desde = fechaInicio.atStartOfDay();
+        LocalDateTime hasta = fechaFin.plusDays(1).atStartOfDay();
+        List<Transaccion> transacciones = new ArrayList<>(
+                transaccionRepository.findByComercioEnRango(codigoComercio, desde, hasta));
+        // Las transacciones de facturaciones pagadas pueden estar en el archivo frío
+        transacciones.addAll(archivoTransacciones.buscarPorComercioEnRango(codigoComercio, desde, hasta));
+        return transacciones;
     }
 
-    @Transactional
-    public void procesarTransaccionPOS(Transaccion transaccion) {
+    @SoloLectura
+    public Transaccion obtenerPorCodigoUnico(String codigoUnico) {
+        return transaccionRepository.findByCodigoUnicoTransaccion(codigoUnico)
+                .orElseGet(() -> archivoTransacciones.buscarPorCodigoUnico(codigoUnico));
+    }
+
+    // Fuera de transacción: el registro se confirma en su propia transacción y la llamada al procesador
+    // no retiene una conexión del pool mientras espera la respuesta
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaccion procesarTransaccionPOS(Transaccion transaccion) {
         log.info("Iniciando procesamiento de transacción POS: {}", transaccion);
+        Timer.Sample muestra = metricas.iniciar();
+        String marca = transaccion.getMarca();
 
         try {
-            // Validar y obtener comercio
-            Comercio comercio = comercioRepository.findById(transaccion.getComercio().getCodigo())
-                    .orElseThrow(() -> new EntityNotFoundException("Comercio no encontrado"));
-            log.info("Comercio encontrado: {}", comercio);
-
-            // Validar y obtener facturación
-            FacturacionComercio facturacion = facturacionComercioRepository
-                    .findById(transaccion.getFacturacionComercio().getCodigo())
-                    .orElseThrow(() -> new EntityNotFoundException("Facturación no encontrada"));
-            log.info("Facturación encontrada: {}", facturacion);
+            Transaccion transaccionGuardada = transactionTemplate.execute(
+                    estado -> registrarTransaccionPOS(transaccion));
+            boolean autorizada = autorizarTransaccionPOS(transaccionGuardada);
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_PROCESAR, marca, transaccionGuardada.getEstado(),
+                    autorizada ? MetricasTransaccion.RESULTADO_EXITO : MetricasTransaccion.RESULTADO_ERROR);
+            return transaccionGuardada;
 
-            // Establecer relaciones
-            transaccion.setComercio(comercio);
-            transaccion.setFacturacionComercio(facturacion);
+        } catch (EntityNotFoundException e) {
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_PROCESAR, marca, transaccion.getEstado(),
+                    MetricasTransaccion.RESULTADO_ERROR);
+            log.error("Error al procesar transacción POS: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_PROCESAR, marca, transaccion.getEstado(),
+                    MetricasTransaccion.RESULTADO_ERROR);
+            log.error("Error inesperado al procesar transacción POS: {}", e.getMessage());
+            throw new RuntimeException("Error al procesar transacción", e);
+        }
+    }
 
-            // Guardar transacción inicialmente como ENVIADA
-            transaccion.setEstado(ESTADO_ENVIADO);
-            Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
-            log.info("Transacción guardada exitosamente en el gateway con ID: {}",
-                    transaccionGuardada.getCodigo());
+    // Valida comercio y facturación y guarda la transacción como ENVIADA
+    public Transaccion registrarTransaccionPOS(Transaccion transaccion) {
+        String marca = transaccion.getMarca();
+
+        // Validar y obtener comercio
+        Comercio comercio = metricas.medir(MetricasTransaccion.ETAPA_COMERCIO, marca, () -> comercioRepository
+                .findById(transaccion.getComercio().getCodigo())
+                .orElseThrow(() -> new EntityNotFoundException("Comercio no encontrado")));
+        log.info("Comercio encontrado: {}", comercio);
+
+        // Validar y obtener facturación
+        FacturacionComercio facturacion = metricas.medir(MetricasTransaccion.ETAPA_FACTURACION, marca,
+                () -> facturacionComercioRepository
+                        .findById(transaccion.getFacturacionComercio().getCodigo())
+                        .orElseThrow(() -> new EntityNotFoundException("Facturación no encontrada")));
+        log.info("Facturación encontrada: {}", facturacion);
+
+        // Establecer relaciones
+        transaccion.setComercio(comercio);
+        transaccion.setFacturacionComercio(facturacion);
+
+        // Guardar transacción inicialmente como ENVIADA, o RECHAZADA si excede una regla de velocidad
+        MotorVelocidad.Evaluacion velocidad = evaluarVelocidad(transaccion, transaccion.getCodigoPos(),
+                comercio.getCodigo());
+        transaccion.setEstado(velocidad.getExcedida() != null ? ESTADO_RECHAZADO : ESTADO_ENVIADO);
+        Transaccion transaccionGuardada = metricas.medir(MetricasTransaccion.ETAPA_INSERCION, marca,
+                () -> transaccionRepository.save(transaccion));
+        registrarVelocidad(velocidad);
+        log.info("Transacción guardada exitosamente en el gateway con ID: {}",
+                transaccionGuardada.getCodigo());
+        return transaccionGuardada;
+    }
 
-            // Intentar validación con sistema externo
-            try {
-                ValidacionTransaccionDTO validacionDTO = prepararValidacionDTO(transaccionGuardada);
+    // Envía la transacción al procesador y la marca AUTORIZADA si responde, o RECHAZADA si la declina (4xx).
+    // Se invoca después de confirmar el registro y fuera de transacción (procesarTransaccionPOS y el flujo
+    // asíncrono): no retiene una conexión durante la llamada, y el resultado se guarda en su propia transacción.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean autorizarTransaccionPOS(Transaccion transaccionGuardada) {
+        String marca = transaccionGuardada.getMarca();
+        if (ESTADO_RECHAZADO.equals(transaccionGuardada.getEstado())) {
+            // Rechazada por velocidad al registrarla: no se consulta al procesador
+            notificadorResultadosPos.encolar(new PosComercioPK(transaccionGuardada.getModeloPos(),
+                    transaccionGuardada.getCodigoPos()), transaccionGuardada.getCodigoUnicoTransaccion(),
+                    transaccionGuardada.getEstado());
+            return true;
+        }
+        try {
+            ValidacionTransaccionDTO validacionDTO = metricas.medir(MetricasTransaccion.ETAPA_PREPARACION, marca,
+                    () -> prepararValidacionDTO(transaccionGuardada));
 
-                // Loguear el JSON que se enviará
+            // Loguear el JSON que se enviará (solo en debug: serializarlo en cada pago es costoso)
+            if (log.isDebugEnabled()) {
                 try {
                     String jsonRequest = objectMapper.writeValueAsString(validacionDTO);
-                    log.info("JSON a enviar al sistema externo: {}", jsonRequest);
+                    log.debug("JSON a enviar al sistema externo: {}", jsonRequest);
                 } catch (Exception e) {
                     log.error("Error al serializar DTO a JSON: {}", e.getMessage());
                 }
+            }
 
-                String respuesta = validacionTransaccionClient.validarTransaccion(validacionDTO);
-                log.info("Respuesta del sistema externo: {}", respuesta);
-
-                if (respuesta != null && !respuesta.isEmpty()) {
-                    transaccionGuardada.setEstado(ESTADO_AUTORIZADO);
-                    transaccionRepository.save(transaccionGuardada);
-                    log.info("Transacción autorizada por sistema externo");
+            String respuesta;
+            try {
+                respuesta = metricas.medir(MetricasTransaccion.ETAPA_PROCESADOR, marca,
+                        () -> validacionTransaccionClient.validarTransaccion(validacionDTO));
+            } catch (FeignException.FeignClientException e) {
+                if (e.status() == HTTP_TIMEOUT || e.status() == HTTP_DEMASIADAS_PETICIONES) {
+                    throw e;
                 }
-            } catch (Exception e) {
-                log.error("Error en validación externa: {}. Manteniendo transacción en estado ENVIADO", e.getMessage());
-                // No propagamos el error, solo lo registramos
-                // La transacción se mantiene en estado ENVIADO para posterior validación
+                // Un 4xx es una respuesta definitiva del procesador: el pago fue declinado
+                log.info("Transacción {} declinada por el sistema externo ({}): {}",
+                        transaccionGuardada.getCodigoUnicoTransaccion(), e.status(), e.contentUTF8());
+                registrarResultado(transaccionGuardada, ESTADO_RECHAZADO);
+                return true;
             }
+            log.info("Respuesta del sistema externo: {}", respuesta);
 
-        } catch (EntityNotFoundException e) {
-            log.error("Error al procesar transacción POS: {}", e.getMessage());
-            throw e;
+            if (respuesta != null && !respuesta.isEmpty()) {
+                registrarResultado(transaccionGuardada, ESTADO_AUTORIZADO);
+                log.info("Transacción autorizada por sistema externo");
+                registroUltimoUso.registrar(new PosComercioPK(transaccionGuardada.getModeloPos(),
+                        transaccionGuardada.getCodigoPos()), LocalDateTime.now());
+            }
+            return true;
         } catch (Exception e) {
-            log.error("Error inesperado al procesar transacción POS: {}", e.getMessage());
-            throw new RuntimeException("Error al procesar transacción", e);
+            log.error("Error en validación externa: {}. Manteniendo transacción en estado ENVIADO", e.getMessage());
+            // No propagamos el error, solo lo registramos
+            // La transacción se mantiene en estado ENVIADO para posterior validación
+            return false;
+        }
+    }
+
+    private void registrarResultado(Transaccion transaccion, String estado) {
+        transaccion.setEstado(estado);
+        metricas.medir(MetricasTransaccion.ETAPA_ESTADO, transaccion.getMarca(),
+                () -> transaccionRepository.save(transaccion));
+        notificadorResultadosPos.encolar(new PosComercioPK(transaccion.getModeloPos(), transaccion.getCodigoPos()),
+                transaccion.getCodigoUnicoTransaccion(), transaccion.getEstado());
+    }
+
+    private MotorVelocidad.Evaluacion evaluarVelocidad(Transaccion transaccion, String codigoPos,
+            Integer codigoComercio) {
+        String numeroTarjeta = null;
+        try {
+            numeroTarjeta = extraerDatosTarjeta(transaccion.getTarjeta()).getCardNumber();
+        } catch (RuntimeException e) {
+            log.debug("Tarjeta ilegible, se omiten las reglas por tarjeta: {}", e.getMessage());
+        }
+        MotorVelocidad.Evaluacion evaluacion = motorVelocidad.evaluar(numeroTarjeta,
+                new PosComercioPK(transaccion.getModeloPos(), codigoPos), codigoComercio, transaccion.getMonto());
+        if (evaluacion.getExcedida() != null) {
+            log.warn("Transacción {} del POS {} rechazada por la regla de velocidad {}",
+                    transaccion.getCodigoUnicoTransaccion(), codigoPos, evaluacion.getExcedida());
+        }
+        return evaluacion;
+    }
+
+    // Solo cuenta en las ventanas una transacción que quedó en la base: si la inserción o la
+    // confirmación fallan (por ejemplo un duplicado), el pago no consume cupo
+    private void registrarVelocidad(MotorVelocidad.Evaluacion evaluacion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    motorVelocidad.registrar(evaluacion);
+                }
+            });
+        } else {
+            motorVelocidad.registrar(evaluacion);
         }
     }
 
@@ -0,0 +1,124 @@
+-- Esquema del gateway tal como lo creaba ddl-auto=update antes de las migraciones versionadas.
+-- Una base existente con estas tablas se registra en esta versión (baseline-on-migrate) y solo
+-- recibe las migraciones siguientes; en una base vacía se ejecuta completo.
+
+CREATE TABLE GTW_COMISION (
+    COD_COMISION INTEGER NOT NULL,
+    MANEJA_SEGMENTOS BIT NOT NULL,
+    MONTO_BASE DECIMAL(20,4) NOT NULL,
+    TIPO VARCHAR(3) NOT NULL,
+    TRANSACCIONES_BASE INTEGER NOT NULL,
+    PRIMARY KEY (COD_COMISION)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_COMISION_SEGMENTO (
+    COD_COMISION INTEGER NOT NULL,
+    MONTO DECIMAL(20,4) NOT NULL,
+    TRANSACCIONES_DESDE INTEGER NOT NULL,
+    TRANSACCIONES_HASTA INTEGER NOT NULL,
+    PRIMARY KEY (COD_COMISION, TRANSACCIONES_DESDE)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_COMERCIO (
+    COD_COMERCIO INTEGER NOT NULL AUTO_INCREMENT,
+    COD_COMISION INTEGER NOT NULL,
+    ESTADO VARCHAR(3) NOT NULL,
+    PAGOS_ACEPTADOS VARCHAR(3) NOT NULL,
+    FECHA_ACTIVACION DATETIME(6),
+    FECHA_CREACION DATETIME(6) NOT NULL,
+    FECHA_SUSPENSION DATETIME(6),
+    CODIGO_INTERNO VARCHAR(10) NOT NULL,
+    RUC VARCHAR(13) NOT NULL,
+    NOMBRE_COMERCIAL VARCHAR(100) NOT NULL,
+    RAZON_SOCIAL VARCHAR(100) NOT NULL,
+    PRIMARY KEY (COD_COMERCIO)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_FACTURACION_COMERCIO (
+    COD_COMERCIO INTEGER NOT NULL,
+    COD_COMISION INTEGER NOT NULL,
+    COD_FACTURACION_COMERCIO INTEGER NOT NULL AUTO_INCREMENT,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_FACTURACION DATE,
+    FECHA_FIN DATE NOT NULL,
+    FECHA_INICIO DATE NOT NULL,
+    FECHA_PAGO DATE,
+    TRANSACCIONES_AUTORIZADAS INTEGER NOT NULL,
+    TRANSACCIONES_PROCESADAS INTEGER NOT NULL,
+    TRANSACCIONES_RECHAZADAS INTEGER NOT NULL,
+    TRANSACCIONES_REVERSADAS INTEGER NOT NULL,
+    VALOR DECIMAL(20,4) NOT NULL,
+    CODIGO_FACTURACION VARCHAR(20),
+    PRIMARY KEY (COD_FACTURACION_COMERCIO)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_POS_COMERCIO (
+    COD_COMERCIO INTEGER NOT NULL,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_ACTIVACION DATETIME(6),
+    ULTIMO_USO DATETIME(6),
+    CODIGO_POS VARCHAR(10) NOT NULL,
+    MODELO VARCHAR(10) NOT NULL,
+    DIRECCION_MAC VARCHAR(32) NOT NULL,
+    PRIMARY KEY (CODIGO_POS, MODELO)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_SEGURIDAD_GATEWAY (
+    COD_CLAVE_GATEWAY INTEGER NOT NULL AUTO_INCREMENT,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_ACTIVACION DATE NOT NULL,
+    FECHA_CREACION DATETIME(6) NOT NULL,
+    CLAVE VARCHAR(128) NOT NULL,
+    PRIMARY KEY (COD_CLAVE_GATEWAY)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_SEGURIDAD_MARCA (
+    MARCA VARCHAR(4) NOT NULL,
+    FECHA_ACTUALIZACION DATETIME(6) NOT NULL,
+    CLAVE VARCHAR(128) NOT NULL,
+    PRIMARY KEY (MARCA)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_SEGURIDAD_PROCESADOR (
+    COD_SEGURIDAD_PROCESADOR INTEGER NOT NULL AUTO_INCREMENT,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_ACTIVACION DATE NOT NULL,
+    FECHA_ACTUALIZACION DATETIME(6) NOT NULL,
+    CLAVE VARCHAR(128) NOT NULL,
+    PRIMARY KEY (COD_SEGURIDAD_PROCESADOR)
+) ENGINE=InnoDB;
+
+CREATE TABLE GTW_TRANSACCION (
+    COD_COMERCIO INTEGER NOT NULL,
+    COD_FACTURACION_COMERCIO INTEGER NOT NULL,
+    COD_TRANSACCION INTEGER NOT NULL AUTO_INCREMENT,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_EJECUCION_RECURRENCIA DATE,
+    FECHA_FIN_RECURRENCIA DATE,
+    MARCA VARCHAR(4) NOT NULL,
+    MONEDA VARCHAR(3) NOT NULL,
+    MONTO DECIMAL(20,2) NOT NULL,
+    PAIS VARCHAR(2) NOT NULL,
+    TIPO VARCHAR(3) NOT NULL,
+    FECHA DATETIME(6) NOT NULL,
+    DETALLE VARCHAR(50) NOT NULL,
+    CODIGO_UNICO_TRANSACCION VARCHAR(64) NOT NULL,
+    TARJETA VARCHAR(256) NOT NULL,
+    PRIMARY KEY (COD_TRANSACCION)
+) ENGINE=InnoDB;
+
+-- Nombres de restricción generados por Hibernate: los mismos que tienen las bases existentes
+ALTER TABLE GTW_COMERCIO ADD CONSTRAINT FKncb0wcru979ajyubyw80ue3fq
+    FOREIGN KEY (COD_COMISION) REFERENCES GTW_COMISION (COD_COMISION);
+ALTER TABLE GTW_COMISION_SEGMENTO ADD CONSTRAINT FKbjdr6wwcmjr2yynav78gd93ig
+    FOREIGN KEY (COD_COMISION) REFERENCES GTW_COMISION (COD_COMISION);
+ALTER TABLE GTW_FACTURACION_COMERCIO ADD CONSTRAINT FK4yydq75o2w5l0vuhlvqpwhvk0
+    FOREIGN KEY (COD_COMERCIO) REFERENCES GTW_COMERCIO (COD_COMERCIO);
+ALTER TABLE GTW_FACTURACION_COMERCIO ADD CONSTRAINT FK6a6t2e3a6yjem1c2acmwnqyi7
+    FOREIGN KEY (COD_COMISION) REFERENCES GTW_COMISION (COD_COMISION);
+ALTER TABLE GTW_POS_COMERCIO ADD CONSTRAINT FKdgn6kxchtm7eg5tiht19ak0pf
+    FOREIGN KEY (COD_COMERCIO) REFERENCES GTW_COMERCIO (COD_COMERCIO);
+ALTER TABLE GTW_TRANSACCION ADD CONSTRAINT FKdcxx4e44kj47ntfqb5txh1cvy
+    FOREIGN KEY (COD_COMERCIO) REFERENCES GTW_COMERCIO (COD_COMERCIO);
+ALTER TABLE GTW_TRANSACCION ADD CONSTRAINT FKe4ewukte2evj1sraudafkmd2o
+    FOREIGN KEY (COD_FACTURACION_COMERCIO) REFERENCES GTW_FACTURACION_COMERCIO (COD_FACTURACION_COMERCIO);
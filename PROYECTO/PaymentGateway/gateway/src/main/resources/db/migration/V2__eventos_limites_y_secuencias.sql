@@ -0,0 +1,91 @@
+-- Cambios de esquema posteriores al inicial: eventos de comercio, envíos de configuración al POS,
+-- límites por comercio, secuencias pooled-lo, índices de transacciones y archivo frío.
+-- Cada sentencia es idempotente porque una base que ya corría con ddl-auto=update puede tener
+-- parte de estos objetos (creados por Hibernate) al registrarse en la versión 1.
+
+-- Eventos de cambio de estado de un comercio, aplicados en orden por comercio
+CREATE TABLE IF NOT EXISTS GTW_EVENTO_COMERCIO (
+    COD_EVENTO BIGINT NOT NULL AUTO_INCREMENT,
+    COD_COMERCIO INTEGER NOT NULL,
+    TIPO VARCHAR(3) NOT NULL,
+    ESTADO VARCHAR(3) NOT NULL,
+    ESTADO_ANTERIOR VARCHAR(3),
+    ESTADO_NUEVO VARCHAR(3),
+    INTENTOS INTEGER NOT NULL,
+    FECHA_CREACION DATETIME(6) NOT NULL,
+    FECHA_PROCESADO DATETIME(6),
+    FECHA_RECLAMO DATETIME(6),
+    ERROR VARCHAR(200),
+    PRIMARY KEY (COD_EVENTO)
+) ENGINE=InnoDB;
+ALTER TABLE GTW_EVENTO_COMERCIO ADD COLUMN IF NOT EXISTS FECHA_RECLAMO DATETIME(6) AFTER FECHA_PROCESADO;
+CREATE INDEX IF NOT EXISTS IDX_GTW_EVENTO_COMERCIO_ESTADO ON GTW_EVENTO_COMERCIO (ESTADO, COD_COMERCIO, COD_EVENTO);
+
+-- Configuraciones de POS pendientes de enviar
+CREATE TABLE IF NOT EXISTS GTW_ENVIO_CONFIGURACION_POS (
+    COD_ENVIO BIGINT NOT NULL AUTO_INCREMENT,
+    COD_COMERCIO INTEGER NOT NULL,
+    CODIGO_POS VARCHAR(10) NOT NULL,
+    MODELO VARCHAR(10) NOT NULL,
+    DIRECCION_MAC VARCHAR(32) NOT NULL,
+    DESTINO VARCHAR(100) NOT NULL,
+    ESTADO VARCHAR(3) NOT NULL,
+    INTENTOS INTEGER NOT NULL,
+    FECHA_ACTIVACION DATETIME(6),
+    FECHA_CREACION DATETIME(6) NOT NULL,
+    FECHA_ENVIO DATETIME(6),
+    PROXIMO_INTENTO DATETIME(6) NOT NULL,
+    ERROR VARCHAR(200),
+    PRIMARY KEY (COD_ENVIO)
+) ENGINE=InnoDB;
+CREATE INDEX IF NOT EXISTS IDX_GTW_ENVIO_CONFIGURACION_POS_ESTADO ON GTW_ENVIO_CONFIGURACION_POS (ESTADO, PROXIMO_INTENTO);
+CREATE INDEX IF NOT EXISTS IDX_GTW_ENVIO_CONFIGURACION_POS_POS ON GTW_ENVIO_CONFIGURACION_POS (CODIGO_POS, MODELO);
+
+-- Límites de ingreso y monto diario por comercio; una columna nula usa el valor por defecto
+CREATE TABLE IF NOT EXISTS GTW_LIMITE_COMERCIO (
+    COD_COMERCIO INTEGER NOT NULL,
+    POR_MINUTO_POS INTEGER,
+    RAFAGA_POS INTEGER,
+    POR_MINUTO_COMERCIO INTEGER,
+    RAFAGA_COMERCIO INTEGER,
+    MONTO_DIARIO DECIMAL(20,2),
+    PRIMARY KEY (COD_COMERCIO)
+) ENGINE=InnoDB;
+ALTER TABLE GTW_LIMITE_COMERCIO ADD COLUMN IF NOT EXISTS MONTO_DIARIO DECIMAL(20,2);
+
+-- Cambios de comercios que IndiceBusquedaComercio recarga periódicamente
+ALTER TABLE GTW_COMERCIO ADD COLUMN IF NOT EXISTS FECHA_MODIFICACION DATETIME(6) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS IDX_GTW_COMERCIO_MODIFICACION ON GTW_COMERCIO (FECHA_MODIFICACION);
+
+-- Último uso de cada terminal, escrito en lotes por RegistroUltimoUsoPos
+ALTER TABLE GTW_POS_COMERCIO ADD COLUMN IF NOT EXISTS ULTIMO_USO DATETIME(6) AFTER FECHA_ACTIVACION;
+-- Endpoint del POS que atiende a cada terminal; nulo usa gateway.pos.url
+ALTER TABLE GTW_POS_COMERCIO ADD COLUMN IF NOT EXISTS DESTINO VARCHAR(100) AFTER ULTIMO_USO;
+
+-- Claves por secuencia en bloques de 50 (pooled-lo) en lugar de AUTO_INCREMENT, para insertar en
+-- lotes JDBC. Cada secuencia empieza después del código más alto existente
+SET @siguiente = (SELECT COALESCE(MAX(COD_TRANSACCION), 0) + 1 FROM GTW_TRANSACCION);
+EXECUTE IMMEDIATE CONCAT('CREATE SEQUENCE IF NOT EXISTS GTW_TRANSACCION_SEQ START WITH ', @siguiente,
+    ' INCREMENT BY 50 NOCACHE');
+SET @siguiente = (SELECT COALESCE(MAX(COD_FACTURACION_COMERCIO), 0) + 1 FROM GTW_FACTURACION_COMERCIO);
+EXECUTE IMMEDIATE CONCAT('CREATE SEQUENCE IF NOT EXISTS GTW_FACTURACION_COMERCIO_SEQ START WITH ', @siguiente,
+    ' INCREMENT BY 50 NOCACHE');
+
+-- GTW_TRANSACCION la referencia con clave foránea; cambiar solo el AUTO_INCREMENT no altera el tipo
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE GTW_FACTURACION_COMERCIO MODIFY COD_FACTURACION_COMERCIO INTEGER NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
+ALTER TABLE GTW_TRANSACCION MODIFY COD_TRANSACCION INTEGER NOT NULL;
+
+-- Unicidad del código de transacción; incluye FECHA porque el particionado mensual
+-- (ParticionesTransaccionService) exige que toda clave única la contenga. Ese proceso además
+-- quita las claves foráneas de la tabla, que las entidades ya no declaran
+CREATE UNIQUE INDEX IF NOT EXISTS UK_GTW_TRANSACCION_CODIGO_UNICO ON GTW_TRANSACCION (CODIGO_UNICO_TRANSACCION, FECHA);
+CREATE INDEX IF NOT EXISTS IDX_GTW_TRANSACCION_COMERCIO_FECHA ON GTW_TRANSACCION (COD_COMERCIO, FECHA);
+CREATE INDEX IF NOT EXISTS IDX_GTW_TRANSACCION_TIPO_ESTADO ON GTW_TRANSACCION (TIPO, ESTADO);
+-- Lectura de las transacciones de una facturación al archivarla (ArchivoTransaccionesService)
+CREATE INDEX IF NOT EXISTS IDX_GTW_TRANSACCION_FACTURACION ON GTW_TRANSACCION (COD_FACTURACION_COMERCIO);
+
+-- Facturaciones pagadas ya archivadas; el archivo diario solo recorre las que no tienen fecha
+ALTER TABLE GTW_FACTURACION_COMERCIO ADD COLUMN IF NOT EXISTS FECHA_ARCHIVO DATETIME(6);
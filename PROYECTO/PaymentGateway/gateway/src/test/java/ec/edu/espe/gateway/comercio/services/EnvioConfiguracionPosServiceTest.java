@@ -0,0 +1,119 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.client.PosConfiguracionClient;
+import ec.edu.espe.gateway.comercio.dto.Configuracion;
+import ec.edu.espe.gateway.comercio.dto.ResultadoConfiguracion;
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.model.EnvioConfiguracionPos;
+import ec.edu.espe.gateway.comercio.model.PosComercio;
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.EnvioConfiguracionPosRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnvioConfiguracionPosServiceTest {
+
+    private static final String POR_DEFECTO = "http://pos-central:8082";
+    private static final String SUCURSAL_NORTE = "http://pos-norte:8082";
+    private static final String SUCURSAL_SUR = "http://pos-sur:8082";
+
+    private final EnvioConfiguracionPosRepository repositorio = mock(EnvioConfiguracionPosRepository.class);
+    private final PosConfiguracionClient cliente = mock(PosConfiguracionClient.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final EnvioConfiguracionPosService servicio = new EnvioConfiguracionPosService(repositorio, cliente,
+            transactionTemplate, POR_DEFECTO, 100, 1000, 300000, 12, 300000);
+
+    @AfterEach
+    void detener() throws InterruptedException {
+        servicio.detener();
+    }
+
+    private static EnvioConfiguracionPos pendiente(long codigo, String codigoPos, String destino) {
+        EnvioConfiguracionPos envio = new EnvioConfiguracionPos(codigo);
+        envio.setCodigoPos(codigoPos);
+        envio.setModelo("POS");
+        envio.setDireccionMac("00:11:22:33:44:55");
+        envio.setCodigoComercio(7);
+        envio.setDestino(destino);
+        envio.setEstado(EnvioConfiguracionPosService.ESTADO_PENDIENTE);
+        envio.setIntentos(0);
+        envio.setProximoIntento(LocalDateTime.now().minusSeconds(1));
+        return envio;
+    }
+
+    private static List<ResultadoConfiguracion> aceptadas(List<Configuracion> configuraciones) {
+        return configuraciones.stream().map(configuracion -> {
+            ResultadoConfiguracion resultado = new ResultadoConfiguracion();
+            resultado.setCodigo(configuracion.getPk().getCodigo());
+            resultado.setModelo(configuracion.getPk().getModelo());
+            resultado.setAceptada(true);
+            return resultado;
+        }).toList();
+    }
+
+    @Test
+    void soloEnviaLasFilasReclamadasAgrupadasPorElDestinoDeCadaTerminal() throws InterruptedException {
+        EnvioConfiguracionPos norte = pendiente(1, "NORTE00001", SUCURSAL_NORTE);
+        EnvioConfiguracionPos sur = pendiente(2, "SUR0000001", SUCURSAL_SUR);
+        EnvioConfiguracionPos tomadaPorOtra = pendiente(3, "NORTE00002", SUCURSAL_NORTE);
+        when(repositorio.findByEstadoAndProximoIntentoLessThanEqualOrderByCodigoAsc(any(), any(), any()))
+                .thenReturn(List.of(norte, sur, tomadaPorOtra));
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocacion -> invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        // Otra instancia reclamó la tercera fila entre la lectura y el UPDATE
+        when(repositorio.reclamar(eq(1L), any(), any(), any())).thenReturn(1);
+        when(repositorio.reclamar(eq(2L), any(), any(), any())).thenReturn(1);
+        when(repositorio.reclamar(eq(3L), any(), any(), any())).thenReturn(0);
+        when(cliente.sincronizarLote(any(), anyList()))
+                .thenAnswer(invocacion -> aceptadas(invocacion.getArgument(1)));
+
+        servicio.revisarPendientes();
+        // detener() espera a que el despachador termine la pasada
+        servicio.detener();
+
+        verify(cliente).sincronizarLote(eq(URI.create(SUCURSAL_NORTE)),
+                argThat(lote -> lote.size() == 1 && lote.get(0).getPk().getCodigo().equals("NORTE00001")));
+        verify(cliente).sincronizarLote(eq(URI.create(SUCURSAL_SUR)), argThat(lote -> lote.size() == 1));
+        verify(cliente, times(2)).sincronizarLote(any(), anyList());
+        assertEquals(EnvioConfiguracionPosService.ESTADO_ENVIADO, norte.getEstado());
+        assertEquals(EnvioConfiguracionPosService.ESTADO_PENDIENTE, tomadaPorOtra.getEstado());
+    }
+
+    @Test
+    void cadaEnvioVaAlDestinoRegistradoParaSuTerminal() {
+        Comercio comercio = new Comercio();
+        comercio.setCodigo(7);
+        PosComercio conDestino = new PosComercio(new PosComercioPK("POS", "NORTE00001"));
+        conDestino.setDireccionMac("00:11:22:33:44:55");
+        conDestino.setComercio(comercio);
+        conDestino.setDestino(SUCURSAL_NORTE);
+        PosComercio sinDestino = new PosComercio(new PosComercioPK("POS", "CENTRO0001"));
+        sinDestino.setDireccionMac("00:11:22:33:44:66");
+        sinDestino.setComercio(comercio);
+
+        servicio.encolar(conDestino);
+        servicio.encolar(sinDestino);
+
+        ArgumentCaptor<EnvioConfiguracionPos> guardados = ArgumentCaptor.forClass(EnvioConfiguracionPos.class);
+        verify(repositorio, times(2)).save(guardados.capture());
+        assertEquals(SUCURSAL_NORTE, guardados.getAllValues().get(0).getDestino());
+        assertEquals(POR_DEFECTO, guardados.getAllValues().get(1).getDestino());
+    }
+}
@@ -0,0 +1,131 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.EventoComercio;
+import ec.edu.espe.gateway.comercio.repository.EventoComercioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventosComercioServiceTest {
+
+    private static final Integer COMERCIO = 5;
+
+    private final EventoComercioRepository repositorio = mock(EventoComercioRepository.class);
+    private final CascadaEstadoComercioService cascada = mock(CascadaEstadoComercioService.class);
+    private final EventosComercioService servicio = new EventosComercioService(repositorio, cascada, 1);
+
+    @AfterEach
+    void detener() throws InterruptedException {
+        servicio.detener();
+    }
+
+    private void abiertos(Long... codigos) {
+        List<EventoComercio> eventos = Arrays.stream(codigos).map(codigo -> {
+            EventoComercio evento = new EventoComercio(codigo);
+            evento.setCodigoComercio(COMERCIO);
+            evento.setEstado(EventosComercioService.ESTADO_PENDIENTE);
+            return evento;
+        }).toList();
+        when(repositorio.findComerciosConEventosEnEstado(EventosComercioService.ESTADO_PENDIENTE))
+                .thenReturn(List.of(COMERCIO));
+        when(repositorio.findByCodigoComercioAndEstadoInOrderByCodigoAsc(eq(COMERCIO), any())).thenReturn(eventos);
+    }
+
+    @Test
+    void aplicaLosEventosDelComercioEnOrdenYSeDetieneAnteUnFalloReintentable() throws InterruptedException {
+        abiertos(1L, 2L, 3L);
+        when(cascada.reclamar(anyLong())).thenReturn(true);
+        doThrow(new IllegalStateException("base no disponible")).when(cascada).aplicar(2L);
+        when(cascada.registrarFallo(eq(2L), any())).thenReturn(true);
+
+        servicio.reintentarPendientes();
+        // detener() espera a que el carril termine lo que tenía encolado
+        servicio.detener();
+
+        InOrder orden = inOrder(cascada);
+        orden.verify(cascada).reclamar(1L);
+        orden.verify(cascada).aplicar(1L);
+        orden.verify(cascada).reclamar(2L);
+        orden.verify(cascada).aplicar(2L);
+        orden.verify(cascada).registrarFallo(eq(2L), any());
+        verify(cascada, never()).reclamar(3L);
+        verify(cascada, never()).aplicar(3L);
+    }
+
+    @Test
+    void descartaElEventoTrasLosIntentosMaximosYSigueConElSiguiente() throws InterruptedException {
+        abiertos(1L, 2L);
+        when(cascada.reclamar(anyLong())).thenReturn(true);
+        doThrow(new IllegalStateException("comercio inconsistente")).when(cascada).aplicar(1L);
+        when(cascada.registrarFallo(eq(1L), any())).thenReturn(false);
+
+        servicio.reintentarPendientes();
+        servicio.detener();
+
+        verify(cascada).aplicar(2L);
+    }
+
+    @Test
+    void noAplicaEventosPosterioresMientrasOtroCarrilTengaElAnterior() throws InterruptedException {
+        abiertos(1L, 2L);
+        when(cascada.reclamar(1L)).thenReturn(false);
+        when(cascada.reclamar(2L)).thenReturn(true);
+
+        servicio.reintentarPendientes();
+        // detener() espera a que el carril termine lo que tenía encolado
+        servicio.detener();
+
+        verify(cascada).reclamar(1L);
+        verify(cascada, never()).reclamar(2L);
+        verify(cascada, never()).aplicar(anyLong());
+    }
+
+    @Test
+    void reintentaHastaLosIntentosMaximosYLuegoMarcaError() {
+        EventoComercio evento = new EventoComercio(9L);
+        evento.setEstado(EventosComercioService.ESTADO_EN_CURSO);
+        evento.setIntentos(0);
+        when(repositorio.findById(9L)).thenReturn(Optional.of(evento));
+        CascadaEstadoComercioService real = new CascadaEstadoComercioService(repositorio, null, null, null, null,
+                null, 2, 300000);
+
+        assertTrue(real.registrarFallo(9L, "primer fallo"));
+        assertEquals(EventosComercioService.ESTADO_PENDIENTE, evento.getEstado());
+        assertEquals(1, evento.getIntentos());
+
+        evento.setEstado(EventosComercioService.ESTADO_EN_CURSO);
+        assertFalse(real.registrarFallo(9L, "segundo fallo"));
+        assertEquals(EventosComercioService.ESTADO_ERROR, evento.getEstado());
+        assertEquals("segundo fallo", evento.getError());
+    }
+
+    @Test
+    void soloAplicaEventosReclamados() {
+        EventoComercio evento = new EventoComercio(9L);
+        evento.setEstado(EventosComercioService.ESTADO_PENDIENTE);
+        when(repositorio.findById(9L)).thenReturn(Optional.of(evento));
+        CascadaEstadoComercioService real = new CascadaEstadoComercioService(repositorio, null, null, null, null,
+                null, 2, 300000);
+
+        real.aplicar(9L);
+
+        assertEquals(EventosComercioService.ESTADO_PENDIENTE, evento.getEstado());
+    }
+}
@@ -0,0 +1,91 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndiceBusquedaComercioTest {
+
+    private static final LocalDateTime CARGA = LocalDateTime.of(2026, 5, 4, 10, 0);
+
+    private final ComercioRepository repositorio = mock(ComercioRepository.class);
+    private final IndiceBusquedaComercio indice = new IndiceBusquedaComercio(repositorio, 0.5);
+
+    private static Comercio comercio(int codigo, String razonSocial, LocalDateTime modificacion) {
+        Comercio comercio = new Comercio(codigo);
+        comercio.setRazonSocial(razonSocial);
+        comercio.setNombreComercial(razonSocial);
+        comercio.setRuc(String.format("17900000%02d001", codigo));
+        comercio.setCodigoInterno(String.format("COM%07d", codigo));
+        comercio.setFechaModificacion(modificacion);
+        return comercio;
+    }
+
+    private void cargar(Comercio... comercios) {
+        when(repositorio.findAll()).thenReturn(List.of(comercios));
+        indice.cargar();
+    }
+
+    private List<Integer> codigos(String criterio, int pagina, int tamanio) {
+        return indice.buscar(criterio, pagina, tamanio).comercios().stream().map(Comercio::getCodigo).toList();
+    }
+
+    @Test
+    void ordenaPrefijoAntesQueSubcadenaYEstaAntesQueCoincidenciaParcial() {
+        cargar(comercio(1, "Farmazia Sur", CARGA),
+                comercio(2, "Distribuidora La Farmacia", CARGA),
+                comercio(3, "Farmacia Cruz Azul", CARGA),
+                comercio(4, "Ferretería Norte", CARGA));
+
+        assertEquals(List.of(3, 2, 1), codigos("farmacia", 0, 10));
+    }
+
+    @Test
+    void toleraErroresDeTipeoYTildes() {
+        cargar(comercio(1, "Farmacia Cruz Azul", CARGA),
+                comercio(2, "Ferretería Norte", CARGA));
+
+        assertEquals(List.of(1), codigos("cruz asul", 0, 10));
+        assertEquals(List.of(2), codigos("FERRETERIA", 0, 10));
+        assertTrue(codigos("panaderia", 0, 10).isEmpty());
+    }
+
+    @Test
+    void paginaLosResultadosEmpatadosPorRazonSocialYCuentaElTotal() {
+        cargar(comercio(5, "Tienda E", CARGA), comercio(3, "Tienda C", CARGA), comercio(1, "Tienda A", CARGA),
+                comercio(4, "Tienda D", CARGA), comercio(2, "Tienda B", CARGA));
+
+        assertEquals(List.of(1, 2), codigos("tienda", 0, 2));
+        assertEquals(List.of(3, 4), codigos("tienda", 1, 2));
+        assertEquals(List.of(5), codigos("tienda", 2, 2));
+        assertTrue(codigos("tienda", 3, 2).isEmpty());
+        assertEquals(5, indice.buscar("tienda", 2, 2).total());
+    }
+
+    @Test
+    void laRecargaReindexaLosComerciosCambiadosDesdeLaUltimaLeida() {
+        cargar(comercio(1, "Farmacia Cruz Azul", CARGA), comercio(2, "Ferretería Norte", CARGA.minusDays(1)));
+
+        // Otra instancia renombró el comercio 1
+        LocalDateTime cambio = CARGA.plusMinutes(3);
+        when(repositorio.findByFechaModificacionGreaterThanEqual(CARGA.minusMinutes(5)))
+                .thenReturn(List.of(comercio(1, "Botica Cruz Azul", cambio)));
+        indice.recargar();
+
+        assertEquals(List.of(1), codigos("botica", 0, 10));
+        assertTrue(codigos("farmacia", 0, 10).isEmpty());
+
+        // La siguiente recarga parte de la modificación más reciente leída
+        indice.recargar();
+        verify(repositorio).findByFechaModificacionGreaterThanEqual(cambio.minusMinutes(5));
+    }
+}
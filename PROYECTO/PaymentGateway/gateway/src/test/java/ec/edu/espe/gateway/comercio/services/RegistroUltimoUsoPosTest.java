@@ -0,0 +1,109 @@
+package ec.edu.espe.gateway.comercio.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RegistroUltimoUsoPosTest {
+
+    private static final PosComercioPK CAJA_1 = new PosComercioPK("POS", "CAJA000001");
+    private static final PosComercioPK CAJA_2 = new PosComercioPK("POS", "CAJA000002");
+    private static final PosComercioPK AJENO = new PosComercioPK("POS", "AJENO00001");
+    private static final String SUCURSAL = "http://pos-sucursal:8082";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final LocalDateTime ahora = LocalDateTime.now();
+    private RegistroUltimoUsoPos registro;
+
+    @BeforeEach
+    void cargarTerminales() {
+        // Cada consulta lee las mismas dos filas: CAJA_1 del comercio 7 sin uso hace dos horas y CAJA_2 del
+        // comercio 8, atendida por el POS de su sucursal, hace cinco minutos
+        doAnswer(invocacion -> {
+            ResultSet fila = mock(ResultSet.class);
+            when(fila.getString(1)).thenReturn("POS", "POS");
+            when(fila.getString(2)).thenReturn(CAJA_1.getCodigo(), CAJA_2.getCodigo());
+            when(fila.getTimestamp(3)).thenReturn(Timestamp.valueOf(ahora.minusHours(2)),
+                    Timestamp.valueOf(ahora.minusMinutes(5)));
+            when(fila.getInt(4)).thenReturn(7, 8);
+            when(fila.getString(5)).thenReturn(null, SUCURSAL);
+            RowCallbackHandler manejador = invocacion.getArgument(1);
+            manejador.processRow(fila);
+            manejador.processRow(fila);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+
+        registro = new RegistroUltimoUsoPos(jdbcTemplate);
+        registro.cargar();
+    }
+
+    @Test
+    void respondeLosTerminalesSinActividadDesdeMemoria() {
+        List<RegistroUltimoUsoPos.TerminalSinActividad> silenciosos = registro.obtenerSinActividad(30);
+        assertEquals(1, silenciosos.size());
+        assertEquals(CAJA_1.getCodigo(), silenciosos.get(0).codigoPos());
+
+        // Un uso local saca al terminal de la lista sin esperar a escribirlo
+        registro.registrar(CAJA_1, ahora);
+        assertTrue(registro.obtenerSinActividad(30).isEmpty());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @Test
+    void laRecargaConservaLosUsosLocalesMasRecientes() {
+        registro.recargar();
+        assertEquals(1, registro.obtenerSinActividad(30).size());
+
+        registro.registrar(CAJA_1, ahora);
+        registro.recargar();
+        assertTrue(registro.obtenerSinActividad(30).isEmpty());
+    }
+
+    @Test
+    void unTerminalDesconocidoSeConsultaUnaVezHastaLaRecarga() {
+        assertTrue(registro.conocido(CAJA_1));
+        assertFalse(registro.conocido(AJENO));
+        assertFalse(registro.conocido(AJENO));
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), any(Object[].class));
+
+        registro.recargar();
+        assertFalse(registro.conocido(AJENO));
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void elComercioDeCadaTerminalSaleDeLaVista() {
+        assertEquals(7, registro.comercioDe(CAJA_1));
+        assertEquals(8, registro.comercioDe(CAJA_2));
+        assertNull(registro.comercioDe(AJENO));
+        assertNull(registro.comercioDe(new PosComercioPK("OTRO", CAJA_1.getCodigo())));
+    }
+
+    @Test
+    void elDestinoDeCadaTerminalSaleDeLaVista() {
+        assertNull(registro.destinoDe(CAJA_1));
+        assertEquals(SUCURSAL, registro.destinoDe(CAJA_2));
+        assertNull(registro.destinoDe(AJENO));
+    }
+}
@@ -0,0 +1,85 @@
+package ec.edu.espe.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContadorSentenciasFilterTest {
+
+    private static final int PRESUPUESTO = 20;
+    private static final int REPETICIONES_MAXIMAS = 5;
+
+    private final ContadorSentencias inspector = new ContadorSentencias();
+
+    // Simula un controlador que consulta el comercio de cada transacción por separado y responde 200
+    private FilterChain controlador(int consultas) {
+        return (request, response) -> {
+            for (int i = 1; i <= consultas; i++) {
+                inspector.inspect("select c.cod_comercio from gtw_comercio c where c.cod_comercio=" + i);
+            }
+            response.getOutputStream().write("ok".getBytes(StandardCharsets.UTF_8));
+            response.flushBuffer();
+        };
+    }
+
+    private static ContadorSentenciasFilter filtro(boolean estricto) {
+        return new ContadorSentenciasFilter(new SimpleMeterRegistry(), PRESUPUESTO, REPETICIONES_MAXIMAS, estricto);
+    }
+
+    @Test
+    void estrictoDescartaLaRespuestaYFallaAntesDeEnviarla() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/comercios");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> filtro(true).doFilter(request, response, controlador(REPETICIONES_MAXIMAS)));
+
+        assertTrue(error.getMessage().contains("repitió " + REPETICIONES_MAXIMAS + " veces"));
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void reportaPresupuestoYFormaRepetidaALaVez() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/comercios");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> filtro(true).doFilter(request, new MockHttpServletResponse(), controlador(PRESUPUESTO + 1)));
+
+        assertTrue(error.getMessage().contains("presupuesto " + PRESUPUESTO));
+        assertTrue(error.getMessage().contains("repitió " + (PRESUPUESTO + 1) + " veces"));
+    }
+
+    @Test
+    void estrictoSinProblemasEntregaLaRespuesta() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/comercios");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtro(true).doFilter(request, response, controlador(REPETICIONES_MAXIMAS - 1));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("ok", response.getContentAsString());
+        ContadorSentencias.Contexto contexto =
+                (ContadorSentencias.Contexto) request.getAttribute(ContadorSentenciasFilter.ATRIBUTO_CONTEXTO);
+        assertEquals(REPETICIONES_MAXIMAS - 1, contexto.getTotal());
+    }
+
+    @Test
+    void sinModoEstrictoSoloAdvierte() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtro(false).doFilter(new MockHttpServletRequest("GET", "/api/v1/comercios"), response,
+                controlador(PRESUPUESTO + 1));
+
+        assertEquals("ok", response.getContentAsString());
+    }
+}
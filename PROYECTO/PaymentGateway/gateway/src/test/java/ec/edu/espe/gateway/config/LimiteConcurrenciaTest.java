@@ -0,0 +1,81 @@
+package ec.edu.espe.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteConcurrenciaTest {
+
+    private static final long VENTANA_MS = 100;
+    private static final long INICIO = 0;
+
+    private long ahora = INICIO;
+
+    // Llena el límite, avanza una ventana y devuelve todos los cupos con la misma latencia
+    private void ventana(LimiteConcurrencia limite, long latenciaMs) {
+        int tomados = 0;
+        while (limite.adquirir()) {
+            tomados++;
+        }
+        ahora += TimeUnit.MILLISECONDS.toNanos(VENTANA_MS);
+        for (int i = 0; i < tomados; i++) {
+            limite.liberar(TimeUnit.MILLISECONDS.toNanos(latenciaMs), ahora);
+        }
+    }
+
+    @Test
+    void unaLatenciaSostenidaMasAltaBajaElLimiteYLoMantieneAbajo() {
+        LimiteConcurrencia limite = new LimiteConcurrencia(20, 10, 500, 1.5, VENTANA_MS, 300, INICIO);
+
+        // Sin cola el límite crece
+        for (int i = 0; i < 300; i++) {
+            ventana(limite, 10);
+        }
+        int sinCola = limite.getLimite();
+        assertTrue(sinCola > 100, "límite sin cola: " + sinCola);
+
+        // Dos minutos con la latencia cinco veces más alta: el límite cae y no vuelve a subir
+        int maximoTrasCaer = 0;
+        for (int i = 0; i < 1200; i++) {
+            ventana(limite, 50);
+            if (i >= 100) {
+                maximoTrasCaer = Math.max(maximoTrasCaer, limite.getLimite());
+            }
+        }
+        assertEquals(10, limite.getLimite());
+        assertTrue(maximoTrasCaer <= 15, "máximo tras caer: " + maximoTrasCaer);
+
+        // Al volver la latencia normal el límite se recupera
+        for (int i = 0; i < 300; i++) {
+            ventana(limite, 10);
+        }
+        assertTrue(limite.getLimite() > 100, "límite recuperado: " + limite.getLimite());
+    }
+
+    @Test
+    void sinCupoElFiltroRespondeServicioNoDisponible() throws Exception {
+        LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(new SimpleMeterRegistry(), true, 1, 1, 1,
+                1.5, VENTANA_MS, 300, List.of("/api/transacciones/"));
+        MockHttpServletResponse rechazada = new MockHttpServletResponse();
+
+        // La segunda petición llega mientras la primera ocupa el único cupo
+        MockHttpServletResponse aceptada = new MockHttpServletResponse();
+        filtro.doFilter(new MockHttpServletRequest("POST", "/api/transacciones/sincronizar"), aceptada,
+                (request, response) -> filtro.doFilter(
+                        new MockHttpServletRequest("POST", "/api/transacciones/sincronizar"), rechazada,
+                        (otra, respuesta) -> {
+                        }));
+
+        assertEquals(200, aceptada.getStatus());
+        assertEquals(503, rechazada.getStatus());
+        assertEquals("1", rechazada.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+}
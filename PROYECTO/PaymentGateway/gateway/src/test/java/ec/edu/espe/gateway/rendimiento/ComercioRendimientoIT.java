@@ -0,0 +1,39 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import ec.edu.espe.gateway.rendimiento.MedidorRendimiento.Presupuesto;
+import org.junit.jupiter.api.Test;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Presupuestos de ComercioController. La búsqueda sale del índice en memoria (0 sentencias) y el
+ * listado por estado no debe crecer con la cantidad de comercios.
+ */
+class ComercioRendimientoIT extends PruebaRendimiento {
+
+    @Test
+    void obtenerPorCodigo() throws Exception {
+        medidor.medir("GET /api/comercios/{codigo}", i -> get("/api/comercios/{codigo}", datos.comercio(i)))
+                .verificar(new Presupuesto(2, 128, 20));
+    }
+
+    @Test
+    void buscar() throws Exception {
+        medidor.medir("GET /api/comercios/buscar", i -> get("/api/comercios/buscar")
+                        .param("criterio", "tienda rendimiento " + (i % DatosRendimiento.COMERCIOS + 1)))
+                .verificar(new Presupuesto(0, 192, 20));
+    }
+
+    @Test
+    void listarPorEstado() throws Exception {
+        medidor.medir("GET /api/comercios/estado/{estado}", i -> get("/api/comercios/estado/{estado}", "ACT"))
+                .verificar(new Presupuesto(1 + DatosRendimiento.COMISIONES, 320, 35));
+    }
+
+    @Test
+    void obtenerFacturacionPorComercio() throws Exception {
+        medidor.medir("GET /api/comercios/{codigoComercio}/facturacion",
+                        i -> get("/api/comercios/{codigoComercio}/facturacion", datos.comercio(i)))
+                .verificar(new Presupuesto(3, 192, 25));
+    }
+}
@@ -0,0 +1,176 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
+import ec.edu.espe.gateway.comercio.services.IndiceBusquedaComercio;
+import ec.edu.espe.gateway.comision.model.Comision;
+import ec.edu.espe.gateway.comision.repository.ComisionRepository;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carga sintética fija de las pruebas de rendimiento: COMERCIOS comercios activos repartidos entre
+ * COMISIONES comisiones, cada uno con una facturación activa, una facturada pendiente de pago y
+ * TRANSACCIONES_POR_COMERCIO transacciones de ayer. Se crea una sola vez por base.
+ */
+public class DatosRendimiento {
+
+    static final int COMISIONES = 2;
+    static final int COMERCIOS = 20;
+    static final int TRANSACCIONES_POR_COMERCIO = 10;
+
+    private static final String PREFIJO_COMERCIO = "REND";
+    private static final String[] MARCAS = {"VISA", "MSCD", "AMEX", "DINE"};
+
+    private static DatosRendimiento datos;
+
+    private final List<Integer> comercios = new ArrayList<>();
+    private final List<Integer> facturacionesActivas = new ArrayList<>();
+    private final List<String> codigosUnicos = new ArrayList<>();
+    private final LocalDate fechaTransacciones = LocalDate.now().minusDays(1);
+
+    public static synchronized DatosRendimiento preparar(ComisionRepository comisionRepository,
+            ComercioRepository comercioRepository, FacturacionComercioRepository facturacionComercioRepository,
+            TransaccionRepository transaccionRepository, IndiceBusquedaComercio indiceBusqueda) {
+        if (datos == null) {
+            DatosRendimiento nuevos = new DatosRendimiento();
+            nuevos.crear(comisionRepository, comercioRepository, facturacionComercioRepository,
+                    transaccionRepository, indiceBusqueda);
+            datos = nuevos;
+        }
+        return datos;
+    }
+
+    private void crear(ComisionRepository comisionRepository, ComercioRepository comercioRepository,
+            FacturacionComercioRepository facturacionComercioRepository, TransaccionRepository transaccionRepository,
+            IndiceBusquedaComercio indiceBusqueda) {
+        List<Comision> comisiones = new ArrayList<>();
+        for (int i = 1; i <= COMISIONES; i++) {
+            Comision comision = new Comision(9000 + i);
+            comision.setTipo(i % 2 == 0 ? "FIJ" : "POR");
+            comision.setMontoBase(new BigDecimal("0.0150"));
+            comision.setTransaccionesBase(0);
+            comision.setManejaSegmentos(false);
+            comisiones.add(comisionRepository.save(comision));
+        }
+
+        LocalDate inicioMes = LocalDate.now().withDayOfMonth(1);
+        List<Transaccion> transacciones = new ArrayList<>();
+        for (int i = 1; i <= COMERCIOS; i++) {
+            Comision comision = comisiones.get(i % COMISIONES);
+            Comercio comercio = new Comercio();
+            comercio.setCodigoInterno(String.format("%s%06d", PREFIJO_COMERCIO, i));
+            comercio.setRuc(String.format("17900%08d", i));
+            comercio.setRazonSocial("Distribuidora Rendimiento " + i + " S.A.");
+            comercio.setNombreComercial("Tienda Rendimiento " + i);
+            comercio.setFechaCreacion(LocalDateTime.now());
+            comercio.setComision(comision);
+            comercio.setPagosAceptados("DOS");
+            comercio.setEstado("ACT");
+            comercio.setFechaActivacion(LocalDateTime.now());
+            comercio = comercioRepository.save(comercio);
+            indiceBusqueda.actualizar(comercio);
+            comercios.add(comercio.getCodigo());
+
+            FacturacionComercio pendientePago = facturacion(comercio, comision, inicioMes.minusMonths(1), "FAC");
+            pendientePago.setCodigoFacturacion(String.format("FACREND%06d", i));
+            pendientePago.setFechaFacturacion(inicioMes);
+            facturacionComercioRepository.save(pendientePago);
+            FacturacionComercio activa = facturacionComercioRepository
+                    .save(facturacion(comercio, comision, inicioMes, "ACT"));
+            facturacionesActivas.add(activa.getCodigo());
+
+            for (int j = 0; j < TRANSACCIONES_POR_COMERCIO; j++) {
+                Transaccion transaccion = new Transaccion();
+                transaccion.setComercio(comercio);
+                transaccion.setFacturacionComercio(activa);
+                transaccion.setTipo("SIM");
+                transaccion.setMarca(MARCAS[j % MARCAS.length]);
+                transaccion.setDetalle("Rendimiento - " + MARCAS[j % MARCAS.length]);
+                transaccion.setMonto(new BigDecimal("25.00"));
+                transaccion.setCodigoUnicoTransaccion(String.format("REND-%04d-%04d", i, j));
+                transaccion.setFecha(fechaTransacciones.atTime(12, j));
+                transaccion.setEstado("AUT");
+                transaccion.setMoneda("USD");
+                transaccion.setPais("EC");
+                transaccion.setTarjeta("{\"cardNumber\":\"4111111111111111\",\"expiryDate\":\"12/30\",\"cvv\":\"123\"}");
+                transacciones.add(transaccion);
+                codigosUnicos.add(transaccion.getCodigoUnicoTransaccion());
+            }
+        }
+        transaccionRepository.saveAll(transacciones);
+    }
+
+    private static FacturacionComercio facturacion(Comercio comercio, Comision comision, LocalDate inicio,
+            String estado) {
+        FacturacionComercio facturacion = new FacturacionComercio();
+        facturacion.setComercio(comercio);
+        facturacion.setComision(comision);
+        facturacion.setFechaInicio(inicio);
+        facturacion.setFechaFin(inicio.plusMonths(1).minusDays(1));
+        facturacion.setTransaccionesProcesadas(0);
+        facturacion.setTransaccionesAutorizadas(0);
+        facturacion.setTransaccionesRechazadas(0);
+        facturacion.setTransaccionesReversadas(0);
+        facturacion.setValor(BigDecimal.ZERO);
+        facturacion.setEstado(estado);
+        return facturacion;
+    }
+
+    public Integer comercio(int i) {
+        return comercios.get(i % COMERCIOS);
+    }
+
+    public Integer facturacion(int i) {
+        return facturacionesActivas.get(i % COMERCIOS);
+    }
+
+    public String codigoUnico(int i) {
+        return codigosUnicos.get(i % codigosUnicos.size());
+    }
+
+    public LocalDate fechaTransacciones() {
+        return fechaTransacciones;
+    }
+
+    // Mismo cuerpo que envía el POS; cada pago usa otro número de tarjeta y otro código único
+    public String transaccionJson(ObjectMapper objectMapper, String prueba, int i) throws JsonProcessingException {
+        String marca = MARCAS[i % MARCAS.length];
+        Map<String, String> tarjeta = new LinkedHashMap<>();
+        tarjeta.put("cardNumber", String.format("4%015d", i));
+        tarjeta.put("expiryDate", "12/30");
+        tarjeta.put("cvv", "AMEX".equals(marca) ? "1234" : "123");
+        tarjeta.put("nombreTarjeta", "RENDIMIENTO");
+        tarjeta.put("direccionTarjeta", "QUITO");
+
+        Map<String, Object> transaccion = new LinkedHashMap<>();
+        transaccion.put("comercio", Map.of("codigo", comercio(i)));
+        transaccion.put("facturacionComercio", Map.of("codigo", facturacion(i)));
+        transaccion.put("tipo", "SIM");
+        transaccion.put("marca", marca);
+        transaccion.put("detalle", "Rendimiento - " + marca);
+        transaccion.put("monto", new BigDecimal("25.00"));
+        transaccion.put("codigoUnicoTransaccion", String.format("%s-%s-%06d", PREFIJO_COMERCIO, prueba, i));
+        // El POS envía la fecha del pago; /sincronizar no la completa
+        transaccion.put("fecha", LocalDateTime.now().withNano(0).toString());
+        transaccion.put("estado", "ENV");
+        transaccion.put("moneda", "USD");
+        transaccion.put("pais", "EC");
+        transaccion.put("tarjeta", objectMapper.writeValueAsString(tarjeta));
+        transaccion.put("codigoPos", String.format("POS%04d", i % COMERCIOS));
+        transaccion.put("modeloPos", "POS");
+        return objectMapper.writeValueAsString(transaccion);
+    }
+}
@@ -0,0 +1,31 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import ec.edu.espe.gateway.rendimiento.MedidorRendimiento.Presupuesto;
+import org.junit.jupiter.api.Test;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Presupuestos de FacturacionComercioController. Los listados traen comercio y comisión en la
+ * misma consulta: una sentencia sin importar cuántas facturaciones devuelvan.
+ */
+class FacturacionRendimientoIT extends PruebaRendimiento {
+
+    @Test
+    void obtenerPorCodigo() throws Exception {
+        medidor.medir("GET /api/facturacion/{codigo}", i -> get("/api/facturacion/{codigo}", datos.facturacion(i)))
+                .verificar(new Presupuesto(1, 128, 20));
+    }
+
+    @Test
+    void obtenerPorEstado() throws Exception {
+        medidor.medir("GET /api/facturacion/estado/{estado}", i -> get("/api/facturacion/estado/{estado}", "ACT"))
+                .verificar(new Presupuesto(1, 384, 20));
+    }
+
+    @Test
+    void obtenerPendientesPago() throws Exception {
+        medidor.medir("GET /api/facturacion/pendientes-pago", i -> get("/api/facturacion/pendientes-pago"))
+                .verificar(new Presupuesto(1, 448, 20));
+    }
+}
@@ -0,0 +1,88 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.config.ContadorSentencias;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que las inserciones de transacciones van en lotes JDBC: con jdbc.batch_size=50 y
+ * claves pooled-lo, Hibernate prepara el INSERT una vez y lo reutiliza en todos los lotes del
+ * flush; sin lotes lo prepara una vez por fila. ContadorSentencias registra cada sentencia
+ * preparada, así que las INSERTS filas no deben verse como más de ceil(INSERTS / 50) INSERT.
+ */
+class InsercionLotesRendimientoIT extends PruebaRendimiento {
+
+    private static final int INSERTS = 120;
+    private static final int TAMANO_LOTE = 50;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Test
+    void insertarEnLotes() {
+        ContadorSentencias.iniciar();
+        ContadorSentencias.Contexto contexto;
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                Comercio comercio = entityManager.getReference(Comercio.class, datos.comercio(0));
+                FacturacionComercio facturacion = entityManager.getReference(FacturacionComercio.class,
+                        datos.facturacion(0));
+                List<Transaccion> transacciones = new ArrayList<>();
+                for (int i = 0; i < INSERTS; i++) {
+                    transacciones.add(transaccion(comercio, facturacion, i));
+                }
+                transaccionRepository.saveAll(transacciones);
+            });
+        } finally {
+            contexto = ContadorSentencias.finalizar();
+        }
+
+        int lotesEsperados = (INSERTS + TAMANO_LOTE - 1) / TAMANO_LOTE;
+        int inserts = contexto.getPorForma().entrySet().stream()
+                .filter(entrada -> entrada.getKey().startsWith("insert into GTW_TRANSACCION "))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+        assertTrue(inserts >= 1 && inserts <= lotesEsperados,
+                "INSERT preparados para " + INSERTS + " transacciones: " + inserts);
+        // Con bloques de 50 la secuencia se consulta una vez por bloque, no por fila
+        assertTrue(contexto.getTotal() <= lotesEsperados * 2 + 1,
+                "Sentencias totales: " + contexto.getTotal() + " (" + contexto.getPorForma() + ")");
+    }
+
+    private static Transaccion transaccion(Comercio comercio, FacturacionComercio facturacion, int i) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setComercio(comercio);
+        transaccion.setFacturacionComercio(facturacion);
+        transaccion.setTipo("SIM");
+        transaccion.setMarca("VISA");
+        transaccion.setDetalle("Lote - VISA");
+        transaccion.setMonto(new BigDecimal("10.00"));
+        transaccion.setCodigoUnicoTransaccion(String.format("LOTE-%d-%04d", System.nanoTime(), i));
+        transaccion.setFecha(LocalDateTime.now());
+        transaccion.setEstado("AUT");
+        transaccion.setMoneda("USD");
+        transaccion.setPais("EC");
+        transaccion.setTarjeta("{\"cardNumber\":\"4111111111111111\",\"expiryDate\":\"12/30\",\"cvv\":\"123\"}");
+        return transaccion;
+    }
+}
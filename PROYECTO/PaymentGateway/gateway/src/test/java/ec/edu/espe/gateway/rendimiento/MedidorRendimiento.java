@@ -0,0 +1,116 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import ec.edu.espe.gateway.config.ContadorSentencias;
+import ec.edu.espe.gateway.config.ContadorSentenciasFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejecuta una petición repetidas veces con MockMvc y mide, por petición, las sentencias SQL
+ * (las que cuenta ContadorSentenciasFilter), los bytes asignados y la latencia.
+ * MockMvc atiende la petición en el hilo de la prueba, así que los bytes asignados cubren filtros,
+ * controlador, servicio, Hibernate y la llamada al procesador, pero no el trabajo que se delega a
+ * otros hilos (la autorización de /v2/sincronizar o las notificaciones al POS).
+ * Las primeras CALENTAMIENTO ejecuciones no se miden.
+ */
+public class MedidorRendimiento {
+
+    private static final Logger log = LoggerFactory.getLogger(MedidorRendimiento.class);
+
+    static final int CALENTAMIENTO = 100;
+    static final int MEDICIONES = 200;
+
+    private final MockMvc mockMvc;
+    private final com.sun.management.ThreadMXBean hilos =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public MedidorRendimiento(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    // La petición i recibe el índice de la ejecución para variar códigos y tarjetas
+    public Medicion medir(String endpoint, IntFunction<RequestBuilder> peticion) throws Exception {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            ejecutar(endpoint, peticion.apply(i));
+        }
+
+        long[] tiempos = new long[MEDICIONES];
+        long[] bytes = new long[MEDICIONES];
+        int sentencias = 0;
+        String formaMasRepetida = null;
+        for (int i = 0; i < MEDICIONES; i++) {
+            RequestBuilder siguiente = peticion.apply(CALENTAMIENTO + i);
+            long bytesAntes = hilos.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            MvcResult resultado = ejecutar(endpoint, siguiente);
+            tiempos[i] = System.nanoTime() - inicio;
+            bytes[i] = hilos.getCurrentThreadAllocatedBytes() - bytesAntes;
+
+            ContadorSentencias.Contexto contexto = (ContadorSentencias.Contexto) resultado.getRequest()
+                    .getAttribute(ContadorSentenciasFilter.ATRIBUTO_CONTEXTO);
+            assertNotNull(contexto, endpoint + " no pasó por ContadorSentenciasFilter");
+            if (contexto.getTotal() > sentencias) {
+                sentencias = contexto.getTotal();
+                Map.Entry<String, Integer> masRepetida = contexto.obtenerFormaMasRepetida();
+                formaMasRepetida = masRepetida.getValue() + "x " + masRepetida.getKey();
+            }
+        }
+        Arrays.sort(tiempos);
+        Arrays.sort(bytes);
+        return new Medicion(endpoint, sentencias, formaMasRepetida, bytes[MEDICIONES / 2],
+                tiempos[(int) (MEDICIONES * 0.95)]);
+    }
+
+    private MvcResult ejecutar(String endpoint, RequestBuilder peticion) throws Exception {
+        MvcResult resultado = mockMvc.perform(peticion).andReturn();
+        int estado = resultado.getResponse().getStatus();
+        assertTrue(estado >= 200 && estado < 300,
+                endpoint + " respondió " + estado + ": " + resultado.getResponse().getContentAsString());
+        return resultado;
+    }
+
+    /**
+     * Presupuesto de un endpoint: sentencias por petición (máximo), kilobytes asignados por petición
+     * (mediana) y latencia p95. Salen de cuatro corridas contra MariaDB 11.4 local: las sentencias
+     * son exactamente las medidas, los kilobytes 1.25 veces el máximo (múltiplo de 32) y el p95 1.5
+     * veces el máximo (múltiplo de 5 ms), porque el p95 varía de una corrida a otra.
+     */
+    public record Presupuesto(int sentencias, long kilobytes, long p95Milisegundos) {
+    }
+
+    public record Medicion(String endpoint, int sentencias, String formaMasRepetida, long bytes, long p95Nanos) {
+
+        public void verificar(Presupuesto presupuesto) {
+            log.info("{}: {} sentencias, {} KB asignados, p95={} ms", endpoint, sentencias, bytes / 1024,
+                    String.format("%.2f", p95Nanos / 1e6));
+
+            List<String> excesos = new ArrayList<>();
+            if (sentencias > presupuesto.sentencias()) {
+                excesos.add(String.format("%d sentencias (presupuesto %d, la más repetida: %s)",
+                        sentencias, presupuesto.sentencias(), formaMasRepetida));
+            }
+            if (bytes > presupuesto.kilobytes() * 1024) {
+                excesos.add(String.format("%d KB asignados (presupuesto %d KB)",
+                        bytes / 1024, presupuesto.kilobytes()));
+            }
+            if (p95Nanos > presupuesto.p95Milisegundos() * 1_000_000) {
+                excesos.add(String.format("p95 de %.2f ms (presupuesto %d ms)",
+                        p95Nanos / 1e6, presupuesto.p95Milisegundos()));
+            }
+            assertTrue(excesos.isEmpty(), endpoint + " excede su presupuesto: " + String.join("; ", excesos));
+        }
+    }
+}
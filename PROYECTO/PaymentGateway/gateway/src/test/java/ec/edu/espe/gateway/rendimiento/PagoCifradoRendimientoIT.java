@@ -0,0 +1,86 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
+import ec.edu.espe.gateway.seguridad.repository.SeguridadGatewayRepository;
+import ec.edu.espe.gateway.seguridad.services.CifradorLlavero;
+import ec.edu.espe.gateway.seguridad.services.DistribucionClavesService;
+import ec.edu.espe.gateway.seguridad.services.LlaveroClaves;
+import ec.edu.espe.gateway.seguridad.services.SeguridadGatewayService;
+import ec.edu.espe.gateway.transaccion.services.PagoCifradoService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Costo de descifrar y leer un pago antes de llamar al procesador: p99 por debajo de 1 ms.
+ * No levanta el contexto de Spring ni usa la base; queda fuera de mvn test porque un tiempo de
+ * reloj depende de la carga de la máquina.
+ */
+class PagoCifradoRendimientoIT {
+
+    private static final Logger log = LoggerFactory.getLogger(PagoCifradoRendimientoIT.class);
+
+    private static final int CALENTAMIENTO = 20_000;
+    private static final int MEDICIONES = 50_000;
+    private static final long PRESUPUESTO_NANOS = 1_000_000;
+
+    private static final String PAGO_JSON = "{"
+            + "\"comercio\":{\"codigo\":1},"
+            + "\"facturacionComercio\":{\"codigo\":1},"
+            + "\"tipo\":\"SIM\",\"marca\":\"VISA\",\"detalle\":\"Pago POS\","
+            + "\"monto\":125.50,\"codigoUnicoTransaccion\":\"6f1c1f7e-2a57-4b0e-9f7d-3c1e2b8a9d10\","
+            + "\"fecha\":\"2024-11-20T10:15:30\",\"estado\":\"ENV\",\"moneda\":\"USD\",\"pais\":\"EC\","
+            + "\"tarjeta\":\"{\\\"cardNumber\\\":\\\"4111111111111111\\\",\\\"expiryDate\\\":\\\"12/27\\\","
+            + "\\\"cvv\\\":\\\"123\\\",\\\"nombreTarjeta\\\":\\\"JUAN PEREZ\\\",\\\"direccionTarjeta\\\":\\\"QUITO\\\"}\","
+            + "\"codigoPos\":\"POS001\",\"modeloPos\":\"POS\"}";
+
+    @Test
+    void descifrarYLeerPagoEnMenosDeUnMilisegundo() {
+        byte[] material = new byte[16];
+        new SecureRandom().nextBytes(material);
+        SeguridadGateway clave = new SeguridadGateway();
+        clave.setCodigo(1);
+        clave.setClave(Base64.getEncoder().encodeToString(material));
+        clave.setFechaActivacion(LocalDate.now());
+        clave.setEstado("ACT");
+
+        LlaveroClaves llavero = new LlaveroClaves();
+        llavero.recargar(clave, null, List.of());
+        CifradorLlavero cifrador = new CifradorLlavero(llavero);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Con el llavero cargado el repositorio no se consulta
+        SeguridadGatewayService seguridadGatewayService = new SeguridadGatewayService(
+                mock(SeguridadGatewayRepository.class), llavero, new DistribucionClavesService(llavero), cifrador, null);
+        PagoCifradoService pagoCifradoService = new PagoCifradoService(seguridadGatewayService, objectMapper);
+        String pagoCifrado = cifrador.encriptar(PAGO_JSON.getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            pagoCifradoService.descifrar(pagoCifrado);
+        }
+
+        long[] tiempos = new long[MEDICIONES];
+        for (int i = 0; i < MEDICIONES; i++) {
+            long inicio = System.nanoTime();
+            pagoCifradoService.descifrar(pagoCifrado);
+            tiempos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tiempos);
+        long p50 = tiempos[MEDICIONES / 2];
+        long p99 = tiempos[(int) (MEDICIONES * 0.99)];
+        log.info("Descifrado + lectura de pago: p50={} ns, p99={} ns", p50, p99);
+
+        assertTrue(p99 < PRESUPUESTO_NANOS, "p99 de " + p99 + " ns excede el presupuesto de 1 ms");
+    }
+}
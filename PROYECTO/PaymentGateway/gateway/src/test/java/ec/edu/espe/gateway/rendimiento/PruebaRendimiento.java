@@ -0,0 +1,57 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.gateway.comercio.repository.ComercioRepository;
+import ec.edu.espe.gateway.comercio.services.IndiceBusquedaComercio;
+import ec.edu.espe.gateway.comision.repository.ComisionRepository;
+import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Base de las pruebas *RendimientoIT: levanta el gateway completo con el perfil rendimiento contra
+ * la MariaDB local (ver application-rendimiento.properties). El puerto es fijo porque el cliente
+ * Feign del procesador llama al simulador embebido en el mismo gateway.
+ * Todas las clases comparten el contexto de Spring y la carga sintética.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("rendimiento")
+abstract class PruebaRendimiento {
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    private ComisionRepository comisionRepository;
+
+    @Autowired
+    private ComercioRepository comercioRepository;
+
+    @Autowired
+    private FacturacionComercioRepository facturacionComercioRepository;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private IndiceBusquedaComercio indiceBusqueda;
+
+    protected DatosRendimiento datos;
+    protected MedidorRendimiento medidor;
+
+    @BeforeEach
+    void prepararDatos() {
+        datos = DatosRendimiento.preparar(comisionRepository, comercioRepository, facturacionComercioRepository,
+                transaccionRepository, indiceBusqueda);
+        medidor = new MedidorRendimiento(mockMvc);
+    }
+}
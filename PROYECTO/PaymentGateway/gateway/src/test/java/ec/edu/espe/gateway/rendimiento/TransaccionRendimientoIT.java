@@ -0,0 +1,63 @@
+package ec.edu.espe.gateway.rendimiento;
+
+import ec.edu.espe.gateway.rendimiento.MedidorRendimiento.Presupuesto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Presupuestos de TransaccionController. /sincronizar incluye la llamada HTTP al procesador
+ * simulado; /v2/sincronizar solo la aceptación (la autorización corre en otro hilo). Las dos
+ * cuentan una sexta sentencia: el bloque de 50 códigos de GTW_TRANSACCION_SEQ.
+ */
+class TransaccionRendimientoIT extends PruebaRendimiento {
+
+    @Test
+    void sincronizar() throws Exception {
+        medidor.medir("POST /api/transacciones/sincronizar", i -> post("/api/transacciones/sincronizar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo("SINC", i)))
+                .verificar(new Presupuesto(6, 320, 60));
+    }
+
+    @Test
+    void sincronizarAsincrona() throws Exception {
+        medidor.medir("POST /api/transacciones/v2/sincronizar", i -> post("/api/transacciones/v2/sincronizar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo("ASIN", i)))
+                .verificar(new Presupuesto(6, 224, 80));
+    }
+
+    @Test
+    void obtenerEstado() throws Exception {
+        medidor.medir("GET /api/transacciones/{codigoUnico}/estado",
+                        i -> get("/api/transacciones/{codigoUnico}/estado", datos.codigoUnico(i)))
+                .verificar(new Presupuesto(1, 96, 15));
+    }
+
+    @Test
+    void obtenerPorCodigoUnico() throws Exception {
+        medidor.medir("GET /api/transacciones/codigo-unico/{codigoUnico}",
+                        i -> get("/api/transacciones/codigo-unico/{codigoUnico}", datos.codigoUnico(i)))
+                .verificar(new Presupuesto(3, 192, 25));
+    }
+
+    @Test
+    void obtenerPorComercioYFecha() throws Exception {
+        medidor.medir("GET /api/transacciones/comercio/{codigoComercio}",
+                        i -> get("/api/transacciones/comercio/{codigoComercio}", datos.comercio(i))
+                                .param("fechaInicio", datos.fechaTransacciones().toString())
+                                .param("fechaFin", datos.fechaTransacciones().toString()))
+                .verificar(new Presupuesto(3, 384, 35));
+    }
+
+    private String cuerpo(String prueba, int i) {
+        try {
+            return datos.transaccionJson(objectMapper, prueba, i);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al armar la transacción: " + e.getMessage());
+        }
+    }
+}
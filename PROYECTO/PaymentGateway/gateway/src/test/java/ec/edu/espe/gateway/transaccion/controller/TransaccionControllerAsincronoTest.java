@@ -0,0 +1,135 @@
+package ec.edu.espe.gateway.transaccion.controller;
+
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import ec.edu.espe.gateway.transaccion.services.ArchivoTransaccionesService;
+import ec.edu.espe.gateway.transaccion.services.AutorizacionAsincronaService;
+import ec.edu.espe.gateway.transaccion.services.EstadoTransaccionCache;
+import ec.edu.espe.gateway.transaccion.services.LimitadorTransacciones;
+import ec.edu.espe.gateway.transaccion.services.MetricasTransaccion;
+import ec.edu.espe.gateway.transaccion.services.RecurrenceService;
+import ec.edu.espe.gateway.transaccion.services.TransaccionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /v2/sincronizar responde 202 con el estado ENV y GET /{codigo}/estado refleja el resultado
+ * del procesador cuando termina la autorización diferida. Las tareas del ejecutor se retienen para
+ * consultar el estado antes y después de autorizar.
+ */
+class TransaccionControllerAsincronoTest {
+
+    private static final String CODIGO_UNICO = "6f1c1f7e-2a57-4b0e-9f7d-3c1e2b8a9d10";
+    private static final String PAGO = "{\"comercio\":{\"codigo\":1},\"facturacionComercio\":{\"codigo\":1},"
+            + "\"tipo\":\"SIM\",\"marca\":\"VISA\",\"detalle\":\"Pago POS\",\"monto\":125.50,"
+            + "\"codigoUnicoTransaccion\":\"" + CODIGO_UNICO + "\",\"fecha\":\"2024-11-20T10:15:30\","
+            + "\"moneda\":\"USD\",\"pais\":\"EC\",\"tarjeta\":\"{}\",\"codigoPos\":\"POS001\",\"modeloPos\":\"POS\"}";
+
+    private final TransaccionService transaccionService = mock(TransaccionService.class);
+    private final TransaccionRepository transaccionRepository = mock(TransaccionRepository.class);
+    private final ArchivoTransaccionesService archivo = mock(ArchivoTransaccionesService.class);
+    private final LimitadorTransacciones limitador = mock(LimitadorTransacciones.class);
+    private final List<Runnable> tareas = new ArrayList<>();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void configurar() {
+        AutorizacionAsincronaService servicio = new AutorizacionAsincronaService(transaccionService,
+                transaccionRepository, new EstadoTransaccionCache(1000), archivo,
+                new MetricasTransaccion(new SimpleMeterRegistry()),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), tareas::add);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TransaccionController(transaccionService,
+                mock(RecurrenceService.class), servicio, limitador)).build();
+
+        when(limitador.verificar(any())).thenReturn(0L);
+        when(transaccionRepository.findEstadoByCodigoUnicoTransaccion(anyString())).thenReturn(Optional.empty());
+        when(transaccionService.registrarTransaccionPOS(any())).thenAnswer(invocacion -> {
+            Transaccion transaccion = invocacion.getArgument(0);
+            transaccion.setEstado(TransaccionService.ESTADO_ENVIADO);
+            return transaccion;
+        });
+        when(transaccionService.autorizarTransaccionPOS(any())).thenAnswer(invocacion -> {
+            Transaccion transaccion = invocacion.getArgument(0);
+            transaccion.setEstado(TransaccionService.ESTADO_AUTORIZADO);
+            return true;
+        });
+    }
+
+    private void enviarPago() throws Exception {
+        mockMvc.perform(post("/api/transacciones/v2/sincronizar").contentType(MediaType.APPLICATION_JSON).content(PAGO))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/transacciones/" + CODIGO_UNICO + "/estado"))
+                .andExpect(jsonPath("$.codigoUnicoTransaccion").value(CODIGO_UNICO))
+                .andExpect(jsonPath("$.estado").value(TransaccionService.ESTADO_ENVIADO));
+    }
+
+    private void consultarEstado(String estado) throws Exception {
+        mockMvc.perform(get("/api/transacciones/" + CODIGO_UNICO + "/estado"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estado").value(estado));
+    }
+
+    @Test
+    void aceptaConEstadoEnviadoYLaConsultaReflejaLaAutorizacion() throws Exception {
+        enviarPago();
+        consultarEstado(TransaccionService.ESTADO_ENVIADO);
+
+        assertEquals(1, tareas.size());
+        tareas.get(0).run();
+
+        consultarEstado(TransaccionService.ESTADO_AUTORIZADO);
+    }
+
+    @Test
+    void reintentoDelPosDevuelveElEstadoSinRegistrarDeNuevo() throws Exception {
+        enviarPago();
+        enviarPago();
+
+        verify(transaccionService, times(1)).registrarTransaccionPOS(any());
+        assertEquals(1, tareas.size());
+    }
+
+    @Test
+    void reintentoConcurrenteRechazadoPorLaClaveUnicaNoSeEnviaAlProcesador() throws Exception {
+        // El otro reintento insertó primero: la inserción de este choca con UK_GTW_TRANSACCION_CODIGO_UNICO
+        doThrow(new DuplicateKeyException("Duplicate entry")).when(transaccionRepository).flush();
+        when(transaccionRepository.findEstadoByCodigoUnicoTransaccion(CODIGO_UNICO))
+                .thenReturn(Optional.empty(), Optional.of(TransaccionService.ESTADO_ENVIADO));
+
+        enviarPago();
+
+        assertEquals(0, tareas.size());
+        verify(transaccionService, never()).autorizarTransaccionPOS(any());
+    }
+
+    @Test
+    void codigoDesconocidoDevuelve404() throws Exception {
+        mockMvc.perform(get("/api/transacciones/otro-codigo/estado")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,124 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.facturacion.repository.FacturacionComercioRepository;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import ec.edu.espe.gateway.transaccion.repository.TransaccionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static ec.edu.espe.gateway.transaccion.services.SegmentoTransaccionesTest.transaccion;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArchivoTransaccionesServiceTest {
+
+    // Códigos distintos cuyo hash FNV-1a comparte los 32 bits altos: misma clave en el índice
+    private static final String COLISION_A = "TRX-0352141";
+    private static final String COLISION_B = "TRX-0543390";
+    private static final LocalDateTime FECHA = LocalDateTime.of(2024, 5, 10, 12, 0);
+
+    @TempDir
+    Path directorio;
+
+    private final TransaccionRepository transaccionRepository = mock(TransaccionRepository.class);
+    private final FacturacionComercioRepository facturacionComercioRepository =
+            mock(FacturacionComercioRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private ArchivoTransaccionesService servicio() {
+        return new ArchivoTransaccionesService(transaccionRepository, facturacionComercioRepository, jdbcTemplate,
+                new SimpleMeterRegistry(), directorio.toString(), true);
+    }
+
+    private void escribir(String comercio, String nombre, Transaccion... transacciones) throws IOException {
+        SegmentoTransacciones.escribir(directorio.resolve(comercio).resolve(nombre), Integer.parseInt(comercio),
+                List.of(transacciones));
+    }
+
+    @Test
+    void veLosSegmentosEscritosOBorradosPorOtraInstancia() throws IOException {
+        escribir("7", "202405-F70.seg", transaccion(1, "TRX-1", FECHA));
+        ArchivoTransaccionesService servicio = servicio();
+        servicio.cargarSegmentos();
+        assertEquals(1, servicio.buscarPorCodigoUnico("TRX-1").getCodigo());
+        assertNull(servicio.buscarPorCodigoUnico("TRX-2"));
+
+        escribir("8", "202405-F80.seg", transaccion(2, "TRX-2", FECHA));
+        escribir("7", "202405-F70.seg", transaccion(1, "TRX-1", FECHA), transaccion(3, "TRX-3", FECHA));
+        servicio.refrescarSegmentos();
+        assertEquals(2, servicio.buscarPorCodigoUnico("TRX-2").getCodigo());
+        assertEquals(3, servicio.buscarPorCodigoUnico("TRX-3").getCodigo());
+        assertEquals(2, servicio.buscarPorComercioEnRango(7, FECHA, FECHA.plusSeconds(1)).size());
+
+        Files.delete(directorio.resolve("8").resolve("202405-F80.seg"));
+        servicio.refrescarSegmentos();
+        assertNull(servicio.buscarPorCodigoUnico("TRX-2"));
+    }
+
+    @Test
+    void resuelveLasColisionesDelIndiceEntreSegmentos() throws IOException {
+        escribir("7", "202405-F70.seg", transaccion(1, COLISION_A, FECHA));
+        escribir("8", "202405-F80.seg", transaccion(2, COLISION_B, FECHA));
+        ArchivoTransaccionesService servicio = servicio();
+        servicio.cargarSegmentos();
+
+        assertEquals(1, servicio.buscarPorCodigoUnico(COLISION_A).getCodigo());
+        assertEquals(2, servicio.buscarPorCodigoUnico(COLISION_B).getCodigo());
+    }
+
+    @Test
+    void noArchivaSiOtraInstanciaTieneElBloqueo() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+
+        servicio().archivarFacturacionesPagadas();
+
+        verify(facturacionComercioRepository, never()).findPagadasSinArchivar();
+    }
+
+    @Test
+    void marcaComoArchivadaCadaFacturacionQueArchiva() throws Exception {
+        // Con el bloqueo tomado: GET_LOCK y RELEASE_LOCK devuelven 1
+        ResultSet uno = mock(ResultSet.class);
+        when(uno.next()).thenReturn(true);
+        when(uno.getInt(1)).thenReturn(1);
+        PreparedStatement sentencia = mock(PreparedStatement.class);
+        when(sentencia.executeQuery()).thenReturn(uno);
+        Connection conexion = mock(Connection.class);
+        when(conexion.prepareStatement(anyString())).thenReturn(sentencia);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocacion -> invocacion.<ConnectionCallback<?>>getArgument(0).doInConnection(conexion));
+
+        FacturacionComercio facturacion = new FacturacionComercio(70);
+        facturacion.setComercio(new Comercio(7));
+        when(facturacionComercioRepository.findPagadasSinArchivar()).thenReturn(List.of(facturacion));
+        when(transaccionRepository.findByFacturacionComercio(70)).thenReturn(List.of(transaccion(1, "TRX-1", FECHA)));
+
+        ArchivoTransaccionesService servicio = servicio();
+        servicio.archivarFacturacionesPagadas();
+
+        verify(jdbcTemplate).update(anyString(), any(Timestamp.class), eq(70));
+        assertEquals(1, servicio.buscarPorCodigoUnico("TRX-1").getCodigo());
+    }
+}
@@ -0,0 +1,116 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.LimiteComercioRepository;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LimitadorTransaccionesTest {
+
+    private final LimiteComercioRepository limiteComercioRepository = mock(LimiteComercioRepository.class);
+    private final RegistroUltimoUsoPos terminales = mock(RegistroUltimoUsoPos.class);
+
+    // Todos los terminales MOD-A y MOD-B son del comercio 7; el resto no está registrado
+    @BeforeEach
+    void registrarTerminales() {
+        when(terminales.comercioDe(any())).thenAnswer(invocacion -> {
+            PosComercioPK pk = invocacion.getArgument(0);
+            return pk.getModelo() != null && pk.getModelo().startsWith("MOD-") ? 7 : null;
+        });
+    }
+
+    // Una ficha por segundo: las pruebas terminan mucho antes de que se libere la siguiente
+    private LimitadorTransacciones limitador(int clavesMaximas, int rafagaPos) {
+        when(limiteComercioRepository.findAll()).thenReturn(List.of());
+        return new LimitadorTransacciones(limiteComercioRepository, terminales, new SimpleMeterRegistry(), true,
+                clavesMaximas, 60, rafagaPos, 0, 0);
+    }
+
+    @Test
+    void dejaPasarLaRafagaYLuegoPideEsperarUnIntervalo() {
+        LimitadorTransacciones limitador = limitador(100, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")), "ficha " + i + " de la ráfaga");
+        }
+        long espera = limitador.verificar(new PosComercioPK("MOD-A", "POS-1"));
+        assertTrue(espera > 0 && espera <= TimeUnit.SECONDS.toNanos(1), "espera: " + espera);
+        assertEquals("1", LimitadorTransacciones.segundosEspera(espera));
+    }
+
+    @Test
+    void elMismoCodigoEnOtroModeloTieneSuPropiaCubeta() {
+        LimitadorTransacciones limitador = limitador(100, 1);
+
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")));
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-1")) > 0);
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-B", "POS-1")));
+    }
+
+    @Test
+    void lasClavesNuevasCompartenElDesbordeHastaLaRevision() {
+        LimitadorTransacciones limitador = limitador(1, 1);
+
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")));
+        // Mapa lleno: POS-2 y POS-3 toman de la misma cubeta de desborde
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-2")));
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-3")) > 0);
+        // La cubeta propia de POS-1 no se ve afectada por el desborde
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-1")) > 0);
+
+        // La revisión no quita cubetas con fichas consumidas, así que el desborde sigue en uso
+        limitador.revisar();
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-4")) > 0);
+    }
+
+    @Test
+    void laRevisionLiberaLugarCuandoLasCubetasSeLlenan() throws InterruptedException {
+        LimitadorTransacciones limitador = new LimitadorTransacciones(limiteComercioRepository, terminales,
+                new SimpleMeterRegistry(), true, 1, 600, 1, 0, 0);
+
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")));
+        // Con 10 fichas por segundo la cubeta de POS-1 vuelve a estar llena en 100 ms
+        TimeUnit.MILLISECONDS.sleep(150);
+        limitador.revisar();
+
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-2")));
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-2")) > 0, "POS-2 debe tener cubeta propia");
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-3")), "el desborde no se consumió");
+    }
+
+    @Test
+    void losTerminalesDesconocidosCompartenUnaSolaCubeta() {
+        LimitadorTransacciones limitador = limitador(100, 2);
+
+        // Rotar el modelo o el código no abre cubetas nuevas
+        assertEquals(0, limitador.verificar(new PosComercioPK("X-1", "POS-1")));
+        assertEquals(0, limitador.verificar(new PosComercioPK("X-2", "POS-1")));
+        assertTrue(limitador.verificar(new PosComercioPK("X-3", "POS-9")) > 0);
+        // Los terminales registrados no se ven afectados
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")));
+    }
+
+    @Test
+    void elComercioSaleDelRegistroDeTerminales() {
+        when(limiteComercioRepository.findAll()).thenReturn(List.of());
+        // Sin límite por terminal y una ficha por segundo para el comercio
+        LimitadorTransacciones limitador = new LimitadorTransacciones(limiteComercioRepository, terminales,
+                new SimpleMeterRegistry(), true, 100, 0, 0, 60, 2);
+
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-A", "POS-1")));
+        assertEquals(0, limitador.verificar(new PosComercioPK("MOD-B", "POS-2")));
+        // Otro terminal del mismo comercio encuentra la cubeta del comercio vacía
+        assertTrue(limitador.verificar(new PosComercioPK("MOD-A", "POS-3")) > 0);
+    }
+}
@@ -0,0 +1,123 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.repository.LimiteComercioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class MotorVelocidadTest {
+
+    private static final long ANCHO_MS = 1000;
+    // Lejos del cero para que las épocas tengan bits altos y la máscara de 20 bits entre en juego
+    private static final long INICIO_MS = 1_700_000_000_000L;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void acumulaEnLaRanuraDeLaEpocaYDescartaLasVencidas() {
+        MotorVelocidad.Ventana ventana = new MotorVelocidad.Ventana(3, ANCHO_MS, 1);
+
+        ventana.agregar(INICIO_MS, 5);
+        ventana.agregar(INICIO_MS + 10, 7);
+        ventana.agregar(INICIO_MS + ANCHO_MS, 100);
+        assertEquals(112, ventana.suma(INICIO_MS + ANCHO_MS));
+        assertEquals(112, ventana.suma(INICIO_MS + 2 * ANCHO_MS));
+
+        // La primera ranura sale de la ventana de tres
+        assertEquals(100, ventana.suma(INICIO_MS + 3 * ANCHO_MS));
+        assertEquals(0, ventana.suma(INICIO_MS + 4 * ANCHO_MS));
+    }
+
+    @Test
+    void reiniciaLaRanuraReutilizadaPorUnaEpocaPosterior() {
+        MotorVelocidad.Ventana ventana = new MotorVelocidad.Ventana(3, ANCHO_MS, 1);
+
+        ventana.agregar(INICIO_MS, 5);
+        // Tres épocas después cae en la misma posición del anillo: el acumulado viejo no se suma
+        ventana.agregar(INICIO_MS + 3 * ANCHO_MS, 2);
+        assertEquals(2, ventana.suma(INICIO_MS + 3 * ANCHO_MS));
+    }
+
+    @Test
+    void guardaMontosGrandesSinPisarLaEpoca() {
+        MotorVelocidad.Ventana ventana = new MotorVelocidad.Ventana(2, ANCHO_MS, 4);
+        long monto = 1L << 40;
+
+        ventana.agregar(INICIO_MS, monto);
+        ventana.agregar(INICIO_MS, monto);
+        assertEquals(2 * monto, ventana.suma(INICIO_MS + ANCHO_MS));
+        assertEquals(0, ventana.suma(INICIO_MS + 2 * ANCHO_MS));
+    }
+
+    private static final String CLAVE = "clave-de-pruebas-del-motor-de-velocidad";
+    private static final PosComercioPK POS_1 = new PosComercioPK("MOD-A", "POS-1");
+
+    private MotorVelocidad motor(String clave, long transaccionesTarjeta, long transaccionesMinutoPos) {
+        return new MotorVelocidad(mock(LimiteComercioRepository.class), new SimpleMeterRegistry(), true, clave,
+                directorio.resolve("datos/velocidad.estado").toString(), transaccionesTarjeta, 10,
+                new BigDecimal("5000"), transaccionesMinutoPos, new BigDecimal("100000"));
+    }
+
+    @Test
+    void evaluarNoConsumeCupoHastaRegistrar() {
+        MotorVelocidad motor = motor(CLAVE, 1, 120);
+        BigDecimal monto = new BigDecimal("10.00");
+
+        // Sin registrar, la segunda evaluación de la misma tarjeta sigue pasando
+        assertNull(motor.evaluar("4111111111111111", POS_1, 7, monto).getExcedida());
+        MotorVelocidad.Evaluacion aceptada = motor.evaluar("4111111111111111", POS_1, 7, monto);
+        assertNull(aceptada.getExcedida());
+
+        motor.registrar(aceptada);
+        assertEquals(MotorVelocidad.REGLA_TARJETA_CANTIDAD,
+                motor.evaluar("4111111111111111", POS_1, 7, monto).getExcedida());
+    }
+
+    @Test
+    void noArrancaSinClaveSecreta() {
+        assertThrows(IllegalStateException.class, () -> motor("", 1, 120));
+        assertThrows(IllegalStateException.class, () -> motor("corta", 1, 120));
+    }
+
+    @Test
+    void elMismoCodigoEnOtroModeloEsOtroTerminal() {
+        MotorVelocidad motor = motor(CLAVE, 0, 1);
+        BigDecimal monto = new BigDecimal("10.00");
+
+        motor.registrar(motor.evaluar(null, POS_1, null, monto));
+        assertEquals(MotorVelocidad.REGLA_POS_CANTIDAD, motor.evaluar(null, POS_1, null, monto).getExcedida());
+        assertNull(motor.evaluar(null, new PosComercioPK("MOD-B", "POS-1"), null, monto).getExcedida());
+    }
+
+    @Test
+    void elEstadoGuardadoSeRecuperaEnElDirectorioDeDatos() {
+        MotorVelocidad motor = motor(CLAVE, 1, 1);
+        BigDecimal monto = new BigDecimal("10.00");
+        motor.registrar(motor.evaluar("4111111111111111", POS_1, null, monto));
+        motor.guardarEstado();
+
+        MotorVelocidad recuperado = motor(CLAVE, 1, 1);
+        recuperado.cargarEstado();
+        assertEquals(MotorVelocidad.REGLA_POS_CANTIDAD,
+                recuperado.evaluar(null, POS_1, null, monto).getExcedida());
+        assertEquals(MotorVelocidad.REGLA_TARJETA_CANTIDAD,
+                recuperado.evaluar("4111111111111111", new PosComercioPK("MOD-B", "POS-2"), null, monto)
+                        .getExcedida());
+
+        // Con otra clave la huella de la misma tarjeta es otra
+        MotorVelocidad otraClave = motor(CLAVE + "-otra", 1, 1);
+        otraClave.cargarEstado();
+        assertNull(otraClave.evaluar("4111111111111111", new PosComercioPK("MOD-B", "POS-2"), null, monto)
+                .getExcedida());
+    }
+}
@@ -0,0 +1,137 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.PosComercioPK;
+import ec.edu.espe.gateway.comercio.services.RegistroUltimoUsoPos;
+import ec.edu.espe.gateway.transaccion.client.PosResultadoClient;
+import ec.edu.espe.gateway.transaccion.model.EstadoPagoDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificadorResultadosPosTest {
+
+    private static final int LOTE_MAXIMO = 2;
+    private static final long RETRASO_MAXIMO_MS = 500;
+    private static final long ESPERA_BASE_MS = 1000;
+    private static final long ESPERA_MAXIMA_MS = 60000;
+    private static final int INTENTOS_MAXIMOS = 2;
+    private static final String POR_DEFECTO = "http://pos-central:8082";
+    private static final String SUCURSAL = "http://pos-sucursal:8082";
+    private static final PosComercioPK POS001 = new PosComercioPK("POS", "POS0000001");
+    private static final PosComercioPK POS002 = new PosComercioPK("POS", "POS0000002");
+    private static final PosComercioPK POS_SUCURSAL = new PosComercioPK("POS", "SUCURSAL01");
+
+    private final PosResultadoClient cliente = mock(PosResultadoClient.class);
+    private final RegistroUltimoUsoPos terminales = mock(RegistroUltimoUsoPos.class);
+    private final NotificadorResultadosPos notificador = new NotificadorResultadosPos(cliente, terminales,
+            POR_DEFECTO, LOTE_MAXIMO, RETRASO_MAXIMO_MS, ESPERA_BASE_MS, ESPERA_MAXIMA_MS, INTENTOS_MAXIMOS);
+
+    @AfterEach
+    void detener() {
+        notificador.detener();
+    }
+
+    private static List<EstadoPagoDTO> lote(String... codigos) {
+        return argThat(resultados -> resultados.stream().map(EstadoPagoDTO::getCodigoUnicoTransaccion).toList()
+                .equals(List.of(codigos)));
+    }
+
+    @Test
+    void enviaLotesLlenosYEsperaElRetrasoMaximoParaElResto() {
+        notificador.encolar(POS001, "t1", "AUT");
+        notificador.encolar(POS001, "t2", "REC");
+        notificador.encolar(POS001, "t3", "AUT");
+        long ahora = System.currentTimeMillis();
+
+        notificador.enviarPendientes(POR_DEFECTO, ahora);
+        verify(cliente).enviarResultados(any(), lote("t1", "t2"));
+        verify(cliente, never()).enviarResultados(any(), lote("t3"));
+
+        notificador.enviarPendientes(POR_DEFECTO, ahora + RETRASO_MAXIMO_MS);
+        verify(cliente).enviarResultados(any(), lote("t3"));
+    }
+
+    @Test
+    void reintentaElMismoLoteConEsperaExponencialYLoDescartaTrasLosIntentosMaximos() {
+        when(cliente.enviarResultados(any(), any())).thenThrow(new RuntimeException("POS caído"));
+        long ahora = System.currentTimeMillis();
+        notificador.encolar(POS001, "t1", "AUT");
+        notificador.encolar(POS001, "t2", "AUT");
+
+        notificador.enviarPendientes(POR_DEFECTO, ahora);
+        verify(cliente, times(1)).enviarResultados(any(), any());
+
+        // Primer reintento entre 1 y 1.25 veces la espera base
+        notificador.enviarPendientes(POR_DEFECTO, ahora + ESPERA_BASE_MS - 1);
+        verify(cliente, times(1)).enviarResultados(any(), any());
+        ahora += ESPERA_BASE_MS * 5 / 4;
+        notificador.enviarPendientes(POR_DEFECTO, ahora);
+        verify(cliente, times(2)).enviarResultados(any(), lote("t1", "t2"));
+
+        // Segundo reintento: la espera se duplica
+        notificador.enviarPendientes(POR_DEFECTO, ahora + 2 * ESPERA_BASE_MS - 1);
+        verify(cliente, times(2)).enviarResultados(any(), any());
+        ahora += 2 * ESPERA_BASE_MS * 5 / 4;
+        notificador.enviarPendientes(POR_DEFECTO, ahora);
+        verify(cliente, times(3)).enviarResultados(any(), lote("t1", "t2"));
+
+        // Superados los intentos máximos el lote se descarta
+        notificador.enviarPendientes(POR_DEFECTO, ahora + ESPERA_MAXIMA_MS * 2);
+        verify(cliente, times(3)).enviarResultados(any(), any());
+    }
+
+    @Test
+    void agrupaLosResultadosPorElEndpointDeCadaTerminal() {
+        when(terminales.destinoDe(POS_SUCURSAL)).thenReturn(SUCURSAL);
+        notificador.encolar(POS001, "t1", "AUT");
+        notificador.encolar(POS_SUCURSAL, "t2", "AUT");
+        notificador.encolar(POS002, "t3", "REC");
+        long ahora = System.currentTimeMillis();
+
+        // POS001 y POS002 no tienen endpoint propio: comparten el lote del POS por defecto
+        notificador.enviarPendientes(POR_DEFECTO, ahora);
+        verify(cliente).enviarResultados(eq(URI.create(POR_DEFECTO)), lote("t1", "t3"));
+        notificador.enviarPendientes(SUCURSAL, ahora + RETRASO_MAXIMO_MS);
+        verify(cliente).enviarResultados(eq(URI.create(SUCURSAL)), lote("t2"));
+    }
+
+    @Test
+    void unPosLentoNoDetieneLosEnviosAOtrosPos() throws Exception {
+        when(terminales.destinoDe(POS_SUCURSAL)).thenReturn(SUCURSAL);
+        CountDownLatch liberarPosLento = new CountDownLatch(1);
+        when(cliente.enviarResultados(any(), lote("lento", "lento-2"))).thenAnswer(invocacion -> {
+            liberarPosLento.await(10, TimeUnit.SECONDS);
+            return "ok";
+        });
+        notificador.encolar(POS_SUCURSAL, "lento", "AUT");
+        notificador.encolar(POS_SUCURSAL, "lento-2", "AUT");
+        notificador.encolar(POS002, "rapido", "AUT");
+        notificador.encolar(POS002, "rapido-2", "AUT");
+
+        notificador.enviarLotes();
+        verify(cliente, timeout(2000)).enviarResultados(any(), lote("rapido", "rapido-2"));
+
+        // Mientras el envío al POS lento sigue en curso no se inicia otro para el mismo POS
+        notificador.encolar(POS_SUCURSAL, "lento-3", "AUT");
+        notificador.encolar(POS_SUCURSAL, "lento-4", "AUT");
+        notificador.enviarLotes();
+        verify(cliente, times(1)).enviarResultados(any(), argThat(resultados -> resultados.get(0)
+                .getCodigoUnicoTransaccion().startsWith("lento")));
+        liberarPosLento.countDown();
+        verify(cliente, timeout(2000)).enviarResultados(any(), lote("lento-3", "lento-4"));
+    }
+}
@@ -0,0 +1,91 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.gateway.seguridad.model.SeguridadGateway;
+import ec.edu.espe.gateway.seguridad.repository.SeguridadGatewayRepository;
+import ec.edu.espe.gateway.seguridad.services.CifradorLlavero;
+import ec.edu.espe.gateway.seguridad.services.DistribucionClavesService;
+import ec.edu.espe.gateway.seguridad.services.LlaveroClaves;
+import ec.edu.espe.gateway.seguridad.services.SeguridadGatewayService;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Descifrado y lectura de un pago antes de llamar al procesador.
+ * No levanta el contexto de Spring: llavero, cifrador y ObjectMapper reales con el repositorio de
+ * claves simulado. El costo por pago se
+ * mide aparte en rendimiento/PagoCifradoRendimientoIT (mvn verify).
+ */
+class PagoCifradoServiceTest {
+
+    private static final String PAGO_JSON = "{"
+            + "\"comercio\":{\"codigo\":1},"
+            + "\"facturacionComercio\":{\"codigo\":1},"
+            + "\"tipo\":\"SIM\",\"marca\":\"VISA\",\"detalle\":\"Pago POS\","
+            + "\"monto\":125.50,\"codigoUnicoTransaccion\":\"6f1c1f7e-2a57-4b0e-9f7d-3c1e2b8a9d10\","
+            + "\"fecha\":\"2024-11-20T10:15:30\",\"estado\":\"ENV\",\"moneda\":\"USD\",\"pais\":\"EC\","
+            + "\"tarjeta\":\"{\\\"cardNumber\\\":\\\"4111111111111111\\\",\\\"expiryDate\\\":\\\"12/27\\\","
+            + "\\\"cvv\\\":\\\"123\\\",\\\"nombreTarjeta\\\":\\\"JUAN PEREZ\\\",\\\"direccionTarjeta\\\":\\\"QUITO\\\"}\","
+            + "\"codigoPos\":\"POS001\",\"modeloPos\":\"POS\"}";
+
+    private PagoCifradoService pagoCifradoService;
+    private String pagoCifrado;
+
+    @BeforeEach
+    void prepararLlavero() {
+        byte[] material = new byte[16];
+        new SecureRandom().nextBytes(material);
+        SeguridadGateway clave = new SeguridadGateway();
+        clave.setCodigo(1);
+        clave.setClave(Base64.getEncoder().encodeToString(material));
+        clave.setFechaActivacion(LocalDate.now());
+        clave.setEstado("ACT");
+
+        // El POS cifra con su propio llavero; el del gateway arranca vacío, como recién iniciado
+        LlaveroClaves llaveroPos = new LlaveroClaves();
+        llaveroPos.recargar(clave, null, List.of());
+        pagoCifrado = new CifradorLlavero(llaveroPos).encriptar(PAGO_JSON.getBytes(StandardCharsets.UTF_8));
+
+        SeguridadGatewayRepository repository = mock(SeguridadGatewayRepository.class);
+        when(repository.findByEstado("ACT")).thenReturn(List.of(clave));
+        when(repository.findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc("PEN"))
+                .thenReturn(Optional.empty());
+        when(repository.findByEstadoOrderByCodigoDesc(any(), any())).thenReturn(List.of());
+        LlaveroClaves llavero = new LlaveroClaves();
+        SeguridadGatewayService seguridadGatewayService = new SeguridadGatewayService(repository, llavero,
+                new DistribucionClavesService(llavero), new CifradorLlavero(llavero), null);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        pagoCifradoService = new PagoCifradoService(seguridadGatewayService, objectMapper);
+    }
+
+    @Test
+    void descifrarConLlaveroVacioLoCargaDeLaBase() {
+        Transaccion transaccion = pagoCifradoService.descifrar(pagoCifrado);
+        assertEquals("VISA", transaccion.getMarca());
+        assertEquals(1, transaccion.getComercio().getCodigo());
+        assertEquals("6f1c1f7e-2a57-4b0e-9f7d-3c1e2b8a9d10", transaccion.getCodigoUnicoTransaccion());
+        assertEquals("POS001", transaccion.getCodigoPos());
+    }
+
+    @Test
+    void rechazarPagoConClaveDesconocida() {
+        assertThrows(RuntimeException.class, () -> pagoCifradoService.descifrar("9:" + Base64.getEncoder()
+                .encodeToString(new byte[32])));
+    }
+}
@@ -0,0 +1,63 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParticionesTransaccionServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ParticionesTransaccionService servicio = new ParticionesTransaccionService(jdbcTemplate, 3, 24,
+            ParticionesTransaccionService.PURGA_NINGUNA, false);
+
+    @Test
+    void noTocaLasParticionesSiOtraInstanciaTieneElBloqueo() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+
+        servicio.mantener();
+
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void conElBloqueoCreaLasParticionesFuturasYLoLibera() throws Exception {
+        // GET_LOCK y RELEASE_LOCK devuelven 1
+        ResultSet uno = mock(ResultSet.class);
+        when(uno.next()).thenReturn(true);
+        when(uno.getInt(1)).thenReturn(1);
+        PreparedStatement sentencia = mock(PreparedStatement.class);
+        when(sentencia.executeQuery()).thenReturn(uno);
+        Connection conexion = mock(Connection.class);
+        when(conexion.prepareStatement(anyString())).thenReturn(sentencia);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocacion -> invocacion.<ConnectionCallback<?>>getArgument(0).doInConnection(conexion));
+        String mesActual = YearMonth.now().format(DateTimeFormatter.ofPattern("'p'yyyyMM"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of(mesActual, "pmax"));
+
+        servicio.mantener();
+
+        verify(jdbcTemplate).execute(startsWith("ALTER TABLE GTW_TRANSACCION REORGANIZE PARTITION pmax"));
+        verify(jdbcTemplate).execute(contains(YearMonth.now().plusMonths(3).format(
+                DateTimeFormatter.ofPattern("'p'yyyyMM"))));
+        verify(conexion).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+}
@@ -0,0 +1,77 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.transaccion.model.ValidacionTransaccionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcesadorSimuladoTest {
+
+    private static final String VIGENTE = YearMonth.now().plusYears(2).format(DateTimeFormatter.ofPattern("MM/yy"));
+    private static final String VENCIDA = YearMonth.now().minusMonths(1).format(DateTimeFormatter.ofPattern("MM/yy"));
+
+    // Latencia fija en 0 y sin errores ni timeouts: solo deciden las reglas y el sorteo
+    private static ProcesadorSimulado procesador(long semilla, String reglas) {
+        return new ProcesadorSimulado(new SimpleMeterRegistry(), semilla, ProcesadorSimulado.DISTRIBUCION_FIJA, 0,
+                0, 0, 0, 0, 0, reglas);
+    }
+
+    private static ValidacionTransaccionDTO pago(String codigoUnico, String marca, String cvv, String expiracion,
+            double monto) {
+        ValidacionTransaccionDTO pago = new ValidacionTransaccionDTO();
+        pago.setCodigoUnicoTransaccion(codigoUnico);
+        pago.setMarca(marca);
+        pago.setCvv(cvv);
+        pago.setFechaExpiracionTarjeta(expiracion);
+        pago.setMonto(monto);
+        return pago;
+    }
+
+    @Test
+    void conLaMismaSemillaUnPagoRecibeSiempreLaMismaRespuesta() throws InterruptedException {
+        ProcesadorSimulado primero = procesador(42, "VISA:0.5:10000");
+        ProcesadorSimulado segundo = procesador(42, "VISA:0.5:10000");
+
+        List<HttpStatus> respuestas = new ArrayList<>();
+        // El segundo procesador recibe los pagos en orden inverso: el resultado no depende de la llegada
+        for (int i = 0; i < 40; i++) {
+            respuestas.add(primero.procesar(pago("TRX-" + i, "VISA", "123", VIGENTE, 10)).estado());
+        }
+        for (int i = 39; i >= 0; i--) {
+            assertEquals(respuestas.get(i), segundo.procesar(pago("TRX-" + i, "VISA", "123", VIGENTE, 10)).estado(),
+                    "respuesta de TRX-" + i);
+        }
+        assertTrue(respuestas.contains(HttpStatus.OK) && respuestas.contains(HttpStatus.PAYMENT_REQUIRED),
+                "con probabilidad 0.5 debe haber aprobadas y declinadas: " + respuestas);
+    }
+
+    @Test
+    void aplicaLasReglasDeMarcaCvvYExpiracion() throws InterruptedException {
+        ProcesadorSimulado procesador = procesador(1, "VISA:1:10000,AMEX:1:5000");
+
+        assertEquals(HttpStatus.OK, procesador.procesar(pago("A", "VISA", "123", VIGENTE, 100)).estado());
+        assertEquals(HttpStatus.OK, procesador.procesar(pago("B", "AMEX", "1234", VIGENTE, 100)).estado());
+
+        assertDeclinada(procesador, pago("C", "DINE", "123", VIGENTE, 100), "marca no soportada");
+        assertDeclinada(procesador, pago("D", "AMEX", "123", VIGENTE, 100), "CVV inválido");
+        assertDeclinada(procesador, pago("E", "VISA", "1234", VIGENTE, 100), "CVV inválido");
+        assertDeclinada(procesador, pago("F", "VISA", "123", VENCIDA, 100), "tarjeta vencida");
+        assertDeclinada(procesador, pago("G", "VISA", "123", "13/99", 100), "tarjeta vencida");
+        assertDeclinada(procesador, pago("H", "AMEX", "1234", VIGENTE, 5000.01), "monto excede");
+    }
+
+    private static void assertDeclinada(ProcesadorSimulado procesador, ValidacionTransaccionDTO pago, String motivo)
+            throws InterruptedException {
+        ProcesadorSimulado.Respuesta respuesta = procesador.procesar(pago);
+        assertEquals(HttpStatus.PAYMENT_REQUIRED, respuesta.estado(), respuesta.mensaje());
+        assertTrue(respuesta.mensaje().contains(motivo), respuesta.mensaje());
+    }
+}
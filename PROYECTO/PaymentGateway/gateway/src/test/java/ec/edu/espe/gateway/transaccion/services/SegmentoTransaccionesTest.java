@@ -0,0 +1,128 @@
+package ec.edu.espe.gateway.transaccion.services;
+
+import ec.edu.espe.gateway.comercio.model.Comercio;
+import ec.edu.espe.gateway.facturacion.model.FacturacionComercio;
+import ec.edu.espe.gateway.transaccion.model.Transaccion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentoTransaccionesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 1, 8, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directorio;
+
+    static Transaccion transaccion(int codigo, String codigoUnico, LocalDateTime fecha) {
+        Transaccion transaccion = new Transaccion(codigo);
+        transaccion.setComercio(new Comercio(7));
+        transaccion.setFacturacionComercio(new FacturacionComercio(70));
+        transaccion.setTipo(codigo % 2 == 0 ? "REC" : "SIM");
+        transaccion.setMarca("VISA");
+        transaccion.setDetalle("Pago " + codigo);
+        transaccion.setMonto(new BigDecimal("12.50"));
+        transaccion.setCodigoUnicoTransaccion(codigoUnico);
+        transaccion.setFecha(fecha);
+        transaccion.setEstado("AUT");
+        transaccion.setMoneda("USD");
+        transaccion.setPais("EC");
+        transaccion.setTarjeta("{\"cardNumber\":\"4111111111111111\"}");
+        if (codigo % 2 == 0) {
+            transaccion.setFechaEjecucionRecurrencia(LocalDate.of(2024, 6, 1));
+            transaccion.setFechaFinRecurrencia(LocalDate.of(2024, 12, 1));
+        }
+        return transaccion;
+    }
+
+    @Test
+    void escribeYLeeTodasLasColumnasOrdenadasPorFecha() throws IOException {
+        List<Transaccion> originales = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            originales.add(transaccion(i + 1, "TRX-" + i, INICIO.plusMinutes(50 - i)));
+        }
+        Path archivo = directorio.resolve("7").resolve("202405-F70.seg");
+        SegmentoTransacciones.escribir(archivo, 7, originales);
+
+        SegmentoTransacciones segmento = SegmentoTransacciones.abrir(archivo);
+        assertEquals(50, segmento.getFilas());
+        assertEquals(7, segmento.getCodigoComercio());
+        List<Transaccion> leidas = segmento.leerTodas();
+        assertEquals(50, leidas.size());
+        for (int i = 1; i < leidas.size(); i++) {
+            assertTrue(leidas.get(i - 1).getFecha().isBefore(leidas.get(i).getFecha()));
+        }
+
+        Transaccion original = originales.get(10);
+        Transaccion leida = leidas.stream().filter(t -> t.getCodigo().equals(original.getCodigo())).findFirst()
+                .orElseThrow();
+        assertEquals(original.getFacturacionComercio().getCodigo(), leida.getFacturacionComercio().getCodigo());
+        assertEquals(original.getTipo(), leida.getTipo());
+        assertEquals(original.getDetalle(), leida.getDetalle());
+        assertEquals(0, original.getMonto().compareTo(leida.getMonto()));
+        assertEquals(original.getCodigoUnicoTransaccion(), leida.getCodigoUnicoTransaccion());
+        assertEquals(original.getFecha(), leida.getFecha());
+        assertEquals(original.getTarjeta(), leida.getTarjeta());
+        assertEquals(original.getFechaEjecucionRecurrencia(), leida.getFechaEjecucionRecurrencia());
+        assertEquals(original.getFechaFinRecurrencia(), leida.getFechaFinRecurrencia());
+        assertNull(leidas.stream().filter(t -> t.getCodigo() == 1).findFirst().orElseThrow()
+                .getFechaEjecucionRecurrencia());
+
+        try (Stream<Path> archivos = Files.list(archivo.getParent())) {
+            assertEquals(List.of(archivo), archivos.toList(), "no deben quedar temporales");
+        }
+    }
+
+    @Test
+    void buscaPorCodigoUnicoConElIndiceDeHashes() throws IOException {
+        List<Transaccion> originales = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            originales.add(transaccion(i + 1, "TRX-" + i, INICIO.plusSeconds(i)));
+        }
+        Path archivo = directorio.resolve("202405-F70.seg");
+        SegmentoTransacciones.escribir(archivo, 7, originales);
+        SegmentoTransacciones segmento = SegmentoTransacciones.abrir(archivo);
+
+        for (Transaccion original : originales) {
+            Transaccion encontrada = segmento.buscar(original.getCodigoUnicoTransaccion());
+            assertEquals(original.getCodigo(), encontrada.getCodigo());
+        }
+        assertNull(segmento.buscar("TRX-200"));
+        assertNull(segmento.buscar(""));
+
+        long[] hashes = segmento.obtenerHashes();
+        assertEquals(200, hashes.length);
+        for (int i = 1; i < hashes.length; i++) {
+            assertTrue(hashes[i - 1] <= hashes[i], "el índice debe estar ordenado");
+        }
+    }
+
+    @Test
+    void leeSoloElRangoSemiabiertoPedido() throws IOException {
+        List<Transaccion> originales = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            originales.add(transaccion(i + 1, "TRX-" + i, INICIO.plusHours(i)));
+        }
+        Path archivo = directorio.resolve("202405-F70.seg");
+        SegmentoTransacciones.escribir(archivo, 7, originales);
+        SegmentoTransacciones segmento = SegmentoTransacciones.abrir(archivo);
+
+        assertEquals(3, segmento.leer(INICIO.plusHours(2), INICIO.plusHours(5)).size());
+        assertTrue(segmento.cubre(INICIO.minusDays(1), INICIO.plusSeconds(1)));
+        assertFalse(segmento.cubre(INICIO.plusDays(1), INICIO.plusDays(2)));
+    }
+}
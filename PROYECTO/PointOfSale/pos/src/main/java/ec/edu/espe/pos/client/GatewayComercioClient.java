@@ -6,7 +6,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import ec.edu.espe.pos.dto.ComercioDTO;
 import ec.edu.espe.pos.dto.FacturacionComercioDTO;
 
-@FeignClient(name = "gateway-comercio", url = "http://localhost:8083")
+// URL en spring.cloud.openfeign.client.config.gateway-comercio.url, resuelta al arrancar
+@FeignClient(name = "gateway-comercio")
 public interface GatewayComercioClient {
     
     @GetMapping("/api/comercios/activo")
@@ -6,7 +6,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-@FeignClient(name = "gateway-transaccion", url = "http://localhost:8083")
+// URL en spring.cloud.openfeign.client.config.gateway-transaccion.url, resuelta al arrancar
+@FeignClient(name = "gateway-transaccion")
 public interface GatewayTransaccionClient {
 
     @PostMapping("/api/transacciones/sincronizar")
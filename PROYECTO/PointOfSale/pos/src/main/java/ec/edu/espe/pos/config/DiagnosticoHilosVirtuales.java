@@ -0,0 +1,81 @@
+package ec.edu.espe.pos.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Con hilos virtuales activos escucha el evento JFR jdk.VirtualThreadPinned: un hilo virtual
+ * bloqueado dentro de synchronized (o código nativo) retiene su hilo portador. Cada evento que
+ * supera el umbral se registra con su pila y suma al contador pos.hilos.virtuales.fijados.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DiagnosticoHilosVirtuales {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticoHilosVirtuales.class);
+    private static final String EVENTO_PINNING = "jdk.VirtualThreadPinned";
+    private static final int MAXIMO_MARCOS = 10;
+
+    private final Duration umbral;
+    private final Counter fijados;
+    private RecordingStream stream;
+
+    public DiagnosticoHilosVirtuales(MeterRegistry registry,
+            @Value("${pos.hilos-virtuales.umbral-pinning-ms:20}") long umbralMs) {
+        this.umbral = Duration.ofMillis(umbralMs);
+        this.fijados = registry.counter("pos.hilos.virtuales.fijados");
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO_PINNING).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO_PINNING, this::registrar);
+        stream.startAsync();
+        log.info("Diagnóstico de pinning de hilos virtuales activo (umbral {} ms)", umbral.toMillis());
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void registrar(RecordedEvent evento) {
+        fijados.increment();
+        log.warn("Hilo virtual fijado a su portador durante {} ms en:{}",
+                evento.getDuration().toMillis(), formatearPila(evento));
+    }
+
+    private static String formatearPila(RecordedEvent evento) {
+        if (evento.getStackTrace() == null) {
+            return " (sin pila)";
+        }
+        StringBuilder pila = new StringBuilder();
+        List<RecordedFrame> marcos = evento.getStackTrace().getFrames();
+        for (int i = 0; i < Math.min(marcos.size(), MAXIMO_MARCOS); i++) {
+            RecordedFrame marco = marcos.get(i);
+            pila.append("\n\tat ")
+                    .append(marco.getMethod().getType().getName())
+                    .append('.')
+                    .append(marco.getMethod().getName())
+                    .append(':')
+                    .append(marco.getLineNumber());
+        }
+        return pila.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package ec.edu.espe.pos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Migraciones de db/migration con Flyway (habilitado en el perfil produccion). Con AOT la
+ * presencia de Flyway queda fija al compilar, así que la corrida de entrenamiento CDS, que no
+ * tiene base, las omite con pos.esquema.migrar=false.
+ */
+@Configuration
+public class MigracionEsquemaConfig {
+
+    @Bean
+    FlywayMigrationStrategy migracionEsquema(@Value("${pos.esquema.migrar:true}") boolean migrar) {
+        return flyway -> {
+            if (migrar) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -1,8 +1,11 @@
 package ec.edu.espe.pos.controller;
 
+import ec.edu.espe.pos.dto.ResultadoConfiguracionDTO;
 import ec.edu.espe.pos.model.Configuracion;
 import ec.edu.espe.pos.model.ConfiguracionPK;
 import ec.edu.espe.pos.service.ConfiguracionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,6 +16,8 @@ import java.util.List;
 @RequestMapping("/api/pos-configuracion")
 public class ConfiguracionController {
 
+    private static final Logger log = LoggerFactory.getLogger(ConfiguracionController.class);
+
     private final ConfiguracionService configuracionService;
 
     public ConfiguracionController(ConfiguracionService configuracionService) {
@@ -70,19 +75,20 @@ public class ConfiguracionController {
     @PostMapping("/sincronizar")
     public ResponseEntity<Void> recibirConfiguracion(@RequestBody Configuracion configuracion) {
         try {
-            // Add debug logging
-            System.out.println("POS recibió configuración:");
-            System.out.println("PK: " + configuracion.getPk());
-            System.out.println("DireccionMac: " + configuracion.getDireccionMac());
-            System.out.println("FechaActivacion: " + configuracion.getFechaActivacion());
-            System.out.println("CodigoComercio: " + configuracion.getCodigoComercio());
-            
+            log.debug("POS recibió configuración {} MAC {} comercio {}", configuracion.getPk(),
+                    configuracion.getDireccionMac(), configuracion.getCodigoComercio());
             configuracionService.crear(configuracion);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
-            System.err.println("Error al procesar configuración en POS: " + e.getMessage());
-            e.printStackTrace(); // Add stack trace for more detail
+            log.error("Error al procesar configuración en POS: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/sincronizar-lote")
+    public ResponseEntity<List<ResultadoConfiguracionDTO>> recibirLote(@RequestBody List<Configuracion> configuraciones) {
+        List<ResultadoConfiguracionDTO> resultados = configuracionService.sincronizarLote(configuraciones);
+        log.info("Lote de {} configuraciones recibido del gateway", configuraciones.size());
+        return ResponseEntity.ok(resultados);
+    }
+}
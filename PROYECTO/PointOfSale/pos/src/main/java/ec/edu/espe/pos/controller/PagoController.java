@@ -6,7 +6,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ec.edu.espe.pos.service.TransaccionService;
 import ec.edu.espe.pos.model.Transaccion;
+import ec.edu.espe.pos.dto.ResultadoTransaccionDTO;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 @CrossOrigin(origins = "http://localhost:3000")
@@ -48,4 +50,18 @@ public class PagoController {
                     .body("Error al procesar el pago: " + e.getMessage());
         }
     }
+
+    // Resultados de autorización enviados por el gateway en lotes
+    @PostMapping("/resultados")
+    public ResponseEntity<String> recibirResultados(@RequestBody List<ResultadoTransaccionDTO> resultados) {
+        log.info("Recibiendo lote de {} resultados desde el gateway", resultados.size());
+        try {
+            int actualizadas = transaccionService.aplicarResultados(resultados);
+            return ResponseEntity.ok("Resultados aplicados: " + actualizadas);
+        } catch (Exception e) {
+            log.error("Error al aplicar resultados del gateway: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body("Error al aplicar resultados: " + e.getMessage());
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package ec.edu.espe.pos.dto;
 
+import java.time.LocalDate;
+
 public class FacturacionComercioDTO {
     private Integer codigo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private String estado;
 
     public FacturacionComercioDTO() {
     }
@@ -14,10 +19,37 @@ public class FacturacionComercioDTO {
         this.codigo = codigo;
     }
 
+    public LocalDate getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public void setFechaInicio(LocalDate fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public LocalDate getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(LocalDate fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
     @Override
     public String toString() {
         return "FacturacionComercioDTO{" +
                 "codigo=" + codigo +
+                ", fechaInicio=" + fechaInicio +
+                ", fechaFin=" + fechaFin +
+                ", estado='" + estado + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,51 @@
+package ec.edu.espe.pos.dto;
+
+public class ResultadoConfiguracionDTO {
+
+    private String codigo;
+    private String modelo;
+    private boolean aceptada;
+    private String error;
+
+    public ResultadoConfiguracionDTO() {
+    }
+
+    public ResultadoConfiguracionDTO(String codigo, String modelo, boolean aceptada, String error) {
+        this.codigo = codigo;
+        this.modelo = modelo;
+        this.aceptada = aceptada;
+        this.error = error;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public void setModelo(String modelo) {
+        this.modelo = modelo;
+    }
+
+    public boolean isAceptada() {
+        return aceptada;
+    }
+
+    public void setAceptada(boolean aceptada) {
+        this.aceptada = aceptada;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,33 @@
+package ec.edu.espe.pos.dto;
+
+public class ResultadoTransaccionDTO {
+    private String codigoUnicoTransaccion;
+    private String estado;
+
+    public ResultadoTransaccionDTO() {
+    }
+
+    public String getCodigoUnicoTransaccion() {
+        return codigoUnicoTransaccion;
+    }
+
+    public void setCodigoUnicoTransaccion(String codigoUnicoTransaccion) {
+        this.codigoUnicoTransaccion = codigoUnicoTransaccion;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoTransaccionDTO{" +
+                "codigoUnicoTransaccion='" + codigoUnicoTransaccion + '\'' +
+                ", estado='" + estado + '\'' +
+                '}';
+    }
+}
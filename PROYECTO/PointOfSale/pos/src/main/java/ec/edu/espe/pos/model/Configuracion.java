@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
-@Table(name = "POS_CONFIGURACION")
+@Table(name = "POS_CONFIGURACION", indexes = {
+        @Index(name = "IDX_POS_CONFIGURACION_MAC", columnList = "DIRECCION_MAC")
+})
 public class Configuracion implements Serializable {
 
     @EmbeddedId
@@ -3,8 +3,16 @@ package ec.edu.espe.pos.repository;
 import ec.edu.espe.pos.model.Configuracion;
 import ec.edu.espe.pos.model.ConfiguracionPK;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 public interface ConfiguracionRepository extends JpaRepository<Configuracion, ConfiguracionPK> {
     Optional<Configuracion> findByPk(ConfiguracionPK pk);
-}
\ No newline at end of file
+
+    @Query("SELECT COUNT(c) > 0 FROM Configuracion c WHERE c.direccionMac = :direccionMac "
+            + "AND NOT (c.pk.codigo = :codigo AND c.pk.modelo = :modelo)")
+    boolean existsDireccionMacEnOtraConfiguracion(@Param("direccionMac") String direccionMac,
+            @Param("codigo") String codigo, @Param("modelo") String modelo);
+}
@@ -1,6 +1,7 @@
 package ec.edu.espe.pos.repository;
 
 import ec.edu.espe.pos.model.SeguridadGateway;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,13 +9,20 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface SeguridadGatewayRepository extends JpaRepository<SeguridadGateway, Integer> {
     boolean existsByClave(String clave);
+
+    Optional<SeguridadGateway> findByClave(String clave);
     
     @Query("SELECT s FROM SeguridadGateway s WHERE s.estado = :estado")
     List<SeguridadGateway> findByEstado(@Param("estado") String estado);
 
+    List<SeguridadGateway> findByEstadoOrderByCodigoDesc(String estado, Pageable pageable);
+
+    Optional<SeguridadGateway> findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc(String estado);
+
     @Modifying
     @Transactional
     @Query("UPDATE SeguridadGateway s SET s.estado = :estado WHERE s.estado = 'ACT'")
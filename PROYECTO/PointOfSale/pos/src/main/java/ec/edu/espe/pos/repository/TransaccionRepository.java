@@ -2,7 +2,11 @@ package ec.edu.espe.pos.repository;
 
 import ec.edu.espe.pos.model.Transaccion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +15,17 @@ public interface TransaccionRepository extends JpaRepository<Transaccion, Intege
     List<Transaccion> findByEstado(String estado);
     List<Transaccion> findByTipoAndEstado(String tipo, String estado);
     Boolean existsByCodigoUnicoTransaccion(String codigoUnicoTransaccion);
-}
\ No newline at end of file
+
+    // Solo se actualizan transacciones aún ENVIADAS: un resultado repetido o tardío no pisa otro estado
+    @Modifying
+    @Query("UPDATE Transaccion t SET t.estado = :estado "
+            + "WHERE t.codigoUnicoTransaccion IN :codigos AND t.estado = 'ENV'")
+    int actualizarEstadoEnviadas(@Param("estado") String estado, @Param("codigos") Collection<String> codigos);
+
+    @Modifying
+    @Query("UPDATE Transaccion t SET t.estado = "
+            + "CASE WHEN t.codigoUnicoTransaccion IN :autorizadas THEN 'AUT' ELSE 'REC' END "
+            + "WHERE t.codigoUnicoTransaccion IN :codigos AND t.estado = 'ENV'")
+    int actualizarResultadosEnviadas(@Param("autorizadas") Collection<String> autorizadas,
+            @Param("codigos") Collection<String> codigos);
+}
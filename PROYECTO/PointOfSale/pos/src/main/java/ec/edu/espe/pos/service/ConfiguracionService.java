@@ -1,5 +1,6 @@
 package ec.edu.espe.pos.service;
 
+import ec.edu.espe.pos.dto.ResultadoConfiguracionDTO;
 import ec.edu.espe.pos.model.Configuracion;
 import ec.edu.espe.pos.model.ConfiguracionPK;
 import ec.edu.espe.pos.repository.ConfiguracionRepository;
@@ -8,8 +9,10 @@ import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.EntityNotFoundException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 @Service
@@ -20,6 +23,10 @@ public class ConfiguracionService {
     private static final int CODIGO_POS_LENGTH = 10;
     private static final int MODELO_LENGTH = 10;
 
+    // Copia en memoria de la configuración del POS; se reemplaza completa cuando la configuración
+    // cambia, así cada venta la lee sin consultar la base.
+    private final AtomicReference<ConfiguracionActual> configuracionActual = new AtomicReference<>();
+
     public ConfiguracionService(ConfiguracionRepository configuracionRepository) {
         this.configuracionRepository = configuracionRepository;
     }
@@ -39,6 +46,29 @@ public class ConfiguracionService {
     }
 
     public Configuracion crear(Configuracion configuracion) {
+        Configuracion configuracionGuardada = guardar(configuracion);
+        recargarConfiguracionActual();
+        return configuracionGuardada;
+    }
+
+    // Cada configuración del lote se acepta o rechaza por separado; la copia en memoria se recarga una vez
+    public List<ResultadoConfiguracionDTO> sincronizarLote(List<Configuracion> configuraciones) {
+        List<ResultadoConfiguracionDTO> resultados = new ArrayList<>(configuraciones.size());
+        for (Configuracion configuracion : configuraciones) {
+            String codigo = configuracion.getPk() != null ? configuracion.getPk().getCodigo() : null;
+            String modelo = configuracion.getPk() != null ? configuracion.getPk().getModelo() : null;
+            try {
+                guardar(configuracion);
+                resultados.add(new ResultadoConfiguracionDTO(codigo, modelo, true, null));
+            } catch (Exception e) {
+                resultados.add(new ResultadoConfiguracionDTO(codigo, modelo, false, e.getMessage()));
+            }
+        }
+        recargarConfiguracionActual();
+        return resultados;
+    }
+
+    private Configuracion guardar(Configuracion configuracion) {
         try {
             validarConfiguracion(configuracion);
             
@@ -65,6 +95,7 @@ public class ConfiguracionService {
             configuracion.setFechaActivacion(nuevaFechaActivacion);
 
             Configuracion configuracionActualizada = this.configuracionRepository.save(configuracion);
+            recargarConfiguracionActual();
 
             return configuracionActualizada;
         } catch (Exception ex) {
@@ -119,25 +150,58 @@ public class ConfiguracionService {
 
     private void validarDuplicados(Configuracion configuracion) {
         // Validar MAC duplicada
-        configuracionRepository.findAll().stream()
-                .filter(config -> !config.getPk().equals(configuracion.getPk()))
-                .forEach(config -> {
-                    if (config.getDireccionMac().equals(configuracion.getDireccionMac())) {
-                        throw new IllegalArgumentException(
-                                "Ya existe una configuración con la dirección MAC proporcionada");
-                    }
-                });
+        if (configuracionRepository.existsDireccionMacEnOtraConfiguracion(configuracion.getDireccionMac(),
+                configuracion.getPk().getCodigo(), configuracion.getPk().getModelo())) {
+            throw new IllegalArgumentException(
+                    "Ya existe una configuración con la dirección MAC proporcionada");
+        }
     }
 
-    @Transactional(readOnly = true)
     public Configuracion obtenerConfiguracionActual() {
-        List<Configuracion> configuraciones = configuracionRepository.findAll();
-        if (configuraciones.isEmpty()) {
-            throw new EntityNotFoundException("No existe configuración para este POS");
+        ConfiguracionActual actual = configuracionActual.get();
+        if (actual == null) {
+            recargarConfiguracionActual();
+            actual = configuracionActual.get();
         }
-        if (configuraciones.size() > 1) {
-            throw new IllegalStateException("Existe más de una configuración para este POS");
+        return actual.obtener();
+    }
+
+    public void recargarConfiguracionActual() {
+        configuracionActual.set(new ConfiguracionActual(configuracionRepository.findAll()));
+    }
+
+    // Resultado inmutable de leer POS_CONFIGURACION: la única configuración o el motivo del error
+    private static final class ConfiguracionActual {
+        private final Configuracion configuracion;
+        private final String error;
+        private final boolean duplicada;
+
+        ConfiguracionActual(List<Configuracion> configuraciones) {
+            this.configuracion = configuraciones.size() == 1 ? copiar(configuraciones.get(0)) : null;
+            this.duplicada = configuraciones.size() > 1;
+            this.error = configuraciones.isEmpty()
+                    ? "No existe configuración para este POS"
+                    : "Existe más de una configuración para este POS";
+        }
+
+        Configuracion obtener() {
+            if (configuracion == null) {
+                if (duplicada) {
+                    throw new IllegalStateException(error);
+                }
+                throw new EntityNotFoundException(error);
+            }
+            // Cada llamador recibe su propia copia: la instancia compartida nunca se modifica
+            return copiar(configuracion);
+        }
+
+        private static Configuracion copiar(Configuracion origen) {
+            Configuracion copia = new Configuracion(
+                    new ConfiguracionPK(origen.getPk().getCodigo(), origen.getPk().getModelo()));
+            copia.setDireccionMac(origen.getDireccionMac());
+            copia.setCodigoComercio(origen.getCodigoComercio());
+            copia.setFechaActivacion(origen.getFechaActivacion());
+            return copia;
         }
-        return configuraciones.get(0);
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package ec.edu.espe.pos.service;
+
+import ec.edu.espe.pos.client.GatewayComercioClient;
+import ec.edu.espe.pos.dto.FacturacionComercioDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Facturación activa por comercio consultada al gateway. La facturación solo cambia al
+ * cerrar el período, así que cada entrada vence al terminar su fechaFin (con un tope de
+ * vigencia por si el gateway la cierra antes). Una tarea programada la refresca antes de
+ * vencer; si el gateway no responde se sigue usando el último valor durante el período de
+ * gracia. Métricas: pos.facturacion.cache con resultado acierto, fallo u obsoleto.
+ */
+@Component
+public class FacturacionComercioCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FacturacionComercioCache.class);
+    private static final String METRICA = "pos.facturacion.cache";
+
+    private final GatewayComercioClient comercioClient;
+    private final Duration vigenciaMaxima;
+    private final Duration anticipacion;
+    private final Duration gracia;
+    private final Map<Integer, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter obsoletos;
+
+    public FacturacionComercioCache(GatewayComercioClient comercioClient,
+            MeterRegistry registry,
+            @Value("${pos.facturacion.cache.vigencia-maxima-minutos:360}") long vigenciaMaximaMinutos,
+            @Value("${pos.facturacion.cache.anticipacion-minutos:10}") long anticipacionMinutos,
+            @Value("${pos.facturacion.cache.gracia-minutos:30}") long graciaMinutos) {
+        this.comercioClient = comercioClient;
+        this.vigenciaMaxima = Duration.ofMinutes(vigenciaMaximaMinutos);
+        this.anticipacion = Duration.ofMinutes(anticipacionMinutos);
+        this.gracia = Duration.ofMinutes(graciaMinutos);
+        this.aciertos = registry.counter(METRICA, "resultado", "acierto");
+        this.fallos = registry.counter(METRICA, "resultado", "fallo");
+        this.obsoletos = registry.counter(METRICA, "resultado", "obsoleto");
+        registry.gaugeMapSize(METRICA + ".entradas", Tags.empty(), entradas);
+    }
+
+    public FacturacionComercioDTO obtener(Integer codigoComercio) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Entrada entrada = entradas.get(codigoComercio);
+        if (entrada != null && ahora.isBefore(entrada.vence)) {
+            aciertos.increment();
+            return entrada.facturacion;
+        }
+
+        fallos.increment();
+        try {
+            return cargar(codigoComercio, ahora).facturacion;
+        } catch (RuntimeException e) {
+            if (entrada != null && ahora.isBefore(entrada.vence.plus(gracia))) {
+                obsoletos.increment();
+                log.warn("Gateway no disponible, se usa la facturación {} en período de gracia para el comercio {}: {}",
+                        entrada.facturacion.getCodigo(), codigoComercio, e.getMessage());
+                return entrada.facturacion;
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pos.facturacion.cache.revision-ms:60000}")
+    public void refrescarProximasAVencer() {
+        LocalDateTime ahora = LocalDateTime.now();
+        entradas.forEach((codigoComercio, entrada) -> {
+            if (!ahora.isBefore(entrada.refrescarDesde)) {
+                try {
+                    cargar(codigoComercio, ahora);
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo refrescar la facturación del comercio {}: {}", codigoComercio, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Entrada cargar(Integer codigoComercio, LocalDateTime ahora) {
+        FacturacionComercioDTO facturacion = comercioClient.obtenerFacturacionPorComercio(codigoComercio);
+        if (facturacion == null) {
+            throw new IllegalStateException("El gateway no devolvió facturación para el comercio " + codigoComercio);
+        }
+        LocalDateTime vence = ahora.plus(vigenciaMaxima);
+        if (facturacion.getFechaFin() != null) {
+            LocalDateTime finPeriodo = facturacion.getFechaFin().plusDays(1).atStartOfDay();
+            if (!finPeriodo.isAfter(ahora)) {
+                // Período vencido que el gateway aún reporta activo: se vuelve a consultar pronto
+                vence = ahora.plus(anticipacion);
+            } else if (finPeriodo.isBefore(vence)) {
+                vence = finPeriodo;
+            }
+        }
+        LocalDateTime refrescarDesde = vence.minus(anticipacion);
+        if (refrescarDesde.isBefore(ahora)) {
+            refrescarDesde = ahora;
+        }
+        Entrada entrada = new Entrada(facturacion, vence, refrescarDesde);
+        entradas.put(codigoComercio, entrada);
+        return entrada;
+    }
+
+    private static final class Entrada {
+        final FacturacionComercioDTO facturacion;
+        final LocalDateTime vence;
+        final LocalDateTime refrescarDesde;
+
+        Entrada(FacturacionComercioDTO facturacion, LocalDateTime vence, LocalDateTime refrescarDesde) {
+            this.facturacion = facturacion;
+            this.vence = vence;
+            this.refrescarDesde = refrescarDesde;
+        }
+    }
+}
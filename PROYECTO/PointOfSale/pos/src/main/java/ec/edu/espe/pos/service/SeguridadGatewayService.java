@@ -1,81 +1,186 @@
 package ec.edu.espe.pos.service;
 
+import ec.edu.espe.pos.dto.ClavesGatewayDTO;
 import ec.edu.espe.pos.model.SeguridadGateway;
 import ec.edu.espe.pos.repository.SeguridadGatewayRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.transaction.Transactional;
 import javax.crypto.SecretKey;
 import javax.crypto.Cipher;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class SeguridadGatewayService {
 
     private final RestTemplate restTemplate;
     private final SeguridadGatewayRepository seguridadGatewayRepository;
+    private final LlaveroClaves llavero;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervaloMs;
+    private final long esperaSegundos;
     private static final Logger log = LoggerFactory.getLogger(SeguridadGatewayService.class);
 
     
-    private static final String SEGURIDAD_URL = "http://localhost:8083/api/seguridad/clave-activa";
+    private static final String SEGURIDAD_URL = "http://localhost:8083/api/seguridad/claves";
+    private static final int CLAVES_RETIRADAS_EN_LLAVERO = 3;
+
+    // ETag de la última versión de claves recibida; el gateway responde 304 mientras no cambie
+    private volatile String etagClaves;
+    private volatile Thread consultaClaves;
 
     public SeguridadGatewayService(RestTemplate restTemplate, 
-                                  SeguridadGatewayRepository seguridadGatewayRepository) {
+                                  SeguridadGatewayRepository seguridadGatewayRepository,
+                                  LlaveroClaves llavero,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${pos.claves.intervalo-ms:900000}") long intervaloMs,
+                                  @Value("${pos.claves.espera-segundos:0}") long esperaSegundos) {
         this.restTemplate = restTemplate;
         this.seguridadGatewayRepository = seguridadGatewayRepository;
+        this.llavero = llavero;
+        this.transactionTemplate = transactionTemplate;
+        this.intervaloMs = intervaloMs;
+        this.esperaSegundos = esperaSegundos;
     }
 
-    @PostConstruct
-    @Transactional
+    // El llavero se carga de la base local y la consulta al gateway sigue en segundo plano: la
+    // terminal atiende con la última clave recibida sin esperar a un gateway lento o caído
+    @EventListener(ApplicationReadyEvent.class)
     public void inicializarClave() {
         log.info("Inicializando clave al arrancar el servicio");
-        actualizarClaveDesdeGateway();
+        recargarLlavero();
+        consultaClaves = Thread.ofVirtual().name("claves-gateway").start(this::consultarClavesPeriodicamente);
     }
 
-    @Scheduled(cron = "0 0 0 * * *")
-    @Transactional
+    // Hilo propio y no @Scheduled: con pos.claves.espera-segundos>0 cada consulta queda abierta hasta
+    // que el gateway rota o vence la espera, y en el planificador (un solo hilo) retrasaría
+    // activarClavePendiente y la revisión de la caché de facturación
+    private void consultarClavesPeriodicamente() {
+        while (!Thread.currentThread().isInterrupted()) {
+            actualizarClaveDesdeGateway();
+            try {
+                Thread.sleep(intervaloMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detenerConsultaClaves() {
+        if (consultaClaves != null) {
+            consultaClaves.interrupt();
+        }
+    }
+
+    // Consulta condicional con If-None-Match: sin rotación el gateway responde 304 sin cuerpo.
+    // Solo la escritura de las claves recibidas va en transacción, no la espera de la respuesta.
     public void actualizarClaveDesdeGateway() {
         try {
-            log.info("Intentando actualizar clave desde: {}", SEGURIDAD_URL);
-            
-            ResponseEntity<SeguridadGateway> response = restTemplate.getForEntity(
-                SEGURIDAD_URL,
-                SeguridadGateway.class
+            String url = esperaSegundos > 0 ? SEGURIDAD_URL + "?esperar=" + esperaSegundos : SEGURIDAD_URL;
+            log.debug("Consultando claves en: {} con ETag {}", url, etagClaves);
+
+            HttpHeaders headers = new HttpHeaders();
+            if (etagClaves != null) {
+                headers.setIfNoneMatch(etagClaves);
+            }
+            ResponseEntity<ClavesGatewayDTO> response = restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                ClavesGatewayDTO.class
             );
 
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                log.debug("Claves sin cambios, versión {}", etagClaves);
+                return;
+            }
+
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                SeguridadGateway nuevaClave = response.getBody();
-                
-                if (nuevaClave != null && nuevaClave.getClave() != null && 
-                    !seguridadGatewayRepository.existsByClave(nuevaClave.getClave())) {
-                    
-                    log.info("Actualizando claves activas a inactivas");
-                    seguridadGatewayRepository.updateEstadoForActiveCodes("INA");
-                    
-                    // Crear una nueva instancia para evitar problemas de versión
-                    SeguridadGateway claveAGuardar = new SeguridadGateway();
-                    claveAGuardar.setClave(nuevaClave.getClave());
-                    claveAGuardar.setEstado("ACT");
-                    claveAGuardar.setFechaActivacion(nuevaClave.getFechaActivacion());
-                    claveAGuardar.setFechaActualizacion(LocalDateTime.now());
-                    
-                    log.info("Guardando nueva clave: {}", claveAGuardar.getClave());
-                    seguridadGatewayRepository.save(claveAGuardar);
-                    log.info("Clave actualizada exitosamente");
-                }
+                ClavesGatewayDTO claves = response.getBody();
+                transactionTemplate.executeWithoutResult(estado -> {
+                    guardarClaveActiva(claves.getActiva());
+                    guardarClavePendiente(claves.getProxima());
+                });
+                etagClaves = response.getHeaders().getETag();
+                log.info("Claves actualizadas a la versión {}", claves.getVersion());
+                recargarLlavero();
             }
         } catch (Exception e) {
             log.error("Error al actualizar clave desde gateway: ", e);
+            if (llavero.estaVacio()) {
+                recargarLlavero();
+            }
+        }
+    }
+
+    // Activa localmente la próxima clave cuando llega su fecha, sin esperar a la siguiente consulta
+    @Scheduled(cron = "0 * * * * *")
+    @Transactional
+    public void activarClavePendiente() {
+        seguridadGatewayRepository.findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc("PEN")
+                .filter(pendiente -> !pendiente.getFechaActivacion().isAfter(LocalDate.now()))
+                .ifPresent(pendiente -> {
+                    log.info("Activando clave pendiente {}", pendiente.getCodigo());
+                    seguridadGatewayRepository.updateEstadoForActiveCodes("INA");
+                    pendiente.setEstado("ACT");
+                    pendiente.setFechaActualizacion(LocalDateTime.now());
+                    seguridadGatewayRepository.save(pendiente);
+                    recargarLlavero();
+                });
+    }
+
+    private void guardarClaveActiva(SeguridadGateway nuevaClave) {
+        if (nuevaClave == null || nuevaClave.getClave() == null) {
+            return;
+        }
+        SeguridadGateway existente = seguridadGatewayRepository.findByClave(nuevaClave.getClave()).orElse(null);
+        if (existente != null && "ACT".equals(existente.getEstado())) {
+            return;
+        }
+        log.info("Actualizando claves activas a inactivas");
+        seguridadGatewayRepository.updateEstadoForActiveCodes("INA");
+
+        // Crear una nueva instancia para evitar problemas de versión
+        SeguridadGateway claveAGuardar = existente != null ? existente : new SeguridadGateway();
+        claveAGuardar.setClave(nuevaClave.getClave());
+        claveAGuardar.setEstado("ACT");
+        claveAGuardar.setFechaActivacion(nuevaClave.getFechaActivacion());
+        claveAGuardar.setFechaActualizacion(LocalDateTime.now());
+        seguridadGatewayRepository.save(claveAGuardar);
+    }
+
+    private void guardarClavePendiente(SeguridadGateway proximaClave) {
+        if (proximaClave == null || proximaClave.getClave() == null || proximaClave.getFechaActivacion() == null
+                || seguridadGatewayRepository.existsByClave(proximaClave.getClave())) {
+            return;
         }
+        SeguridadGateway claveAGuardar = new SeguridadGateway();
+        claveAGuardar.setClave(proximaClave.getClave());
+        claveAGuardar.setEstado("PEN");
+        claveAGuardar.setFechaActivacion(proximaClave.getFechaActivacion());
+        claveAGuardar.setFechaActualizacion(LocalDateTime.now());
+        log.info("Guardando próxima clave con activación el {}", claveAGuardar.getFechaActivacion());
+        seguridadGatewayRepository.save(claveAGuardar);
     }
 
     public String encriptarInformacion(String informacion, String clave) {
@@ -102,6 +207,57 @@ public class SeguridadGatewayService {
         }
     }
 
+    // El texto cifrado lleva el ID de la clave como prefijo: <id>:<base64>
+    public String encriptarConClaveActiva(String informacion) {
+        try {
+            LlaveroClaves.ClaveVersionada clave = llaveroCargado().obtenerActiva();
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, clave.getSecretKey());
+            byte[] encriptado = cipher.doFinal(informacion.getBytes(StandardCharsets.UTF_8));
+            return clave.getId() + LlaveroClaves.SEPARADOR_ID + Base64.getEncoder().encodeToString(encriptado);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al encriptar la información: " + e.getMessage());
+        }
+    }
+
+    public String desencriptarConLlavero(String informacionEncriptada) {
+        int separador = informacionEncriptada.indexOf(LlaveroClaves.SEPARADOR_ID);
+        if (separador < 0) {
+            return desencriptarInformacion(informacionEncriptada, obtenerClaveActiva().getClave());
+        }
+        try {
+            LlaveroClaves.ClaveVersionada clave = llaveroCargado()
+                    .obtenerPorId(informacionEncriptada.substring(0, separador));
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.DECRYPT_MODE, clave.getSecretKey());
+            byte[] desencriptado = cipher.doFinal(
+                    Base64.getDecoder().decode(informacionEncriptada.substring(separador + 1)));
+            return new String(desencriptado, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al desencriptar la información: " + e.getMessage());
+        }
+    }
+
+    public void recargarLlavero() {
+        SeguridadGateway activa = seguridadGatewayRepository.findByEstado("ACT")
+                .stream()
+                .findFirst()
+                .orElse(null);
+        SeguridadGateway proxima = seguridadGatewayRepository
+                .findFirstByEstadoAndFechaActivacionIsNotNullOrderByFechaActivacionAsc("PEN")
+                .orElse(null);
+        List<SeguridadGateway> retiradas = seguridadGatewayRepository.findByEstadoOrderByCodigoDesc("INA",
+                PageRequest.of(0, CLAVES_RETIRADAS_EN_LLAVERO));
+        llavero.recargar(activa, proxima, retiradas);
+    }
+
+    private LlaveroClaves llaveroCargado() {
+        if (llavero.estaVacio()) {
+            recargarLlavero();
+        }
+        return llavero;
+    }
+
     private SecretKey reconstruirClaveDesdeBase64(String claveBase64) {
         try {
             // Asegurarse de que la clave tenga un padding Base64 correcto
@@ -122,9 +278,9 @@ public class SeguridadGatewayService {
     }
 
     public SeguridadGateway obtenerClaveActiva() {
-        return seguridadGatewayRepository.findByEstado("ACT")
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No se encontró una clave activa"));
+        if (llaveroCargado().estaVacio()) {
+            throw new RuntimeException("No se encontró una clave activa");
+        }
+        return llavero.obtenerActiva().getEntidad();
     }
 }  
@@ -4,17 +4,21 @@ import ec.edu.espe.pos.model.Configuracion;
 import ec.edu.espe.pos.model.Transaccion;
 import ec.edu.espe.pos.repository.TransaccionRepository;
 import ec.edu.espe.pos.client.GatewayTransaccionClient;
-import ec.edu.espe.pos.client.GatewayComercioClient;
 import ec.edu.espe.pos.dto.GatewayTransaccionDTO;
 import ec.edu.espe.pos.dto.ComercioDTO;
 import ec.edu.espe.pos.dto.FacturacionComercioDTO;
+import ec.edu.espe.pos.dto.ResultadoTransaccionDTO;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -46,22 +50,29 @@ public class TransaccionService {
 
     private final TransaccionRepository transaccionRepository;
     private final GatewayTransaccionClient gatewayClient;
-    private final GatewayComercioClient comercioClient;
+    private final FacturacionComercioCache facturacionCache;
     private final ConfiguracionService configuracionService;
+    private final MetricasTransaccion metricas;
 
     public TransaccionService(TransaccionRepository transaccionRepository,
             GatewayTransaccionClient gatewayClient,
-            GatewayComercioClient comercioClient,
-            ConfiguracionService configuracionService) {
+            FacturacionComercioCache facturacionCache,
+            ConfiguracionService configuracionService,
+            MetricasTransaccion metricas) {
         this.transaccionRepository = transaccionRepository;
         this.gatewayClient = gatewayClient;
-        this.comercioClient = comercioClient;
+        this.facturacionCache = facturacionCache;
         this.configuracionService = configuracionService;
+        this.metricas = metricas;
     }
 
-    @Transactional
+    // Sin transacción propia: el save se confirma de inmediato y la llamada al gateway no retiene una
+    // conexión del pool mientras espera la respuesta
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Transaccion crear(Transaccion transaccion, String datosSensibles) {
         log.info("Iniciando creación de transacción. Datos recibidos: {}", transaccion);
+        Timer.Sample muestra = metricas.iniciar();
+        String marca = transaccion.getMarca();
 
         // Validar y transformar marca si es necesario
         if (transaccion.getMarca() == null || transaccion.getMarca().length() > 4
@@ -87,31 +98,79 @@ public class TransaccionService {
                 transaccion.getMarca(), transaccion.getMonto());
 
         // Validar campos obligatorios
-        validarCamposObligatorios(transaccion);
+        try {
+            validarCamposObligatorios(transaccion);
+        } catch (IllegalArgumentException e) {
+            metricas.finalizar(muestra, MetricasTransaccion.FLUJO_CREAR, marca, transaccion.getEstado(),
+                    MetricasTransaccion.RESULTADO_ERROR);
+            throw e;
+        }
         log.info("Validación de campos completada exitosamente");
 
         // Guardar localmente primero
-        Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
+        Transaccion transaccionGuardada = metricas.medir(MetricasTransaccion.ETAPA_INSERCION, marca,
+                () -> transaccionRepository.save(transaccion));
         log.info("Transacción guardada localmente con ID: {}", transaccionGuardada.getCodigo());
 
         // Intentar sincronizar con el gateway
+        String resultado = MetricasTransaccion.RESULTADO_EXITO;
         try {
             // Preparar y enviar al gateway
-            GatewayTransaccionDTO gatewayDTO = convertirAGatewayDTO(transaccionGuardada, datosSensibles);
+            GatewayTransaccionDTO gatewayDTO = metricas.medir(MetricasTransaccion.ETAPA_PREPARACION, marca,
+                    () -> convertirAGatewayDTO(transaccionGuardada, datosSensibles));
             log.info("Enviando al gateway DTO con datos de tarjeta incluidos");
 
-            String respuesta = gatewayClient.sincronizarTransaccion(gatewayDTO);
+            String respuesta = metricas.medir(MetricasTransaccion.ETAPA_GATEWAY, marca,
+                    () -> gatewayClient.sincronizarTransaccion(gatewayDTO));
             log.info("Respuesta del gateway: {}", respuesta);
         } catch (Exception e) {
+            resultado = MetricasTransaccion.RESULTADO_ERROR;
             // Si falla la sincronización, solo logueamos el error pero no lo propagamos
             log.error("Error al sincronizar con el gateway. La transacción se procesará posteriormente: {}", 
                     e.getMessage());
             // Aquí podrías implementar un mecanismo de reintentos o cola de sincronización
         }
 
+        metricas.finalizar(muestra, MetricasTransaccion.FLUJO_CREAR, marca, transaccionGuardada.getEstado(),
+                resultado);
         return transaccionGuardada;
     }
 
+    // Aplica en una sola sentencia UPDATE los resultados notificados por el gateway
+    @Transactional
+    public int aplicarResultados(List<ResultadoTransaccionDTO> resultados) {
+        List<String> codigos = new ArrayList<>();
+        List<String> autorizadas = new ArrayList<>();
+        for (ResultadoTransaccionDTO resultado : resultados) {
+            if (resultado.getCodigoUnicoTransaccion() == null) {
+                continue;
+            }
+            if (ESTADO_AUTORIZADO.equals(resultado.getEstado())) {
+                autorizadas.add(resultado.getCodigoUnicoTransaccion());
+                codigos.add(resultado.getCodigoUnicoTransaccion());
+            } else if (ESTADO_RECHAZADO.equals(resultado.getEstado())) {
+                codigos.add(resultado.getCodigoUnicoTransaccion());
+            } else {
+                log.warn("Resultado con estado no soportado ignorado: {}", resultado);
+            }
+        }
+        if (codigos.isEmpty()) {
+            return 0;
+        }
+
+        int actualizadas;
+        if (autorizadas.size() == codigos.size()) {
+            actualizadas = transaccionRepository.actualizarEstadoEnviadas(ESTADO_AUTORIZADO, codigos);
+        } else if (autorizadas.isEmpty()) {
+            actualizadas = transaccionRepository.actualizarEstadoEnviadas(ESTADO_RECHAZADO, codigos);
+        } else {
+            actualizadas = transaccionRepository.actualizarResultadosEnviadas(autorizadas, codigos);
+        }
+        log.info("Resultados del gateway aplicados: {} recibidos, {} transacciones actualizadas",
+                resultados.size(), actualizadas);
+        return actualizadas;
+    }
+
     private void validarCamposObligatorios(Transaccion transaccion) {
         if (transaccion.getMonto() == null || transaccion.getMonto().compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("El monto debe ser mayor que cero");
@@ -133,7 +192,8 @@ public class TransaccionService {
         try {
             // Obtener configuración local del POS
             log.info("Obteniendo configuración actual del POS");
-            Configuracion config = configuracionService.obtenerConfiguracionActual();
+            Configuracion config = metricas.medir(MetricasTransaccion.ETAPA_CONFIGURACION, transaccion.getMarca(),
+                    configuracionService::obtenerConfiguracionActual);
             log.info("Configuración obtenida: codigoComercio={}, codigoPOS={}, modelo={}",
                     config.getCodigoComercio(), config.getPk().getCodigo(), config.getPk().getModelo());
             
@@ -143,7 +203,8 @@ public class TransaccionService {
             
             // Obtener facturación usando el código del comercio
             log.info("Consultando facturación para el comercio: {}", comercio.getCodigo());
-            FacturacionComercioDTO facturacion = comercioClient.obtenerFacturacionPorComercio(comercio.getCodigo());
+            FacturacionComercioDTO facturacion = metricas.medir(MetricasTransaccion.ETAPA_FACTURACION,
+                    transaccion.getMarca(), () -> facturacionCache.obtener(comercio.getCodigo()));
             log.info("Facturación obtenida: {}", facturacion);
             
             dto.setComercio(comercio);
@@ -0,0 +1,43 @@
+-- Esquema del POS tal como lo creaba ddl-auto=update antes de las migraciones versionadas.
+-- Una base existente con estas tablas se registra en esta versión (baseline-on-migrate) y solo
+-- recibe las migraciones siguientes; en una base vacía se ejecuta completo.
+
+CREATE TABLE POS_CONFIGURACION (
+    CODIGO_COMERCIO INTEGER NOT NULL,
+    FECHA_ACTIVACION TIMESTAMP(6) NOT NULL,
+    CODIGO_POS VARCHAR(10) NOT NULL,
+    MODELO VARCHAR(10) NOT NULL,
+    DIRECCION_MAC VARCHAR(32) NOT NULL,
+    PRIMARY KEY (CODIGO_POS, MODELO)
+);
+
+CREATE TABLE POS_SEGURIDAD_GATEWAY (
+    COD_CLAVE_GATEWAY INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    ESTADO VARCHAR(3) NOT NULL,
+    FECHA_ACTIVACION DATE NOT NULL,
+    FECHA_ACTUALIZACION TIMESTAMP(6) NOT NULL,
+    CLAVE VARCHAR(128) NOT NULL,
+    PRIMARY KEY (COD_CLAVE_GATEWAY)
+);
+
+CREATE TABLE POS_SEGURIDAD_MARCA (
+    MARCA VARCHAR(4) NOT NULL,
+    FECHA_ACTUALIZACION TIMESTAMP(6) NOT NULL,
+    CLAVE VARCHAR(128) NOT NULL,
+    PRIMARY KEY (MARCA)
+);
+
+CREATE TABLE POS_TRANSACCION (
+    COD_TRANSACCION INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    ESTADO VARCHAR(3),
+    ESTADO_RECIBO VARCHAR(3),
+    MARCA VARCHAR(4) NOT NULL,
+    MODALIDAD VARCHAR(3) NOT NULL,
+    MONEDA VARCHAR(3) NOT NULL,
+    MONTO NUMERIC(20,2) NOT NULL,
+    TIPO VARCHAR(3) NOT NULL,
+    FECHA TIMESTAMP(6) NOT NULL,
+    DETALLE VARCHAR(50) NOT NULL,
+    CODIGO_UNICO_TRANSACCION VARCHAR(64) NOT NULL,
+    PRIMARY KEY (COD_TRANSACCION)
+);
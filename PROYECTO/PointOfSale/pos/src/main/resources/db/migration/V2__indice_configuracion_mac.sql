@@ -0,0 +1,3 @@
+-- Búsqueda de la configuración por dirección MAC al recibir la configuración del gateway.
+-- Idempotente porque una base que ya corría con ddl-auto=update puede tener el índice
+CREATE INDEX IF NOT EXISTS IDX_POS_CONFIGURACION_MAC ON POS_CONFIGURACION (DIRECCION_MAC);
@@ -0,0 +1,130 @@
+package ec.edu.espe.pos.rendimiento;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejecuta una petición repetidas veces con MockMvc y mide, por petición, las sentencias SQL, los
+ * bytes asignados y la latencia. MockMvc atiende la petición en el hilo de la prueba, así que el
+ * conteo y los bytes cubren solo el trabajo de esa petición.
+ * Las primeras CALENTAMIENTO ejecuciones no se miden.
+ */
+public class MedidorRendimiento {
+
+    private static final Logger log = LoggerFactory.getLogger(MedidorRendimiento.class);
+
+    static final int CALENTAMIENTO = 100;
+    static final int MEDICIONES = 200;
+
+    private final MockMvc mockMvc;
+    private final com.sun.management.ThreadMXBean hilos =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public MedidorRendimiento(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    // La petición i recibe el índice de la ejecución para variar montos y códigos
+    public Medicion medir(String endpoint, IntFunction<RequestBuilder> peticion) throws Exception {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            ejecutar(endpoint, peticion.apply(i));
+        }
+
+        long[] tiempos = new long[MEDICIONES];
+        long[] bytes = new long[MEDICIONES];
+        int sentencias = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            RequestBuilder siguiente = peticion.apply(CALENTAMIENTO + i);
+            ContadorSentencias.iniciar();
+            long bytesAntes = hilos.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            try {
+                ejecutar(endpoint, siguiente);
+            } finally {
+                tiempos[i] = System.nanoTime() - inicio;
+                bytes[i] = hilos.getCurrentThreadAllocatedBytes() - bytesAntes;
+                sentencias = Math.max(sentencias, ContadorSentencias.finalizar());
+            }
+        }
+        Arrays.sort(tiempos);
+        Arrays.sort(bytes);
+        return new Medicion(endpoint, sentencias, bytes[MEDICIONES / 2], tiempos[(int) (MEDICIONES * 0.95)]);
+    }
+
+    private void ejecutar(String endpoint, RequestBuilder peticion) throws Exception {
+        MvcResult resultado = mockMvc.perform(peticion).andReturn();
+        int estado = resultado.getResponse().getStatus();
+        assertTrue(estado >= 200 && estado < 300,
+                endpoint + " respondió " + estado + ": " + resultado.getResponse().getContentAsString());
+    }
+
+    /**
+     * StatementInspector que cuenta las sentencias del hilo entre iniciar() y finalizar(). Se
+     * registra solo en el contexto de las pruebas de rendimiento (ver PagoRendimientoIT).
+     */
+    public static class ContadorSentencias implements StatementInspector {
+
+        private static final ThreadLocal<int[]> TOTAL = new ThreadLocal<>();
+
+        static void iniciar() {
+            TOTAL.set(new int[1]);
+        }
+
+        static int finalizar() {
+            int[] total = TOTAL.get();
+            TOTAL.remove();
+            return total == null ? 0 : total[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            int[] total = TOTAL.get();
+            if (total != null) {
+                total[0]++;
+            }
+            return sql;
+        }
+    }
+
+    /**
+     * Presupuesto de un endpoint: sentencias por petición (máximo), kilobytes asignados por petición
+     * (mediana) y latencia p95. Calibrados con cuatro corridas contra PostgreSQL 16 local: sentencias
+     * exactas; kilobytes y p95 con 25 % y 50 % de margen sobre el peor valor medido.
+     */
+    public record Presupuesto(int sentencias, long kilobytes, long p95Milisegundos) {
+    }
+
+    public record Medicion(String endpoint, int sentencias, long bytes, long p95Nanos) {
+
+        public void verificar(Presupuesto presupuesto) {
+            log.info("{}: {} sentencias, {} KB asignados, p95={} ms", endpoint, sentencias, bytes / 1024,
+                    String.format("%.2f", p95Nanos / 1e6));
+
+            List<String> excesos = new ArrayList<>();
+            if (sentencias > presupuesto.sentencias()) {
+                excesos.add(String.format("%d sentencias (presupuesto %d)", sentencias, presupuesto.sentencias()));
+            }
+            if (bytes > presupuesto.kilobytes() * 1024) {
+                excesos.add(String.format("%d KB asignados (presupuesto %d KB)",
+                        bytes / 1024, presupuesto.kilobytes()));
+            }
+            if (p95Nanos > presupuesto.p95Milisegundos() * 1_000_000) {
+                excesos.add(String.format("p95 de %.2f ms (presupuesto %d ms)",
+                        p95Nanos / 1e6, presupuesto.p95Milisegundos()));
+            }
+            assertTrue(excesos.isEmpty(), endpoint + " excede su presupuesto: " + String.join("; ", excesos));
+        }
+    }
+}
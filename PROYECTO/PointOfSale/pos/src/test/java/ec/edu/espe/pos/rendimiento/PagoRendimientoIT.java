@@ -0,0 +1,176 @@
+package ec.edu.espe.pos.rendimiento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.edu.espe.pos.client.GatewayComercioClient;
+import ec.edu.espe.pos.client.GatewayTransaccionClient;
+import ec.edu.espe.pos.dto.FacturacionComercioDTO;
+import ec.edu.espe.pos.dto.ResultadoTransaccionDTO;
+import ec.edu.espe.pos.model.Configuracion;
+import ec.edu.espe.pos.model.ConfiguracionPK;
+import ec.edu.espe.pos.model.Transaccion;
+import ec.edu.espe.pos.rendimiento.MedidorRendimiento.Presupuesto;
+import ec.edu.espe.pos.repository.ConfiguracionRepository;
+import ec.edu.espe.pos.repository.TransaccionRepository;
+import ec.edu.espe.pos.service.ConfiguracionService;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Presupuestos de PagoController contra la PostgreSQL local (perfil rendimiento). Los clientes del
+ * gateway se simulan y responden al instante, así se mide solo el costo del POS: /procesar
+ * con la configuración y la facturación ya en memoria, y /resultados con lotes de LOTE resultados.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("rendimiento")
+class PagoRendimientoIT {
+
+    private static final int LOTE = 50;
+    private static final int TRANSACCIONES_ENVIADAS = 1000;
+    private static final Integer CODIGO_COMERCIO = 1;
+    private static final String[] MARCAS = {"VISA", "MSCD", "AMEX", "DINE"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConfiguracionRepository configuracionRepository;
+
+    @Autowired
+    private ConfiguracionService configuracionService;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    // El gateway responde al instante: el presupuesto es solo del POS
+    @MockitoBean
+    private GatewayTransaccionClient gatewayTransaccionClient;
+
+    @MockitoBean
+    private GatewayComercioClient gatewayComercioClient;
+
+    private MedidorRendimiento medidor;
+
+    @BeforeEach
+    void prepararDatos() {
+        if (configuracionRepository.count() == 0) {
+            Configuracion configuracion = new Configuracion(new ConfiguracionPK("POS0000001", "POS"));
+            configuracion.setDireccionMac("00:1A:2B:3C:4D:5E");
+            configuracion.setCodigoComercio(CODIGO_COMERCIO);
+            configuracion.setFechaActivacion(LocalDateTime.now());
+            configuracionRepository.save(configuracion);
+
+            List<Transaccion> enviadas = new ArrayList<>();
+            for (int i = 0; i < TRANSACCIONES_ENVIADAS; i++) {
+                Transaccion transaccion = new Transaccion();
+                transaccion.setTipo("PAG");
+                transaccion.setModalidad("SIM");
+                transaccion.setMarca(MARCAS[i % MARCAS.length]);
+                transaccion.setDetalle("Rendimiento - " + MARCAS[i % MARCAS.length]);
+                transaccion.setMonto(new BigDecimal("25.00"));
+                transaccion.setCodigoUnicoTransaccion(codigoEnviada(i));
+                transaccion.setFecha(LocalDateTime.now());
+                transaccion.setEstado("ENV");
+                transaccion.setEstadoRecibo("PEN");
+                transaccion.setMoneda("USD");
+                enviadas.add(transaccion);
+            }
+            transaccionRepository.saveAll(enviadas);
+        }
+        configuracionService.recargarConfiguracionActual();
+
+        FacturacionComercioDTO facturacion = new FacturacionComercioDTO();
+        facturacion.setCodigo(1);
+        facturacion.setFechaInicio(LocalDate.now().withDayOfMonth(1));
+        facturacion.setFechaFin(LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1));
+        facturacion.setEstado("ACT");
+        when(gatewayComercioClient.obtenerFacturacionPorComercio(CODIGO_COMERCIO)).thenReturn(facturacion);
+        when(gatewayTransaccionClient.sincronizarTransaccion(any())).thenReturn("Transacción sincronizada exitosamente");
+        medidor = new MedidorRendimiento(mockMvc);
+    }
+
+    @Test
+    void procesarPago() throws Exception {
+        medidor.medir("POST /api/pagos/procesar", i -> post("/api/pagos/procesar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(pago(i)))
+                .verificar(new Presupuesto(1, 128, 30));
+    }
+
+    @Test
+    void recibirResultados() throws Exception {
+        medidor.medir("POST /api/pagos/resultados", i -> post("/api/pagos/resultados")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(resultados(i)))
+                .verificar(new Presupuesto(1, 256, 25));
+    }
+
+    private String pago(int i) {
+        Map<String, Object> pago = new LinkedHashMap<>();
+        pago.put("monto", new BigDecimal(10 + i % 90 + ".50"));
+        pago.put("marca", MARCAS[i % MARCAS.length]);
+        pago.put("datosTarjeta", "{\"cardNumber\":\"" + String.format("4%015d", i)
+                + "\",\"expiryDate\":\"12/30\",\"cvv\":\"123\"}");
+        return json(pago);
+    }
+
+    // Lote con autorizadas y rechazadas mezcladas, el caso de una sola sentencia con CASE
+    private String resultados(int i) {
+        List<ResultadoTransaccionDTO> lote = new ArrayList<>(LOTE);
+        for (int j = 0; j < LOTE; j++) {
+            ResultadoTransaccionDTO resultado = new ResultadoTransaccionDTO();
+            resultado.setCodigoUnicoTransaccion(codigoEnviada((i * LOTE + j) % TRANSACCIONES_ENVIADAS));
+            resultado.setEstado(j % 10 == 0 ? "REC" : "AUT");
+            lote.add(resultado);
+        }
+        return json(lote);
+    }
+
+    private static String codigoEnviada(int i) {
+        return String.format("REND%08d", i);
+    }
+
+    private String json(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al serializar: " + e.getMessage());
+        }
+    }
+
+    @TestConfiguration
+    static class ConfiguracionRendimiento {
+
+        @Bean
+        HibernatePropertiesCustomizer contadorSentenciasCustomizer() {
+            return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR,
+                    new MedidorRendimiento.ContadorSentencias());
+        }
+    }
+}